@@ -8,5 +8,7 @@ module org.torqlang.examples {
 
     requires org.eclipse.jetty.server;
 
+    requires jdk.management;
+
     exports org.torqlang.examples;
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.eclipse.jetty.server.Request;
+import org.torqlang.klvm.CompleteRec;
+import org.torqlang.klvm.CompleteTuple;
+import org.torqlang.klvm.Rec;
+import org.torqlang.local.*;
+import org.torqlang.server.*;
+
+import java.util.Random;
+
+/*
+ * Compare the StaticApiRouter with the TrieApiRouter when 500 routes are installed.
+ *
+ * The routes are RESOURCE_COUNT resources with five templates each, such as "/r7", "/r7/{id}", "/r7/{id}/items",
+ * "/r7/{id}/items/{item}", and "/r7/summary". Each round looks up LOOKUP_COUNT random request paths, a tenth of which
+ * have no route, and reports the nanos per lookup. A lookup is `findMatch` followed by `toPathTuple(match)`, which is
+ * what ApiHandler does for each request. For comparison, the TrieApiRouter is also timed building the tuple from the
+ * split path with `toPathTuple(match.path())`. The benchmark also counts the paths where the StaticApiRouter finds a
+ * different route than the TrieApiRouter, because the static router cannot tell "/r7/summary" from "/r7/{id}".
+ * Therefore, the `{id}` segments are described as strings, so that a mismatched route still builds its tuple.
+ *
+ * Run with:
+ *     java -XX:+UseZGC -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchApiRouter
+ */
+public final class BenchApiRouter {
+
+    private static final int RESOURCE_COUNT = 100;
+    private static final int LOOKUP_COUNT = 2_000_000;
+    private static final int ROUND_COUNT = 5;
+
+    private static CompleteRec emptyContextProvider(Request request) {
+        return Rec.completeRecBuilder().build();
+    }
+
+    public static void main(String[] args) {
+        ApiDesc[] descs = {
+            createDesc(TupleDesc.of(StrDesc.BASIC)),
+            createDesc(TupleDesc.of(StrDesc.BASIC, StrDesc.BASIC)),
+            createDesc(TupleDesc.of(StrDesc.BASIC, StrDesc.BASIC, StrDesc.BASIC)),
+            createDesc(TupleDesc.of(StrDesc.BASIC, StrDesc.BASIC, StrDesc.BASIC, Int64Desc.BASIC)),
+            createDesc(TupleDesc.of(StrDesc.BASIC, StrDesc.BASIC))
+        };
+        ActorRef target = new FutureResponse(Address.create("target"));
+        StaticApiRouterBuilder staticBuilder = ApiRouter.staticBuilder();
+        TrieApiRouterBuilder trieBuilder = ApiRouter.trieBuilder();
+        int routeCount = 0;
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            String resource = "/r" + i;
+            String[] pathExprs = {resource, resource + "/{id}", resource + "/{id}/items",
+                resource + "/{id}/items/{item}", resource + "/summary"};
+            for (int j = 0; j < pathExprs.length; j++) {
+                staticBuilder.addRoute(pathExprs[j], target, descs[j]);
+                trieBuilder.addRoute(pathExprs[j], target, descs[j]);
+                routeCount++;
+            }
+        }
+        ApiRouter staticRouter = staticBuilder.build();
+        ApiRouter trieRouter = trieBuilder.build();
+        String[] paths = createPaths();
+        int mismatchCount = 0;
+        for (String path : paths) {
+            ApiRouteMatch staticMatch = staticRouter.findMatch(path);
+            ApiRouteMatch trieMatch = trieRouter.findMatch(path);
+            if (staticMatch == null ? trieMatch != null :
+                trieMatch == null || !staticMatch.route().path.segs.equals(trieMatch.route().path.segs))
+            {
+                mismatchCount++;
+            }
+        }
+        System.out.printf("Routes: %,d, distinct paths: %,d, static router mismatches: %,d%n", routeCount,
+            paths.length, mismatchCount);
+        for (int i = 0; i < ROUND_COUNT; i++) {
+            perform("StaticApiRouter", staticRouter, paths, false);
+            perform("TrieApiRouter", trieRouter, paths, false);
+            perform("TrieApiRouter (split path)", trieRouter, paths, true);
+        }
+    }
+
+    private static ApiDesc createDesc(TupleDesc pathDesc) {
+        return ApiDesc.builder()
+            .setPathDesc(pathDesc)
+            .setContextProvider(BenchApiRouter::emptyContextProvider)
+            .build();
+    }
+
+    private static String[] createPaths() {
+        Random random = new Random(7);
+        String[] paths = new String[4096];
+        for (int i = 0; i < paths.length; i++) {
+            String resource = "/r" + random.nextInt(RESOURCE_COUNT);
+            String id = Integer.toString(10_000 + random.nextInt(90_000));
+            paths[i] = switch (random.nextInt(10)) {
+                case 0 -> resource;
+                case 1, 2 -> resource + "/" + id + "/items";
+                case 3, 4 -> resource + "/" + id + "/items/" + random.nextInt(20);
+                case 5 -> resource + "/summary";
+                case 6 -> "/unknown/" + id;
+                default -> resource + "/" + id;
+            };
+        }
+        return paths;
+    }
+
+    private static void perform(String label, ApiRouter router, String[] paths, boolean splitPath) {
+        int mask = paths.length - 1;
+        long matchedCount = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            ApiRouteMatch match = router.findMatch(paths[i & mask]);
+            if (match != null) {
+                ApiDesc desc = match.route().desc;
+                CompleteTuple pathTuple = splitPath ? desc.toPathTuple(match.path()) : desc.toPathTuple(match);
+                matchedCount += pathTuple.fieldCount();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-26s %,8.1f nanos per lookup (checksum %,d)%n", label, (double) elapsed / LOOKUP_COUNT,
+            matchedCount);
+    }
+
+}
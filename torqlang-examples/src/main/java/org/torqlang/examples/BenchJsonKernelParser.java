@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.torqlang.klvm.Complete;
+import org.torqlang.klvm.CompleteTuple;
+import org.torqlang.klvm.Str;
+import org.torqlang.lang.JsonParser;
+import org.torqlang.local.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/*
+ * Compare reading a JSON request body into kernel values in two steps, JsonParser followed by ValueTools, with reading
+ * it in one step with JsonKernelParser.
+ *
+ * The bodies are arrays of orders with nested lines, described by a RecDesc as an ApiDesc input would be. The small
+ * body is about 1 KB and the large body is about 1 MB. Each round reports the throughput in MB of JSON text per second
+ * and the bytes allocated per read, as measured by the thread allocation counter.
+ *
+ * Run with:
+ *     java -XX:+UseZGC -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchJsonKernelParser
+ */
+public final class BenchJsonKernelParser {
+
+    private static final int ROUND_COUNT = 5;
+    private static final long ROUND_BYTES = 200_000_000L;
+
+    private static final RecDesc LINE_DESC = RecDesc.builder()
+        .add(Str.of("product_id"), Int64Desc.BASIC)
+        .add(Str.of("product_name"), StrDesc.BASIC)
+        .add(Str.of("quantity"), Int64Desc.BASIC)
+        .add(Str.of("unit_price"), Dec128Desc.BASIC)
+        .build();
+
+    private static final RecDesc ORDER_DESC = RecDesc.builder()
+        .add(Str.of("order_id"), Int64Desc.BASIC)
+        .add(Str.of("customer_id"), StrDesc.BASIC)
+        .add(Str.of("ship_city"), StrDesc.BASIC)
+        .add(Str.of("freight"), Dec128Desc.BASIC)
+        .add(Str.of("lines"), ArrayDesc.of(LINE_DESC))
+        .build();
+
+    private static final ArrayDesc ORDERS_DESC = ArrayDesc.of(ORDER_DESC);
+
+    private static String createOrders(int targetLength) {
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder(targetLength + 1024);
+        sb.append('[');
+        int orderId = 10248;
+        while (sb.length() < targetLength) {
+            if (orderId > 10248) {
+                sb.append(',');
+            }
+            sb.append("{\"order_id\":").append(orderId++)
+                .append(",\"customer_id\":\"C").append(10_000 + random.nextInt(90_000))
+                .append("\",\"ship_city\":\"City ").append(random.nextInt(100))
+                .append("\",\"freight\":\"").append(random.nextInt(1000)).append('.').append(10 + random.nextInt(90))
+                .append("\",\"lines\":[");
+            int lineCount = 1 + random.nextInt(3);
+            for (int i = 0; i < lineCount; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"product_id\":").append(random.nextInt(80))
+                    .append(",\"product_name\":\"Product ").append(random.nextInt(80))
+                    .append("\",\"quantity\":").append(1 + random.nextInt(50))
+                    .append(",\"unit_price\":\"").append(random.nextInt(100)).append('.').append(10 + random.nextInt(90))
+                    .append("\"}");
+            }
+            sb.append("]}");
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String small = createOrders(1024);
+        String large = createOrders(1024 * 1024);
+        for (String body : new String[]{small, large}) {
+            Complete expected = ValueTools.toKernelValue(new JsonParser(body).parse(), ORDERS_DESC);
+            if (!expected.equals(JsonKernelParser.parse(body, ORDERS_DESC))) {
+                throw new IllegalStateException("Parsers disagree");
+            }
+        }
+        for (int i = 0; i < ROUND_COUNT; i++) {
+            perform("JsonParser+ValueTools", small, threadMXBean, false);
+            perform("JsonKernelParser", small, threadMXBean, true);
+            perform("JsonParser+ValueTools", large, threadMXBean, false);
+            perform("JsonKernelParser", large, threadMXBean, true);
+        }
+    }
+
+    private static void perform(String label, String body, com.sun.management.ThreadMXBean threadMXBean,
+                                boolean direct)
+    {
+        long readCount = Math.max(1, ROUND_BYTES / body.length());
+        long threadId = Thread.currentThread().getId();
+        long fieldCount = 0;
+        long allocatedStart = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (long i = 0; i < readCount; i++) {
+            Complete value = direct ? JsonKernelParser.parse(body, ORDERS_DESC) :
+                ValueTools.toKernelValue(new JsonParser(body).parse(), ORDERS_DESC);
+            fieldCount += ((CompleteTuple) value).fieldCount();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedStart;
+        double megabytes = (double) body.length() * readCount / (1024 * 1024);
+        System.out.printf("%-22s %,9d bytes: %,9.1f MB/s, %,12d bytes allocated per read (checksum %,d)%n", label,
+            body.length(), megabytes / (elapsed / 1_000_000_000.0), allocated / readCount, fieldCount);
+    }
+
+}
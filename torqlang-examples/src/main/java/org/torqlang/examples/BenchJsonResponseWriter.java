@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.torqlang.klvm.*;
+import org.torqlang.lang.JsonFormatter;
+import org.torqlang.local.ValueTools;
+import org.torqlang.server.JsonResponseWriter;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+ * Compare encoding a response of 10,000 orders as UTF-8 JSON in three steps, ValueTools to native values, JsonFormatter
+ * to a String, and String to bytes, with encoding it in one step with JsonResponseWriter into pooled chunks.
+ *
+ * Each round reports the millis per response and the bytes allocated per response, as measured by the thread
+ * allocation counter.
+ *
+ * Run with:
+ *     java -XX:+UseZGC -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchJsonResponseWriter
+ */
+public final class BenchJsonResponseWriter {
+
+    private static final int ORDER_COUNT = 10_000;
+    private static final int RESPONSE_COUNT = 200;
+    private static final int ROUND_COUNT = 5;
+
+    private static CompleteTuple createOrders() {
+        CompleteTupleBuilder ordersBuilder = Rec.completeTupleBuilder();
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            CompleteTupleBuilder linesBuilder = Rec.completeTupleBuilder();
+            for (int j = 0; j < 1 + i % 3; j++) {
+                linesBuilder.addValue(Rec.completeRecBuilder()
+                    .addField(Str.of("product_id"), Int64.of(j * 7 + i % 80))
+                    .addField(Str.of("product_name"), Str.of("Product " + (i % 80)))
+                    .addField(Str.of("quantity"), Int32.of(1 + i % 50))
+                    .addField(Str.of("unit_price"), Dec128.of((i % 100) + ".25"))
+                    .build());
+            }
+            ordersBuilder.addValue(Rec.completeRecBuilder()
+                .addField(Str.of("order_id"), Int64.of(10248 + i))
+                .addField(Str.of("customer_id"), Str.of("C" + (10_000 + i)))
+                .addField(Str.of("ship_city"), Str.of("City " + (i % 100)))
+                .addField(Str.of("freight"), Dec128.of((i % 1000) + ".10"))
+                .addField(Str.of("lines"), linesBuilder.build())
+                .build());
+        }
+        return ordersBuilder.build();
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        CompleteTuple orders = createOrders();
+        ByteBufferPool pool = new ArrayByteBufferPool();
+        for (int i = 0; i < ROUND_COUNT; i++) {
+            perform("JsonFormatter", orders, threadMXBean, null);
+            perform("JsonResponseWriter", orders, threadMXBean, pool);
+        }
+    }
+
+    private static void perform(String label, CompleteTuple orders, com.sun.management.ThreadMXBean threadMXBean,
+                                ByteBufferPool pool)
+    {
+        long threadId = Thread.currentThread().getId();
+        long byteCount = 0;
+        long allocatedStart = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < RESPONSE_COUNT; i++) {
+            if (pool == null) {
+                String text = JsonFormatter.DEFAULT.format(ValueTools.toNativeValue(orders));
+                byteCount += text.getBytes(StandardCharsets.UTF_8).length;
+            } else {
+                List<RetainableByteBuffer> chunks = new JsonResponseWriter(pool).encode(orders, null);
+                for (RetainableByteBuffer chunk : chunks) {
+                    byteCount += chunk.remaining();
+                    chunk.release();
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedStart;
+        System.out.printf("%-20s %,8.2f millis per response, %,12d bytes allocated per response, %,d bytes per response%n",
+            label, elapsed / 1_000_000.0 / RESPONSE_COUNT, allocated / RESPONSE_COUNT, byteCount / RESPONSE_COUNT);
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.torqlang.examples.BenchTools.TupleSample;
+import org.torqlang.klvm.CompleteRec;
+import org.torqlang.klvm.CompleteTuple;
+import org.torqlang.klvm.Rec;
+import org.torqlang.klvm.Str;
+import org.torqlang.local.*;
+
+import static org.torqlang.examples.BenchTools.printTimingResults;
+
+/*
+ * Same as BenchNorthwindCustomers, except handler actors are recycled through an ActorPool instead of being spawned
+ * per request.
+ *
+ * java -XX:+UseZGC -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchNorthwindCustomersPool
+ */
+public final class BenchNorthwindCustomersPool {
+
+    private static final int TOTAL_CUSTOMERS = 29;
+
+    private static final CompleteTuple CUSTOMERS_PATH = Rec.completeTupleBuilder()
+        .addValue(Str.of("customers"))
+        .build();
+    private static final CompleteRec GET_CUSTOMERS = Rec.completeRecBuilder()
+        .setLabel(Str.of("GET"))
+        .addField(Str.of("headers"), Rec.completeRecBuilder().build())
+        .addField(Str.of("path"), CUSTOMERS_PATH)
+        .addField(Str.of("query"), Rec.completeRecBuilder().build())
+        .addField(Str.of("context"), Rec.completeRecBuilder().build())
+        .build();
+
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < 10; i++) {
+            new BenchNorthwindCustomersPool().perform();
+        }
+        System.exit(0);
+    }
+
+    private void perform() throws Exception {
+        // SETUP
+        CompleteRec examplesMod = Rec.completeRecBuilder()
+            .addField(Str.of("NorthwindDb"), NorthwindDbPack.NORTHWIND_DB_ACTOR)
+            .build();
+        ActorSystem system = ActorSystem.builder()
+            .addDefaultModules()
+            .addModule("examples", examplesMod)
+            .build();
+        String customersHandlerSource = NorthwindJson.readTextFromResource(
+            NorthwindJson.RESOURCES_DIR + "CustomersHandler.torq");
+        ActorImage actorImage = Actor.builder()
+            .setSystem(system)
+            .actorImage(customersHandlerSource);
+        ActorPool actorPool = new ActorPool(Address.create("customers"), actorImage, 64);
+        int iterCount = 10_000;
+        // WARMUP
+        for (int i = 0; i < iterCount; i++) {
+            performSampling(actorPool, TOTAL_CUSTOMERS);
+        }
+        // SAMPLES
+        int readCount = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < iterCount; i++) {
+            readCount += performSampling(actorPool, TOTAL_CUSTOMERS);
+        }
+        long stop = System.currentTimeMillis();
+        // REPORTING
+        printTimingResults(getClass().getSimpleName(), start, stop, readCount);
+    }
+
+    private TupleSample poolSample(ActorPool actorPool, int expectedSize) {
+        FutureResponse futureResp = new FutureResponse(Address.create("future_response"));
+        Envelope rqs = Envelope.createRequest(GET_CUSTOMERS, futureResp, "get_request");
+        actorPool.send(rqs);
+        return new TupleSample(expectedSize, futureResp);
+    }
+
+    private int performSampling(ActorPool actorPool, int expectedSize) throws Exception {
+        return BenchTools.checkTupleResponses(
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize),
+            poolSample(actorPool, expectedSize)
+        );
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.torqlang.klvm.Str;
+import org.torqlang.local.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measure how blocking native actors affect CPU-bound Torq actors that share the same actor system.
+ *
+ * Each round floods a NorthwindDb configured with a nonzero read latency with concurrent reads. While the reads are
+ * outstanding, a set of HelloWorld actors running on the same system are asked 'hello' one at a time and the round
+ * trip latency of each ask is recorded. With the affinity executor, HelloWorld actors hashed to a reader thread must
+ * wait behind the blocked reads. With virtual threads, only the blocked readers wait.
+ *
+ * Example data:
+ *     Example data must be copied from the project directory `resources/northwind/` to the local home
+ *     directory `/home/USER/.torq_lang/resources/northwind`.
+ * Run with all hardware threads:
+ *     java -XX:+UseZGC -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchNorthwindDbLatency
+ */
+public final class BenchNorthwindDbLatency {
+
+    private static final int CONCURRENCY = 4;
+    private static final int READ_LATENCY_NANOS = 500_000;
+    private static final int READS_PER_ROUND = 200;
+    private static final int HELLO_ACTOR_COUNT = 8;
+    private static final int HELLOS_PER_ROUND = 40;
+    private static final int ROUND_COUNT = 20;
+
+    private static final Str HELLO = Str.of("hello");
+
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < 3; i++) {
+            new BenchNorthwindDbLatency().perform("AffinityExecutor", ActorSystem.builder()
+                .setName("AffinitySystem")
+                .setExecutor(new AffinityExecutor("AffinitySystem", CONCURRENCY))
+                .build());
+            new BenchNorthwindDbLatency().perform("VirtualThreadExecutor", ActorSystem.builder()
+                .setName("VirtualSystem")
+                .setVirtualThreads(true)
+                .build());
+        }
+        System.exit(0);
+    }
+
+    private static long percentile(long[] sortedNanos, double p) {
+        int i = (int) Math.ceil(p * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(i, sortedNanos.length - 1))];
+    }
+
+    private FutureResponse findByKey(NorthwindDb db, long id) {
+        FutureResponse futureResp = new FutureResponse(Address.create("future_response"));
+        Envelope rqs = Envelope.createRequest(new NorthwindDb.FindByKey("customers", Map.of("id", id)),
+            futureResp, "find_request");
+        db.send(rqs);
+        return futureResp;
+    }
+
+    private void perform(String label, ActorSystem system) throws Exception {
+        // SETUP
+        NorthwindDb db = new NorthwindDb(Address.create("northwind_db"), system, CONCURRENCY, READ_LATENCY_NANOS);
+        ActorRef[] helloActors = new ActorRef[HELLO_ACTOR_COUNT];
+        for (int i = 0; i < helloActors.length; i++) {
+            helloActors[i] = Actor.builder()
+                .setSystem(system)
+                .setAddress(Address.create("hello_world_" + i))
+                .spawn(HelloWorld.SOURCE)
+                .actorRef();
+        }
+        // WARMUP
+        performRound(db, helloActors, new long[HELLOS_PER_ROUND]);
+        // SAMPLES
+        long[] helloNanos = new long[HELLOS_PER_ROUND * ROUND_COUNT];
+        long[] roundNanos = new long[HELLOS_PER_ROUND];
+        int readCount = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < ROUND_COUNT; i++) {
+            readCount += performRound(db, helloActors, roundNanos);
+            System.arraycopy(roundNanos, 0, helloNanos, i * HELLOS_PER_ROUND, HELLOS_PER_ROUND);
+        }
+        long stop = System.currentTimeMillis();
+        // REPORTING
+        Arrays.sort(helloNanos);
+        BenchTools.printTimingResults(getClass().getSimpleName() + " (" + label + ")", start, stop, readCount);
+        System.out.println("  " + String.format("Hello latency p50: %,.3f millis", percentile(helloNanos, 0.50) / 1_000_000.0));
+        System.out.println("  " + String.format("Hello latency p99: %,.3f millis", percentile(helloNanos, 0.99) / 1_000_000.0));
+        System.out.println("  " + String.format("Hello latency max: %,.3f millis", helloNanos[helloNanos.length - 1] / 1_000_000.0));
+    }
+
+    private int performRound(NorthwindDb db, ActorRef[] helloActors, long[] helloNanos) throws Exception {
+        // Flood the database with reads that block the reader threads
+        List<FutureResponse> reads = new ArrayList<>(READS_PER_ROUND);
+        for (int i = 0; i < READS_PER_ROUND; i++) {
+            reads.add(findByKey(db, (i % 29) + 1));
+        }
+        // Measure CPU-bound actors while the reads are outstanding
+        for (int i = 0; i < helloNanos.length; i++) {
+            ActorRef helloActor = helloActors[i % helloActors.length];
+            long start = System.nanoTime();
+            RequestClient.builder().sendAndAwaitResponse(helloActor, HELLO, 10, TimeUnit.SECONDS);
+            helloNanos[i] = System.nanoTime() - start;
+        }
+        for (int i = 0; i < reads.size(); i++) {
+            BenchTools.checkMapResponse((i % 29) + 1, reads.get(i));
+        }
+        return reads.size();
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.eclipse.jetty.server.Request;
+import org.torqlang.klvm.CompleteRec;
+import org.torqlang.klvm.Rec;
+import org.torqlang.local.*;
+import org.torqlang.server.*;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.HttpURLConnection;
+import java.net.URI;
+
+/*
+ * Compare answering a GET for 100,000 orders with one response value against streaming the same orders in batches of
+ * 1,000 as NDJSON.
+ *
+ * Each round reports the time to the first byte of the body, the time to the last byte, and the peak heap in use
+ * above the heap in use before the request, as sampled every millisecond. The unstreamed route builds every order
+ * and encodes the whole body before writing a byte. The streamed route writes each batch as soon as it is built.
+ *
+ * Run with:
+ *     java -Xmx1g -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchStreamingResponse
+ */
+public final class BenchStreamingResponse {
+
+    private static final int BATCH_SIZE = 1_000;
+    private static final int ORDER_COUNT = 100_000;
+    private static final int PORT = 8089;
+    private static final int ROUND_COUNT = 5;
+
+    private static final CompleteRec EMPTY_REC = Rec.completeRecBuilder().build();
+
+    private static final String FULL_HANDLER_SOURCE = """
+        actor FullHandler() in
+            import system[ArrayList, Cell]
+            handle ask 'GET'#{'path': path, ...} in
+                var orders = ArrayList.new()
+                var next = Cell.new(0)
+                while @next < %d do
+                    orders.add({'order_id': 10248 + @next, 'customer_id': 27, 'ship_city': 'Seattle',
+                        'ship_country_region': 'USA', 'payment_type': 'Credit Card', 'tax_rate': 0.25})
+                    next := @next + 1
+                end
+                orders.to_tuple()
+            end
+        end""".formatted(ORDER_COUNT);
+
+    private static final String STREAM_HANDLER_SOURCE = """
+        actor StreamHandler() in
+            import system[ArrayList, Cell]
+            import system.Procs.respond
+            handle ask 'GET'#{'path': path, ...} in
+                var next = Cell.new(0)
+                while @next < %d do
+                    var batch = ArrayList.new()
+                    var stop = @next + %d
+                    while @next < stop do
+                        batch.add({'order_id': 10248 + @next, 'customer_id': 27, 'ship_city': 'Seattle',
+                            'ship_country_region': 'USA', 'payment_type': 'Credit Card', 'tax_rate': 0.25})
+                        next := @next + 1
+                    end
+                    respond(batch.to_tuple())
+                end
+                eof#{'more': false}
+            end
+        end""".formatted(ORDER_COUNT, BATCH_SIZE);
+
+    private static CompleteRec emptyContextProvider(Request request) {
+        return EMPTY_REC;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BenchStreamingResponse().perform();
+        System.exit(0);
+    }
+
+    public final void perform() throws Exception {
+        ActorSystem system = ActorSystem.defaultSystem();
+        ApiDesc fullApiDesc = ApiDesc.builder()
+            .setPathDesc(TupleDesc.of(StrDesc.BASIC))
+            .setContextProvider(BenchStreamingResponse::emptyContextProvider)
+            .build();
+        ApiDesc streamApiDesc = ApiDesc.builder()
+            .setPathDesc(TupleDesc.of(StrDesc.BASIC))
+            .setContextProvider(BenchStreamingResponse::emptyContextProvider)
+            .setStreamFormat(ApiStreamFormat.NDJSON)
+            .build();
+        ApiHandler handler = ApiHandler.builder()
+            .setSystem(system)
+            .setRouter(ApiRouter.trieBuilder()
+                .addRoute("/full", Actor.builder().setSystem(system).actorImage(FULL_HANDLER_SOURCE), fullApiDesc)
+                .addRoute("/stream", Actor.builder().setSystem(system).actorImage(STREAM_HANDLER_SOURCE),
+                    streamApiDesc)
+                .build())
+            .build();
+        LocalServer server = LocalServer.builder()
+            .setPort(PORT)
+            .addContextHandler(handler, "/api")
+            .build();
+        server.start();
+        try {
+            for (int round = 1; round <= ROUND_COUNT; round++) {
+                System.out.println("Round " + round);
+                performRequest("full", "/api/full");
+                performRequest("stream", "/api/stream");
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void performRequest(String label, String path) throws Exception {
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memoryBean.getHeapMemoryUsage().getUsed();
+        long[] peak = {baseline};
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak[0] = Math.max(peak[0], memoryBean.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException exc) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:" + PORT + path)
+            .toURL().openConnection();
+        long firstByteNanos;
+        long bodySize = 1;
+        try (InputStream in = connection.getInputStream()) {
+            if (in.read() == -1) {
+                throw new IllegalStateException("Empty response");
+            }
+            firstByteNanos = System.nanoTime() - start;
+            byte[] buffer = new byte[64 * 1024];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                bodySize += count;
+            }
+        }
+        long lastByteNanos = System.nanoTime() - start;
+        sampler.interrupt();
+        sampler.join();
+        System.out.printf("  %-6s  first byte: %,6d ms  last byte: %,6d ms  body: %,d bytes  peak heap: %,d MB%n",
+            label, firstByteNanos / 1_000_000, lastByteNanos / 1_000_000, bodySize,
+            (peak[0] - baseline) / (1024 * 1024));
+    }
+
+}
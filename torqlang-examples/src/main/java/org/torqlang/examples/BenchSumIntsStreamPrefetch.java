@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.torqlang.klvm.CompleteRec;
+import org.torqlang.klvm.Int32;
+import org.torqlang.klvm.Rec;
+import org.torqlang.klvm.Str;
+import org.torqlang.local.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measure how the stream prefetch affects a SumOddIntsStream-style pipeline.
+ *
+ * Each sum streams the integers 1 through LAST from an IntPublisher in batches of BATCH_SIZE. With a prefetch of 1,
+ * every batch costs a round trip between the consumer and the publisher. With a larger prefetch, the publisher
+ * computes the next batches while the consumer iterates.
+ *
+ * Run with all hardware threads:
+ *     java -XX:+UseZGC -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchSumIntsStreamPrefetch
+ */
+public final class BenchSumIntsStreamPrefetch {
+
+    public static final String SOURCE = """
+        actor SumIntsStream(prefetch) in
+            import system[Cell, Stream, ValueIter]
+            import examples.IntPublisher
+            handle ask 'sum'#{'last': last, 'batch_size': batch_size} in
+                var sum = Cell.new(0)
+                var int_publisher = spawn(IntPublisher.cfg(1, last, 1))
+                var int_stream = Stream.new(int_publisher, 'request'#{'count': batch_size}, prefetch)
+                for i in ValueIter.new(int_stream) do
+                    sum := @sum + i
+                end
+                @sum
+            end
+        end""";
+
+    private static final int BATCH_SIZE = 10;
+    private static final int LAST = 10_000;
+    private static final int SUM_COUNT = 20;
+
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < 3; i++) {
+            for (int prefetch : new int[]{1, 4, 16}) {
+                new BenchSumIntsStreamPrefetch().perform(prefetch);
+            }
+        }
+        System.exit(0);
+    }
+
+    private void perform(int prefetch) throws Exception {
+        ActorSystem system = ActorSystem.builder()
+            .addDefaultModules()
+            .addModule("examples", IntPublisherMod.moduleRec())
+            .build();
+        ActorRef actorRef = Actor.builder()
+            .setSystem(system)
+            .spawn(SOURCE, List.of(Int32.of(prefetch)))
+            .actorRef();
+        CompleteRec message = Rec.completeRecBuilder()
+            .setLabel(Str.of("sum"))
+            .addField(Str.of("last"), Int32.of(LAST))
+            .addField(Str.of("batch_size"), Int32.of(BATCH_SIZE))
+            .build();
+        Int32 expected = Int32.of(LAST * (LAST + 1) / 2);
+        // WARMUP
+        sum(actorRef, message, expected);
+        // SAMPLES
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < SUM_COUNT; i++) {
+            sum(actorRef, message, expected);
+        }
+        long stop = System.currentTimeMillis();
+        // REPORTING
+        BenchTools.printTimingResults(getClass().getSimpleName() + " (prefetch " + prefetch + ")", start, stop,
+            SUM_COUNT * LAST);
+    }
+
+    private void sum(ActorRef actorRef, CompleteRec message, Int32 expected) throws Exception {
+        Object response = RequestClient.builder()
+            .sendAndAwaitResponse(actorRef, message, 10, TimeUnit.SECONDS);
+        if (!expected.equals(response)) {
+            throw new IllegalStateException("Request failed: " + response);
+        }
+    }
+
+}
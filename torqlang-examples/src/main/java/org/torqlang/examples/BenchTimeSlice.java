@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.torqlang.klvm.Int32;
+import org.torqlang.klvm.Rec;
+import org.torqlang.klvm.Str;
+import org.torqlang.local.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Measure how the time slice affects the latency of a light request handler that shares its thread with a long
+ * computation.
+ *
+ * Each round runs both actors on a single-thread AffinityExecutor. A background thread keeps the Fibonacci actor busy
+ * computing fib(FIB_N), while the main thread measures the round-trip latency of PING_COUNT pings sent to the Ping
+ * actor. A ping waits behind the current time slice of the Fibonacci actor, so the time slice bounds its latency.
+ *
+ * Run with:
+ *     java -XX:+UseZGC -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchTimeSlice
+ */
+public final class BenchTimeSlice {
+
+    private static final String FIBONACCI_SOURCE = """
+        actor Fibonacci() in
+            func fib(n) in
+                if n < 2 then n
+                else fib(n - 1) + fib(n - 2) end
+            end
+            handle ask 'fib'#{'n': n} in
+                fib(n)
+            end
+        end""";
+
+    private static final String PING_SOURCE = """
+        actor Ping() in
+            handle ask 'ping' in
+                'pong'
+            end
+        end""";
+
+    private static final int FIB_N = 22;
+    private static final int PING_COUNT = 2_000;
+    private static final int ROUND_COUNT = 3;
+
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < ROUND_COUNT; i++) {
+            perform("fixed 10,000", TimeSliceCfg.DEFAULT);
+            perform("fixed 1,000,000", TimeSliceCfg.fixed(1_000_000));
+            perform("adaptive 200 micros", TimeSliceCfg.adaptive(200, TimeUnit.MICROSECONDS));
+        }
+        System.exit(0);
+    }
+
+    private static long percentile(long[] sortedNanos, double p) {
+        int i = (int) Math.ceil(p * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(i, sortedNanos.length - 1))];
+    }
+
+    private static void perform(String label, TimeSliceCfg timeSliceCfg) throws Exception {
+        AffinityExecutor executor = new AffinityExecutor(BenchTimeSlice.class.getSimpleName(), 1);
+        ActorSystem system = ActorSystem.builder()
+            .addDefaultModules()
+            .setExecutor(executor)
+            .setTimeSliceCfg(timeSliceCfg)
+            .build();
+        ActorRef fibonacci = Actor.builder().setSystem(system).spawn(FIBONACCI_SOURCE).actorRef();
+        ActorRef ping = Actor.builder().setSystem(system).spawn(PING_SOURCE).actorRef();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger fibCount = new AtomicInteger();
+        Thread background = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    RequestClient.builder().sendAndAwaitResponse(fibonacci,
+                        Rec.completeRecBuilder()
+                            .setLabel(Str.of("fib"))
+                            .addField(Str.of("n"), Int32.of(FIB_N))
+                            .build(),
+                        60, TimeUnit.SECONDS);
+                    fibCount.incrementAndGet();
+                }
+            } catch (Exception exc) {
+                throw new IllegalStateException(exc);
+            }
+        });
+        background.start();
+        long[] latencies = new long[PING_COUNT];
+        long start = System.nanoTime();
+        for (int i = 0; i < PING_COUNT; i++) {
+            long pingStart = System.nanoTime();
+            RequestClient.builder().sendAndAwaitResponse(ping, Str.of("ping"), 60, TimeUnit.SECONDS);
+            latencies[i] = System.nanoTime() - pingStart;
+        }
+        long elapsed = System.nanoTime() - start;
+        done.set(true);
+        background.join();
+        Arrays.sort(latencies);
+        System.out.println(BenchTimeSlice.class.getSimpleName() + " (" + label + ")");
+        System.out.println("  " + String.format("Ping p50: %,.3f millis", percentile(latencies, 0.50) / 1_000_000.0));
+        System.out.println("  " + String.format("Ping p99: %,.3f millis", percentile(latencies, 0.99) / 1_000_000.0));
+        System.out.println("  " + String.format("Fib rate: %,.1f per second", fibCount.get() / (elapsed / 1e9)));
+    }
+
+}
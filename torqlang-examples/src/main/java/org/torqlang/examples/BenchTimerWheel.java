@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.torqlang.local.TimerWheel;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/*
+ * Compare a TimerWheel with a ScheduledThreadPoolExecutor when 100k timers are pending at once.
+ *
+ * Each round schedules TIMER_COUNT one-shot timers with random delays of up to MAX_DELAY_MILLIS, cancels every other
+ * timer, as a session timeout would be cancelled by activity, and waits for the rest to expire. The round reports the
+ * cost to insert and cancel, and how late the remaining timers expired.
+ *
+ * Run with all hardware threads:
+ *     java -XX:+UseZGC -p ~/.torq_lang/lib -m org.torqlang.examples/org.torqlang.examples.BenchTimerWheel
+ */
+public final class BenchTimerWheel {
+
+    private static final int TIMER_COUNT = 100_000;
+    private static final int MAX_DELAY_MILLIS = 1_000;
+    private static final int ROUND_COUNT = 3;
+
+    public static void main(String[] args) throws Exception {
+        TimerWheel timerWheel = new TimerWheel("BenchTimerWheel", 1, TimeUnit.MILLISECONDS);
+        ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(2);
+        scheduledExecutor.setRemoveOnCancelPolicy(true);
+        for (int i = 0; i < ROUND_COUNT; i++) {
+            perform("TimerWheel", (task, delayNanos) -> {
+                TimerWheel.Timeout timeout = timerWheel.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+                return timeout::cancel;
+            });
+            perform("ScheduledThreadPoolExecutor", (task, delayNanos) -> {
+                ScheduledFuture<?> future = scheduledExecutor.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+                return () -> future.cancel(false);
+            });
+        }
+        timerWheel.stop();
+        scheduledExecutor.shutdown();
+        System.exit(0);
+    }
+
+    private static long percentile(long[] sortedNanos, double p) {
+        int i = (int) Math.ceil(p * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(i, sortedNanos.length - 1))];
+    }
+
+    private static void perform(String label, Scheduler scheduler) throws Exception {
+        Random random = new Random(7);
+        long[] deadlines = new long[TIMER_COUNT];
+        long[] lateNanos = new long[TIMER_COUNT / 2];
+        Runnable[] cancellers = new Runnable[TIMER_COUNT];
+        CountDownLatch latch = new CountDownLatch(TIMER_COUNT / 2);
+        long insertStart = System.nanoTime();
+        for (int i = 0; i < TIMER_COUNT; i++) {
+            long delayNanos = TimeUnit.MILLISECONDS.toNanos(1 + random.nextInt(MAX_DELAY_MILLIS));
+            deadlines[i] = System.nanoTime() + delayNanos;
+            int index = i;
+            // Odd timers are cancelled below, and only even timers record their lateness
+            Runnable task = index % 2 == 0 ?
+                () -> {
+                    lateNanos[index / 2] = System.nanoTime() - deadlines[index];
+                    latch.countDown();
+                } :
+                () -> {
+                };
+            cancellers[i] = scheduler.schedule(task, delayNanos);
+        }
+        long insertNanos = System.nanoTime() - insertStart;
+        long cancelStart = System.nanoTime();
+        for (int i = 1; i < TIMER_COUNT; i += 2) {
+            cancellers[i].run();
+        }
+        long cancelNanos = System.nanoTime() - cancelStart;
+        if (!latch.await(MAX_DELAY_MILLIS * 10L, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timers did not expire");
+        }
+        Arrays.sort(lateNanos);
+        System.out.println(BenchTimerWheel.class.getSimpleName() + " (" + label + ")");
+        System.out.println("  " + String.format("Insert: %,.1f nanos per timer", (double) insertNanos / TIMER_COUNT));
+        System.out.println("  " + String.format("Cancel: %,.1f nanos per timer", (double) cancelNanos / (TIMER_COUNT / 2)));
+        System.out.println("  " + String.format("Late p50: %,.3f millis", percentile(lateNanos, 0.50) / 1_000_000.0));
+        System.out.println("  " + String.format("Late p99: %,.3f millis", percentile(lateNanos, 0.99) / 1_000_000.0));
+        System.out.println("  " + String.format("Late max: %,.3f millis", lateNanos[lateNanos.length - 1] / 1_000_000.0));
+    }
+
+    @FunctionalInterface
+    private interface Scheduler {
+        Runnable schedule(Runnable task, long delayNanos);
+    }
+
+}
@@ -9,6 +9,7 @@ package org.torqlang.examples;
 
 import org.torqlang.examples.NorthwindReader.ReadAll;
 import org.torqlang.examples.NorthwindReader.ReadByKey;
+import org.torqlang.examples.NorthwindReader.ReadByKeys;
 import org.torqlang.examples.NorthwindWriter.WriteCreate;
 import org.torqlang.examples.NorthwindWriter.WriteDelete;
 import org.torqlang.examples.NorthwindWriter.WriteUpdate;
@@ -16,7 +17,9 @@ import org.torqlang.klvm.FailedValue;
 import org.torqlang.local.*;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.torqlang.local.Envelope.createResponse;
 
@@ -108,6 +111,9 @@ public final class NorthwindDb extends AbstractActor {
                         if (message instanceof FindByKey findByKey) {
                             readRequest = new ReadByKey(findByKey.collName, findByKey.key,
                                 envelope.requester(), envelope.requestId());
+                        } else if (message instanceof FindByKeys findByKeys) {
+                            readRequest = new ReadByKeys(findByKeys.collName, findByKeys.keys,
+                                envelope.requester(), envelope.requestId());
                         } else if (message instanceof FindAll findAll) {
                             readRequest = new ReadAll(findAll.collName, findAll.criteria, envelope.requester(),
                                 envelope.requestId());
@@ -163,6 +169,14 @@ public final class NorthwindDb extends AbstractActor {
         return OnMessageResult.NOT_FINISHED;
     }
 
+    /*
+     * Set a listener that receives the collection name after each successful write. The listener runs on the writer
+     * before the write is acknowledged, so readers that hear of the write never observe stale cached data.
+     */
+    public final void setWriteListener(Consumer<String> writeListener) {
+        writer.setWriteListener(writeListener);
+    }
+
     interface Reader {
     }
 
@@ -181,6 +195,13 @@ public final class NorthwindDb extends AbstractActor {
     record FindByKey(String collName, Map<String, Object> key) implements Reader {
     }
 
+    /*
+     * Find many records of one collection in a single read. The response is a list with one record, or null, for each
+     * key, in the order of the keys.
+     */
+    record FindByKeys(String collName, List<Map<String, Object>> keys) implements Reader {
+    }
+
     record Update(String collName, Map<String, Object> data) implements Writer {
     }
 
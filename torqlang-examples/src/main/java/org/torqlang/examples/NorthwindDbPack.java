@@ -10,6 +10,8 @@ package org.torqlang.examples;
 import org.torqlang.klvm.*;
 import org.torqlang.local.*;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -27,12 +29,15 @@ public class NorthwindDbPack {
     private static final CompleteProc NORTHWIND_DB_CFGTR = NorthwindDbPack::northwindDbCfgtr;
     public static final CompleteRec NORTHWIND_DB_ACTOR = createNorthwindDbActor();
 
+    // Under a load spike, reject requests with a FailedValue instead of queueing without limit
+    static final int NORTHWIND_DB_MAILBOX_CAPACITY = 10_000;
     static final Executor NORTHWIND_DB_EXECUTOR = new AffinityExecutor("NorthwindDb", 4);
     static final ActorSystem NORTHWIND_DB_SYSTEM;
     static {
         NORTHWIND_DB_SYSTEM = ActorSystem.builder()
             .setName("NorthwindDb")
             .setExecutor(NORTHWIND_DB_EXECUTOR)
+            .setMailboxCfg(MailboxCfg.create(NORTHWIND_DB_MAILBOX_CAPACITY, MailboxCfg.OverflowPolicy.REJECT))
             .build();
     }
 
@@ -53,8 +58,12 @@ public class NorthwindDbPack {
 
     /*
      * Using an ActorRef as a protocol adapter is a repeating pattern.
+     *
+     * The adapter is a BatchReceiver. When a handler asks for many records by key within one time slice, such as the
+     * employee and customer of every order, the `findByKey` requests for each entity are combined into one `FindByKeys`
+     * read, and the response is split back into the individual responses.
      */
-    static final class NorthwindDbAdapter implements ActorRef {
+    static final class NorthwindDbAdapter implements BatchReceiver {
 
         private final Address address;
 
@@ -81,18 +90,24 @@ public class NorthwindDbPack {
                     }
                     NorthwindDb.FindAll findAll = new NorthwindDb.FindAll(entity.value, criteriaValue);
                     NorthwindDbPack.NORTHWIND_DB.send(Envelope.createRequest(findAll,
-                        this, new NorthwindDbAdapterId(message, envelope.requester(), envelope.requestId())));
+                        this, new NorthwindDbAdapterId(message, envelope.requester(), envelope.requestId()),
+                        envelope.deadlineNanos()));
                 } else if (message.label().equals(FIND_BY_KEY_STR)) {
                     Str entity = (Str) message.findValue(ENTITY_STR);
                     CompleteRec key = (CompleteRec) message.findValue(KEY_STR);
                     NorthwindDb.FindByKey findByKey = new NorthwindDb.FindByKey(entity.value,
                         (Map<String, Object>) ValueTools.toNativeValue(key));
                     NorthwindDbPack.NORTHWIND_DB.send(Envelope.createRequest(findByKey,
-                        this, new NorthwindDbAdapterId(message, envelope.requester(), envelope.requestId())));
+                        this, new NorthwindDbAdapterId(message, envelope.requester(), envelope.requestId()),
+                        envelope.deadlineNanos()));
                 } else {
                     throw new IllegalArgumentException("Invalid request:" + envelope);
                 }
             } else if (envelope.isResponse()) {
+                if (envelope.requestId() instanceof NorthwindDbAdapterBatchId batchId) {
+                    sendBatchResponses(envelope, batchId);
+                    return;
+                }
                 NorthwindDbAdapterId id = (NorthwindDbAdapterId) envelope.requestId();
                 CompleteRec originalMessage = (CompleteRec) id.originalMessage;
                 Str entity = (Str) originalMessage.findValue(ENTITY_STR);
@@ -111,6 +126,89 @@ public class NorthwindDbPack {
                 throw new IllegalArgumentException("Not a request or response:" + envelope);
             }
         }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void sendBatch(List<Envelope> requests) {
+            Map<String, List<Envelope>> findByKeyRequests = new LinkedHashMap<>();
+            for (Envelope envelope : requests) {
+                CompleteRec message = (CompleteRec) envelope.message();
+                if (message.label().equals(FIND_BY_KEY_STR)) {
+                    Str entity = (Str) message.findValue(ENTITY_STR);
+                    findByKeyRequests.computeIfAbsent(entity.value, k -> new ArrayList<>()).add(envelope);
+                } else {
+                    send(envelope);
+                }
+            }
+            for (Map.Entry<String, List<Envelope>> entry : findByKeyRequests.entrySet()) {
+                List<Envelope> entityRequests = entry.getValue();
+                if (entityRequests.size() == 1) {
+                    send(entityRequests.get(0));
+                    continue;
+                }
+                List<Map<String, Object>> keys = new ArrayList<>(entityRequests.size());
+                List<NorthwindDbAdapterId> ids = new ArrayList<>(entityRequests.size());
+                // The batch must live as long as its longest-lived member. Expired members are shed here so that
+                // they cannot extend the batch, and a member without a deadline keeps the batch from expiring.
+                long deadlineNanos = 0;
+                for (Envelope envelope : entityRequests) {
+                    if (envelope.isExpired()) {
+                        respondExpired(envelope);
+                        continue;
+                    }
+                    if (ids.isEmpty() || envelope.deadlineNanos() == Envelope.NO_DEADLINE ||
+                        deadlineNanos != Envelope.NO_DEADLINE && envelope.deadlineNanos() - deadlineNanos > 0)
+                    {
+                        deadlineNanos = envelope.deadlineNanos();
+                    }
+                    CompleteRec message = (CompleteRec) envelope.message();
+                    CompleteRec key = (CompleteRec) message.findValue(KEY_STR);
+                    keys.add((Map<String, Object>) ValueTools.toNativeValue(key));
+                    ids.add(new NorthwindDbAdapterId(message, envelope.requester(), envelope.requestId()));
+                }
+                if (ids.isEmpty()) {
+                    continue;
+                }
+                NorthwindDb.FindByKeys findByKeys = new NorthwindDb.FindByKeys(entry.getKey(), keys);
+                NorthwindDbPack.NORTHWIND_DB.send(Envelope.createRequest(findByKeys,
+                    this, new NorthwindDbAdapterBatchId(entry.getKey(), ids), deadlineNanos));
+            }
+        }
+
+        private void sendBatchResponses(Envelope envelope, NorthwindDbAdapterBatchId batchId) {
+            if (envelope.message() instanceof FailedValue failedValue) {
+                for (NorthwindDbAdapterId id : batchId.ids) {
+                    id.originalRequester.send(Envelope.createResponse(failedValue, id.originalRequestId));
+                }
+                return;
+            }
+            RecDesc entityDesc = NorthwindDescs.NORTHWIND_DESCS_BY_ENTITY.get(batchId.entityName);
+            List<?> recs = (List<?>) envelope.message();
+            for (int i = 0; i < batchId.ids.size(); i++) {
+                NorthwindDbAdapterId id = batchId.ids.get(i);
+                Complete responseMessage = ValueTools.toKernelValue(recs.get(i), entityDesc);
+                id.originalRequester.send(Envelope.createResponse(responseMessage, id.originalRequestId));
+            }
+        }
+
+        /*
+         * Answer an expired request the way an actor would, with a RequestTimeoutError, instead of reading for it.
+         */
+        private void respondExpired(Envelope envelope) {
+            FailedValue failedValue = FailedValue.create(address.toString(), new RequestTimeoutError(address));
+            envelope.requester().send(Envelope.createResponse(failedValue, envelope.requestId()));
+        }
+    }
+
+    @SuppressWarnings("ClassCanBeRecord")
+    private static final class NorthwindDbAdapterBatchId {
+        final String entityName;
+        final List<NorthwindDbAdapterId> ids;
+
+        NorthwindDbAdapterBatchId(String entityName, List<NorthwindDbAdapterId> ids) {
+            this.entityName = entityName;
+            this.ids = ids;
+        }
     }
 
     @SuppressWarnings("ClassCanBeRecord")
@@ -13,14 +13,33 @@ import org.torqlang.klvm.CompleteRec;
 import org.torqlang.klvm.Rec;
 import org.torqlang.klvm.Str;
 import org.torqlang.local.*;
+import org.torqlang.server.ApiCompressor;
 import org.torqlang.server.ApiDesc;
 import org.torqlang.server.ApiHandler;
+import org.torqlang.server.ApiRequestCoalescer;
+import org.torqlang.server.ApiResponseCache;
 import org.torqlang.server.ApiRouter;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 public final class NorthwindHandlerFactory {
 
+    // Handler actors are recycled through pools instead of being spawned per request
+    private static final int HANDLER_POOL_CAPACITY = 64;
+
+    // GET responses are cached for a short time, and any write to the database invalidates them
+    private static final long RESPONSE_CACHE_TTL_SECONDS = 60;
+
+    // Every route has a deadline. It travels with the handler's requests to NorthwindDb, which sheds any request that
+    // expires while queued, and ApiHandler answers it with a 504.
+    private static final long REQUEST_TIMEOUT_SECONDS = 5;
+
+    // Kernel records are immutable, so every request shares one empty context
+    private static final CompleteRec EMPTY_CONTEXT = Rec.completeRecBuilder().build();
+
     private static CompleteRec emptyContextProvider(Request request) {
-        return Rec.completeRecBuilder().build();
+        return EMPTY_CONTEXT;
     }
 
     public static Handler createHandler() throws Exception {
@@ -29,104 +48,178 @@ public final class NorthwindHandlerFactory {
             .addField(Str.of("NorthwindDb"), NorthwindDbPack.NORTHWIND_DB_ACTOR)
             .build();
 
+        // Handlers ask NorthwindDb for many records by key in one time slice, which NorthwindDbAdapter combines into
+        // one FindByKeys read per entity
         ActorSystem system = ActorSystem.builder()
             .addDefaultModules()
             .addModule("examples", examplesMod)
+            .setAskBatching(true)
             .build();
 
+        // Orders embed customers and employees, so one cache shared by every route is invalidated on any write
+        ApiResponseCache responseCache = new ApiResponseCache(RESPONSE_CACHE_TTL_SECONDS, TimeUnit.SECONDS);
+        NorthwindDbPack.NORTHWIND_DB.setWriteListener(collName -> responseCache.invalidateAll());
+        // Identical GETs that miss the cache at the same time share one handler request
+        ApiRequestCoalescer requestCoalescer = new ApiRequestCoalescer();
+        Metrics metrics = MetricsSetting.get();
+        if (metrics != null) {
+            requestCoalescer.addMetrics(metrics, "northwind");
+        }
+
         ApiDesc customerApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC, Int64Desc.BASIC))
+            .setHeaderNames(List.of())
+            .setQueryNames(List.of())
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         ApiDesc customersApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC))
+            .setHeaderNames(List.of())
             .setQueryDesc(NorthwindDescs.CUSTOMER_DESC)
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         String customersHandlerSource = NorthwindJson.readTextFromResource(
             NorthwindJson.RESOURCES_DIR + "CustomersHandler.torq");
         ActorImage customersHandlerImage = Actor.builder()
             .setSystem(system)
             .actorImage(customersHandlerSource);
+        ActorPool customersHandlerPool = new ActorPool(Address.create("customers"), customersHandlerImage,
+            HANDLER_POOL_CAPACITY);
 
         ApiDesc employeeApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC, Int64Desc.BASIC))
+            .setHeaderNames(List.of())
+            .setQueryNames(List.of())
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         ApiDesc employeesApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC))
+            .setHeaderNames(List.of())
             .setQueryDesc(NorthwindDescs.EMPLOYEE_DESC)
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         String employeesHandlerSource = NorthwindJson.readTextFromResource(
             NorthwindJson.RESOURCES_DIR + "EmployeesHandler.torq");
         ActorImage employeesHandlerImage = Actor.builder()
             .setSystem(system)
             .actorImage(employeesHandlerSource);
+        ActorPool employeesHandlerPool = new ActorPool(Address.create("employees"), employeesHandlerImage,
+            HANDLER_POOL_CAPACITY);
 
         ApiDesc orderApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC, Int64Desc.BASIC))
+            .setHeaderNames(List.of())
+            .setQueryNames(List.of())
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         ApiDesc ordersApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC))
+            .setHeaderNames(List.of())
             .setQueryDesc(NorthwindDescs.ORDER_DESC)
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         ApiDesc orderDetailsApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC, Int64Desc.BASIC, StrDesc.BASIC))
+            .setHeaderNames(List.of())
             .setQueryDesc(NorthwindDescs.ORDER_DETAILS_DESC)
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         String ordersHandlerSource = NorthwindJson.readTextFromResource(
             NorthwindJson.RESOURCES_DIR + "OrdersHandler.torq");
         ActorImage ordersHandlerImage = Actor.builder()
             .setSystem(system)
             .actorImage(ordersHandlerSource);
+        ActorPool ordersHandlerPool = new ActorPool(Address.create("orders"), ordersHandlerImage,
+            HANDLER_POOL_CAPACITY);
 
         ApiDesc productApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC, Int64Desc.BASIC))
+            .setHeaderNames(List.of())
+            .setQueryNames(List.of())
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         ApiDesc productsApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC))
+            .setHeaderNames(List.of())
             .setQueryDesc(NorthwindDescs.PRODUCT_DESC)
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         String productsHandlerSource = NorthwindJson.readTextFromResource(
             NorthwindJson.RESOURCES_DIR + "ProductsHandler.torq");
         ActorImage productsHandlerImage = Actor.builder()
             .setSystem(system)
             .actorImage(productsHandlerSource);
+        ActorPool productsHandlerPool = new ActorPool(Address.create("products"), productsHandlerImage,
+            HANDLER_POOL_CAPACITY);
 
         ApiDesc supplierApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC, Int64Desc.BASIC))
+            .setHeaderNames(List.of())
+            .setQueryNames(List.of())
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         ApiDesc suppliersApiDesc = ApiDesc.builder()
             .setPathDesc(TupleDesc.of(StrDesc.BASIC))
+            .setHeaderNames(List.of())
             .setQueryDesc(NorthwindDescs.PRODUCT_DESC)
             .setContextProvider(NorthwindHandlerFactory::emptyContextProvider)
+            .setRequestCoalescer(requestCoalescer)
+            .setResponseCache(responseCache)
             .build();
         String suppliersHandlerSource = NorthwindJson.readTextFromResource(
             NorthwindJson.RESOURCES_DIR + "SuppliersHandler.torq");
         ActorImage suppliersHandlerImage = Actor.builder()
             .setSystem(system)
             .actorImage(suppliersHandlerSource);
+        ActorPool suppliersHandlerPool = new ActorPool(Address.create("suppliers"), suppliersHandlerImage,
+            HANDLER_POOL_CAPACITY);
 
         return ApiHandler.builder()
-            .setRouter(ApiRouter.staticBuilder()
-                .addRoute("/customers", customersHandlerImage, customersApiDesc)
-                .addRoute("/customers/{id}", customersHandlerImage, customerApiDesc)
-                .addRoute("/employees", employeesHandlerImage, employeesApiDesc)
-                .addRoute("/employees/{id}", employeesHandlerImage, employeeApiDesc)
-                .addRoute("/orders", ordersHandlerImage, ordersApiDesc)
-                .addRoute("/orders/{id}", ordersHandlerImage, orderApiDesc)
-                .addRoute("/orders/{id}/details", ordersHandlerImage, orderDetailsApiDesc)
-                .addRoute("/products", productsHandlerImage, productsApiDesc)
-                .addRoute("/products/{id}", productsHandlerImage, productApiDesc)
-                .addRoute("/suppliers", suppliersHandlerImage, suppliersApiDesc)
-                .addRoute("/suppliers/{id}", suppliersHandlerImage, supplierApiDesc)
+            // JSON responses compress about ten to one, and cached responses are compressed once
+            .setCompressor(new ApiCompressor())
+            .setRouter(ApiRouter.trieBuilder()
+                .addRoute("/customers", customersHandlerPool, customersApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/customers/{id}", customersHandlerPool, customerApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/employees", employeesHandlerPool, employeesApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/employees/{id}", employeesHandlerPool, employeeApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/orders", ordersHandlerPool, ordersApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/orders/{id}", ordersHandlerPool, orderApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/orders/{id}/details", ordersHandlerPool, orderDetailsApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/products", productsHandlerPool, productsApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/products/{id}", productsHandlerPool, productApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/suppliers", suppliersHandlerPool, suppliersApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addRoute("/suppliers/{id}", suppliersHandlerPool, supplierApiDesc,
+                    REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
                 .build())
             .build();
     }
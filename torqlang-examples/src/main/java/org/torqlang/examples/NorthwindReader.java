@@ -10,6 +10,8 @@ package org.torqlang.examples;
 import org.torqlang.local.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 
@@ -55,6 +57,14 @@ public final class NorthwindReader extends NorthwindAccessor {
         if (message instanceof ReadByKey readByKey) {
             Map<String, Object> rec = NorthwindFiles.fetchRec(cache(), FILES_DIR, readByKey.collName, readByKey.key);
             sendResponseToBoth(next, rec);
+        } else if (message instanceof ReadByKeys readByKeys) {
+            // Resolve every key against one fetch of the collection
+            NorthwindColl coll = fetchColl(cache(), FILES_DIR, readByKeys.collName);
+            List<Map<String, Object>> recs = new ArrayList<>(readByKeys.keys.size());
+            for (Map<String, Object> key : readByKeys.keys) {
+                recs.add(NorthwindFiles.fetchRec(coll, key));
+            }
+            sendResponseToBoth(next, recs);
         } else if (message instanceof ReadAll readAll) {
             NorthwindColl coll = fetchColl(cache(), FILES_DIR, readAll.collName);
             if (readAll.criteria != null) {
@@ -83,4 +93,11 @@ public final class NorthwindReader extends NorthwindAccessor {
         implements Read {
     }
 
+    record ReadByKeys(String collName,
+                      List<Map<String, Object>> keys,
+                      ActorRef originalRequester,
+                      Object originalRequestId)
+        implements Read {
+    }
+
 }
@@ -12,6 +12,7 @@ import org.torqlang.local.*;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import static org.torqlang.examples.NorthwindFiles.*;
 
@@ -19,9 +20,14 @@ import static org.torqlang.examples.NorthwindFiles.*;
  * A write-through cache acts as an intermediary between an application and a database. When an application writes to
  * the cache, the cache writes the data to memory first and then immediately writes that cached data through to the
  * database. Processing suspends until the data is successfully written to the database.
+ *
+ * After each successful write, the writer passes the collection name to its write listener, if any, so that caches
+ * built from the collection, such as an ApiResponseCache, can be invalidated.
  */
 public class NorthwindWriter extends NorthwindAccessor {
 
+    private volatile Consumer<String> writeListener;
+
     NorthwindWriter(int id,
                     Address address,
                     Mailbox mailbox,
@@ -56,6 +62,11 @@ public class NorthwindWriter extends NorthwindAccessor {
         } else {
             throw new IllegalArgumentException("Unrecognized request: " + next);
         }
+        // 3. Notify the listener of the changed collection
+        Consumer<String> listener = writeListener;
+        if (listener != null) {
+            listener.accept(((Write) message).collName());
+        }
     }
 
     private void performCreate(WriteCreate writeCreate) throws IOException {
@@ -89,7 +100,12 @@ public class NorthwindWriter extends NorthwindAccessor {
         saveColl(coll, FILES_DIR);
     }
 
+    final void setWriteListener(Consumer<String> writeListener) {
+        this.writeListener = writeListener;
+    }
+
     interface Write extends DelegatedRequest {
+        String collName();
     }
 
     record WriteCreate(String collName,
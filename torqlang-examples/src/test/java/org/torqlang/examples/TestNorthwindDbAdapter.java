@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.examples;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.*;
+import org.torqlang.local.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.torqlang.examples.NorthwindDbPack.*;
+
+public class TestNorthwindDbAdapter {
+
+    private static final Str ID_STR = Str.of("id");
+
+    private static void assertCustomer(long expectedId, FutureResponse futureResponse) throws Exception {
+        Envelope response = futureResponse.future().get(1, TimeUnit.SECONDS);
+        CompleteRec customer = (CompleteRec) response.message();
+        assertEquals(Int64.of(expectedId), customer.findValue(ID_STR));
+    }
+
+    private static void assertTimeout(FutureResponse futureResponse) throws Exception {
+        Envelope response = futureResponse.future().get(1, TimeUnit.SECONDS);
+        FailedValue failedValue = (FailedValue) response.message();
+        assertInstanceOf(RequestTimeoutError.class, failedValue.nativeCause());
+    }
+
+    private static Envelope findCustomer(long id, FutureResponse requester, long deadlineNanos) {
+        CompleteRec message = Rec.completeRecBuilder()
+            .setLabel(FIND_BY_KEY_STR)
+            .addField(ENTITY_STR, Str.of("customers"))
+            .addField(KEY_STR, Rec.completeRecBuilder().addField(ID_STR, Int64.of(id)).build())
+            .build();
+        return Envelope.createRequest(message, requester, id, deadlineNanos);
+    }
+
+    @Test
+    public void testBatchShedsExpiredMembers() throws Exception {
+        NorthwindDbAdapter adapter = new NorthwindDbAdapter(Address.create("northwind_db_adapter"));
+        long expired = System.nanoTime() - 1;
+        long live = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        FutureResponse expiredResponse = new FutureResponse(Address.create("expired"));
+        FutureResponse liveResponse7 = new FutureResponse(Address.create("live_7"));
+        FutureResponse liveResponse9 = new FutureResponse(Address.create("live_9"));
+        adapter.sendBatch(List.of(
+            findCustomer(3, expiredResponse, expired),
+            findCustomer(7, liveResponse7, live),
+            findCustomer(9, liveResponse9, Envelope.NO_DEADLINE)));
+        assertTimeout(expiredResponse);
+        assertCustomer(7, liveResponse7);
+        assertCustomer(9, liveResponse9);
+    }
+
+    @Test
+    public void testExpiredBatch() throws Exception {
+        NorthwindDbAdapter adapter = new NorthwindDbAdapter(Address.create("northwind_db_adapter"));
+        long expired = System.nanoTime() - 1;
+        FutureResponse response3 = new FutureResponse(Address.create("expired_3"));
+        FutureResponse response7 = new FutureResponse(Address.create("expired_7"));
+        adapter.sendBatch(List.of(
+            findCustomer(3, response3, expired),
+            findCustomer(7, response7, expired)));
+        assertTimeout(response3);
+        assertTimeout(response7);
+    }
+
+    @Test
+    public void testExpiredFindByKey() throws Exception {
+        NorthwindDbAdapter adapter = new NorthwindDbAdapter(Address.create("northwind_db_adapter"));
+        FutureResponse futureResponse = new FutureResponse(Address.create("expired"));
+        // The adapter forwards the deadline, so NorthwindDb sheds the request instead of reading for it
+        adapter.send(findCustomer(3, futureResponse, System.nanoTime() - 1));
+        assertTimeout(futureResponse);
+    }
+
+}
@@ -10,6 +10,7 @@ package org.torqlang.klvm;
 import org.torqlang.util.SourceSpan;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 public class ActInstr extends AbstractInstr {
@@ -17,6 +18,13 @@ public class ActInstr extends AbstractInstr {
     public final Instr instr;
     public final Ident target;
 
+    /*
+     * Instructions are immutable and shared across actors, so these runtime caches are written at most once (free
+     * identifiers) or overwritten benignly (observed cost) by concurrent actors.
+     */
+    private volatile Set<Ident> lexicallyFree;
+    private volatile long observedCost = -1;
+
     public ActInstr(Instr instr, Ident target, SourceSpan sourceSpan) {
         super(sourceSpan);
         this.instr = instr;
@@ -42,4 +50,30 @@ public class ActInstr extends AbstractInstr {
         act.apply(Collections.emptyList(), env, machine);
     }
 
+    /**
+     * Return the lexically free identifiers of this act, computed once and cached.
+     */
+    public final Set<Ident> lexicallyFree() {
+        Set<Ident> answer = lexicallyFree;
+        if (answer == null) {
+            HashSet<Ident> captured = new HashSet<>();
+            captureLexicallyFree(new HashSet<>(), captured);
+            answer = Set.copyOf(captured);
+            lexicallyFree = answer;
+        }
+        return answer;
+    }
+
+    /**
+     * Return the number of instructions computed by the most recent observed run of this act, or -1 if this act has
+     * not yet been observed.
+     */
+    public final long observedCost() {
+        return observedCost;
+    }
+
+    public final void recordObservedCost(long observedCost) {
+        this.observedCost = observedCost;
+    }
+
 }
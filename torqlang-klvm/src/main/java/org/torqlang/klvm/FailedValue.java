@@ -325,6 +325,10 @@ public final class FailedValue implements Value, Complete {
         return toKernelString();
     }
 
+    public final FailedValue torqCause() {
+        return torqCause;
+    }
+
     @Override
     public final Rec unifyRecs(Rec rec, Set<Memo> memos) {
         throw new FailedValueError(this);
@@ -1,5 +1,7 @@
 module org.torqlang.local {
 
+    requires java.management;
+    requires jdk.jfr;
     requires org.torqlang.lang;
     requires org.torqlang.klvm;
     requires org.torqlang.util;
@@ -7,8 +7,10 @@
 
 package org.torqlang.local;
 
+import org.torqlang.klvm.FailedValue;
 import org.torqlang.util.GetStackTrace;
 
+import java.util.ArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 
@@ -62,10 +64,13 @@ import static org.torqlang.local.OnMessageResult.NOT_FINISHED;
  */
 public abstract class AbstractActor implements ActorRef {
 
+    private static final Envelope[] NO_ENVELOPES = new Envelope[0];
+
     /*
      * Concurrency invariants:
      *     1. All access to the mailbox value must be synchronized on mailboxLock
      *     2. All access to the state value must be synchronized on mailboxLock
+     *     3. All access to mailboxHighWater and scheduledNanos must be synchronized on mailboxLock
      */
 
     private final int affinityId;
@@ -75,8 +80,14 @@ public abstract class AbstractActor implements ActorRef {
     private final Logger logger;
     private final Mailbox mailbox;
     private final Object mailboxLock = new Object();
+    // Metrics are resolved once, when the actor is created, and are null when metrics are disabled
+    private final ActorMetrics metrics;
 
     private volatile State state = State.WAITING;
+    private int mailboxHighWater;
+    private long scheduledNanos;
+    // Accessed only by the thread running the dispatcher
+    private boolean continuationPending;
 
     protected AbstractActor(int affinityId, Address address, Mailbox mailbox, Executor executor, Logger logger) {
         this.affinityId = affinityId == Integer.MIN_VALUE ? System.identityHashCode(this) : affinityId;
@@ -84,6 +95,8 @@ public abstract class AbstractActor implements ActorRef {
         this.mailbox = mailbox;
         this.executor = executor;
         this.logger = logger;
+        Metrics registry = MetricsSetting.get();
+        this.metrics = registry != null ? registry.actorMetrics(address) : null;
     }
 
     protected AbstractActor(Address address, Mailbox mailbox, Executor executor, Logger logger) {
@@ -131,6 +144,15 @@ public abstract class AbstractActor implements ActorRef {
         return logger;
     }
 
+    /**
+     * Return the largest number of messages this actor has held in its mailbox at once.
+     */
+    public final int mailboxHighWater() {
+        synchronized (mailboxLock) {
+            return mailboxHighWater;
+        }
+    }
+
     /**
      * Should only be used for debugging and tracing.
      */
@@ -140,6 +162,21 @@ public abstract class AbstractActor implements ActorRef {
         }
     }
 
+    /*
+     * Return the metrics for this actor, or null if metrics were disabled when this actor was created.
+     */
+    protected final ActorMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * You can override this method, but you should never call this method. Called instead of `onMessage` when a
+     * continuation is pending (see scheduleContinuation).
+     */
+    protected OnMessageResult onContinue() {
+        throw new IllegalStateException("Continuation not supported");
+    }
+
     protected abstract OnMessageResult onMessage(Envelope[] next);
 
     protected void onReceivedAfterFailed(Envelope envelope) {
@@ -176,22 +213,103 @@ public abstract class AbstractActor implements ActorRef {
         return new Envelope[]{mailbox.remove()};
     }
 
+    /*
+     * Request that `onContinue` be called when this actor is next dispatched. The dispatcher reschedules the actor at
+     * the back of its executor queue without queuing a message. When the actor is dispatched, control messages that
+     * arrived in the meantime are still processed first, and the continuation remains pending until they are done.
+     * Must be called from `onMessage` or `onContinue`.
+     */
+    protected final void scheduleContinuation() {
+        continuationPending = true;
+    }
+
+    /*
+     * Called without holding the mailbox lock when a request or notification cannot be queued because the mailbox is
+     * at capacity and no room could be made according to the overflow policy.
+     */
+    private void rejectOverflow(MailboxCfg cfg, Envelope envelope) {
+        MailboxFullError error = new MailboxFullError(address, cfg.capacity());
+        if (cfg.overflowPolicy() == MailboxCfg.OverflowPolicy.BACKPRESSURE) {
+            throw error;
+        }
+        if (envelope.isRequest()) {
+            FailedValue failedValue = FailedValue.create(address.toString(), error);
+            envelope.requester().send(Envelope.createResponse(failedValue, envelope.requestId()));
+        } else {
+            logger.warn(address.toString(), String.format("Notification rejected: %s\n%s", error.getMessage(),
+                envelope));
+        }
+    }
+
+    /*
+     * Answer an expired request with a RequestTimeoutError instead of processing it.
+     */
+    private void respondExpired(Envelope envelope) {
+        FailedValue failedValue = FailedValue.create(address.toString(), new RequestTimeoutError(address));
+        envelope.requester().send(Envelope.createResponse(failedValue, envelope.requestId()));
+    }
+
     @Override
     public final void send(Envelope envelope) {
+        // A request that expired before it arrived is shed without being queued. Control requests are never shed.
+        if (!envelope.isControl() && envelope.isExpired()) {
+            if (metrics != null) {
+                metrics.onRequestExpiredOnSend();
+            }
+            respondExpired(envelope);
+            return;
+        }
+        MailboxCfg cfg = mailbox.cfg();
+        boolean overflow = false;
+        int highWaterSize = -1;
         synchronized (mailboxLock) {
             if (state == State.FAILED) {
                 onReceivedAfterFailed(envelope);
             } else if (state == State.SUCCESSFUL) {
                 onReceivedAfterSuccessful(envelope);
             } else {
-                mailbox.add(envelope);
-                // If we are ACTIVE, SCHEDULED, or WAITING-not-executable, there is nothing to do. However, if we are
-                // WAITING-executable, we must schedule for execution.
-                if (state == State.WAITING && isExecutable(mailbox)) {
-                    dispatcher.schedule();
+                int sizeBefore = mailbox.size();
+                // Control messages and responses are never rejected
+                if (cfg.isBounded() && !envelope.isControl() && !envelope.isResponse() &&
+                    sizeBefore >= cfg.capacity()) {
+                    if (cfg.overflowPolicy() == MailboxCfg.OverflowPolicy.DROP_OLDEST &&
+                        mailbox.removeOldestNotify() != null)
+                    {
+                        if (metrics != null) {
+                            metrics.onNotifyDropped();
+                        }
+                    } else {
+                        overflow = true;
+                    }
+                }
+                if (!overflow) {
+                    mailbox.add(envelope);
+                    int size = mailbox.size();
+                    if (size > mailboxHighWater) {
+                        mailboxHighWater = size;
+                    }
+                    if (metrics != null) {
+                        // DROP_OLDEST may have removed a message, so the delta is not always 1
+                        metrics.onMailboxChange(size - sizeBefore, size);
+                    }
+                    if (cfg.highWaterListener() != null && size == cfg.highWaterMark()) {
+                        highWaterSize = cfg.highWaterMark();
+                    }
+                    // If we are ACTIVE, SCHEDULED, or WAITING-not-executable, there is nothing to do. However, if we
+                    // are WAITING-executable, we must schedule for execution.
+                    if (state == State.WAITING && isExecutable(mailbox)) {
+                        dispatcher.schedule();
+                    }
                 }
             }
         }
+        // CRITICAL: Do not hold the mailboxLock while sending to another actor or calling a listener. Doing so could
+        // deadlock two actors sending to each other.
+        if (overflow) {
+            rejectOverflow(cfg, envelope);
+        } else if (highWaterSize >= 0) {
+            cfg.highWaterListener().onHighWater(address, highWaterSize);
+        }
     }
 
     public final State state() {
@@ -235,25 +353,69 @@ public abstract class AbstractActor implements ActorRef {
         public final void run() {
             // Because we have just been invoked by the executor, we know we are in the SCHEDULED state.
             try {
+                ActorDispatchEvent dispatchEvent = FlightEvents.isActorDispatchEnabled() ?
+                    new ActorDispatchEvent() : null;
                 Envelope[] next;
+                boolean continuing;
                 synchronized (mailboxLock) {
                     // A message can be selected because we were previously scheduled as "executable", and now we
                     // are running. We must transition from SCHEDULED to ACTIVE as soon as we select a message from
-                    // the mailbox.
-                    next = selectNext(mailbox);
+                    // the mailbox. However, a pending continuation runs first unless a control message is waiting.
+                    Envelope head = continuationPending ? mailbox.peek() : null;
+                    continuing = continuationPending && (head == null || !head.isControl());
+                    if (continuing) {
+                        continuationPending = false;
+                        next = NO_ENVELOPES;
+                        if (metrics != null) {
+                            metrics.onDispatch(System.nanoTime() - scheduledNanos, 0, 0);
+                        }
+                    } else if (metrics != null) {
+                        int sizeBefore = mailbox.size();
+                        next = selectNext(mailbox);
+                        metrics.onDispatch(System.nanoTime() - scheduledNanos, next.length,
+                            mailbox.size() - sizeBefore);
+                    } else {
+                        next = selectNext(mailbox);
+                    }
                     state = State.ACTIVE;
+                    if (dispatchEvent != null) {
+                        dispatchEvent.queueWait = System.nanoTime() - scheduledNanos;
+                    }
                 }
                 // CRITICAL: Do not synchronize on the mailboxLock during onMessage(). Releasing the lock allows
                 // messages to be received while processing the current message.
-                OnMessageResult result = onMessage(next);
+                if (dispatchEvent != null) {
+                    dispatchEvent.begin();
+                }
+                int selectedCount = next.length;
+                next = shedExpired(next);
+                boolean allExpired = selectedCount > 0 && next.length == 0;
+                OnMessageResult result;
+                if (allExpired) {
+                    // Every message selected was an expired request, so there is nothing left to process
+                    result = NOT_FINISHED;
+                } else if (metrics != null) {
+                    long start = System.nanoTime();
+                    result = continuing ? onContinue() : onMessage(next);
+                    metrics.onServiceTime(System.nanoTime() - start);
+                } else {
+                    result = continuing ? onContinue() : onMessage(next);
+                }
+                if (dispatchEvent != null && dispatchEvent.shouldCommit()) {
+                    dispatchEvent.address = address.toString();
+                    dispatchEvent.messageKind = continuing ? "continuation" :
+                        allExpired ? "expired" : ActorDispatchEvent.messageKindOf(next);
+                    dispatchEvent.messageCount = next.length;
+                    dispatchEvent.commit();
+                }
                 synchronized (mailboxLock) {
                     if (result == OnMessageResult.FINISHED) {
                         state = State.SUCCESSFUL;
                         return;
                     }
                     // We just completed processing of a single message, and we are not finished. We must transition
-                    // from ACTIVE to either SCHEDULED or WAITING.
-                    if (isExecutable(mailbox)) {
+                    // from ACTIVE to either SCHEDULED or WAITING. A pending continuation is always executable.
+                    if (continuationPending || isExecutable(mailbox)) {
                         schedule();
                     } else {
                         state = State.WAITING;
@@ -263,9 +425,44 @@ public abstract class AbstractActor implements ActorRef {
                 synchronized (mailboxLock) {
                     // We have just been interrupted by an unhandled error. We must transition from ACTIVE to FAILED.
                     state = State.FAILED;
+                    int sizeBefore = mailbox.size();
                     onUnhandledError(mailbox, throwable);
+                    if (metrics != null) {
+                        metrics.onMailboxChange(mailbox.size() - sizeBefore, 0);
+                    }
+                }
+            }
+        }
+
+        /*
+         * Answer the expired requests in a selection and return the envelopes that remain. Requests that expire while
+         * queued are shed here, before the actor spends any time on them. Without a deadline, a request never
+         * expires, so the common case costs a field read per envelope.
+         */
+        private Envelope[] shedExpired(Envelope[] next) {
+            int i = 0;
+            while (i < next.length && (next[i].isControl() || !next[i].isExpired())) {
+                i++;
+            }
+            if (i == next.length) {
+                return next;
+            }
+            ArrayList<Envelope> remaining = new ArrayList<>(next.length - 1);
+            for (int j = 0; j < i; j++) {
+                remaining.add(next[j]);
+            }
+            for (; i < next.length; i++) {
+                Envelope envelope = next[i];
+                if (!envelope.isControl() && envelope.isExpired()) {
+                    if (metrics != null) {
+                        metrics.onRequestExpiredOnDispatch();
+                    }
+                    respondExpired(envelope);
+                } else {
+                    remaining.add(envelope);
                 }
             }
+            return remaining.toArray(NO_ENVELOPES);
         }
 
         /*
@@ -274,6 +471,9 @@ public abstract class AbstractActor implements ActorRef {
         private void schedule() {
             try {
                 state = State.SCHEDULED;
+                if (metrics != null || FlightEvents.isActorDispatchEnabled()) {
+                    scheduledNanos = System.nanoTime();
+                }
                 executor.execute(this);
             } catch (RejectedExecutionException exc) {
                 state = State.FAILED;
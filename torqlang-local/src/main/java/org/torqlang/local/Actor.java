@@ -37,4 +37,8 @@ public final class Actor {
         return LocalActor.spawn(address, image);
     }
 
+    public static ActorRef spawn(Address address, ActorImage image, Envelope first) {
+        return LocalActor.spawn(address, image, first);
+    }
+
 }
@@ -17,7 +17,6 @@ import org.torqlang.util.SourceSpan;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /*
  * Note that as we progress in the builder process, we gain access to properties while loosing access to methods.
@@ -67,8 +66,6 @@ import java.util.concurrent.TimeUnit;
 public final class ActorBuilder implements ActorBuilderInit, ActorBuilderReady, ActorBuilderParsed,
     ActorBuilderRewritten, ActorBuilderGenerated, ActorBuilderConstructed, ActorBuilderConfigured, ActorBuilderSpawned
 {
-    private static final int TIME_SLICE_10_000 = 10_000;
-
     private State state;
 
     private Address address;
@@ -83,6 +80,7 @@ public final class ActorBuilder implements ActorBuilderInit, ActorBuilderReady,
     private List<? extends CompleteOrIdent> args = List.of();
     private ActorCfg actorCfg;
     private LocalActor localActor;
+    private TimeSliceCfg timeSliceCfg;
 
     ActorBuilder() {
         state = State.INIT;
@@ -103,23 +101,21 @@ public final class ActorBuilder implements ActorBuilderInit, ActorBuilderReady,
         return actorIdent;
     }
 
+    /*
+     * Return an image of the configured actor. The image is built on the calling thread by running the handlers
+     * constructor in a private actor that is never scheduled, so no actor is spawned and `actorRef()` remains null.
+     * Spawn actors from the image with `Actor.spawn`.
+     */
     @Override
     public final ActorImage actorImage() {
         if (actorImage == null) {
             checkAddress();
-            Object response;
+            checkSystem();
             try {
-                response = RequestClient.builder()
-                    .setAddress(address)
-                    .send(actorRef(), CaptureImage.SINGLETON)
-                    .awaitResponse(10, TimeUnit.MILLISECONDS);
-                if (response instanceof FailedValue failedValue) {
-                    throw new IllegalStateException(failedValue.toString());
-                }
+                actorImage = LocalActor.createImage(address, system, actorCfg);
             } catch (Exception exc) {
                 throw new IllegalStateException(exc);
             }
-            actorImage = (ActorImage) response;
         }
         return actorImage;
     }
@@ -127,7 +123,7 @@ public final class ActorBuilder implements ActorBuilderInit, ActorBuilderReady,
     @Override
     public final ActorImage actorImage(String source) throws Exception {
         setSource(source);
-        spawn();
+        configure();
         return actorImage();
     }
 
@@ -176,7 +172,7 @@ public final class ActorBuilder implements ActorBuilderInit, ActorBuilderReady,
         } else {
             stack = new Stack(instr, env, null);
         }
-        Machine.compute(this, stack, TIME_SLICE_10_000);
+        Machine.compute(this, stack, TimeSliceCfg.DEFAULT_INSTRUCTION_COUNT);
     }
 
     @Override
@@ -411,6 +407,21 @@ public final class ActorBuilder implements ActorBuilderInit, ActorBuilderReady,
         return this;
     }
 
+    /*
+     * Override the time slice configured for the actor system. See TimeSliceCfg.
+     */
+    @Override
+    public final ActorBuilderInit setTimeSliceCfg(TimeSliceCfg timeSliceCfg) {
+        if (state != State.INIT) {
+            throw new IllegalStateException("Cannot setTimeSliceCfg at state: " + state);
+        }
+        if (timeSliceCfg == null) {
+            throw new NullPointerException("timeSliceCfg");
+        }
+        this.timeSliceCfg = timeSliceCfg;
+        return this;
+    }
+
     @Override
     public final String source() {
         return source;
@@ -450,6 +461,9 @@ public final class ActorBuilder implements ActorBuilderInit, ActorBuilderReady,
         checkAddress();
         checkSystem();
         localActor = new LocalActor(address, system);
+        if (timeSliceCfg != null) {
+            localActor.setTimeSliceCfg(timeSliceCfg);
+        }
         localActor.configure(actorCfg);
         state = State.SPAWNED;
         return this;
@@ -36,6 +36,8 @@ public interface ActorBuilderInit {
 
     ActorBuilderInit setSystem(ActorSystem system);
 
+    ActorBuilderInit setTimeSliceCfg(TimeSliceCfg timeSliceCfg);
+
     ActorBuilderSpawned spawn(ActorCfg actorCfg) throws Exception;
 
     ActorBuilderSpawned spawn(Rec actorRec) throws Exception;
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import jdk.jfr.*;
+
+/*
+ * A Flight Recorder event emitted each time an actor dispatcher runs. The event duration is the service time, which
+ * is the time spent in `onMessage`, and `queueWait` is the time the actor waited with its executor after it was
+ * scheduled.
+ *
+ * Like all Torq events, this event is disabled by default. Callers check FlightEvents before allocating an event, so a
+ * disabled event costs only a flag read, and without a recording the event class is never initialized.
+ * Enable it with standard JFR settings, either in a .jfc file passed to `-XX:StartFlightRecording:settings=...`:
+ *     <event name="org.torqlang.ActorDispatch"><setting name="enabled">true</setting></event>
+ * or programmatically with `Recording.enable("org.torqlang.ActorDispatch")`.
+ */
+@Name("org.torqlang.ActorDispatch")
+@Label("Actor Dispatch")
+@Category({"Torq", "Actor"})
+@Description("An actor processed the messages selected from its mailbox")
+@Enabled(false)
+@StackTrace(false)
+public final class ActorDispatchEvent extends Event {
+
+    @Label("Address")
+    String address;
+
+    @Label("Message Kind")
+    @Description("One of request, notify, response, control, or continuation")
+    String messageKind;
+
+    @Label("Message Count")
+    int messageCount;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+
+    static String messageKindOf(Envelope[] next) {
+        if (next.length == 0 || next[0].isResponse()) {
+            return "response";
+        }
+        if (next[0].isControl()) {
+            return "control";
+        }
+        return next[0].isRequest() ? "request" : "notify";
+    }
+
+}
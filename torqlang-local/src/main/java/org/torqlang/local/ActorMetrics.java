@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * The runtime metrics shared by all actors whose addresses have the same prefix (see Metrics.prefixOf). Actors record
+ * into these striped counters and histograms without locks.
+ *
+ * Dispatch latency is measured from the moment an actor is scheduled with its executor, because a message became
+ * executable, to the moment its dispatcher starts running. Mailbox depth is the number of messages queued across all
+ * actors with this prefix.
+ *
+ * Expired requests are requests shed because their deadline passed (see Envelope.deadlineNanos). A request can expire
+ * before it is queued, when it is sent, or while it is queued, when it is dispatched. Dropped notifications are the
+ * queued notifications discarded to make room under the DROP_OLDEST overflow policy (see MailboxCfg).
+ */
+public final class ActorMetrics {
+
+    private final String prefix;
+    private final LongAdder mailboxDepth = new LongAdder();
+    private final LongAccumulator mailboxHighWater = new LongAccumulator(Math::max, 0);
+    private final LongAdder messagesProcessed = new LongAdder();
+    private final LongAdder notificationsDropped = new LongAdder();
+    private final LongAdder preemptions = new LongAdder();
+    private final LongAdder requestsExpiredOnDispatch = new LongAdder();
+    private final LongAdder requestsExpiredOnSend = new LongAdder();
+    private final Histogram dispatchLatencyNanos = new Histogram();
+    private final Histogram serviceTimeNanos = new Histogram();
+    private final Histogram computeCountPerSlice = new Histogram();
+
+    ActorMetrics(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public final Histogram computeCountPerSlice() {
+        return computeCountPerSlice;
+    }
+
+    public final Histogram dispatchLatencyNanos() {
+        return dispatchLatencyNanos;
+    }
+
+    public final long mailboxDepth() {
+        return mailboxDepth.sum();
+    }
+
+    public final long mailboxHighWater() {
+        return mailboxHighWater.get();
+    }
+
+    public final long messagesProcessed() {
+        return messagesProcessed.sum();
+    }
+
+    public final long notificationsDropped() {
+        return notificationsDropped.sum();
+    }
+
+    final void onComputeTimeSlice(long computeCount, boolean preempted) {
+        computeCountPerSlice.record(computeCount);
+        if (preempted) {
+            preemptions.increment();
+        }
+    }
+
+    final void onDispatch(long dispatchLatency, int selectedCount, int mailboxDelta) {
+        dispatchLatencyNanos.record(dispatchLatency);
+        messagesProcessed.add(selectedCount);
+        mailboxDepth.add(mailboxDelta);
+    }
+
+    final void onMailboxChange(int mailboxDelta, int actorMailboxSize) {
+        mailboxDepth.add(mailboxDelta);
+        mailboxHighWater.accumulate(actorMailboxSize);
+    }
+
+    final void onNotifyDropped() {
+        notificationsDropped.increment();
+    }
+
+    final void onRequestExpiredOnDispatch() {
+        requestsExpiredOnDispatch.increment();
+    }
+
+    final void onRequestExpiredOnSend() {
+        requestsExpiredOnSend.increment();
+    }
+
+    final void onServiceTime(long serviceTime) {
+        serviceTimeNanos.record(serviceTime);
+    }
+
+    public final long preemptions() {
+        return preemptions.sum();
+    }
+
+    public final String prefix() {
+        return prefix;
+    }
+
+    public final long requestsExpiredOnDispatch() {
+        return requestsExpiredOnDispatch.sum();
+    }
+
+    public final long requestsExpiredOnSend() {
+        return requestsExpiredOnSend.sum();
+    }
+
+    public final Histogram serviceTimeNanos() {
+        return serviceTimeNanos;
+    }
+
+}
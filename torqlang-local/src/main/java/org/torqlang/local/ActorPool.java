@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * An ActorPool is an actor reference that distributes requests across recycled actors spawned from a single
+ * ActorImage. Instead of spawning a new actor per request, a request checks out an idle actor, and the actor returns
+ * itself to the pool once it has responded and become quiescent.
+ *
+ * An actor is returned to the pool only if its state is reusable (see LocalActor.isReusable):
+ *     1. It has not failed
+ *     2. It has no active request and no computation in progress
+ *     3. It has no free variable triggers mapped to child actors
+ *     4. It is not waiting on, and has not buffered, any responses
+ *     5. Its mailbox is empty
+ * An actor that is not reusable when it finishes a message is simply not returned. A failed actor is never returned,
+ * and it becomes garbage after answering its active request with a FailedValue.
+ *
+ * The pool is bounded by the number of idle actors it retains. When no idle actor is available, a new actor is
+ * spawned. When an actor finishes and the pool is already full of idle actors, the finished actor is discarded.
+ * Therefore, the pool never blocks a sender.
+ *
+ * Only requests and notifications are accepted. Each message is handled by a single actor from start to finish.
+ */
+public final class ActorPool implements ActorRef {
+
+    private final Address address;
+    private final ActorSystem system;
+    private final ActorImage image;
+    private final ArrayBlockingQueue<LocalActor> idle;
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final LongAdder checkoutCount = new LongAdder();
+    private final LongAdder spawnCount = new LongAdder();
+    private final LongAdder discardCount = new LongAdder();
+
+    public ActorPool(Address address, ActorImage image, int capacity) {
+        this(address, image.system, image, capacity);
+        for (int i = 0; i < capacity; i++) {
+            idle.offer(spawnMember());
+        }
+    }
+
+    /*
+     * Create a pool of act workers. Act workers have no handlers. They are checked out by a parent actor and sent an
+     * `Act` control request directly. Workers are spawned on demand.
+     */
+    ActorPool(Address address, ActorSystem system, int capacity) {
+        this(address, system, null, capacity);
+    }
+
+    private ActorPool(Address address, ActorSystem system, ActorImage image, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity < 1");
+        }
+        this.address = address;
+        this.system = system;
+        this.image = image;
+        this.idle = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public final Address address() {
+        return address;
+    }
+
+    public final int capacity() {
+        return idle.size() + idle.remainingCapacity();
+    }
+
+    /*
+     * Called by a member after it finishes a message and is verified reusable.
+     */
+    final void checkIn(LocalActor member) {
+        if (!idle.offer(member)) {
+            discardCount.increment();
+        }
+    }
+
+    /*
+     * Return an idle member, or a new member if none are idle. The caller must send the member exactly one message
+     * to process.
+     */
+    final LocalActor checkout() {
+        LocalActor member = idle.poll();
+        if (member == null) {
+            member = spawnMember();
+        }
+        checkoutCount.increment();
+        member.checkOut();
+        return member;
+    }
+
+    public final long checkoutCount() {
+        return checkoutCount.sum();
+    }
+
+    public final long discardCount() {
+        return discardCount.sum();
+    }
+
+    public final int idleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public final void send(Envelope envelope) {
+        if (envelope.isControl() || envelope.isResponse()) {
+            throw new IllegalArgumentException("ActorPool can only receive a request or notify");
+        }
+        if (image == null) {
+            throw new IllegalStateException("ActorPool without an image cannot receive messages");
+        }
+        checkout().send(envelope);
+    }
+
+    public final long spawnCount() {
+        return spawnCount.sum();
+    }
+
+    private LocalActor spawnMember() {
+        spawnCount.increment();
+        Address memberAddress = Address.create(address, Long.toString(nextId.incrementAndGet()));
+        return image != null ?
+            new LocalActor(memberAddress, image, this) :
+            new LocalActor(memberAddress, system, this);
+    }
+
+    @Override
+    public final String toString() {
+        return getClass().getSimpleName() + "(" + address + ")";
+    }
+
+}
@@ -38,7 +38,15 @@ public final class ActorRefObj implements CompleteObj {
         if (obj.referent == owner) {
             throw new SelfRefAskError(machine.current());
         }
-        obj.referent.send(createRequest(message, owner, new ValueOrVarRef(responseTarget)));
+        if (owner instanceof LocalActor localActor) {
+            // A request sent on behalf of an active request inherits its deadline
+            Envelope request = createRequest(message, owner, new ValueOrVarRef(responseTarget),
+                localActor.activeDeadlineNanos());
+            localActor.onSendRequest();
+            localActor.sendAskRequest(obj.referent, request);
+        } else {
+            obj.referent.send(createRequest(message, owner, new ValueOrVarRef(responseTarget)));
+        }
     }
 
     private static void objTell(ActorRefObj obj, List<CompleteOrIdent> ys, Env env, Machine machine) throws WaitException {
@@ -49,7 +57,12 @@ public final class ActorRefObj implements CompleteObj {
         Value candidateMessage = ys.get(0).resolveValue(env);
         // This procedure will be suspended if 'checkComplete()' throws WaitException
         Complete message = candidateMessage.checkComplete();
-        obj.referent.send(createNotify(message));
+        if (machine.owner() instanceof LocalActor localActor) {
+            localActor.flushAskBatch(obj.referent);
+            localActor.sendOrReject(obj.referent, createNotify(message));
+        } else {
+            obj.referent.send(createNotify(message));
+        }
     }
 
     public final ActorRef referent() {
@@ -29,6 +29,13 @@ public final class ActorSystemBuilder {
     private final Map<Address, ActorRefObj> actorsMap = new HashMap<>();
     private String name;
     private Executor executor;
+    private boolean virtualThreads;
+    private MailboxCfg mailboxCfg = MailboxCfg.UNBOUNDED;
+    private int actWorkerCapacity;
+    private long inlineActThreshold;
+    private boolean askBatching;
+    private Logger logger;
+    private TimeSliceCfg timeSliceCfg = TimeSliceCfg.DEFAULT;
 
     public ActorSystemBuilder addActor(String path, ActorRefObj actorRefObj) {
         LocalAddress address = LocalAddress.create(path);
@@ -62,13 +69,41 @@ public final class ActorSystemBuilder {
         for (Map.Entry<String, CompleteRec> entry : effectiveModulesMap.entrySet()) {
             modules.add(new ModuleEntry(entry.getKey(), entry.getValue()));
         }
-        return new BasicActorSystem(name, executor, actors, modules);
+        Executor effectiveExecutor = executor;
+        if (virtualThreads) {
+            if (executor != null) {
+                throw new IllegalStateException("Cannot set both an executor and virtual threads");
+            }
+            effectiveExecutor = new VirtualThreadExecutor(name);
+        }
+        return new BasicActorSystem(name, effectiveExecutor, actors, modules, mailboxCfg,
+            actWorkerCapacity, inlineActThreshold, askBatching, logger, timeSliceCfg);
+    }
+
+    public final int actWorkerCapacity() {
+        return actWorkerCapacity;
+    }
+
+    public final boolean askBatching() {
+        return askBatching;
     }
 
     public final Executor executor() {
         return executor;
     }
 
+    public final long inlineActThreshold() {
+        return inlineActThreshold;
+    }
+
+    public final Logger logger() {
+        return logger;
+    }
+
+    public final MailboxCfg mailboxCfg() {
+        return mailboxCfg;
+    }
+
     public final Map<String, CompleteRec> modules() {
         return Map.copyOf(modulesMap);
     }
@@ -77,14 +112,100 @@ public final class ActorSystemBuilder {
         return name;
     }
 
+    /*
+     * Enable or disable ask batching. When enabled, asks sent to the same BatchReceiver during a single compute time
+     * slice are delivered together as one batch. See BatchReceiver. Disabled by default, because each ask is held until
+     * the end of its time slice, which delays the first ask of a batch.
+     */
+    public final ActorSystemBuilder setAskBatching(boolean askBatching) {
+        this.askBatching = askBatching;
+        return this;
+    }
+
+    /*
+     * Set the number of idle act workers retained for reuse. Zero, the default, disables reuse and every `act`
+     * expression spawns a new child actor.
+     */
+    public final ActorSystemBuilder setActWorkerCapacity(int actWorkerCapacity) {
+        if (actWorkerCapacity < 0) {
+            throw new IllegalArgumentException("actWorkerCapacity < 0");
+        }
+        this.actWorkerCapacity = actWorkerCapacity;
+        return this;
+    }
+
     public final ActorSystemBuilder setExecutor(Executor executor) {
         this.executor = executor;
         return this;
     }
 
+    /*
+     * Allow an `act` expression to be computed inline by its parent when all of its inputs are complete and its most
+     * recently observed cost is at most `inlineActThreshold` computed instructions. An inline act does not run
+     * concurrently with its parent, and an error it throws is raised in the parent. Zero, the default, disables
+     * inline acts.
+     */
+    public final ActorSystemBuilder setInlineActThreshold(long inlineActThreshold) {
+        if (inlineActThreshold < 0) {
+            throw new IllegalArgumentException("inlineActThreshold < 0");
+        }
+        this.inlineActThreshold = inlineActThreshold;
+        return this;
+    }
+
+    /*
+     * Set the logger returned by `ActorSystem.createLogger()` for every actor in the system. The default is the
+     * synchronous ConsoleLogger. Use an AsyncLogger to keep log I/O off of actor threads.
+     */
+    public final ActorSystemBuilder setLogger(Logger logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /*
+     * Configure the mailbox created for each actor in the system. Native actors that need a different capacity can
+     * pass their own `Mailbox.create(cfg)` to the AbstractActor constructor.
+     */
+    public final ActorSystemBuilder setMailboxCfg(MailboxCfg mailboxCfg) {
+        if (mailboxCfg == null) {
+            throw new NullPointerException("mailboxCfg");
+        }
+        this.mailboxCfg = mailboxCfg;
+        return this;
+    }
+
     public final ActorSystemBuilder setName(String name) {
         this.name = name;
         return this;
     }
 
+    /*
+     * Configure the compute time slice for each actor in the system. The default is a fixed slice of
+     * DEFAULT_INSTRUCTION_COUNT instructions. See TimeSliceCfg.
+     */
+    public final ActorSystemBuilder setTimeSliceCfg(TimeSliceCfg timeSliceCfg) {
+        if (timeSliceCfg == null) {
+            throw new NullPointerException("timeSliceCfg");
+        }
+        this.timeSliceCfg = timeSliceCfg;
+        return this;
+    }
+
+    /*
+     * Run actors on virtual threads instead of the default affinity executor. Use this mode when blocking native
+     * actors share a system with CPU-bound Torq actors. See VirtualThreadExecutor.
+     */
+    public final ActorSystemBuilder setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public final TimeSliceCfg timeSliceCfg() {
+        return timeSliceCfg;
+    }
+
+    public final boolean virtualThreads() {
+        return virtualThreads;
+    }
+
 }
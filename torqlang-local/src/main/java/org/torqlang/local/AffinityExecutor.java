@@ -42,6 +42,10 @@ public final class AffinityExecutor implements Executor {
         return name;
     }
 
+    final AffinityThreadExecutor[] threadExecutors() {
+        return executors;
+    }
+
     @Override
     public final String toString() {
         return "AffinityExecutor{name='" + name + "', size=" + executors.length + "}";
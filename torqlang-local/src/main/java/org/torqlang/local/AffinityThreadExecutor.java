@@ -22,6 +22,20 @@ public class AffinityThreadExecutor implements Executor {
         worker.start();
     }
 
+    /*
+     * Return the total time spent running tasks while metrics were enabled (see MetricsSetting).
+     */
+    public final long busyNanos() {
+        return worker.busyNanos;
+    }
+
+    /*
+     * Return the number of tasks run while metrics were enabled (see MetricsSetting).
+     */
+    public final long completedCount() {
+        return worker.completedCount;
+    }
+
     @Override
     public void execute(Runnable runnable) throws RejectedExecutionException {
         try {
@@ -31,12 +45,20 @@ public class AffinityThreadExecutor implements Executor {
         }
     }
 
+    public final int queueDepth() {
+        return worker.queue.size();
+    }
+
     private static final class Worker implements Runnable {
 
         private final int cpu;
         private final LinkedBlockingQueue<Runnable> queue;
         private final Thread thread;
 
+        // Written only by the worker thread
+        private volatile long busyNanos;
+        private volatile long completedCount;
+
         private Worker(int cpu) {
             this.cpu = cpu;
             this.queue = new LinkedBlockingQueue<>();
@@ -52,7 +74,17 @@ public class AffinityThreadExecutor implements Executor {
                     if (r == null) {
                         r = queue.take();
                     }
-                    r.run();
+                    if (MetricsSetting.get() == null) {
+                        r.run();
+                    } else {
+                        long start = System.nanoTime();
+                        try {
+                            r.run();
+                        } finally {
+                            busyNanos += System.nanoTime() - start;
+                            completedCount++;
+                        }
+                    }
                 }
             } catch (InterruptedException exc) {
                 System.err.println("AffinityExecutor interrupted:\n" + exc);
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * An AsyncLogger moves console and file I/O off of actor threads. Logging a message only captures a structured event
+ * (time, level, thread, caller, message) and offers it to a bounded lock-free ring buffer. A dedicated drain thread
+ * formats the events and writes them to a channel in batches of up to BATCH_SIZE events per write.
+ *
+ * An error storm, such as an actor receiving messages after it has failed, therefore costs an actor thread an
+ * allocation and a CAS instead of a synchronized write to System.err. When the ring buffer is full, the DropPolicy
+ * decides whether the caller drops the event or waits for space. A waiting caller blocks until the drain thread
+ * signals that it has made progress, rather than spinning. Dropped events are counted, and the drain thread reports
+ * the count in the log itself.
+ *
+ * Plug an AsyncLogger into an actor system with `ActorSystemBuilder.setLogger`. Call `close()` to drain pending events
+ * before exiting.
+ */
+public final class AsyncLogger implements Logger, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long PROGRESS_WAIT_MILLIS = 10;
+    private static final ZoneId ZONE_ID = ZoneId.systemDefault();
+
+    private static final String ERROR = "ERROR";
+    private static final String INFO = "INFO ";
+    private static final String WARN = "WARN ";
+
+    private final String name;
+    private final WritableByteChannel channel;
+    private final WritableByteChannel errorChannel;
+    private final boolean closeChannel;
+    private final DropPolicy dropPolicy;
+    private final RingBuffer ringBuffer;
+    private final LongAdder droppedCount = new LongAdder();
+    private final Thread drainer;
+    // Callers waiting for the drain thread, either to flush or to find space, wait on the progress lock
+    private final Object progressLock = new Object();
+    private final AtomicInteger progressWaiterCount = new AtomicInteger();
+    // The number of events taken from the ring buffer and written, which is only advanced by the drain thread
+    private volatile long writtenCount;
+
+    private volatile boolean closed;
+    private long reportedDroppedCount;
+
+    public AsyncLogger(String name, WritableByteChannel channel, int capacity, DropPolicy dropPolicy) {
+        this(name, channel, channel, false, capacity, dropPolicy);
+    }
+
+    private AsyncLogger(String name, WritableByteChannel channel, WritableByteChannel errorChannel,
+                        boolean closeChannel, int capacity, DropPolicy dropPolicy)
+    {
+        this.name = name;
+        this.channel = channel;
+        this.errorChannel = errorChannel;
+        this.closeChannel = closeChannel;
+        this.dropPolicy = dropPolicy;
+        this.ringBuffer = new RingBuffer(capacity);
+        this.drainer = new Thread(this::runDrainer, "torq-async-logger-" + name);
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /*
+     * Create a logger that writes errors to System.err and other events to System.out, as ConsoleLogger does, with the
+     * default capacity. When the buffer is full, events of every level are dropped and counted, so logging never
+     * blocks an actor thread. Use the other factory to opt in to DROP_INFO or BLOCK.
+     */
+    public static AsyncLogger createForConsole(String name) {
+        return createForConsole(name, DEFAULT_CAPACITY, DropPolicy.DROP);
+    }
+
+    public static AsyncLogger createForConsole(String name, int capacity, DropPolicy dropPolicy) {
+        return new AsyncLogger(name, Channels.newChannel(System.out), Channels.newChannel(System.err), false,
+            capacity, dropPolicy);
+    }
+
+    /*
+     * Create a logger that appends to a file, which is closed when the logger is closed.
+     */
+    public static AsyncLogger createForFile(String name, Path path, int capacity, DropPolicy dropPolicy)
+        throws IOException
+    {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        return new AsyncLogger(name, fileChannel, fileChannel, true, capacity, dropPolicy);
+    }
+
+    /*
+     * Stop accepting events, write every pending event, and wait for the drain thread to finish.
+     */
+    @Override
+    public final void close() throws InterruptedException {
+        closed = true;
+        LockSupport.unpark(drainer);
+        drainer.join();
+    }
+
+    public final long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    public final DropPolicy dropPolicy() {
+        return dropPolicy;
+    }
+
+    @Override
+    public final void error(String message) {
+        log(ERROR, null, message);
+    }
+
+    @Override
+    public final void error(String caller, String message) {
+        log(ERROR, caller, message);
+    }
+
+    /*
+     * Wait until every event logged before this call has been written.
+     */
+    public final void flush() throws InterruptedException {
+        long target = ringBuffer.tail.get();
+        progressWaiterCount.incrementAndGet();
+        try {
+            synchronized (progressLock) {
+                while (writtenCount < target && drainer.isAlive()) {
+                    LockSupport.unpark(drainer);
+                    progressLock.wait(PROGRESS_WAIT_MILLIS);
+                }
+            }
+        } finally {
+            progressWaiterCount.decrementAndGet();
+        }
+    }
+
+    private void format(StringBuilder sb, LogEvent event) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.epochMillis), ZONE_ID);
+        sb.append('[').append(event.level).append(']')
+            .append('[').append(time).append(']')
+            .append('[').append(event.threadName).append(']');
+        if (event.caller != null) {
+            sb.append('[').append(event.caller).append(']');
+        }
+        sb.append(' ').append(event.message).append(System.lineSeparator());
+    }
+
+    @Override
+    public final void info(String message) {
+        log(INFO, null, message);
+    }
+
+    @Override
+    public final void info(String caller, String message) {
+        log(INFO, caller, message);
+    }
+
+    private void log(String level, String caller, String message) {
+        if (closed) {
+            droppedCount.increment();
+            return;
+        }
+        LogEvent event = new LogEvent(System.currentTimeMillis(), level, Thread.currentThread().getName(), caller,
+            message);
+        if (ringBuffer.offer(event)) {
+            return;
+        }
+        if (dropPolicy == DropPolicy.DROP || dropPolicy == DropPolicy.DROP_INFO && level != ERROR) {
+            droppedCount.increment();
+            return;
+        }
+        // Wait for the drain thread to make room
+        progressWaiterCount.incrementAndGet();
+        try {
+            synchronized (progressLock) {
+                while (!ringBuffer.offer(event)) {
+                    if (closed) {
+                        droppedCount.increment();
+                        return;
+                    }
+                    LockSupport.unpark(drainer);
+                    progressLock.wait(PROGRESS_WAIT_MILLIS);
+                }
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            droppedCount.increment();
+        } finally {
+            progressWaiterCount.decrementAndGet();
+        }
+    }
+
+    public final String name() {
+        return name;
+    }
+
+    private void runDrainer() {
+        StringBuilder sb = new StringBuilder(BATCH_SIZE * 128);
+        StringBuilder errorSb = errorChannel != channel ? new StringBuilder() : sb;
+        while (true) {
+            boolean closing = closed;
+            int count = 0;
+            LogEvent event;
+            while (count < BATCH_SIZE && (event = ringBuffer.poll()) != null) {
+                format(event.level == ERROR ? errorSb : sb, event);
+                count++;
+            }
+            long dropped = droppedCount.sum();
+            if (dropped != reportedDroppedCount) {
+                format(sb, new LogEvent(System.currentTimeMillis(), WARN, Thread.currentThread().getName(), null,
+                    "AsyncLogger " + name + " dropped " + (dropped - reportedDroppedCount) + " events"));
+                reportedDroppedCount = dropped;
+            }
+            if (!sb.isEmpty()) {
+                write(channel, sb);
+                sb.setLength(0);
+            }
+            if (!errorSb.isEmpty()) {
+                write(errorChannel, errorSb);
+                errorSb.setLength(0);
+            }
+            if (count > 0) {
+                writtenCount += count;
+                signalProgress();
+            }
+            if (count == 0) {
+                if (closing) {
+                    break;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        if (closeChannel) {
+            try {
+                channel.close();
+            } catch (IOException exc) {
+                ConsoleLogger.SINGLETON.error("AsyncLogger " + name + " close failed: " + exc);
+            }
+        }
+        signalProgress();
+    }
+
+    /*
+     * Wake the callers waiting to flush or for space. The written count is published before the waiter count is read,
+     * and a waiter is counted before it checks its condition, so a waiter cannot miss the progress it waits for.
+     */
+    private void signalProgress() {
+        if (progressWaiterCount.get() > 0) {
+            synchronized (progressLock) {
+                progressLock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public final void warn(String message) {
+        log(WARN, null, message);
+    }
+
+    @Override
+    public final void warn(String caller, String message) {
+        log(WARN, caller, message);
+    }
+
+    private void write(WritableByteChannel channel, StringBuilder sb) {
+        ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException exc) {
+            // The log itself is unavailable, so fall back to the console
+            ConsoleLogger.SINGLETON.error("AsyncLogger " + name + " write failed: " + exc);
+        }
+    }
+
+    public enum DropPolicy {
+        // Drop any event logged while the buffer is full
+        DROP,
+        // Drop info and warn events while the buffer is full, but wait for space to log an error. An error storm can
+        // therefore block the threads that log it.
+        DROP_INFO,
+        // Wait for space to log every event
+        BLOCK
+    }
+
+    private record LogEvent(long epochMillis, String level, String threadName, String caller, String message) {
+    }
+
+    /*
+     * A bounded multi-producer, single-consumer ring buffer. A producer claims a sequence with a CAS on the tail and
+     * then publishes its event into the claimed slot. The consumer takes an event only after it is published, and it
+     * advances the head only after clearing the slot, so a producer never overwrites an event that is unread.
+     */
+    private static final class RingBuffer {
+        private final AtomicReferenceArray<LogEvent> slots;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        private RingBuffer(int capacity) {
+            if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Capacity must be a positive power of two");
+            }
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        private boolean offer(LogEvent event) {
+            while (true) {
+                long t = tail.get();
+                if (t - head.get() > mask) {
+                    return false;
+                }
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots.set((int) (t & mask), event);
+                    return true;
+                }
+            }
+        }
+
+        private LogEvent poll() {
+            long h = head.get();
+            int index = (int) (h & mask);
+            LogEvent event = slots.get(index);
+            if (event == null) {
+                return null;
+            }
+            slots.lazySet(index, null);
+            head.set(h + 1);
+            return event;
+        }
+    }
+
+}
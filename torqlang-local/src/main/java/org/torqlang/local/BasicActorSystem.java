@@ -16,12 +16,27 @@ import java.util.concurrent.Executor;
 
 public class BasicActorSystem implements ActorSystem {
 
+    private static final String ACT_WORKER_PATH = "act_worker";
+
     private final String name;
     private final Executor executor;
     private final ActorEntry[] actors;
     private final ModuleEntry[] modules;
+    private final MailboxCfg mailboxCfg;
+    private final ActorPool actWorkers;
+    private final long inlineActThreshold;
+    private final boolean askBatching;
+    private final Logger logger;
+    private final TimeSliceCfg timeSliceCfg;
 
     BasicActorSystem(String name, Executor executor, List<ActorEntry> actors, List<ModuleEntry> modules) {
+        this(name, executor, actors, modules, MailboxCfg.UNBOUNDED, 0, 0, true, null, TimeSliceCfg.DEFAULT);
+    }
+
+    BasicActorSystem(String name, Executor executor, List<ActorEntry> actors, List<ModuleEntry> modules,
+                     MailboxCfg mailboxCfg, int actWorkerCapacity, long inlineActThreshold, boolean askBatching,
+                     Logger logger, TimeSliceCfg timeSliceCfg)
+    {
         this.name = name;
         this.executor = executor != null ?
             executor : ActorSystemDefaults.executor();
@@ -29,6 +44,14 @@ public class BasicActorSystem implements ActorSystem {
         Arrays.sort(this.actors);
         this.modules = modules.toArray(new ModuleEntry[0]);
         Arrays.sort(this.modules);
+        this.mailboxCfg = mailboxCfg;
+        this.actWorkers = actWorkerCapacity > 0 ?
+            new ActorPool(Address.create(ACT_WORKER_PATH), this, actWorkerCapacity) : null;
+        this.inlineActThreshold = inlineActThreshold;
+        this.askBatching = askBatching;
+        this.logger = logger != null ?
+            logger : Logger.createDefault();
+        this.timeSliceCfg = timeSliceCfg;
     }
 
     @Override
@@ -42,12 +65,26 @@ public class BasicActorSystem implements ActorSystem {
 
     @Override
     public final Logger createLogger() {
-        return Logger.createDefault();
+        return logger;
     }
 
     @Override
     public final Mailbox createMailbox() {
-        return Mailbox.createDefault();
+        return Mailbox.create(mailboxCfg);
+    }
+
+    /*
+     * Return true if asks sent to a BatchReceiver within one compute time slice are delivered as a batch.
+     */
+    final boolean askBatching() {
+        return askBatching;
+    }
+
+    /*
+     * Return the pool of reusable actors that compute `act` expressions, or null if acts spawn a new child actor.
+     */
+    final ActorPool actWorkers() {
+        return actWorkers;
     }
 
     @Override
@@ -55,6 +92,14 @@ public class BasicActorSystem implements ActorSystem {
         return executor;
     }
 
+    /*
+     * Return the maximum observed cost, in computed instructions, of an act that may be computed inline by its parent
+     * when all of its inputs are complete. Zero disables inline acts.
+     */
+    final long inlineActThreshold() {
+        return inlineActThreshold;
+    }
+
     @Override
     public final CompleteRec moduleAt(String path) {
         int i = BinarySearchTools.search(modules, (m) -> path.compareTo(m.path));
@@ -69,4 +114,8 @@ public class BasicActorSystem implements ActorSystem {
         return name;
     }
 
+    final TimeSliceCfg timeSliceCfg() {
+        return timeSliceCfg;
+    }
+
 }
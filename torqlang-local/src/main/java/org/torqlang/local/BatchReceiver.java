@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.util.List;
+
+/*
+ * A BatchReceiver is an actor reference that can accept many requests at once. Native actors implement this
+ * interface to opt in to ask batching.
+ *
+ * When ask batching is enabled for an actor system, asks that a Torq actor sends to the same BatchReceiver during a
+ * single compute time slice are buffered and delivered together with one call to `sendBatch` at the end of the time
+ * slice. A typical N+1 loop, such as reading the customer of each order, therefore reaches the receiver as one batch
+ * that it can resolve in a single pass.
+ *
+ * Every envelope in a batch is an ordinary request with its own requester and request ID. The receiver must answer
+ * each request individually, in any order, and the responses are bound to their dataflow variables as usual. Requests
+ * in a batch are in the order they were asked. Notifications and stream requests are never batched, and any batch
+ * pending for a receiver is delivered before them to preserve message order.
+ */
+public interface BatchReceiver extends ActorRef {
+
+    default void sendBatch(List<Envelope> requests) {
+        for (Envelope request : requests) {
+            send(request);
+        }
+    }
+
+}
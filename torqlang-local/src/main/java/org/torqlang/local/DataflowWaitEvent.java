@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import jdk.jfr.*;
+
+/*
+ * A Flight Recorder event emitted when an actor resumes after suspending on an unbound dataflow variable. The event
+ * duration is the time the actor was suspended. Disabled by default (see ActorDispatchEvent).
+ */
+@Name("org.torqlang.DataflowWait")
+@Label("Dataflow Wait")
+@Category({"Torq", "KLVM"})
+@Description("An actor waited for a dataflow variable to be bound")
+@Enabled(false)
+@StackTrace(false)
+public final class DataflowWaitEvent extends Event {
+
+    @Label("Address")
+    String address;
+
+    @Label("Pending Responses")
+    @Description("The number of responses the actor was expecting when it suspended")
+    int pendingResponseCount;
+
+}
@@ -22,7 +22,7 @@ import java.util.stream.Collectors;
  * mapFreeVar --> onMapFreeVar
  * onMessage --> onReceiveResponse, onReceiveNotify, onReceiveRequest
  *     onControl
- *         onResume --> onReceiveResume
+ *         onContinue --> onReceiveResume
  *         onSyncFreeVar --> onReceiveSyncFreeVar
  *         onAct --> onReceiveAct
  *         onConfigure --> onReceiveConfigure
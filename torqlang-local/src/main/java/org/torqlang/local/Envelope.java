@@ -9,6 +9,11 @@ package org.torqlang.local;
 
 public interface Envelope {
 
+    /**
+     * The deadline of an envelope that never expires.
+     */
+    long NO_DEADLINE = Long.MAX_VALUE;
+
     static Envelope createControlNotify(Object message) {
         return new LocalEnvelope(true, message, null, null);
     }
@@ -17,6 +22,13 @@ public interface Envelope {
         return new LocalEnvelope(true, message, requester, requestId);
     }
 
+    /**
+     * Create a control request that expires at the given deadline, which is an absolute `System.nanoTime()` value.
+     */
+    static Envelope createControlRequest(Object message, ActorRef requester, Object requestId, long deadlineNanos) {
+        return new LocalEnvelope(true, message, requester, requestId, deadlineNanos);
+    }
+
     static Envelope createControlResponse(Object message, Object requestId) {
         return new LocalEnvelope(true, message, null, requestId);
     }
@@ -29,15 +41,38 @@ public interface Envelope {
         return new LocalEnvelope(false, message, requester, requestId);
     }
 
+    /**
+     * Create a request that expires at the given deadline, which is an absolute `System.nanoTime()` value. An actor
+     * answers an expired request with a FailedValue containing a RequestTimeoutError instead of processing it.
+     */
+    static Envelope createRequest(Object message, ActorRef requester, Object requestId, long deadlineNanos) {
+        return new LocalEnvelope(false, message, requester, requestId, deadlineNanos);
+    }
+
     static Envelope createResponse(Object message, Object requestId) {
         return new LocalEnvelope(false, message, null, requestId);
     }
 
+    /**
+     * Return the absolute `System.nanoTime()` value after which a request is no longer worth processing, or
+     * NO_DEADLINE if the request never expires.
+     */
+    default long deadlineNanos() {
+        return NO_DEADLINE;
+    }
+
     /**
      * Return true if this envelope contains a message for the actor's controller instead of its behavior.
      */
     boolean isControl();
 
+    /**
+     * Return true if this envelope is a request with a deadline that has passed.
+     */
+    default boolean isExpired() {
+        return deadlineNanos() != NO_DEADLINE && isRequest() && System.nanoTime() - deadlineNanos() > 0;
+    }
+
     /**
      * Return true if this envelope contains only a message (no request ID).
      */
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/*
+ * Enablement checks for the Torq Flight Recorder events.
+ *
+ * Initializing an Event subclass, or calling EventType.getEventType, starts the Flight Recorder metadata machinery,
+ * which costs hundreds of milliseconds when no recording is running. Therefore, callers must not touch an event class
+ * until one of these checks returns true. Each check first reads `FlightRecorder.isInitialized()`, which is true once
+ * any recording has been created, and only then initializes a holder class that resolves the EventType. When JFR is
+ * off, a check costs a volatile read and no event class is ever initialized.
+ */
+public final class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    static boolean isActorDispatchEnabled() {
+        return FlightRecorder.isInitialized() && ActorDispatchType.TYPE.isEnabled();
+    }
+
+    static boolean isDataflowWaitEnabled() {
+        return FlightRecorder.isInitialized() && DataflowWaitType.TYPE.isEnabled();
+    }
+
+    /*
+     * Other modules guard their own event classes with this check before resolving an EventType.
+     */
+    public static boolean isRecorderInitialized() {
+        return FlightRecorder.isInitialized();
+    }
+
+    static boolean isTimeSliceEnabled() {
+        return FlightRecorder.isInitialized() && TimeSliceType.TYPE.isEnabled();
+    }
+
+    private static final class ActorDispatchType {
+        private static final EventType TYPE = EventType.getEventType(ActorDispatchEvent.class);
+    }
+
+    private static final class DataflowWaitType {
+        private static final EventType TYPE = EventType.getEventType(DataflowWaitEvent.class);
+    }
+
+    private static final class TimeSliceType {
+        private static final EventType TYPE = EventType.getEventType(TimeSliceEvent.class);
+    }
+
+}
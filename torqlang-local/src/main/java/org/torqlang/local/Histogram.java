@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * A Histogram records non-negative long values, such as latencies in nanoseconds, into a fixed set of log-linear
+ * buckets in the manner of HdrHistogram. Values below 16 have their own buckets. Above that, each power of two is
+ * divided into 8 buckets, so a recorded value is reported with a relative error of at most 12.5%. Recording is
+ * allocation-free and lock-free, and it costs a few arithmetic operations and four uncontended atomic updates.
+ *
+ * Percentiles are computed from a non-atomic scan of the buckets and are therefore approximate while values are
+ * being recorded concurrently.
+ */
+public final class Histogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR_COUNT = SUB_COUNT * 2;
+    private static final int LINEAR_MAGNITUDE = SUB_BITS + 1;
+    private static final int BUCKET_COUNT = LINEAR_COUNT + (62 - LINEAR_MAGNITUDE + 1) * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_COUNT - 1);
+        return LINEAR_COUNT + (magnitude - LINEAR_MAGNITUDE) * SUB_COUNT + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_COUNT) {
+            return index;
+        }
+        int magnitude = (index - LINEAR_COUNT) / SUB_COUNT + LINEAR_MAGNITUDE;
+        int sub = (index - LINEAR_COUNT) % SUB_COUNT;
+        int shift = magnitude - SUB_BITS;
+        long lower = (long) (SUB_COUNT + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public final long count() {
+        return count.sum();
+    }
+
+    public final long max() {
+        return max.get();
+    }
+
+    public final double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /*
+     * Return the smallest bucket bound at or below which the given fraction of recorded values fall, where `p` is
+     * between 0 and 1. The answer never exceeds the maximum recorded value.
+     */
+    public final long percentile(double p) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public final void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+}
@@ -0,0 +1,696 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.torqlang.klvm.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/*
+ * A JsonKernelParser parses UTF-8 JSON text into kernel values as the text arrives. It produces the same values as
+ * `ValueTools.toKernelValue(JsonParser.parse(text), valueDesc)` without the intermediate maps, lists, and boxed
+ * numbers. The caller feeds byte buffers in any sizes, and the parser never blocks or looks ahead, so it can consume
+ * request content chunks as they are read and release each chunk before the next one arrives. Call `finish()` after
+ * the last buffer to get the value, or call `parse` to parse text that is already whole.
+ *
+ * The parser is a state machine with an explicit stack of containers. A token split across buffers, such as a string,
+ * a number, or a literal name, is accumulated in a reusable scratch area until it is complete. Strings are accumulated
+ * as UTF-8 bytes and decoded once, so a multibyte character split across buffers needs no special handling.
+ *
+ * The value description guides conversion as it does for ValueTools, with one difference: a JSON number described by
+ * a Dec128Desc is read exactly as a Dec128 instead of as an approximate Flt64. Features are interned: the features of
+ * each RecDesc are added to an intern table as the RecDesc is encountered, and other keys are added as they are
+ * read, so a key that repeats across an array of objects is allocated once. Unlike the `HashMap` produced by
+ * JsonParser, a duplicate key is an error (see DuplicateFeatureError) instead of replacing the previous value.
+ *
+ * A labeled record is encoded as an object with exactly two keys, "$label" and "$rec". It is recognized when its
+ * object closes, so its "$rec" value is read with the "$rec" description of the enclosing RecDesc or, if there is
+ * none, with the enclosing RecDesc itself. The same description is therefore used for a "$rec" key in an object that
+ * turns out not to be labeled.
+ *
+ * Objects and arrays cannot be nested deeper than the maximum depth, which defaults to DEFAULT_MAX_DEPTH. Otherwise, a
+ * small body of brackets could allocate a frame per byte.
+ */
+public final class JsonKernelParser {
+
+    private static final Str $LABEL_STR = Str.of(Rec.$LABEL);
+    private static final Str $REC_STR = Str.of(Rec.$REC);
+
+    private static final byte[] FALSE_BYTES = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL_BYTES = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE_BYTES = "true".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int INTERN_CAPACITY = 1024;
+    private static final int MAX_INTERN_COUNT = INTERN_CAPACITY / 2;
+    private static final int INITIAL_STACK_SIZE = 32;
+
+    public static final int DEFAULT_MAX_DEPTH = 512;
+
+    // Parser states
+    private static final int VALUE = 0;
+    private static final int OBJECT_FIRST = 1;
+    private static final int OBJECT_KEY = 2;
+    private static final int OBJECT_COLON = 3;
+    private static final int ARRAY_FIRST = 4;
+    private static final int NEXT = 5;
+    private static final int END = 6;
+
+    // Token states
+    private static final int TOKEN_NONE = 0;
+    private static final int TOKEN_STRING = 1;
+    private static final int TOKEN_ESCAPE = 2;
+    private static final int TOKEN_UNICODE = 3;
+    private static final int TOKEN_NUMBER = 4;
+    private static final int TOKEN_NAME = 5;
+
+    private final ValueDesc valueDesc;
+    private final int maxDepth;
+
+    private int state = VALUE;
+    private int tokenState = TOKEN_NONE;
+    private long position;
+    private boolean blank = true;
+    private Complete root;
+
+    private byte[] stringBytes = new byte[64];
+    private int stringLength;
+    private boolean stringIsKey;
+    private int unicodeValue;
+    private int unicodeDigitCount;
+    private int highSurrogate = -1;
+
+    private final StringBuilder numberText = new StringBuilder(24);
+
+    private byte[] name;
+    private int nameIndex;
+    private Complete nameValue;
+
+    private Frame[] frames = new Frame[16];
+    private int depth;
+
+    private CompleteField[] fieldStack = new CompleteField[INITIAL_STACK_SIZE];
+    private int fieldTop;
+    private Complete[] valueStack = new Complete[INITIAL_STACK_SIZE];
+    private int valueTop;
+
+    private Feature[] internFeatures;
+    private byte[][] internKeys;
+    private int internCount;
+    private IdentityHashMap<RecDesc, RecDesc> internedDescs;
+
+    public JsonKernelParser(ValueDesc valueDesc) {
+        this(valueDesc, DEFAULT_MAX_DEPTH);
+    }
+
+    public JsonKernelParser(ValueDesc valueDesc, int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth < 1");
+        }
+        this.valueDesc = valueDesc;
+        this.maxDepth = maxDepth;
+    }
+
+    private static int hashBytes(byte[] bytes, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    private static boolean isNumberByte(int b) {
+        return (b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+' || b == 'e' || b == 'E';
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /*
+     * Parse JSON text that is already whole.
+     */
+    public static Complete parse(String source, ValueDesc valueDesc) {
+        JsonKernelParser parser = new JsonKernelParser(valueDesc);
+        parser.feed(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)));
+        return parser.finish();
+    }
+
+    /*
+     * Convert a JSON string to a kernel value as described by `valueDesc`.
+     */
+    static Complete toKernelString(String string, ValueDesc valueDesc) {
+        if (Eof.NATIVE_VALUE.equals(string)) {
+            return Eof.SINGLETON;
+        } else if (valueDesc instanceof DateDesc) {
+            LocalDate localDate;
+            if (string.length() > 10) {
+                LocalDateTime localDateTime = DateTimeFormatter.ISO_DATE_TIME.parse(string, LocalDateTime::from);
+                localDate = localDateTime.toLocalDate();
+            } else {
+                localDate = DateTimeFormatter.ISO_DATE.parse(string, LocalDate::from);
+            }
+            return LocalDatePack.newObj(localDate);
+        } else if (valueDesc instanceof Int32Desc) {
+            return Int32.decode(string);
+        } else if (valueDesc instanceof Int64Desc) {
+            return Int64.decode(string);
+        } else if (valueDesc instanceof Dec128Desc) {
+            return Dec128.of(string);
+        } else {
+            return Str.of(string);
+        }
+    }
+
+    private void appendByte(int b) {
+        if (stringLength == stringBytes.length) {
+            stringBytes = Arrays.copyOf(stringBytes, stringLength * 2);
+        }
+        stringBytes[stringLength++] = (byte) b;
+    }
+
+    private void appendCodePoint(int cp) {
+        if (cp < 0x80) {
+            appendByte(cp);
+        } else if (cp < 0x800) {
+            appendByte(0xC0 | (cp >> 6));
+            appendByte(0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            appendByte(0xE0 | (cp >> 12));
+            appendByte(0x80 | ((cp >> 6) & 0x3F));
+            appendByte(0x80 | (cp & 0x3F));
+        } else {
+            appendByte(0xF0 | (cp >> 18));
+            appendByte(0x80 | ((cp >> 12) & 0x3F));
+            appendByte(0x80 | ((cp >> 6) & 0x3F));
+            appendByte(0x80 | (cp & 0x3F));
+        }
+    }
+
+    /*
+     * Append a UTF-16 code unit from a unicode escape. A surrogate pair is appended as one code point, and a lone
+     * surrogate is appended as the replacement character, which is what decoding it from UTF-8 would produce.
+     */
+    private void appendCodeUnit(int unit) {
+        if (Character.isHighSurrogate((char) unit)) {
+            flushHighSurrogate();
+            highSurrogate = unit;
+        } else if (Character.isLowSurrogate((char) unit) && highSurrogate >= 0) {
+            appendCodePoint(Character.toCodePoint((char) highSurrogate, (char) unit));
+            highSurrogate = -1;
+        } else {
+            flushHighSurrogate();
+            appendCodePoint(Character.isSurrogate((char) unit) ? 0xFFFD : unit);
+        }
+    }
+
+    private void beginName(byte[] name, Complete nameValue) {
+        this.name = name;
+        this.nameValue = nameValue;
+        nameIndex = 1;
+        tokenState = TOKEN_NAME;
+    }
+
+    private void beginString(boolean isKey) {
+        stringLength = 0;
+        stringIsKey = isKey;
+        tokenState = TOKEN_STRING;
+    }
+
+    private void beginValue(int b) {
+        if (b == '{') {
+            pushFrame(true, currentDesc());
+            state = OBJECT_FIRST;
+        } else if (b == '[') {
+            pushFrame(false, currentDesc());
+            state = ARRAY_FIRST;
+        } else if (b == '"') {
+            beginString(false);
+        } else if (b == '-' || (b >= '0' && b <= '9')) {
+            numberText.setLength(0);
+            numberText.append((char) b);
+            tokenState = TOKEN_NUMBER;
+        } else if (b == 't') {
+            beginName(TRUE_BYTES, Bool.TRUE);
+        } else if (b == 'f') {
+            beginName(FALSE_BYTES, Bool.FALSE);
+        } else if (b == 'n') {
+            beginName(NULL_BYTES, Null.SINGLETON);
+        } else {
+            throw unexpected(b);
+        }
+    }
+
+    private void closeArray() {
+        Frame frame = frames[--depth];
+        CompleteTuple answer = CompleteTuple.create(Arrays.asList(valueStack).subList(frame.base, valueTop));
+        Arrays.fill(valueStack, frame.base, valueTop, null);
+        valueTop = frame.base;
+        frame.clear();
+        onValue(answer);
+    }
+
+    private void closeObject() {
+        Frame frame = frames[--depth];
+        Complete answer;
+        if (fieldTop - frame.base == 2 && frame.labelValue != null && frame.recValue != null) {
+            answer = createLabeled(frame.labelValue, frame.recValue);
+        } else {
+            answer = CompleteRec.create(Arrays.asList(fieldStack).subList(frame.base, fieldTop));
+        }
+        Arrays.fill(fieldStack, frame.base, fieldTop, null);
+        fieldTop = frame.base;
+        frame.clear();
+        onValue(answer);
+    }
+
+    private Complete createLabeled(Complete labelValue, Complete recValue) {
+        if (!(labelValue instanceof Literal label)) {
+            throw new IllegalArgumentException("Label must be a Literal: " + labelValue);
+        }
+        if (recValue instanceof CompleteRec rec) {
+            if (!rec.label().equals(Rec.DEFAULT_LABEL)) {
+                throw new IllegalArgumentException("Label cannot follow a label");
+            }
+            List<CompleteField> fields = new ArrayList<>(rec.fieldCount());
+            for (int i = 0; i < rec.fieldCount(); i++) {
+                fields.add(rec.fieldAt(i));
+            }
+            return CompleteRec.create(label, fields);
+        }
+        if (recValue instanceof CompleteTuple tuple) {
+            if (!tuple.label().equals(Rec.DEFAULT_LABEL)) {
+                throw new IllegalArgumentException("Label cannot follow a label");
+            }
+            List<Complete> values = new ArrayList<>(tuple.fieldCount());
+            for (int i = 0; i < tuple.fieldCount(); i++) {
+                values.add(tuple.valueAt(i));
+            }
+            return CompleteTuple.create(label, values);
+        }
+        throw new IllegalArgumentException("Label must precede a Map or List");
+    }
+
+    private ValueDesc currentDesc() {
+        if (depth == 0) {
+            return valueDesc;
+        }
+        Frame frame = frames[depth - 1];
+        if (frame.isObject) {
+            return frame.fieldDesc;
+        }
+        if (frame.tupleDescs != null) {
+            int index = valueTop - frame.base;
+            return index < frame.tupleDescs.size() ? frame.tupleDescs.get(index) : null;
+        }
+        return frame.componentDesc;
+    }
+
+    /*
+     * Consume all the remaining bytes of `buffer`.
+     */
+    public final void feed(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            int b = buffer.get() & 0xFF;
+            if (tokenState == TOKEN_NUMBER && !isNumberByte(b)) {
+                finishNumber();
+            }
+            switch (tokenState) {
+                case TOKEN_NONE -> parseByte(b);
+                case TOKEN_STRING -> parseStringByte(b);
+                case TOKEN_ESCAPE -> parseEscapeByte(b);
+                case TOKEN_UNICODE -> parseUnicodeByte(b);
+                case TOKEN_NUMBER -> numberText.append((char) b);
+                default -> parseNameByte(b);
+            }
+            position++;
+        }
+    }
+
+    /*
+     * Return the value after the last buffer has been fed.
+     */
+    public final Complete finish() {
+        if (tokenState == TOKEN_NUMBER) {
+            finishNumber();
+        }
+        if (state != END || tokenState != TOKEN_NONE) {
+            throw new IllegalArgumentException("Unexpected end of JSON text");
+        }
+        return root;
+    }
+
+    private void finishNumber() {
+        tokenState = TOKEN_NONE;
+        int length = numberText.length();
+        int i = numberText.charAt(0) == '-' ? 1 : 0;
+        int digitsBegin = i;
+        while (i < length && Character.isDigit(numberText.charAt(i))) {
+            i++;
+        }
+        boolean isValid = i > digitsBegin;
+        boolean isFloat = false;
+        if (i < length && numberText.charAt(i) == '.') {
+            isFloat = true;
+            i++;
+            while (i < length && Character.isDigit(numberText.charAt(i))) {
+                i++;
+            }
+        }
+        if (i < length && (numberText.charAt(i) == 'e' || numberText.charAt(i) == 'E')) {
+            isFloat = true;
+            i++;
+            if (i < length && (numberText.charAt(i) == '+' || numberText.charAt(i) == '-')) {
+                i++;
+            }
+            int exponentBegin = i;
+            while (i < length && Character.isDigit(numberText.charAt(i))) {
+                i++;
+            }
+            isValid &= i > exponentBegin;
+        }
+        if (!isValid || i != length) {
+            throw new IllegalArgumentException("Invalid number '" + numberText + "' at position " + position);
+        }
+        ValueDesc desc = currentDesc();
+        Complete value;
+        if (desc instanceof Dec128Desc) {
+            value = Dec128.of(numberText.toString());
+        } else if (isFloat) {
+            value = Flt64.of(Double.parseDouble(numberText.toString()));
+        } else {
+            long n = Long.parseLong(numberText, 0, length, 10);
+            value = desc instanceof Int32Desc ? Int32.of((int) n) : Int64.of(n);
+        }
+        onValue(value);
+    }
+
+    private void finishString() {
+        flushHighSurrogate();
+        tokenState = TOKEN_NONE;
+        if (stringIsKey) {
+            Frame frame = frames[depth - 1];
+            Feature feature = internFeature();
+            frame.feature = feature;
+            if (frame.recDesc == null) {
+                frame.fieldDesc = null;
+            } else {
+                ValueDesc found = frame.recDesc.map.get(feature);
+                if (found == null && feature.equals($REC_STR)) {
+                    found = frame.recDesc;
+                }
+                frame.fieldDesc = found;
+            }
+            state = OBJECT_COLON;
+        } else {
+            String string = new String(stringBytes, 0, stringLength, StandardCharsets.UTF_8);
+            onValue(toKernelString(string, currentDesc()));
+        }
+    }
+
+    private void flushHighSurrogate() {
+        if (highSurrogate >= 0) {
+            highSurrogate = -1;
+            appendCodePoint(0xFFFD);
+        }
+    }
+
+    private Feature internFeature() {
+        if (internFeatures == null) {
+            internFeatures = new Feature[INTERN_CAPACITY];
+            internKeys = new byte[INTERN_CAPACITY][];
+        }
+        int mask = INTERN_CAPACITY - 1;
+        int i = hashBytes(stringBytes, stringLength) & mask;
+        byte[] key;
+        while ((key = internKeys[i]) != null) {
+            if (Arrays.equals(key, 0, key.length, stringBytes, 0, stringLength)) {
+                return internFeatures[i];
+            }
+            i = (i + 1) & mask;
+        }
+        String text = new String(stringBytes, 0, stringLength, StandardCharsets.UTF_8);
+        Feature answer = Eof.NATIVE_VALUE.equals(text) ? Eof.SINGLETON : Str.of(text);
+        if (internCount < MAX_INTERN_COUNT) {
+            internKeys[i] = Arrays.copyOf(stringBytes, stringLength);
+            internFeatures[i] = answer;
+            internCount++;
+        }
+        return answer;
+    }
+
+    /*
+     * Add the Str features of a RecDesc to the intern table so that the records parsed share the features of their
+     * description.
+     */
+    private void internFeatures(RecDesc recDesc) {
+        if (internedDescs == null) {
+            internedDescs = new IdentityHashMap<>();
+        } else if (internedDescs.containsKey(recDesc)) {
+            return;
+        }
+        internedDescs.put(recDesc, recDesc);
+        if (internFeatures == null) {
+            internFeatures = new Feature[INTERN_CAPACITY];
+            internKeys = new byte[INTERN_CAPACITY][];
+        }
+        int mask = INTERN_CAPACITY - 1;
+        for (Feature feature : recDesc.map.keySet()) {
+            if (!(feature instanceof Str str) || internCount >= MAX_INTERN_COUNT) {
+                continue;
+            }
+            byte[] bytes = str.value.getBytes(StandardCharsets.UTF_8);
+            int i = hashBytes(bytes, bytes.length) & mask;
+            boolean present = false;
+            while (internKeys[i] != null) {
+                if (Arrays.equals(internKeys[i], bytes)) {
+                    present = true;
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            if (!present) {
+                internKeys[i] = bytes;
+                internFeatures[i] = feature;
+                internCount++;
+            }
+        }
+    }
+
+    /*
+     * Return true if nothing but whitespace has been fed.
+     */
+    public final boolean isBlank() {
+        return blank;
+    }
+
+    private void onValue(Complete value) {
+        if (depth == 0) {
+            root = value;
+            state = END;
+            return;
+        }
+        Frame frame = frames[depth - 1];
+        if (frame.isObject) {
+            Feature feature = frame.feature;
+            if (feature.equals($LABEL_STR)) {
+                frame.labelValue = value;
+            } else if (feature.equals($REC_STR)) {
+                frame.recValue = value;
+            }
+            if (fieldTop == fieldStack.length) {
+                fieldStack = Arrays.copyOf(fieldStack, fieldTop * 2);
+            }
+            fieldStack[fieldTop++] = new CompleteField(feature, value);
+        } else {
+            if (valueTop == valueStack.length) {
+                valueStack = Arrays.copyOf(valueStack, valueTop * 2);
+            }
+            valueStack[valueTop++] = value;
+        }
+        state = NEXT;
+    }
+
+    private void parseByte(int b) {
+        if (isWhitespace(b)) {
+            return;
+        }
+        blank = false;
+        switch (state) {
+            case VALUE -> beginValue(b);
+            case OBJECT_FIRST -> {
+                if (b == '}') {
+                    closeObject();
+                } else if (b == '"') {
+                    beginString(true);
+                } else {
+                    throw unexpected(b);
+                }
+            }
+            case OBJECT_KEY -> {
+                if (b != '"') {
+                    throw unexpected(b);
+                }
+                beginString(true);
+            }
+            case OBJECT_COLON -> {
+                if (b != ':') {
+                    throw unexpected(b);
+                }
+                state = VALUE;
+            }
+            case ARRAY_FIRST -> {
+                if (b == ']') {
+                    closeArray();
+                } else {
+                    beginValue(b);
+                }
+            }
+            case NEXT -> {
+                Frame frame = frames[depth - 1];
+                if (b == ',') {
+                    state = frame.isObject ? OBJECT_KEY : VALUE;
+                } else if (frame.isObject && b == '}') {
+                    closeObject();
+                } else if (!frame.isObject && b == ']') {
+                    closeArray();
+                } else {
+                    throw unexpected(b);
+                }
+            }
+            default -> throw unexpected(b);
+        }
+    }
+
+    private void parseEscapeByte(int b) {
+        if (b == 'u') {
+            unicodeValue = 0;
+            unicodeDigitCount = 0;
+            tokenState = TOKEN_UNICODE;
+            return;
+        }
+        int c = switch (b) {
+            case 't' -> '\t';
+            case 'b' -> '\b';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 'f' -> '\f';
+            case '\\' -> '\\';
+            case '/' -> '/';
+            case '"' -> '"';
+            default -> throw new IllegalArgumentException("Invalid escape sequence: \\" + (char) b);
+        };
+        flushHighSurrogate();
+        appendByte(c);
+        tokenState = TOKEN_STRING;
+    }
+
+    private void parseNameByte(int b) {
+        if (b != name[nameIndex]) {
+            throw unexpected(b);
+        }
+        nameIndex++;
+        if (nameIndex == name.length) {
+            tokenState = TOKEN_NONE;
+            onValue(nameValue);
+        }
+    }
+
+    private void parseStringByte(int b) {
+        if (b == '"') {
+            finishString();
+        } else if (b == '\\') {
+            tokenState = TOKEN_ESCAPE;
+        } else {
+            if (highSurrogate >= 0) {
+                flushHighSurrogate();
+            }
+            appendByte(b);
+        }
+    }
+
+    private void parseUnicodeByte(int b) {
+        int digit = Character.digit(b, 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid unicode escape at position " + position);
+        }
+        unicodeValue = (unicodeValue << 4) | digit;
+        unicodeDigitCount++;
+        if (unicodeDigitCount == 4) {
+            appendCodeUnit(unicodeValue);
+            tokenState = TOKEN_STRING;
+        }
+    }
+
+    private void pushFrame(boolean isObject, ValueDesc desc) {
+        if (depth == maxDepth) {
+            throw new IllegalArgumentException("Nesting deeper than " + maxDepth + " at position " + position);
+        }
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        Frame frame = frames[depth];
+        if (frame == null) {
+            frame = new Frame();
+            frames[depth] = frame;
+        }
+        depth++;
+        frame.isObject = isObject;
+        if (isObject) {
+            frame.base = fieldTop;
+            frame.recDesc = desc instanceof RecDesc recDesc ? recDesc : null;
+            if (frame.recDesc != null) {
+                internFeatures(frame.recDesc);
+            }
+        } else {
+            frame.base = valueTop;
+            if (desc instanceof TupleDesc tupleDesc) {
+                frame.tupleDescs = tupleDesc.descs();
+            } else if (desc instanceof ArrayDesc arrayDesc) {
+                frame.componentDesc = arrayDesc.componentSpec();
+            }
+        }
+    }
+
+    private IllegalArgumentException unexpected(int b) {
+        return new IllegalArgumentException("Unexpected character '" + (char) b + "' at position " + position);
+    }
+
+    /*
+     * An open object or array. Frames are reused by depth.
+     */
+    private static final class Frame {
+        private boolean isObject;
+        private int base;
+        private RecDesc recDesc;
+        private List<ValueDesc> tupleDescs;
+        private ValueDesc componentDesc;
+        private Feature feature;
+        private ValueDesc fieldDesc;
+        private Complete labelValue;
+        private Complete recValue;
+
+        private void clear() {
+            recDesc = null;
+            tupleDescs = null;
+            componentDesc = null;
+            feature = null;
+            fieldDesc = null;
+            labelValue = null;
+            recValue = null;
+        }
+    }
+
+}
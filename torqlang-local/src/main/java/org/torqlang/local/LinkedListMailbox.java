@@ -12,13 +12,19 @@ import java.util.Comparator;
 public class LinkedListMailbox implements Mailbox {
 
     private final Comparator<Envelope> priorityComparator;
+    private final MailboxCfg cfg;
 
     private Entry first;
     private Entry last;
     private int size;
 
     public LinkedListMailbox(Comparator<Envelope> priorityComparator) {
+        this(priorityComparator, MailboxCfg.UNBOUNDED);
+    }
+
+    public LinkedListMailbox(Comparator<Envelope> priorityComparator, MailboxCfg cfg) {
         this.priorityComparator = priorityComparator;
+        this.cfg = cfg;
     }
 
     @Override
@@ -36,6 +42,11 @@ public class LinkedListMailbox implements Mailbox {
         insert(new Entry(envelope), before, after);
     }
 
+    @Override
+    public final MailboxCfg cfg() {
+        return cfg;
+    }
+
     public final Entry firstEntry() {
         return first;
     }
@@ -91,11 +102,39 @@ public class LinkedListMailbox implements Mailbox {
         return answer;
     }
 
+    @Override
+    public final Envelope removeOldestNotify() {
+        for (Entry entry = first; entry != null; entry = entry.next) {
+            Envelope envelope = entry.message;
+            if (envelope.isNotify() && !envelope.isControl()) {
+                unlink(entry);
+                return envelope;
+            }
+        }
+        return null;
+    }
+
     @Override
     public final int size() {
         return size;
     }
 
+    private void unlink(Entry entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            first = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        } else {
+            last = entry.prev;
+        }
+        entry.next = null;
+        entry.prev = null;
+        size--;
+    }
+
     public final static class Entry {
 
         private final Envelope message;
@@ -31,7 +31,9 @@ import static org.torqlang.util.SourceSpan.emptySourceSpan;
  * Notify and Request messages are computation requests. Response messages affect the machines state, and Control
  * messages affect the actor lifecycle.
  *
- * Priority 0: Control message are the highest priority. Examples of control messages are Resume, Stop, and Debug.
+ * Priority 0: Control message are the highest priority. Examples of control messages are Configure, Stop, and
+ *             SyncFreeVar. A preempted computation continues only after the control messages queued by then (see
+ *             AbstractActor.scheduleContinuation).
  * Priority 1: Response messages are higher priority than request messages because the actor may be waiting on an
  *             unbound variable fulfilled by the response.
  * Priority 2: Request and notify message have the same priority, they are requesting that the actor perform a
@@ -43,6 +45,7 @@ final class LocalActor extends AbstractActor {
     private static final Env ROOT_ENV = createRootEnv();
 
     private final ActorSystem system;
+    private final ActorPool pool;
     private final IdentityHashMap<Var, List<ChildVar>> triggers = new IdentityHashMap<>();
 
     private boolean streamTrace = false;
@@ -51,26 +54,49 @@ final class LocalActor extends AbstractActor {
     private EnvEntry tellHandlerEntry;
     private Envelope activeRequest;
     private Object waitState;
+    private DataflowWaitEvent waitEvent;
     private int childCount;
+    private int pendingResponseCount;
+    private int pendingSyncCount;
+    private int openStreamCount;
+    private long actStartCount;
+    private TimeSliceCfg timeSliceCfg;
+    private long checkInterval;
+    private volatile boolean checkedOut;
+    private boolean batchingAsks;
+    private IdentityHashMap<BatchReceiver, List<Envelope>> askBatches;
     private FailedValue failedValue; // We are halted if not null
 
     private List<Envelope> selectableResponses = Collections.emptyList();
     private List<Envelope> suspendedResponses = Collections.emptyList();
 
     LocalActor(Address address, ActorImage image) {
-        this(address, image.system, image.askHandlerEntry, image.tellHandlerEntry);
+        this(address, image, null);
+    }
+
+    LocalActor(Address address, ActorImage image, ActorPool pool) {
+        this(address, image.system, image.askHandlerEntry, image.tellHandlerEntry, pool);
         machine = new Machine(this, null);
     }
 
     LocalActor(Address address, ActorSystem system) {
-        this(address, system, null, null);
+        this(address, system, null, null, null);
+    }
+
+    LocalActor(Address address, ActorSystem system, ActorPool pool) {
+        this(address, system, null, null, pool);
     }
 
-    private LocalActor(Address address, ActorSystem system, EnvEntry askHandlerEntry, EnvEntry tellHandlerEntry) {
+    private LocalActor(Address address, ActorSystem system, EnvEntry askHandlerEntry, EnvEntry tellHandlerEntry,
+                       ActorPool pool)
+    {
         super(address, system.createMailbox(), system.executor(), system.createLogger());
         this.system = system;
+        this.pool = pool;
         this.askHandlerEntry = askHandlerEntry;
         this.tellHandlerEntry = tellHandlerEntry;
+        setTimeSliceCfg(system instanceof BasicActorSystem basicSystem ?
+            basicSystem.timeSliceCfg() : TimeSliceCfg.DEFAULT);
         if (DebuggerSetting.get() != null) {
             DebuggerSetting.get().onCreate(this, system, askHandlerEntry, tellHandlerEntry);
         }
@@ -154,6 +180,10 @@ final class LocalActor extends AbstractActor {
     private static void onCallbackToRespondFromAsk(List<CompleteOrIdent> ys, Env env, Machine machine) throws WaitException {
         LocalActor owner = machine.owner();
         owner.sendResponse(ys, env, machine);
+        // Record the cost of a completed act so that a parent can decide to compute the act inline next time
+        if (owner.activeRequest.message() instanceof Act act) {
+            act.actInstr.recordObservedCost(machine.computeCount() - owner.actStartCount);
+        }
         // We are at the end of an ask-handler and have completed the request
         owner.activeRequest = null;
     }
@@ -177,10 +207,40 @@ final class LocalActor extends AbstractActor {
         return ROOT_ENV;
     }
 
+    /*
+     * Create an image synchronously on the calling thread. The handlers are constructed by a private actor that is
+     * never scheduled, so we avoid a round trip through the mailbox and executor to capture the image.
+     */
+    static ActorImage createImage(Address address, ActorSystem system, ActorCfg actorCfg) {
+        LocalActor imageActor = new LocalActor(address, system);
+        imageActor.configureHandlers(actorCfg);
+        return imageActor.captureImage();
+    }
+
     static ActorRef spawn(Address address, ActorImage image) {
         return new LocalActor(address, image);
     }
 
+    /*
+     * Spawn an actor with its handlers already installed and send it its first message. This is a convenience for
+     * `spawn(address, image)` followed by `send(first)`. The first message is queued and processed by a scheduled
+     * dispatch like any other. Spawning from an image saves building the handlers, not the first dispatch.
+     */
+    static ActorRef spawn(Address address, ActorImage image, Envelope first) {
+        LocalActor localActor = new LocalActor(address, image);
+        localActor.send(first);
+        return localActor;
+    }
+
+    /*
+     * Return the deadline of the active request, or NO_DEADLINE if there is none. Requests sent on behalf of the active
+     * request, including asks, stream fetches, and acts, inherit its deadline so that work is not done for a caller
+     * that has stopped waiting.
+     */
+    final long activeDeadlineNanos() {
+        return activeRequest != null ? activeRequest.deadlineNanos() : Envelope.NO_DEADLINE;
+    }
+
     private void bindResponseValue(Envelope envelope) throws WaitException {
 
         // If the response is a typical request-response value, simply bind it.
@@ -198,12 +258,22 @@ final class LocalActor extends AbstractActor {
         StreamObjRef streamObjRef = (StreamObjRef) envelope.requestId();
         StreamObj streamObj = streamObjRef.streamObj;
 
+        // A prefetching stream may receive responses to its outstanding requests after the publisher has signaled
+        // its final 'eof'. These responses are not part of the stream and are discarded.
+
+        if (streamObj.closed) {
+            streamObj.onDiscardedResponse(envelope);
+            return;
+        }
+
         // Unlike a typical request-response, we need to check for a FailedValue
         // and bind it explicitly.
 
         if (envelope.message() instanceof FailedValue childFailedValue) {
+            streamObj.outstandingCount--;
             streamObj.tail.element.bindToValue(childFailedValue, null);
             streamObj.appendUnboundTail();
+            streamObj.close();
             return;
         }
 
@@ -218,10 +288,12 @@ final class LocalActor extends AbstractActor {
         // An 'eof' response must have a 'more' feature.
         if (messageRec.label().equals(Eof.SINGLETON)) {
             Bool more = (Bool) messageRec.valueAt(0);
+            streamObj.outstandingCount--;
             if (more.value) {
-                streamObj.fetchNextFromPublisher();
+                streamObj.fetchWhileCredit();
             } else {
                 streamObj.tail.element.bindToValue(Eof.SINGLETON, null);
+                streamObj.close();
             }
             return;
         }
@@ -257,24 +329,93 @@ final class LocalActor extends AbstractActor {
         //         (a) Create a FailedValue with an error and native cause
         //         (b) Native error should be "'error'#{'name': _, 'message': _, ...}"
         waitState = null;
-        ComputeAdvice advice = machine.compute(10_000);
+        if (waitEvent != null) {
+            waitEvent.commit();
+            waitEvent = null;
+        }
+        ComputeAdvice advice;
+        TimeSliceEvent timeSliceEvent = null;
+        if (FlightEvents.isTimeSliceEnabled()) {
+            timeSliceEvent = new TimeSliceEvent();
+            timeSliceEvent.begin();
+        }
+        batchingAsks = isAskBatching();
+        long computeCountBefore = machine.computeCount();
+        boolean profiling = SamplingProfiler.active() != null;
+        if (profiling) {
+            SamplingProfiler.enter(address(), machine);
+        }
+        try {
+            advice = computeMachine();
+        } finally {
+            if (profiling) {
+                SamplingProfiler.exit();
+            }
+            batchingAsks = false;
+            flushAskBatches();
+        }
+        if (metrics() != null) {
+            metrics().onComputeTimeSlice(machine.computeCount() - computeCountBefore, advice.isPreempt());
+        }
+        if (timeSliceEvent != null && timeSliceEvent.shouldCommit()) {
+            timeSliceEvent.address = address().toString();
+            timeSliceEvent.computeCount = machine.computeCount() - computeCountBefore;
+            timeSliceEvent.outcome = advice.isWait() ? "wait" : advice.isPreempt() ? "preempt" :
+                advice.isHalt() ? "halt" : "end";
+            timeSliceEvent.commit();
+        }
         if (advice.isWait()) {
             ComputeWait computeWait = (ComputeWait) advice;
             if (DebuggerSetting.get() != null) {
                 DebuggerSetting.get().onWait(this, computeWait, machine);
             }
             waitState = computeWait.barrier;
+            if (FlightEvents.isDataflowWaitEnabled()) {
+                DataflowWaitEvent event = new DataflowWaitEvent();
+                event.address = address().toString();
+                event.pendingResponseCount = pendingResponseCount;
+                event.begin();
+                waitEvent = event;
+            }
         } else if (advice.isPreempt()) {
             if (DebuggerSetting.get() != null) {
                 DebuggerSetting.get().onPreempt(this, machine);
             }
-            send(Resume.SINGLETON);
+            scheduleContinuation();
         } else if (advice.isHalt()) {
             throw new MachineHaltError((ComputeHalt) advice);
         }
         return advice;
     }
 
+    /*
+     * Compute a fixed or adaptive time slice. An adaptive slice reads the clock every `checkInterval` instructions
+     * until the quantum elapses, and then adjusts `checkInterval` toward the number of instructions computed in
+     * 1/CHECKS_PER_QUANTUM of the quantum.
+     */
+    private ComputeAdvice computeMachine() {
+        if (!timeSliceCfg.isAdaptive()) {
+            return machine.compute(timeSliceCfg.instructionCount());
+        }
+        long start = System.nanoTime();
+        long computeCountBefore = machine.computeCount();
+        ComputeAdvice advice;
+        long elapsed;
+        do {
+            advice = machine.compute(checkInterval);
+            elapsed = System.nanoTime() - start;
+        } while (advice.isPreempt() && elapsed < timeSliceCfg.quantumNanos());
+        long computed = machine.computeCount() - computeCountBefore;
+        // A short slice that ended or waited says little about the instruction rate
+        if (computed >= checkInterval && elapsed > 0) {
+            double perCheck = (double) computed * timeSliceCfg.quantumNanos() /
+                (elapsed * (double) TimeSliceCfg.CHECKS_PER_QUANTUM);
+            long next = (checkInterval + (long) Math.min(perCheck, TimeSliceCfg.MAX_CHECK_INTERVAL)) / 2;
+            checkInterval = Math.max(TimeSliceCfg.MIN_CHECK_INTERVAL, Math.min(next, TimeSliceCfg.MAX_CHECK_INTERVAL));
+        }
+        return advice;
+    }
+
     private ComputeAdvice computeTimeSlice(Value message, EnvEntry handlerEntry) {
         if (machine.stack() != null) {
             throw new IllegalStateException("Previous computation is not finished");
@@ -292,6 +433,18 @@ final class LocalActor extends AbstractActor {
         return computeTimeSlice();
     }
 
+    /*
+     * Called by our pool before we are sent the message we are checked out to process.
+     */
+    final void checkOut() {
+        checkedOut = true;
+    }
+
+    private LocalActor checkOutActWorker() {
+        ActorPool actWorkers = system instanceof BasicActorSystem basicSystem ? basicSystem.actWorkers() : null;
+        return actWorkers != null ? actWorkers.checkout() : new LocalActor(nextChildAddress(), system);
+    }
+
     final void configure(ActorCfg actorCfg) {
         send(Envelope.createControlNotify(new Configure(actorCfg)));
     }
@@ -310,6 +463,36 @@ final class LocalActor extends AbstractActor {
         return !mailbox.isEmpty();
     }
 
+    private boolean isAskBatching() {
+        return system instanceof BasicActorSystem basicSystem && basicSystem.askBatching();
+    }
+
+    private boolean isInlineAct(ActInstr actInstr) {
+        if (DebuggerSetting.get() != null || !(system instanceof BasicActorSystem basicSystem)) {
+            return false;
+        }
+        long observedCost = actInstr.observedCost();
+        return observedCost >= 0 && observedCost <= basicSystem.inlineActThreshold();
+    }
+
+    /*
+     * A pooled actor is reusable when it is quiescent and holds no state from its previous message. Specifically, it
+     * must not be failed, computing, waiting, or expecting responses to requests it has sent.
+     */
+    private boolean isReusable() {
+        return failedValue == null &&
+            activeRequest == null &&
+            waitState == null &&
+            pendingResponseCount == 0 &&
+            pendingSyncCount == 0 &&
+            openStreamCount == 0 &&
+            triggers.isEmpty() &&
+            selectableResponses.isEmpty() &&
+            suspendedResponses.isEmpty() &&
+            machine.stack() == null &&
+            mailboxSize() == 0;
+    }
+
     private void mapFreeVar(Var triggerVar, Var parentVar, Var childVar, LocalActor child) {
         if (DebuggerSetting.get() != null) {
             DebuggerSetting.get().onMapFreeVar(this, triggerVar, parentVar, child, childVar);
@@ -336,7 +519,14 @@ final class LocalActor extends AbstractActor {
         Act act = (Act) envelope.message();
         Env actEnv = Env.create(ROOT_ENV, act.input);
         actEnv = actEnv.add(new EnvEntry(act.target, new Var()));
-        machine = new Machine(LocalActor.this, new Stack(act.seq, actEnv, null));
+        pendingSyncCount += act.syncCount;
+        if (machine == null) {
+            machine = new Machine(LocalActor.this, new Stack(act.seq, actEnv, null));
+        } else {
+            // We are a recycled act worker, so reuse our machine
+            machine.pushStackEntry(act.seq, actEnv);
+        }
+        actStartCount = machine.computeCount();
         computeTimeSlice();
         return NOT_FINISHED;
     }
@@ -348,7 +538,14 @@ final class LocalActor extends AbstractActor {
         }
 
         activeRequest = envelope;
+        ActorImage image = captureImage();
+        envelope.requester().send(Envelope.createResponse(image, envelope.requestId()));
+
+        // An actor that serves its image is complete after serving.
+        return FINISHED;
+    }
 
+    private ActorImage captureImage() {
         if (!triggers.isEmpty()) {
             throw new IllegalStateException("Triggers exist");
         }
@@ -381,22 +578,22 @@ final class LocalActor extends AbstractActor {
             throw new IllegalStateException("Suspended responses are present");
         }
 
-        ActorImage image = new ActorImage(system, askHandlerEntry, tellHandlerEntry);
-        envelope.requester().send(Envelope.createResponse(image, envelope.requestId()));
-
-        // An actor that serves its image is complete after serving.
-        return FINISHED;
+        return new ActorImage(system, askHandlerEntry, tellHandlerEntry);
     }
 
     private OnMessageResult onConfigure(Envelope envelope) {
-        boolean debuggerIsActive = DebuggerSetting.get() != null;
-        if (debuggerIsActive) {
+        if (DebuggerSetting.get() != null) {
             DebuggerSetting.get().onReceiveConfigure(this, envelope);
         }
 
         // Extract the actor configuration from the incoming Configure message
         Configure configure = (Configure) envelope.message();
-        ActorCfg actorCfg = configure.actorCfg;
+        configureHandlers(configure.actorCfg);
+        return NOT_FINISHED;
+    }
+
+    private void configureHandlers(ActorCfg actorCfg) {
+        boolean debuggerIsActive = DebuggerSetting.get() != null;
 
         // Create the kernel machine and necessary environment to construct the handlers
         machine = new Machine(LocalActor.this, null);
@@ -438,14 +635,18 @@ final class LocalActor extends AbstractActor {
         askHandlerEntry = new EnvEntry(Ident.$HANDLER, new Var(askClosure));
         Closure tellClosure = (Closure) handlers.valueAt(1);
         tellHandlerEntry = new EnvEntry(Ident.$HANDLER, new Var(tellClosure));
+    }
 
+    @Override
+    protected final OnMessageResult onContinue() {
+        if (DebuggerSetting.get() != null) {
+            DebuggerSetting.get().onReceiveResume(this, machine);
+        }
+        computeTimeSlice();
         return NOT_FINISHED;
     }
 
     private OnMessageResult onControl(Envelope envelope) {
-        if (envelope == Resume.SINGLETON) {
-            return onResume();
-        }
         if (envelope.isResponse()) {
             throw new IllegalArgumentException("Invalid control response");
         }
@@ -516,9 +717,100 @@ final class LocalActor extends AbstractActor {
 
     @Override
     protected final OnMessageResult onMessage(Envelope[] next) {
+        OnMessageResult result = processMessage(next);
+        // A pooled actor returns itself to its pool as soon as it is reusable. A subsequent send from the pool will
+        // be scheduled by our dispatcher after we return.
+        if (pool != null && checkedOut && result == NOT_FINISHED && isReusable()) {
+            checkedOut = false;
+            pool.checkIn(this);
+        }
+        return result;
+    }
+
+    /*
+     * Called before this actor sends a request for which it expects a single response. Stream requests are not
+     * counted because a publisher may send many responses to one request. Instead, we count open streams.
+     */
+    final void onSendRequest() {
+        pendingResponseCount++;
+    }
+
+    /*
+     * Send a request on behalf of an `ask`. During a compute time slice, requests sent to a BatchReceiver are buffered
+     * and delivered as one batch when the time slice ends. Batches are keyed by reference identity because actor
+     * equality compares only affinity IDs, which distinct actors can share.
+     */
+    final void sendAskRequest(ActorRef target, Envelope request) {
+        if (batchingAsks && target instanceof BatchReceiver batchReceiver) {
+            if (askBatches == null) {
+                askBatches = new IdentityHashMap<>();
+            }
+            askBatches.computeIfAbsent(batchReceiver, k -> new ArrayList<>()).add(request);
+        } else {
+            flushAskBatch(target);
+            sendOrReject(target, request);
+        }
+    }
+
+    /*
+     * Send a message on behalf of Torq code. A BACKPRESSURE mailbox throws a MailboxFullError to its sender, which
+     * would fail this actor in the middle of a compute. Instead, a request is answered with a FailedValue, as if the
+     * policy were REJECT, and a notification is discarded and logged.
+     */
+    final void sendOrReject(ActorRef target, Envelope envelope) {
+        try {
+            target.send(envelope);
+        } catch (MailboxFullError exc) {
+            if (envelope.isRequest()) {
+                FailedValue failedValue = FailedValue.create(target.address().toString(), exc);
+                send(Envelope.createResponse(failedValue, envelope.requestId()));
+            } else {
+                logger().warn(address().toString(), String.format("Notification rejected: %s\n%s",
+                    exc.getMessage(), envelope));
+            }
+        }
+    }
+
+    /*
+     * Deliver any asks buffered for the target so that a message sent next is not received ahead of them.
+     */
+    final void flushAskBatch(ActorRef target) {
+        if (askBatches == null || askBatches.isEmpty()) {
+            return;
+        }
+        List<Envelope> batch = askBatches.remove(target);
+        if (batch != null) {
+            sendAskBatch((BatchReceiver) target, batch);
+        }
+    }
+
+    private void flushAskBatches() {
+        if (askBatches == null || askBatches.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<BatchReceiver, List<Envelope>> entry : askBatches.entrySet()) {
+            sendAskBatch(entry.getKey(), entry.getValue());
+        }
+        askBatches.clear();
+    }
+
+    private void sendAskBatch(BatchReceiver target, List<Envelope> batch) {
+        if (batch.size() == 1) {
+            sendOrReject(target, batch.get(0));
+        } else {
+            target.sendBatch(batch);
+        }
+    }
+
+    private OnMessageResult processMessage(Envelope[] next) {
         // It's possible to be executable with zero incoming response messages because we have a collection of
         // selectableResponses and optionally a collection of suspendedResponses.
         if (next.length == 0 || next[0].isResponse()) {
+            for (Envelope envelope : next) {
+                if (envelope.requestId() instanceof ValueOrVarRef) {
+                    pendingResponseCount--;
+                }
+            }
             List<Envelope> waitingResponses = new ArrayList<>();
             List<Envelope> allResponses = new ArrayList<>(next.length + selectableResponses.size());
             Collections.addAll(allResponses, next);
@@ -580,14 +872,6 @@ final class LocalActor extends AbstractActor {
         }
     }
 
-    private OnMessageResult onResume() {
-        if (DebuggerSetting.get() != null) {
-            DebuggerSetting.get().onReceiveResume(this, machine);
-        }
-        computeTimeSlice();
-        return NOT_FINISHED;
-    }
-
     private OnMessageResult onStop(Envelope envelope) {
         if (DebuggerSetting.get() != null) {
             DebuggerSetting.get().onReceiveStop(this, machine);
@@ -608,6 +892,7 @@ final class LocalActor extends AbstractActor {
         if (DebuggerSetting.get() != null) {
             DebuggerSetting.get().onReceiveSyncFreeVar(this, syncFreeVar.var, syncFreeVar.value);
         }
+        pendingSyncCount--;
         try {
             syncFreeVar.var.bindToValue(syncFreeVar.value, null);
         } catch (WaitException exc) {
@@ -657,8 +942,6 @@ final class LocalActor extends AbstractActor {
 
     private void performCallbackToAct(List<CompleteOrIdent> ys, Env env, Machine machine) {
 
-        LocalActor child = new LocalActor(nextChildAddress(), system);
-
         Instr current = machine.current().instr;
         ActInstr actInstr;
         if (current instanceof DebugInstr debugInstr) {
@@ -667,32 +950,69 @@ final class LocalActor extends AbstractActor {
             actInstr = (ActInstr) machine.current().instr;
         }
 
-        HashSet<Ident> lexicallyFree = new HashSet<>();
-        actInstr.captureLexicallyFree(new HashSet<>(), lexicallyFree);
-
-        // Map free unbound parent variables to new child variables. When mapped variables are bound in the parent,
-        // a SyncFreeVar message will be sent to the child.
+        // Copy complete parent values to child variables. Parent variables that are not yet complete are collected
+        // and mapped below, once we know the child.
 
-        List<EnvEntry> childInput = new ArrayList<>();
+        Set<Ident> lexicallyFree = actInstr.lexicallyFree();
+        List<EnvEntry> childInput = new ArrayList<>(lexicallyFree.size());
+        List<Ident> incompleteIdents = null;
         for (Ident freeIdent : lexicallyFree) {
             if (ROOT_ENV.contains(freeIdent) || freeIdent.equals(actInstr.target)) {
                 continue;
             }
-            Var parentVar = env.get(freeIdent);
-            ValueOrVar valueOrVar = parentVar.resolveValueOrVar();
-            Var childVar;
-            if (valueOrVar instanceof Var) {
-                childVar = new Var();
-                mapFreeVar(parentVar, parentVar, childVar, child);
-            } else {
+            ValueOrVar valueOrVar = env.get(freeIdent).resolveValueOrVar();
+            if (!(valueOrVar instanceof Var)) {
                 try {
-                    childVar = new Var(valueOrVar.checkComplete());
+                    childInput.add(new EnvEntry(freeIdent, new Var(valueOrVar.checkComplete())));
+                    continue;
                 } catch (WaitVarException wx) {
+                    // Fall through and map the partial value
+                }
+            }
+            if (incompleteIdents == null) {
+                incompleteIdents = new ArrayList<>();
+            }
+            incompleteIdents.add(freeIdent);
+        }
+
+        // If all inputs are complete and the act is known to be cheap, compute it in place. The act body binds its
+        // target in our environment exactly as it would have in the child. The cost of an inline run is recorded too,
+        // so an act whose cost depends on its inputs goes back to a worker after its first expensive run.
+
+        if (incompleteIdents == null && isInlineAct(actInstr)) {
+            long startCount = machine.computeCount();
+            CompleteProc recordCost = (args, e, m) -> actInstr.recordObservedCost(m.computeCount() - startCount);
+            machine.pushStackEntry(new ApplyInstr(recordCost, List.of(), actInstr.sourceSpan.toSourceEnd()), env);
+            machine.pushStackEntry(actInstr.instr, env);
+            return;
+        }
+
+        LocalActor child = checkOutActWorker();
+
+        // Map free unbound parent variables to new child variables. When mapped variables are bound in the parent,
+        // a SyncFreeVar message will be sent to the child.
+
+        int syncCount = 0;
+        if (incompleteIdents != null) {
+            for (Ident freeIdent : incompleteIdents) {
+                Var parentVar = env.get(freeIdent);
+                ValueOrVar valueOrVar = parentVar.resolveValueOrVar();
+                Var childVar;
+                if (valueOrVar instanceof Var) {
                     childVar = new Var();
-                    mapFreeVar(wx.barrier(), parentVar, childVar, child);
+                    mapFreeVar(parentVar, parentVar, childVar, child);
+                    syncCount++;
+                } else {
+                    try {
+                        childVar = new Var(valueOrVar.checkComplete());
+                    } catch (WaitVarException wx) {
+                        childVar = new Var();
+                        mapFreeVar(wx.barrier(), parentVar, childVar, child);
+                        syncCount++;
+                    }
                 }
+                childInput.add(new EnvEntry(freeIdent, childVar));
             }
-            childInput.add(new EnvEntry(freeIdent, childVar));
         }
 
         // Lift the act instruction from the parent and spawn it using a child actor
@@ -702,8 +1022,10 @@ final class LocalActor extends AbstractActor {
         instrList.add(new ApplyInstr(Ident.$RESPOND, List.of(actInstr.target), actInstr.sourceSpan.toSourceEnd()));
         SeqInstr seq = new SeqInstr(instrList, actInstr.sourceSpan);
         ValueOrVar responseTarget = actInstr.target.resolveValueOrVar(env);
-        Act act = new Act(seq, actInstr.target, childInput);
-        child.send(Envelope.createControlRequest(act, LocalActor.this, new ValueOrVarRef(responseTarget)));
+        Act act = new Act(actInstr, seq, childInput, syncCount);
+        onSendRequest();
+        child.send(Envelope.createControlRequest(act, LocalActor.this, new ValueOrVarRef(responseTarget),
+            activeDeadlineNanos()));
     }
 
     private void performCallbackToSelf(List<CompleteOrIdent> ys, Env env, Machine machine) {
@@ -809,6 +1131,14 @@ final class LocalActor extends AbstractActor {
         return new ActorRefObj(childActor);
     }
 
+    /*
+     * Must be called before the actor receives its first message.
+     */
+    final void setTimeSliceCfg(TimeSliceCfg timeSliceCfg) {
+        this.timeSliceCfg = timeSliceCfg;
+        this.checkInterval = timeSliceCfg.instructionCount();
+    }
+
     private ActorRefObj spawnNativeActorCfg(NativeActorCfg nativeActorCfg) {
         ActorRef actorRef = nativeActorCfg.spawn(nextChildAddress(), system);
         return new ActorRefObj(actorRef);
@@ -821,14 +1151,18 @@ final class LocalActor extends AbstractActor {
 
     @SuppressWarnings("ClassCanBeRecord")
     private static final class Act {
+        private final ActInstr actInstr;
         private final SeqInstr seq;
         private final Ident target;
         private final List<EnvEntry> input;
+        private final int syncCount;
 
-        private Act(SeqInstr seq, Ident target, List<EnvEntry> input) {
+        private Act(ActInstr actInstr, SeqInstr seq, List<EnvEntry> input, int syncCount) {
+            this.actInstr = actInstr;
             this.seq = seq;
-            this.target = target;
+            this.target = actInstr.target;
             this.input = nullSafeCopyOf(input);
+            this.syncCount = syncCount;
         }
     }
 
@@ -854,50 +1188,43 @@ final class LocalActor extends AbstractActor {
         }
     }
 
-    private static final class Resume implements Envelope {
-        private static final Resume SINGLETON = new Resume();
-
-        private Resume() {
-        }
-
-        @Override
-        public final boolean isControl() {
-            return true;
-        }
-
-        @Override
-        public final Object message() {
-            return Null.SINGLETON;
-        }
-
-        @Override
-        public final Object requestId() {
-            return null;
-        }
-
-        @Override
-        public final ActorRef requester() {
-            return null;
-        }
-    }
-
+    /*
+     * Signatures:
+     *     Stream.new(publisher::ActorRef, request::Complete) -> Stream
+     *     Stream.new(publisher::ActorRef, request::Complete, prefetch::Int32) -> Stream
+     *
+     * The prefetch is the number of requests a stream keeps outstanding with its publisher. Each request is a credit
+     * that permits the publisher to respond with one batch followed by an `eof#{'more': Bool}`. The default prefetch
+     * of 1 sends the next request only after the previous batch is complete, costing a round trip per batch. A larger
+     * prefetch overlaps the round trips with consumption. See StreamObj for how buffering is bounded.
+     */
     static final class StreamCls implements CompleteObj {
         static final StreamCls SINGLETON = new StreamCls();
 
+        static final int DEFAULT_PREFETCH = 1;
+
         private static final CompleteProc STREAM_CLS_NEW = StreamCls::clsNew;
 
         private StreamCls() {
         }
 
         private static void clsNew(List<CompleteOrIdent> ys, Env env, Machine machine) throws WaitException {
-            final int expectedCount = 3;
-            if (ys.size() != expectedCount) {
-                throw new InvalidArgCountError(expectedCount, ys, "LocalActor.Stream.new");
+            int argCount = ys.size();
+            if (argCount < 3 || argCount > 4) {
+                throw new InvalidArgCountError(3, 4, ys, "LocalActor.Stream.new");
             }
             ActorRefObj publisher = (ActorRefObj) ys.get(0).resolveValue(env);
             Complete requestMessage = (Complete) ys.get(1).resolveValue(env);
-            StreamObj streamObj = new StreamObj(machine.owner(), publisher, requestMessage);
-            ValueOrVar target = ys.get(2).resolveValueOrVar(env);
+            int prefetch = DEFAULT_PREFETCH;
+            if (argCount == 4) {
+                Value prefetchValue = ys.get(2).resolveValue(env);
+                if (!(prefetchValue instanceof Int32 prefetchInt32) || prefetchInt32.intValue() < 1) {
+                    throw new IllegalArgumentException("Stream prefetch must be an Int32 greater than zero");
+                }
+                prefetch = prefetchInt32.intValue();
+            }
+            StreamObj streamObj = new StreamObj(machine.owner(), publisher, requestMessage, prefetch);
+            ValueOrVar target = ys.get(argCount - 1).resolveValueOrVar(env);
             target.bindToValue(streamObj, null);
         }
 
@@ -919,6 +1246,7 @@ final class LocalActor extends AbstractActor {
 
         private final ValueOrVar element;
         private StreamEntry nextEntry;
+        private boolean endOfBatch;
 
         private StreamEntry() {
             this.element = new Var();
@@ -972,7 +1300,7 @@ final class LocalActor extends AbstractActor {
                     throw new WaitVarException(var);
                 }
                 waiting = false;
-                streamObj.head = streamObj.head.nextEntry;
+                streamObj.advanceHead();
                 headValueOrVar = streamObj.head.element.resolveValueOrVar();
             }
 
@@ -993,29 +1321,57 @@ final class LocalActor extends AbstractActor {
             }
             y.bindToValue(headValue, null);
             if (headValue != Eof.SINGLETON) {
-                streamObj.head = streamObj.head.nextEntry;
+                streamObj.advanceHead();
             }
         }
 
     }
 
+    /*
+     * A StreamObj requests batches from its publisher using credits. Each request sent is one credit, and at most
+     * `prefetch` requests are outstanding at once. A credit is returned when its `eof#{'more': true}` arrives, and the
+     * next request is sent only while the unconsumed and outstanding batches together number no more than `prefetch`.
+     * Therefore, a stream holds at most `prefetch + 1` batches, buffered or in flight, no matter how slowly its
+     * consumer iterates. As the iterator moves past the last value of a batch, credits are replenished.
+     *
+     * Publishers process requests one at a time, in order, so batches arrive in the order they were requested. Once
+     * the stream is closed by an `eof#{'more': false}` or a FailedValue, it stops counting as open, even though
+     * requests may still be outstanding. A publisher that has finished or failed may never answer them, and waiting
+     * would keep a pooled actor from being reused. Responses that arrive later, even after the actor has returned to
+     * its pool, are discarded.
+     */
     private static final class StreamObj implements Obj, ValueIterSource {
         private final LocalActor localActor;
         private final ActorRefObj publisher;
         private final RequestId requestId;
         private final Complete requestMessage;
         private final StreamIter streamIter;
+        private final int prefetch;
 
         private StreamEntry head = new StreamEntry();
         private StreamEntry tail = head;
 
-        private StreamObj(LocalActor localActor, ActorRefObj publisher, Complete requestMessage) {
+        private int outstandingCount;
+        private int unconsumedBatchCount;
+        private boolean closed;
+
+        private StreamObj(LocalActor localActor, ActorRefObj publisher, Complete requestMessage, int prefetch) {
             this.localActor = localActor;
             this.publisher = publisher;
             this.requestId = new StreamObjRef(this);
             this.requestMessage = requestMessage;
             this.streamIter = new StreamIter(localActor, this);
-            fetchNextFromPublisher();
+            this.prefetch = prefetch;
+            localActor.openStreamCount++;
+            fetchWhileCredit();
+        }
+
+        private void advanceHead() {
+            if (head.endOfBatch) {
+                unconsumedBatchCount--;
+                fetchWhileCredit();
+            }
+            head = head.nextEntry;
         }
 
         private void appendRemainingResponseValues(CompleteTuple values) {
@@ -1028,6 +1384,8 @@ final class LocalActor extends AbstractActor {
                 tail.setNextEntry(newTail);
                 tail = newTail;
             }
+            tail.endOfBatch = true;
+            unconsumedBatchCount++;
             appendUnboundTail();
         }
 
@@ -1037,16 +1395,36 @@ final class LocalActor extends AbstractActor {
             tail = unboundTail;
         }
 
+        private void close() {
+            closed = true;
+            localActor.openStreamCount--;
+        }
+
         private void fetchNextFromPublisher() {
             if (localActor.streamTrace) {
                 localActor.logInfo("StreamObj sending request " + requestMessage + " to " + publisher.referent().address());
             }
-            publisher.referent().send(Envelope.createRequest(requestMessage, localActor, requestId));
+            outstandingCount++;
+            localActor.flushAskBatch(publisher.referent());
+            localActor.sendOrReject(publisher.referent(), Envelope.createRequest(requestMessage, localActor,
+                requestId, localActor.activeDeadlineNanos()));
             if (localActor.streamTrace) {
                 localActor.logInfo("StreamObj request " + requestMessage + " sent to " + publisher.referent().address());
             }
         }
 
+        private void fetchWhileCredit() {
+            while (!closed && outstandingCount < prefetch && unconsumedBatchCount <= prefetch - outstandingCount) {
+                fetchNextFromPublisher();
+            }
+        }
+
+        private void onDiscardedResponse(Envelope envelope) {
+            if (localActor.streamTrace) {
+                localActor.logInfo("StreamObj discarding response after close: " + envelope.message());
+            }
+        }
+
         @Override
         public final ValueOrVar select(Feature feature) {
             throw new NeedsImpl();
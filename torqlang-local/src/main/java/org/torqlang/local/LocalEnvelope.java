@@ -16,12 +16,23 @@ final class LocalEnvelope implements Envelope {
     private final Object message;
     private final ActorRef requester;
     private final Object requestId;
+    private final long deadlineNanos;
 
     LocalEnvelope(boolean isControl, Object message, ActorRef requester, Object requestId) {
+        this(isControl, message, requester, requestId, NO_DEADLINE);
+    }
+
+    LocalEnvelope(boolean isControl, Object message, ActorRef requester, Object requestId, long deadlineNanos) {
         this.isControl = isControl;
         this.message = message;
         this.requester = requester;
         this.requestId = requestId;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public final long deadlineNanos() {
+        return deadlineNanos;
     }
 
     @Override
@@ -56,6 +67,9 @@ final class LocalEnvelope implements Envelope {
         if (requester != null) {
             fields.add("requester=" + requester);
         }
+        if (deadlineNanos != NO_DEADLINE) {
+            fields.add("deadlineNanos=" + deadlineNanos);
+        }
         fields.add("message=" + message);
         return "DefaultEnvelope(" + String.join(",", fields) + ")";
     }
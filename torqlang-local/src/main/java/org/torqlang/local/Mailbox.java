@@ -12,12 +12,23 @@ package org.torqlang.local;
  */
 public interface Mailbox {
 
+    static Mailbox create(MailboxCfg cfg) {
+        return new LinkedListMailbox(EnvelopeComparator.SINGLETON, cfg);
+    }
+
     static Mailbox createDefault() {
         return new LinkedListMailbox(EnvelopeComparator.SINGLETON);
     }
 
     void add(Envelope envelope);
 
+    /**
+     * Return the capacity configuration. Capacity is enforced by the actor, not the mailbox.
+     */
+    default MailboxCfg cfg() {
+        return MailboxCfg.UNBOUNDED;
+    }
+
     boolean isEmpty();
 
     /**
@@ -30,5 +41,12 @@ public interface Mailbox {
      */
     Envelope remove();
 
+    /**
+     * Remove and return the oldest non-control notification or null if there is none.
+     */
+    default Envelope removeOldestNotify() {
+        return null;
+    }
+
     int size();
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+/*
+ * A mailbox configuration limits the number of messages that can be queued for an actor.
+ *
+ * Capacity is only enforced against requests and notifications. Control messages and responses are always accepted.
+ * Rejecting a control message could leave an actor unable to be configured or stopped, and rejecting a response could
+ * leave a requester waiting forever for a reply that was already computed.
+ *
+ * When a request or notification arrives at a full mailbox, the overflow policy decides what happens:
+ *     REJECT        -- A request is answered immediately with a FailedValue containing a MailboxFullError. A
+ *                      notification is discarded and logged.
+ *     DROP_OLDEST   -- The oldest queued notification is discarded to make room. If no notification is queued,
+ *                      the new message is handled as if the policy were REJECT. Each discarded notification
+ *                      is counted in ActorMetrics.notificationsDropped.
+ *     BACKPRESSURE  -- A MailboxFullError is thrown to the sender. Local senders can use this signal to slow down or
+ *                      retry. A Torq actor cannot catch the error in the middle of a compute, so when it is the
+ *                      sender, its request is answered with a FailedValue and its notification is discarded and
+ *                      logged, just as under REJECT.
+ *
+ * The high-water listener is notified each time the mailbox size rises to the high-water mark. Routers, such as an
+ * API handler, can use this signal to shed load before the mailbox is full. An unbounded mailbox can also have a
+ * high-water mark, for example `UNBOUNDED.withHighWaterMark(1000, listener)`.
+ */
+public record MailboxCfg(int capacity, OverflowPolicy overflowPolicy, int highWaterMark,
+                         HighWaterListener highWaterListener) {
+
+    public static final int UNBOUNDED_CAPACITY = Integer.MAX_VALUE;
+
+    public static final MailboxCfg UNBOUNDED = new MailboxCfg(UNBOUNDED_CAPACITY, OverflowPolicy.REJECT,
+        UNBOUNDED_CAPACITY, null);
+
+    public MailboxCfg {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity < 1");
+        }
+        if (overflowPolicy == null) {
+            throw new NullPointerException("overflowPolicy");
+        }
+        if (highWaterMark < 1 || highWaterMark > capacity) {
+            throw new IllegalArgumentException("highWaterMark must be between 1 and capacity");
+        }
+    }
+
+    public static MailboxCfg create(int capacity, OverflowPolicy overflowPolicy) {
+        return new MailboxCfg(capacity, overflowPolicy, capacity, null);
+    }
+
+    public final boolean isBounded() {
+        return capacity != UNBOUNDED_CAPACITY;
+    }
+
+    public final MailboxCfg withHighWaterMark(int highWaterMark, HighWaterListener highWaterListener) {
+        return new MailboxCfg(capacity, overflowPolicy, highWaterMark, highWaterListener);
+    }
+
+    public enum OverflowPolicy {
+        REJECT,
+        DROP_OLDEST,
+        BACKPRESSURE
+    }
+
+    @FunctionalInterface
+    public interface HighWaterListener {
+        /*
+         * Called without holding the actor's mailbox lock. Implementations must not block.
+         */
+        void onHighWater(Address address, int mailboxSize);
+    }
+
+}
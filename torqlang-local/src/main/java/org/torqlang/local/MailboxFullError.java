@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.torqlang.klvm.MachineError;
+
+public class MailboxFullError extends MachineError {
+    public static final String MAILBOX_FULL = "Mailbox full";
+    public final Address address;
+    public final int capacity;
+
+    public MailboxFullError(Address address, int capacity) {
+        super(MAILBOX_FULL + ": " + address + " (capacity " + capacity + ")");
+        this.address = address;
+        this.capacity = capacity;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/*
+ * Metrics is the registry of actor runtime metrics. Enable it with `MetricsSetting.set(new Metrics())`.
+ *
+ * Actor metrics are aggregated by address prefix to keep their number bounded. By default, the prefix is the first
+ * segment of the address path, so `northwind_db/reader0` is counted under `northwind_db`. Once MAX_PREFIX_COUNT
+ * prefixes exist, further prefixes are counted under OTHER_PREFIX. Per-actor mailbox depth and high-water are
+ * available from the actor itself (see AbstractActor.mailboxHighWater).
+ *
+ * Executor metrics are reported for each AffinityExecutor added with `addExecutor`.
+ *
+ * Other modules publish their own gauges and counters with `addGauge`, such as the API limiters and coalescers of
+ * org.torqlang.server. A gauge is read each time values are collected.
+ *
+ * Values can be read with `values()`, exported over JMX with `registerMBean`, and pushed periodically to a
+ * MetricsReporter with `startReporting`.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    public static final int MAX_PREFIX_COUNT = 256;
+    public static final String OTHER_PREFIX = "_other";
+
+    private final Function<Address, String> prefixFunction;
+    private final ConcurrentHashMap<String, ActorMetrics> actorMetricsByPrefix = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<AffinityExecutor> executors = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public Metrics() {
+        this(Metrics::prefixOf);
+    }
+
+    public Metrics(Function<Address, String> prefixFunction) {
+        this.prefixFunction = prefixFunction;
+    }
+
+    public static String prefixOf(Address address) {
+        String path = address.path();
+        int i = path.indexOf('/');
+        return i < 0 ? path : path.substring(0, i);
+    }
+
+    private static void putHistogram(SortedMap<String, Long> values, String name, Histogram histogram) {
+        values.put(name + ".count", histogram.count());
+        values.put(name + ".p50", histogram.percentile(0.50));
+        values.put(name + ".p99", histogram.percentile(0.99));
+        values.put(name + ".max", histogram.max());
+    }
+
+    public final ActorMetrics actorMetrics(Address address) {
+        String prefix = prefixFunction.apply(address);
+        ActorMetrics answer = actorMetricsByPrefix.get(prefix);
+        if (answer != null) {
+            return answer;
+        }
+        if (actorMetricsByPrefix.size() >= MAX_PREFIX_COUNT) {
+            prefix = OTHER_PREFIX;
+        }
+        return actorMetricsByPrefix.computeIfAbsent(prefix, ActorMetrics::new);
+    }
+
+    public final Map<String, ActorMetrics> actorMetricsByPrefix() {
+        return Map.copyOf(actorMetricsByPrefix);
+    }
+
+    public final void addExecutor(AffinityExecutor executor) {
+        executors.addIfAbsent(executor);
+    }
+
+    /*
+     * Report the value of the supplier under the given name. A gauge added under an existing name replaces it.
+     */
+    public final void addGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    @Override
+    public final Map<String, Long> getValues() {
+        return values();
+    }
+
+    /*
+     * Register this registry with the platform MBean server as `org.torqlang.local:type=Metrics,name=<name>`.
+     */
+    public final ObjectName registerMBean(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("org.torqlang.local:type=Metrics,name=" + ObjectName.quote(name));
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /*
+     * Report values periodically until `Reporting.stop()` is called. Reports are scheduled on the default TimerWheel.
+     */
+    public final Reporting startReporting(MetricsReporter reporter, long period, TimeUnit unit) {
+        Reporting reporting = new Reporting(reporter, unit.toNanos(period));
+        reporting.scheduleNext();
+        return reporting;
+    }
+
+    public final SortedMap<String, Long> values() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        for (ActorMetrics m : actorMetricsByPrefix.values()) {
+            String name = "actor." + m.prefix();
+            values.put(name + ".mailbox_depth", m.mailboxDepth());
+            values.put(name + ".mailbox_high_water", m.mailboxHighWater());
+            values.put(name + ".messages_processed", m.messagesProcessed());
+            values.put(name + ".notifications_dropped", m.notificationsDropped());
+            values.put(name + ".preemptions", m.preemptions());
+            values.put(name + ".requests_expired_on_dispatch", m.requestsExpiredOnDispatch());
+            values.put(name + ".requests_expired_on_send", m.requestsExpiredOnSend());
+            putHistogram(values, name + ".dispatch_latency_nanos", m.dispatchLatencyNanos());
+            putHistogram(values, name + ".service_time_nanos", m.serviceTimeNanos());
+            putHistogram(values, name + ".compute_count_per_slice", m.computeCountPerSlice());
+        }
+        for (AffinityExecutor executor : executors) {
+            AffinityThreadExecutor[] threadExecutors = executor.threadExecutors();
+            for (int i = 0; i < threadExecutors.length; i++) {
+                String name = "executor." + executor.name() + "." + i;
+                values.put(name + ".queue_depth", (long) threadExecutors[i].queueDepth());
+                values.put(name + ".busy_nanos", threadExecutors[i].busyNanos());
+                values.put(name + ".completed", threadExecutors[i].completedCount());
+            }
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    public final class Reporting {
+        private final MetricsReporter reporter;
+        private final long periodNanos;
+        private long nextDeadlineNanos = System.nanoTime();
+        private volatile TimerWheel.Timeout timeout;
+        private volatile boolean stopped;
+
+        private Reporting(MetricsReporter reporter, long periodNanos) {
+            this.reporter = reporter;
+            this.periodNanos = periodNanos;
+        }
+
+        private void report() {
+            if (stopped) {
+                return;
+            }
+            try {
+                reporter.report(values());
+            } catch (Throwable throwable) {
+                ConsoleLogger.SINGLETON.error("MetricsReporter failed: " + throwable);
+            }
+            scheduleNext();
+        }
+
+        private void scheduleNext() {
+            nextDeadlineNanos += periodNanos;
+            timeout = TimerWheel.defaultTimerWheel().scheduleAt(this::report, nextDeadlineNanos);
+        }
+
+        public final void stop() {
+            stopped = true;
+            TimerWheel.Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+    }
+
+}
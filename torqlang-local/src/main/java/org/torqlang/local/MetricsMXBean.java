@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.util.Map;
+
+/*
+ * The JMX view of Metrics. Each value is named `<group>.<name>.<metric>`, for example
+ * `actor.northwind_db.messages_processed` or `executor.System.0.busy_nanos`.
+ */
+public interface MetricsMXBean {
+
+    Map<String, Long> getValues();
+
+}
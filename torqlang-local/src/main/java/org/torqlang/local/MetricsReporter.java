@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.util.SortedMap;
+
+/*
+ * A MetricsReporter receives periodic snapshots of Metrics values (see Metrics.startReporting). Reporters run on the
+ * timer wheel ticker thread and must not block. A reporter that writes to a file or the console should log through an
+ * AsyncLogger.
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+
+    static MetricsReporter toLogger(Logger logger) {
+        return values -> {
+            StringBuilder sb = new StringBuilder("Metrics");
+            for (var entry : values.entrySet()) {
+                sb.append(System.lineSeparator()).append("  ").append(entry.getKey()).append(" = ")
+                    .append(entry.getValue());
+            }
+            logger.info(sb.toString());
+        };
+    }
+
+    void report(SortedMap<String, Long> values);
+
+}
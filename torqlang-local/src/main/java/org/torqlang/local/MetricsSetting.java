@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+/*
+ * Metrics are disabled by default. When disabled, the only cost on the hot path is a null check. Set metrics before
+ * creating actors, because an actor binds to its ActorMetrics when it is constructed.
+ */
+public final class MetricsSetting {
+
+    private static volatile Metrics metrics;
+
+    public static Metrics get() {
+        return metrics;
+    }
+
+    public static void set(Metrics metrics) {
+        MetricsSetting.metrics = metrics;
+    }
+
+}
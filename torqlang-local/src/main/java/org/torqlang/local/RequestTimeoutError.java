@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.torqlang.klvm.MachineError;
+
+public class RequestTimeoutError extends MachineError {
+    public static final String REQUEST_TIMEOUT = "Request timeout";
+    public final Address address;
+
+    public RequestTimeoutError(Address address) {
+        super(REQUEST_TIMEOUT + ": " + address);
+        this.address = address;
+    }
+}
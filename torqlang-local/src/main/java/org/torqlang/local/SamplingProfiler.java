@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.torqlang.klvm.Instr;
+import org.torqlang.klvm.Machine;
+import org.torqlang.klvm.Stack;
+import org.torqlang.util.SourceSpan;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * A SamplingProfiler periodically inspects the KLVM machines that are computing and aggregates the samples by Torq
+ * source location. Unlike DefaultDebugger, it does not wrap instructions, so it is cheap enough for production. While
+ * a profiler is running, an actor computing a time slice publishes its machine in a slot owned by its thread, and the
+ * profiler thread reads the slots at each interval. While no profiler is running, the only cost is a null check.
+ *
+ * Slots are registered in a lock-free queue and hold their threads weakly. The profiler removes the slot of a thread
+ * that has ended at each interval and when it starts and stops, so executors that create a thread per task, such as
+ * VirtualThreadExecutor, do not accumulate slots.
+ *
+ * A machine is read without synchronization while it computes. This is safe because a Stack is immutable and a field
+ * read never tears, but a sample can be slightly stale.
+ *
+ * Samples are written in the collapsed-stack format read by flame graph tools:
+ *     orders;OrdersHandler:12;OrdersHandler:15 42
+ * The first frame is the address prefix of the actor (see Metrics.prefixOf). A KLVM stack is a continuation, not a
+ * call stack, so the middle frames are the continuation entries whose source spans enclose the current instruction,
+ * which approximate the lexical nesting of the current instruction. The last frame is the current instruction. A
+ * source is named by the actor it declares, and lines are numbered from 1.
+ *
+ * Usage:
+ *     SamplingProfiler profiler = SamplingProfiler.start(SamplingProfiler.DEFAULT_INTERVAL_MICROS,
+ *         TimeUnit.MICROSECONDS);
+ *     ...
+ *     profiler.stop();
+ *     profiler.writeCollapsed(writer);
+ */
+public final class SamplingProfiler {
+
+    public static final long DEFAULT_INTERVAL_MICROS = 1_000;
+
+    private static final int MAX_STACK_DEPTH = 64;
+    private static final Pattern ACTOR_NAME_PATTERN = Pattern.compile("actor\\s+(\\w+)");
+
+    private static final ConcurrentLinkedQueue<Slot> slots = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Slot> threadSlot = ThreadLocal.withInitial(() -> {
+        Slot slot = new Slot(Thread.currentThread());
+        slots.add(slot);
+        return slot;
+    });
+
+    private static volatile SamplingProfiler active;
+
+    private final long intervalNanos;
+    private final Thread thread;
+    // Accessed only by the profiler thread until the thread is stopped
+    private final HashMap<List<Frame>, Long> counts = new HashMap<>();
+    private final IdentityHashMap<String, String> sourceNames = new IdentityHashMap<>();
+    private long sampleCount;
+
+    private volatile boolean stopped;
+
+    private SamplingProfiler(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+        this.thread = new Thread(this::run, "torq-sampling-profiler");
+        this.thread.setDaemon(true);
+    }
+
+    /*
+     * Return the running profiler, or null if no profiler is running.
+     */
+    public static SamplingProfiler active() {
+        return active;
+    }
+
+    /*
+     * Called by an actor thread before it computes a time slice.
+     */
+    static void enter(Address address, Machine machine) {
+        threadSlot.get().set(address, machine);
+    }
+
+    /*
+     * Called by an actor thread after it computes a time slice.
+     */
+    static void exit() {
+        threadSlot.get().clear();
+    }
+
+    /*
+     * Remove the slots of threads that have ended.
+     */
+    private static void pruneSlots() {
+        slots.removeIf(Slot::isOwnerEnded);
+    }
+
+    /*
+     * Return the number of registered slots, including those of ended threads not yet pruned.
+     */
+    static int slotCount() {
+        return slots.size();
+    }
+
+    /*
+     * Start a profiler and make it the active profiler. Only one profiler can run at a time.
+     */
+    public static synchronized SamplingProfiler start(long interval, TimeUnit unit) {
+        if (active != null) {
+            throw new IllegalStateException("A SamplingProfiler is already running");
+        }
+        pruneSlots();
+        SamplingProfiler profiler = new SamplingProfiler(unit.toNanos(interval));
+        active = profiler;
+        profiler.thread.start();
+        return profiler;
+    }
+
+    private void checkStopped() {
+        if (!stopped || thread.isAlive()) {
+            throw new IllegalStateException("SamplingProfiler is running");
+        }
+    }
+
+    /*
+     * Return the collapsed stacks and their sample counts. Must be called after `stop()`.
+     */
+    public final SortedMap<String, Long> collapsedStacks() {
+        checkStopped();
+        SortedMap<String, Long> answer = new TreeMap<>();
+        HashMap<Frame, String> labels = new HashMap<>();
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<List<Frame>, Long> entry : counts.entrySet()) {
+            sb.setLength(0);
+            String previous = null;
+            for (Frame frame : entry.getKey()) {
+                String label = labels.computeIfAbsent(frame, this::formatFrame);
+                // Enclosing instructions on the same line are one frame
+                if (label.equals(previous)) {
+                    continue;
+                }
+                if (!sb.isEmpty()) {
+                    sb.append(';');
+                }
+                sb.append(label);
+                previous = label;
+            }
+            answer.merge(sb.toString(), entry.getValue(), Long::sum);
+        }
+        return answer;
+    }
+
+    private String formatFrame(Frame frame) {
+        if (frame.source == null) {
+            return frame.label;
+        }
+        String sourceName = sourceNames.computeIfAbsent(frame.source, source -> {
+            Matcher matcher = ACTOR_NAME_PATTERN.matcher(source);
+            return matcher.find() ? matcher.group(1) : "source@" + Integer.toHexString(System.identityHashCode(source));
+        });
+        int lineNr = 1;
+        for (int i = 0; i < frame.sourceBegin && i < frame.source.length(); i++) {
+            if (frame.source.charAt(i) == '\n') {
+                lineNr++;
+            }
+        }
+        return sourceName + ":" + lineNr;
+    }
+
+    private void run() {
+        ArrayList<Frame> frames = new ArrayList<>();
+        while (!stopped) {
+            LockSupport.parkNanos(this, intervalNanos);
+            for (Iterator<Slot> iterator = slots.iterator(); iterator.hasNext(); ) {
+                Slot slot = iterator.next();
+                if (slot.isOwnerEnded()) {
+                    iterator.remove();
+                    continue;
+                }
+                Address address = slot.address;
+                Machine machine = slot.machine;
+                if (address == null || machine == null) {
+                    continue;
+                }
+                frames.clear();
+                sample(address, machine, frames);
+                if (!frames.isEmpty()) {
+                    counts.merge(List.copyOf(frames), 1L, Long::sum);
+                    sampleCount++;
+                }
+            }
+        }
+    }
+
+    private void sample(Address address, Machine machine, ArrayList<Frame> frames) {
+        Stack current = machine.current();
+        if (current == null) {
+            current = machine.stack();
+            if (current == null) {
+                return;
+            }
+        }
+        SourceSpan leaf = current.instr;
+        if (leaf.source() == null) {
+            return;
+        }
+        frames.add(new Frame(Metrics.prefixOf(address), null, 0));
+        // Collect the continuation entries that enclose the current instruction, innermost first
+        int insertAt = frames.size();
+        Frame leafFrame = new Frame(null, leaf.source(), leaf.sourceBegin());
+        Stack next = machine.stack();
+        for (int depth = 0; next != null && depth < MAX_STACK_DEPTH; depth++, next = next.next) {
+            Instr instr = next.instr;
+            if (instr.source() == leaf.source() && instr.sourceBegin() <= leaf.sourceBegin() &&
+                instr.sourceEnd() >= leaf.sourceEnd() && next != current)
+            {
+                Frame frame = new Frame(null, instr.source(), instr.sourceBegin());
+                boolean repeated = frames.size() > insertAt && frame.equals(frames.get(insertAt));
+                if (!repeated && !frame.equals(leafFrame)) {
+                    frames.add(insertAt, frame);
+                }
+            }
+        }
+        frames.add(leafFrame);
+    }
+
+    public final long sampleCount() {
+        checkStopped();
+        return sampleCount;
+    }
+
+    /*
+     * Stop sampling and wait for the profiler thread to finish. Afterward, another profiler can be started.
+     */
+    public final void stop() throws InterruptedException {
+        stopped = true;
+        LockSupport.unpark(thread);
+        thread.join();
+        synchronized (SamplingProfiler.class) {
+            if (active == this) {
+                active = null;
+            }
+        }
+        pruneSlots();
+    }
+
+    /*
+     * Write one line per collapsed stack, followed by its sample count. Must be called after `stop()`.
+     */
+    public final void writeCollapsed(Writer writer) throws IOException {
+        for (Map.Entry<String, Long> entry : collapsedStacks().entrySet()) {
+            writer.write(entry.getKey());
+            writer.write(' ');
+            writer.write(Long.toString(entry.getValue()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /*
+     * A frame is either a label, such as an address prefix, or a location in a source. Sources are compared by
+     * identity because every instruction compiled from a source shares the same source string.
+     */
+    private record Frame(String label, String source, int sourceBegin) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Frame that && Objects.equals(label, that.label) && source == that.source &&
+                sourceBegin == that.sourceBegin;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(label) * 31 + System.identityHashCode(source) * 17 + sourceBegin;
+        }
+    }
+
+    private static final class Slot {
+        private final WeakReference<Thread> owner;
+        private volatile Address address;
+        private volatile Machine machine;
+
+        private Slot(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        private void clear() {
+            machine = null;
+            address = null;
+        }
+
+        private boolean isOwnerEnded() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        private void set(Address address, Machine machine) {
+            this.address = address;
+            this.machine = machine;
+        }
+    }
+
+}
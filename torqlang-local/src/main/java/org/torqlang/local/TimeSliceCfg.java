@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A time slice configuration bounds how long an actor computes before it is preempted and yields its thread to the
+ * other actors scheduled on it. A preempted actor resumes after the messages already queued for its thread.
+ *
+ * A fixed time slice computes `instructionCount` KLVM instructions. The cost of an instruction varies widely, so a
+ * fixed slice can hold a thread for a long time or preempt far too often.
+ *
+ * An adaptive time slice computes until `quantumNanos` of wall-clock time has elapsed. Reading the clock after every
+ * instruction would be expensive, so the actor reads the clock every K instructions. K starts at `instructionCount`
+ * and adapts after each slice, using the observed instruction rate, so that the clock is read about
+ * CHECKS_PER_QUANTUM times per quantum. A slice can therefore overrun its quantum by about one check interval.
+ *
+ * Configure a time slice for all actors with `ActorSystemBuilder.setTimeSliceCfg`, or for a single actor with
+ * `ActorBuilder.setTimeSliceCfg`.
+ */
+public record TimeSliceCfg(long instructionCount, long quantumNanos) {
+
+    public static final long DEFAULT_INSTRUCTION_COUNT = 10_000;
+    public static final int CHECKS_PER_QUANTUM = 8;
+    public static final long MIN_CHECK_INTERVAL = 64;
+    public static final long MAX_CHECK_INTERVAL = 1_000_000;
+
+    public static final TimeSliceCfg DEFAULT = fixed(DEFAULT_INSTRUCTION_COUNT);
+
+    public TimeSliceCfg {
+        if (instructionCount < 1) {
+            throw new IllegalArgumentException("instructionCount < 1");
+        }
+        if (quantumNanos < 0) {
+            throw new IllegalArgumentException("quantumNanos < 0");
+        }
+    }
+
+    /*
+     * Create an adaptive time slice that targets the given wall-clock quantum, such as 200 microseconds.
+     */
+    public static TimeSliceCfg adaptive(long quantum, TimeUnit unit) {
+        long quantumNanos = unit.toNanos(quantum);
+        if (quantumNanos < 1) {
+            throw new IllegalArgumentException("quantum < 1 nanosecond");
+        }
+        return new TimeSliceCfg(DEFAULT_INSTRUCTION_COUNT / CHECKS_PER_QUANTUM, quantumNanos);
+    }
+
+    public static TimeSliceCfg fixed(long instructionCount) {
+        return new TimeSliceCfg(instructionCount, 0);
+    }
+
+    public final boolean isAdaptive() {
+        return quantumNanos > 0;
+    }
+
+}
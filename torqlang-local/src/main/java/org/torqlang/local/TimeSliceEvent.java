@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import jdk.jfr.*;
+
+/*
+ * A Flight Recorder event emitted for each KLVM time slice computed by an actor. The outcome is the advice returned
+ * by `Machine.compute`. Disabled by default (see ActorDispatchEvent).
+ */
+@Name("org.torqlang.TimeSlice")
+@Label("KLVM Time Slice")
+@Category({"Torq", "KLVM"})
+@Description("An actor computed a KLVM time slice")
+@Enabled(false)
+@StackTrace(false)
+public final class TimeSliceEvent extends Event {
+
+    @Label("Address")
+    String address;
+
+    @Label("Compute Count")
+    @Description("The number of instructions computed in this time slice")
+    long computeCount;
+
+    @Label("Outcome")
+    @Description("One of end, preempt, wait, or halt")
+    String outcome;
+
+}
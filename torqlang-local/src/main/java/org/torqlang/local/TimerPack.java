@@ -10,9 +10,6 @@ package org.torqlang.local;
 import org.torqlang.klvm.*;
 
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static org.torqlang.local.Envelope.createResponse;
@@ -23,6 +20,8 @@ import static org.torqlang.local.Envelope.createResponse;
  * Rules:
  * - Timers are a single-producer, single-consumer design.
  * - A timer can be reused after it reaches end-of-file.
+ * - Ticks are scheduled on the shared TimerWheel at a fixed rate. Each tick is scheduled at the previous deadline
+ *   plus the period, so a timer does not drift, and its resolution is the tick resolution of the wheel.
  */
 final class TimerPack {
 
@@ -53,20 +52,21 @@ final class TimerPack {
             .setLabel(Eof.SINGLETON)
             .addField(Str.of("more"), Bool.FALSE)
             .build();
-        private static final ScheduledThreadPoolExecutor SCHEDULED_EXECUTOR =
-            new ScheduledThreadPoolExecutor(2, Timer::newTimerThread);
         private static final Object TIMER_CALLBACK = new Object();
 
         private final Num periodNum;
         private final TimeUnit timeUnit;
+        private final TimerWheel timerWheel;
         private Envelope activeRequest;
         private int currentTicks;
         private int requestedTicks;
-        private ScheduledFuture<?> scheduledFuture;
+        private long periodNanos;
+        private long nextDeadlineNanos;
 
         public Timer(Address address, ActorSystem system, Num periodNum, Str timeUnitStr) {
             super(address, system.createMailbox(), system.executor(), system.createLogger());
             this.periodNum = periodNum;
+            this.timerWheel = TimerWheel.defaultTimerWheel();
             if (timeUnitStr.value.equalsIgnoreCase("microseconds")) {
                 timeUnit = TimeUnit.MICROSECONDS;
             } else if (timeUnitStr.value.equalsIgnoreCase("milliseconds")) {
@@ -78,12 +78,6 @@ final class TimerPack {
             }
         }
 
-        private static Thread newTimerThread(Runnable r) {
-            Thread t = Executors.defaultThreadFactory().newThread(r);
-            t.setDaemon(true);
-            return t;
-        }
-
         private static CompleteRec validateMessage(Envelope activeRequest) {
             if (!(activeRequest.message() instanceof CompleteRec completeRec)) {
                 throw new IllegalArgumentException("Invalid timer request: " + activeRequest);
@@ -136,13 +130,13 @@ final class TimerPack {
             }
             long now = System.currentTimeMillis();
             if (currentTicks >= requestedTicks) {
-                scheduledFuture.cancel(true);
                 activeRequest.requester().send(createResponse(EOF_RECORD, activeRequest.requestId()));
                 activeRequest = null;
             } else {
                 currentTicks++;
                 activeRequest.requester().send(createResponse(CompleteTuple.singleton(Int64.of(now)),
                     activeRequest.requestId()));
+                scheduleNextTick();
             }
             return OnMessageResult.NOT_FINISHED;
         }
@@ -153,11 +147,19 @@ final class TimerPack {
             }
             activeRequest = envelope;
             requestedTicks = validateTicks(validateMessage(activeRequest));
-            scheduledFuture = SCHEDULED_EXECUTOR.scheduleAtFixedRate(() ->
-                    this.send(createResponse(TIMER_CALLBACK, activeRequest.requestId())),
-                periodNum.longValue(), periodNum.longValue(), timeUnit);
+            currentTicks = 0;
+            periodNanos = timeUnit.toNanos(periodNum.longValue());
+            nextDeadlineNanos = System.nanoTime();
+            scheduleNextTick();
             return OnMessageResult.NOT_FINISHED;
         }
+
+        private void scheduleNextTick() {
+            Object requestId = activeRequest.requestId();
+            nextDeadlineNanos += periodNanos;
+            timerWheel.scheduleAt(() -> this.send(createResponse(TIMER_CALLBACK, requestId)),
+                nextDeadlineNanos);
+        }
     }
 
     private static final class TimerCfg extends OpaqueValue implements NativeActorCfg {
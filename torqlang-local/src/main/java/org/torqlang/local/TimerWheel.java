@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * A TimerWheel is a hierarchical hashed timing wheel driven by a single ticker thread. It replaces a heap-based
+ * scheduler, such as ScheduledThreadPoolExecutor, when tens of thousands of timers are pending at once. Inserting or
+ * cancelling a timeout is O(1), and each tick only visits the timeouts that expire or move during that tick.
+ *
+ * Time is divided into ticks of a configurable resolution. Timeouts are hashed into LEVEL_COUNT wheels of SLOT_COUNT
+ * slots each. Level 0 holds timeouts due within SLOT_COUNT ticks, and each higher level covers SLOT_COUNT times the
+ * span of the level below it. When the level 0 index wraps, the next slot of level 1 is cascaded down, and so on up
+ * the levels, in the manner of the classic Linux kernel timer. Timeouts beyond the span of the highest level are held
+ * in its farthest slot and cascaded until they come within range.
+ *
+ * Threading:
+ *     New timeouts and cancellations are queued by any thread and applied by the ticker thread at the start of each
+ *     tick, so the wheel itself is confined to the ticker thread and needs no locks. Expired tasks run on the ticker
+ *     thread and must be short and non-blocking. Typically, a task only sends a message to an actor.
+ *
+ * Resolution:
+ *     A timeout expires on the first tick at or after its deadline. Therefore, it is late by at most one tick plus
+ *     scheduling jitter, and it is never early.
+ *
+ * Idling:
+ *     When the wheel holds no timeouts, the ticker parks until a new timeout is scheduled instead of waking every
+ *     tick. On waking, it skips the empty ticks it missed rather than processing them one by one.
+ */
+public final class TimerWheel {
+
+    public static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int SLOT_BITS = 8;
+    private static final int SLOT_COUNT = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+    private static final int LEVEL_COUNT = 4;
+    private static final long MAX_TICKS = (1L << (SLOT_BITS * LEVEL_COUNT)) - 1;
+
+    private final String name;
+    private final long tickNanos;
+    private final long startNanos;
+    private final Slot[][] levels = new Slot[LEVEL_COUNT][SLOT_COUNT];
+    private final ConcurrentLinkedQueue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final LongAdder pendingCount = new LongAdder();
+    private final Thread ticker;
+
+    private volatile boolean stopped;
+    private volatile boolean idle;
+    private long currentTick;
+    // The number of timeouts in the wheel slots, which is confined to the ticker thread
+    private int wheelCount;
+
+    public TimerWheel(String name, long tickDuration, TimeUnit tickUnit) {
+        this.name = name;
+        this.tickNanos = tickUnit.toNanos(tickDuration);
+        if (tickNanos < 1) {
+            throw new IllegalArgumentException("tickDuration < 1 nanosecond");
+        }
+        for (Slot[] level : levels) {
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                level[i] = new Slot();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::runTicker, "torq-timer-wheel-" + name);
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /*
+     * Return the timer wheel shared by the runtime. It has a resolution of DEFAULT_TICK_NANOS.
+     */
+    public static TimerWheel defaultTimerWheel() {
+        return LazySingleton.SINGLETON;
+    }
+
+    private void addToWheel(Timeout timeout) {
+        long deadlineTick = timeout.deadlineTick;
+        long delta = deadlineTick - currentTick;
+        Slot slot;
+        if (delta < 0) {
+            // Already due, so expire it on the current tick
+            slot = levels[0][(int) (currentTick & SLOT_MASK)];
+        } else {
+            if (delta > MAX_TICKS) {
+                // Hold it in the farthest slot and cascade it until it comes within range
+                deadlineTick = currentTick + MAX_TICKS;
+                delta = MAX_TICKS;
+            }
+            int level = 0;
+            while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+                level++;
+            }
+            slot = levels[level][(int) ((deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        }
+        slot.add(timeout);
+    }
+
+    private int cascade(int level, int index) {
+        Slot slot = levels[level][index];
+        Timeout timeout = slot.removeAll();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            addToWheel(timeout);
+            timeout = next;
+        }
+        return index;
+    }
+
+    private void expire(Slot slot) {
+        Timeout timeout = slot.removeAll();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            wheelCount--;
+            if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                pendingCount.decrement();
+                try {
+                    timeout.task.run();
+                } catch (Throwable throwable) {
+                    ConsoleLogger.SINGLETON.error("TimerWheel " + name + " task failed: " + throwable);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /*
+     * Return true if the ticker is parked, or about to park, because the wheel holds no timeouts.
+     */
+    final boolean isIdle() {
+        return idle;
+    }
+
+    public final String name() {
+        return name;
+    }
+
+    /*
+     * Return the number of timeouts that have been scheduled but have neither expired nor been cancelled.
+     */
+    public final long pendingCount() {
+        return pendingCount.sum();
+    }
+
+    private void processCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.slot != null) {
+                timeout.slot.remove(timeout);
+                wheelCount--;
+            }
+        }
+    }
+
+    private void processNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.state.get() == Timeout.PENDING) {
+                addToWheel(timeout);
+                wheelCount++;
+            }
+        }
+    }
+
+    private void processTick() {
+        int index = (int) (currentTick & SLOT_MASK);
+        if (index == 0) {
+            int level = 1;
+            while (level < LEVEL_COUNT &&
+                cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)) == 0)
+            {
+                level++;
+            }
+        }
+        Slot slot = levels[0][index];
+        currentTick++;
+        expire(slot);
+    }
+
+    private void runTicker() {
+        while (!stopped) {
+            long elapsedTicks = (System.nanoTime() - startNanos) / tickNanos;
+            if (wheelCount == 0 && currentTick < elapsedTicks) {
+                // Every slot is empty, so the missed ticks have nothing to expire or cascade
+                currentTick = elapsedTicks;
+            }
+            processNewTimeouts();
+            processCancelledTimeouts();
+            while (currentTick <= elapsedTicks) {
+                processTick();
+            }
+            if (wheelCount == 0) {
+                // Publish that we are idle before checking for new timeouts. A thread that adds a timeout after our
+                // check will see that we are idle and unpark us.
+                idle = true;
+                if (newTimeouts.isEmpty() && !stopped) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            long sleepNanos = startNanos + currentTick * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+    }
+
+    /*
+     * Run the task once after the given delay.
+     */
+    public final Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return scheduleAt(task, System.nanoTime() + unit.toNanos(delay));
+    }
+
+    /*
+     * Run the task once at or after the given deadline, which is in terms of System.nanoTime(). Periodic tasks use
+     * absolute deadlines to avoid drift, by scheduling each run at the previous deadline plus the period.
+     */
+    public final Timeout scheduleAt(Runnable task, long deadlineNanos) {
+        if (stopped) {
+            throw new IllegalStateException("TimerWheel is stopped: " + name);
+        }
+        long elapsedNanos = deadlineNanos - startNanos;
+        long deadlineTick = elapsedNanos <= 0 ? 0 : (elapsedNanos + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(this, task, deadlineTick);
+        pendingCount.increment();
+        newTimeouts.add(timeout);
+        if (idle) {
+            LockSupport.unpark(ticker);
+        }
+        return timeout;
+    }
+
+    /*
+     * Stop the ticker thread. Pending timeouts never expire.
+     */
+    public final void stop() {
+        stopped = true;
+        LockSupport.unpark(ticker);
+    }
+
+    public final long tickNanos() {
+        return tickNanos;
+    }
+
+    @Override
+    public final String toString() {
+        return getClass().getSimpleName() + "(" + name + ")";
+    }
+
+    public static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // The following fields are confined to the ticker thread
+        private Slot slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, Runnable task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /*
+         * Cancel this timeout if it has not expired. Return true if this call cancelled it.
+         */
+        public final boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pendingCount.decrement();
+            wheel.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public final boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public final boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /*
+     * A slot is a doubly linked list of timeouts, so a cancelled timeout can be removed in constant time.
+     */
+    private static final class Slot {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.slot = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /*
+         * Detach and return the list of timeouts. The caller follows the `next` links.
+         */
+        private Timeout removeAll() {
+            Timeout answer = head;
+            for (Timeout t = head; t != null; t = t.next) {
+                t.slot = null;
+                t.prev = null;
+            }
+            head = null;
+            tail = null;
+            return answer;
+        }
+    }
+
+    private static final class LazySingleton {
+        private static final TimerWheel SINGLETON = new TimerWheel("default", DEFAULT_TICK_NANOS,
+            TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * A VirtualThreadExecutor runs each actor dispatch on its own virtual thread. Unlike an AffinityExecutor, a blocking
+ * native actor, such as a file reader, parks only its own virtual thread and does not stall the other actors that
+ * would otherwise be hashed to the same platform thread.
+ *
+ * Actors remain single threaded. An actor dispatcher is submitted to its executor at most once at a time (see the
+ * SCHEDULED state in AbstractActor), so per-actor serial execution is preserved without any additional locking.
+ *
+ * We compile against Java 17, so the virtual thread executor is located reflectively. If the runtime does not provide
+ * virtual threads, we fall back to an elastic pool of daemon platform threads, which still isolates blocking actors
+ * from one another but at a higher cost per blocked actor.
+ */
+public final class VirtualThreadExecutor implements Executor {
+
+    static final String FACTORY_METHOD_NAME = "newVirtualThreadPerTaskExecutor";
+    static final String THREAD_NAME_PREFIX = "torq-elastic-thread-";
+
+    private final String name;
+    private final ExecutorService delegate;
+    private final boolean isVirtual;
+
+    public VirtualThreadExecutor(String name) {
+        this(name, FACTORY_METHOD_NAME);
+    }
+
+    /*
+     * Tests name a factory method that does not exist to exercise the fallback on any runtime.
+     */
+    VirtualThreadExecutor(String name, String factoryMethodName) {
+        this.name = name;
+        ExecutorService virtualDelegate = newVirtualThreadPerTaskExecutor(factoryMethodName);
+        if (virtualDelegate != null) {
+            delegate = virtualDelegate;
+            isVirtual = true;
+        } else {
+            delegate = Executors.newCachedThreadPool(new ElasticThreadFactory());
+            isVirtual = false;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String factoryMethodName) {
+        try {
+            Method method = Executors.class.getMethod(factoryMethodName);
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException exc) {
+            // Either the runtime is older than Java 21, or virtual threads are a disabled preview feature
+            return null;
+        }
+    }
+
+    @Override
+    public final void execute(Runnable runnable) throws RejectedExecutionException {
+        delegate.execute(runnable);
+    }
+
+    /**
+     * Return true if dispatches run on virtual threads, or false if we fell back to platform threads.
+     */
+    public final boolean isVirtual() {
+        return isVirtual;
+    }
+
+    public final String name() {
+        return name;
+    }
+
+    @Override
+    public final String toString() {
+        return "VirtualThreadExecutor{name='" + name + "', isVirtual=" + isVirtual + "}";
+    }
+
+    private static final class ElasticThreadFactory implements ThreadFactory {
+
+        private final AtomicLong nextId = new AtomicLong();
+
+        @Override
+        public final Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + nextId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
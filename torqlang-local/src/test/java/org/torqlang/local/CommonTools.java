@@ -7,8 +7,28 @@
 
 package org.torqlang.local;
 
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
 public class CommonTools {
 
+    /*
+     * Wait for the actor to finish processing every message sent to it so far and return to the WAITING state. An
+     * actor sends its response before it records metrics and commits events for the message, so tests that inspect
+     * them must wait. Fail if the actor is not waiting within the timeout.
+     */
+    public static void awaitWaiting(ActorRef actorRef, long timeout, TimeUnit unit) throws InterruptedException {
+        AbstractActor actor = (AbstractActor) actorRef;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (actor.state() != AbstractActor.State.WAITING) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Actor " + actor.address() + " is not waiting after " + timeout + " " + unit);
+            }
+            Thread.sleep(1);
+        }
+    }
+
     // NOTE: This method is duplicated at test org.torqlang.lang
     public static String stripCircularSpecifics(String kernelString) {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.Int32;
+import org.torqlang.klvm.Str;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestActWorkers {
+
+    private static final String SOURCE = """
+        actor ConcurrentMath() in
+            handle ask 'calculate' in
+                var a, b, c
+                c = act b * 3 end
+                a = act 5 end
+                b = act a + 7 end
+                a + b + c
+            end
+        end""";
+
+    private static Object calculate(ActorRef actorRef) throws Exception {
+        return RequestClient.builder()
+            .setAddress(Address.create("ConcurrentMathClient"))
+            .send(actorRef, Str.of("calculate"))
+            .awaitResponse(1, TimeUnit.SECONDS);
+    }
+
+    private static Object fib(ActorRef actorRef, int n) throws Exception {
+        return RequestClient.builder()
+            .setAddress(Address.create("FibClient"))
+            .send(actorRef, Int32.of(n))
+            .awaitResponse(1, TimeUnit.SECONDS);
+    }
+
+    private static ActorRef spawn(ActorSystem system) throws Exception {
+        return Actor.builder()
+            .setSystem(system)
+            .setAddress(Address.create("ConcurrentMath"))
+            .spawn(SOURCE)
+            .actorRef();
+    }
+
+    private static final String FIB_SOURCE = """
+        actor Fib() in
+            func fib(n) in
+                if n < 2 then n else fib(n - 1) + fib(n - 2) end
+            end
+            handle ask n in
+                var x
+                x = act fib(n) end
+                x
+            end
+        end""";
+
+    @Test
+    public void testInline() throws Exception {
+        ActorSystem system = ActorSystem.builder()
+            .setActWorkerCapacity(4)
+            .setInlineActThreshold(1_000)
+            .build();
+        ActorRef actorRef = spawn(system);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Int32.of(53), calculate(actorRef));
+        }
+        // Acts are only inlined after they have been observed once, and only when their inputs are complete. The
+        // act `b * 3` always waits on `b`, so it always runs on a worker.
+        ActorPool actWorkers = ((BasicActorSystem) system).actWorkers();
+        assertTrue(actWorkers.checkoutCount() < 20 * 3);
+    }
+
+    @Test
+    public void testInlineCostResampled() throws Exception {
+        ActorSystem system = ActorSystem.builder()
+            .setActWorkerCapacity(4)
+            .setInlineActThreshold(1_000)
+            .build();
+        ActorRef actorRef = Actor.builder()
+            .setSystem(system)
+            .setAddress(Address.create("Fib"))
+            .spawn(FIB_SOURCE)
+            .actorRef();
+        ActorPool actWorkers = ((BasicActorSystem) system).actWorkers();
+        // The first run is on a worker, where its cost is observed. The second run is cheap enough to inline.
+        assertEquals(Int32.of(2), fib(actorRef, 3));
+        assertEquals(Int32.of(2), fib(actorRef, 3));
+        assertEquals(1, actWorkers.checkoutCount());
+        // A larger input runs inline one time, because its cost is not known in advance, but its cost is recorded
+        assertEquals(Int32.of(610), fib(actorRef, 15));
+        assertEquals(1, actWorkers.checkoutCount());
+        // So the act goes back to a worker next time
+        assertEquals(Int32.of(610), fib(actorRef, 15));
+        assertEquals(2, actWorkers.checkoutCount());
+    }
+
+    @Test
+    public void testSpawnWithoutWorkers() throws Exception {
+        ActorSystem system = ActorSystem.builder()
+            .setActWorkerCapacity(0)
+            .build();
+        assertEquals(Int32.of(53), calculate(spawn(system)));
+        assertEquals(null, ((BasicActorSystem) system).actWorkers());
+    }
+
+    @Test
+    public void testWorkersRecycled() throws Exception {
+        ActorSystem system = ActorSystem.builder()
+            .setActWorkerCapacity(4)
+            .build();
+        ActorRef actorRef = spawn(system);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Int32.of(53), calculate(actorRef));
+        }
+        ActorPool actWorkers = ((BasicActorSystem) system).actWorkers();
+        assertEquals(20 * 3, actWorkers.checkoutCount());
+        assertTrue(actWorkers.spawnCount() < actWorkers.checkoutCount());
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.FailedValue;
+import org.torqlang.klvm.Str;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestActorPool {
+
+    private static final String SOURCE = """
+        actor HelloPool() in
+            handle ask 'hello' in
+                'Hello, World!'
+            end
+            handle ask 'fail' in
+                throw 'error'#{'message': 'Failed on purpose'}
+            end
+        end""";
+
+    private static void awaitIdleCount(ActorPool pool, int expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (pool.idleCount() != expected) {
+            if (System.nanoTime() > deadline) {
+                fail("Idle count is " + pool.idleCount() + " but expected " + expected);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testFailedActorIsDiscarded() throws Exception {
+        ActorImage actorImage = Actor.builder().actorImage(SOURCE);
+        ActorPool pool = new ActorPool(Address.create(getClass().getName() + "Pool"), actorImage, 2);
+
+        Object response = RequestClient.builder()
+            .sendAndAwaitResponse(pool, Str.of("fail"), 100, TimeUnit.MILLISECONDS);
+        assertInstanceOf(FailedValue.class, response);
+        // The failed actor is not returned to the pool
+        awaitIdleCount(pool, 1);
+
+        // The pool remains usable and replaces the failed actor on demand
+        for (int i = 0; i < 3; i++) {
+            response = RequestClient.builder()
+                .sendAndAwaitResponse(pool, Str.of("hello"), 100, TimeUnit.MILLISECONDS);
+            assertEquals(Str.of("Hello, World!"), response);
+            awaitIdleCount(pool, 1);
+        }
+        assertEquals(2, pool.spawnCount());
+    }
+
+    @Test
+    public void testRecycled() throws Exception {
+        ActorImage actorImage = Actor.builder().actorImage(SOURCE);
+        ActorPool pool = new ActorPool(Address.create(getClass().getName() + "Pool"), actorImage, 2);
+        assertEquals(2, pool.capacity());
+        assertEquals(2, pool.idleCount());
+
+        for (int i = 0; i < 10; i++) {
+            Object response = RequestClient.builder()
+                .sendAndAwaitResponse(pool, Str.of("hello"), 100, TimeUnit.MILLISECONDS);
+            assertEquals(Str.of("Hello, World!"), response);
+            awaitIdleCount(pool, 2);
+        }
+        // Every request was served by one of the two pre-spawned actors
+        assertEquals(2, pool.spawnCount());
+        assertEquals(10, pool.checkoutCount());
+        assertEquals(0, pool.discardCount());
+
+        assertThrows(IllegalArgumentException.class, () -> pool.send(Envelope.createResponse(Str.of("x"), "id")));
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.Int32;
+import org.torqlang.klvm.Str;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAskBatching {
+
+    private static final String SOURCE = """
+        actor SumSquares(squarer) in
+            import system[ArrayList, Cell, ValueIter]
+            handle ask 'sum' in
+                var squares = ArrayList.new()
+                for i in ValueIter.new([1, 2, 3, 4, 5]) do
+                    squares.add(squarer.ask(i))
+                end
+                squarer.tell('done')
+                var sum = Cell.new(0)
+                for s in ValueIter.new(squares.to_tuple()) do
+                    sum := @sum + s
+                end
+                @sum
+            end
+        end""";
+
+    private static List<String> sumSquares(boolean askBatching) throws Exception {
+        SquarerActor squarer = new SquarerActor();
+        ActorSystem system = ActorSystem.builder()
+            .addDefaultModules()
+            .setAskBatching(askBatching)
+            .build();
+        ActorRef actorRef = Actor.builder()
+            .setSystem(system)
+            .setAddress(Address.create("SumSquares"))
+            .spawn(SOURCE, List.of(new ActorRefObj(squarer)))
+            .actorRef();
+        Object response = RequestClient.builder()
+            .sendAndAwaitResponse(actorRef, Str.of("sum"), 1, TimeUnit.SECONDS);
+        // 1 + 4 + 9 + 16 + 25 = 55
+        assertEquals(Int32.of(55), response);
+        synchronized (squarer.received) {
+            return new ArrayList<>(squarer.received);
+        }
+    }
+
+    @Test
+    public void testBatched() throws Exception {
+        // The five asks arrive as one batch, and the batch is delivered before the notification that follows it
+        assertEquals(List.of("batch 5", "notify done"), sumSquares(true));
+    }
+
+    @Test
+    public void testDistinctReceiversWithSameAffinityId() throws Exception {
+        String source = """
+            actor SumProducts(a, b) in
+                handle ask 'sum' in
+                    var a1 = a.ask(1)
+                    var b1 = b.ask(1)
+                    var a2 = a.ask(2)
+                    var b2 = b.ask(2)
+                    a1 + b1 + a2 + b2
+                end
+            end""";
+        // Equal as actors, because they are of the same class with the same affinity ID, but distinct receivers
+        MultiplierActor a = new MultiplierActor("a", 10);
+        MultiplierActor b = new MultiplierActor("b", 100);
+        assertEquals(a, b);
+        ActorSystem system = ActorSystem.builder()
+            .setAskBatching(true)
+            .build();
+        ActorRef actorRef = Actor.builder()
+            .setSystem(system)
+            .setAddress(Address.create("SumProducts"))
+            .spawn(source, List.of(new ActorRefObj(a), new ActorRefObj(b)))
+            .actorRef();
+        Object response = RequestClient.builder()
+            .sendAndAwaitResponse(actorRef, Str.of("sum"), 1, TimeUnit.SECONDS);
+        // 10 + 100 + 20 + 200 = 330
+        assertEquals(Int32.of(330), response);
+        assertEquals(List.of("batch 2"), a.batches);
+        assertEquals(List.of("batch 2"), b.batches);
+    }
+
+    @Test
+    public void testNotBatched() throws Exception {
+        // Ask batching is opt-in
+        assertFalse(ActorSystem.builder().askBatching());
+        assertEquals(List.of("request 1", "request 2", "request 3", "request 4", "request 5", "notify done"),
+            sumSquares(false));
+    }
+
+    /*
+     * A native actor that answers an integer multiplied by its factor. Every instance has the same affinity ID.
+     */
+    private static final class MultiplierActor extends AbstractActor implements BatchReceiver {
+
+        private final int factor;
+        private final List<String> batches = Collections.synchronizedList(new ArrayList<>());
+
+        MultiplierActor(String name, int factor) {
+            super(0, Address.create(name), Mailbox.createDefault(), ActorSystem.defaultExecutor(),
+                Logger.createDefault());
+            this.factor = factor;
+        }
+
+        @Override
+        protected OnMessageResult onMessage(Envelope[] next) {
+            for (Envelope request : next) {
+                int n = ((Int32) request.message()).intValue();
+                request.requester().send(Envelope.createResponse(Int32.of(n * factor), request.requestId()));
+            }
+            return OnMessageResult.NOT_FINISHED;
+        }
+
+        @Override
+        public void sendBatch(List<Envelope> requests) {
+            batches.add("batch " + requests.size());
+            for (Envelope request : requests) {
+                send(request);
+            }
+        }
+    }
+
+    /*
+     * A native actor that answers an integer with its square. It records each call it receives.
+     */
+    private static final class SquarerActor implements BatchReceiver {
+
+        private final Address address = Address.create("squarer");
+        private final List<String> received = new ArrayList<>();
+
+        @Override
+        public Address address() {
+            return address;
+        }
+
+        private void respond(Envelope request) {
+            int n = ((Int32) request.message()).intValue();
+            request.requester().send(Envelope.createResponse(Int32.of(n * n), request.requestId()));
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            synchronized (received) {
+                if (envelope.isNotify()) {
+                    received.add("notify " + envelope.message());
+                    return;
+                }
+                received.add("request " + envelope.message());
+            }
+            respond(envelope);
+        }
+
+        @Override
+        public void sendBatch(List<Envelope> requests) {
+            synchronized (received) {
+                received.add("batch " + requests.size());
+            }
+            for (Envelope request : requests) {
+                respond(request);
+            }
+        }
+    }
+
+}
@@ -96,7 +96,10 @@ public class TestAskCaptureImage {
                 end
             end""";
 
-        ActorImage actorImage = Actor.builder().actorImage(source);
+        ActorBuilder builder = (ActorBuilder) Actor.builder();
+        ActorImage actorImage = builder.actorImage(source);
+        // Building an image does not spawn an actor
+        assertNull(builder.actorRef());
 
         ActorRef actorRef = Actor.spawn(Address.create(getClass().getName() + "Actor"), actorImage);
 
@@ -114,6 +117,28 @@ public class TestAskCaptureImage {
         assertEquals(Str.of("Hello, World!"), response);
     }
 
+    @Test
+    public void testHelloWorldSpawnWithFirstRequest() throws Exception {
+
+        String source = """
+            actor HelloWorld() in
+                handle ask 'hello' in
+                    'Hello, World!'
+                end
+            end""";
+
+        ActorImage actorImage = Actor.builder().actorImage(source);
+
+        // Spawn a ready actor and deliver its first request in one step
+        FutureResponse futureResponse = new FutureResponse(Address.create("HelloWorldClient"));
+        Actor.spawn(Address.create(getClass().getName() + "Actor"), actorImage,
+            Envelope.createRequest(Str.of("hello"), futureResponse, "hello_request"));
+
+        Envelope response = futureResponse.future().get(100, TimeUnit.MILLISECONDS);
+        assertEquals("hello_request", response.requestId());
+        assertEquals(Str.of("Hello, World!"), response.message());
+    }
+
     @Test
     public void testMutableNotAllowed() {
 
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAsyncLogger {
+
+    @Test
+    public void testCreateForConsole() throws Exception {
+        // The convenience factory never blocks, even to log an error
+        AsyncLogger logger = AsyncLogger.createForConsole("test");
+        assertEquals(AsyncLogger.DropPolicy.DROP, logger.dropPolicy());
+        logger.close();
+        logger = AsyncLogger.createForConsole("test", 16, AsyncLogger.DropPolicy.BLOCK);
+        assertEquals(AsyncLogger.DropPolicy.BLOCK, logger.dropPolicy());
+        logger.close();
+    }
+
+    @Test
+    public void testDrop() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel outChannel = Channels.newChannel(out);
+        // A channel that stalls on its first write, as a slow console would
+        WritableByteChannel stalledChannel = new WritableByteChannel() {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public int write(ByteBuffer src) throws java.io.IOException {
+                writing.countDown();
+                try {
+                    release.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException exc) {
+                    throw new IllegalStateException(exc);
+                }
+                return outChannel.write(src);
+            }
+        };
+        AsyncLogger logger = new AsyncLogger("test", stalledChannel, 4, AsyncLogger.DropPolicy.DROP);
+        logger.info("first");
+        assertTrue(writing.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            logger.info("message " + i);
+        }
+        // The drain thread is stalled, so only 4 messages fit in the ring buffer
+        assertEquals(6, logger.droppedCount());
+        // An error is dropped too, instead of blocking the caller
+        logger.error("error");
+        assertEquals(7, logger.droppedCount());
+        release.countDown();
+        logger.close();
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("message 3"));
+        assertFalse(text.contains("message 4"));
+        assertFalse(text.contains(" error" + System.lineSeparator()));
+        assertTrue(text.contains("AsyncLogger test dropped 7 events"));
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel outChannel = Channels.newChannel(out);
+        // A slow channel, so the drain thread takes each batch from the ring buffer well before it is written
+        WritableByteChannel slowChannel = new WritableByteChannel() {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public int write(ByteBuffer src) throws java.io.IOException {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException exc) {
+                    throw new IllegalStateException(exc);
+                }
+                return outChannel.write(src);
+            }
+        };
+        AsyncLogger logger = new AsyncLogger("test", slowChannel, 16, AsyncLogger.DropPolicy.BLOCK);
+        try {
+            for (int i = 0; i < 3; i++) {
+                logger.info("message " + i);
+                logger.flush();
+                // The writes happen before the drain thread publishes its progress, which flush waits on
+                assertTrue(out.toString(StandardCharsets.UTF_8).contains("message " + i));
+            }
+        } finally {
+            logger.close();
+        }
+    }
+
+    @Test
+    public void testManyThreads() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogger logger = new AsyncLogger("test", Channels.newChannel(out), 64, AsyncLogger.DropPolicy.BLOCK);
+        ActorSystem system = ActorSystem.builder()
+            .setLogger(logger)
+            .build();
+        assertSame(logger, system.createLogger());
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int t = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 500; j++) {
+                    system.createLogger().warn("caller", "thread " + t + " message " + j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        logger.flush();
+        logger.close();
+        assertEquals(0, logger.droppedCount());
+        String[] lines = out.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertEquals(2000, lines.length);
+        assertTrue(lines[0].startsWith("[WARN ]["));
+        assertTrue(lines[0].contains("][caller] thread "));
+    }
+
+}
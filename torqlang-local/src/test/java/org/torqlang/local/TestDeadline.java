@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.FailedValue;
+import org.torqlang.klvm.Str;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDeadline {
+
+    private static final String SOURCE = """
+        actor Forward(target) in
+            handle ask 'go' in
+                target.ask('ping')
+            end
+        end""";
+
+    private static void assertTimeout(Envelope response) {
+        FailedValue failedValue = assertInstanceOf(FailedValue.class, response.message());
+        assertInstanceOf(RequestTimeoutError.class, failedValue.nativeCause());
+        assertTrue(failedValue.toDetailsString().contains(RequestTimeoutError.REQUEST_TIMEOUT));
+    }
+
+    private static Envelope request(ActorRef actorRef, String message, long deadlineNanos) throws Exception {
+        FutureResponse futureResponse = new FutureResponse(Address.create("future_response"));
+        actorRef.send(Envelope.createRequest(Str.of(message), futureResponse, message, deadlineNanos));
+        return futureResponse.future().get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testExpiredOnDispatch() throws Exception {
+        Metrics metrics = new Metrics();
+        MetricsSetting.set(metrics);
+        try {
+            EchoActor actor = new EchoActor(Address.create("deadline_test_dispatch"));
+            FutureResponse blockResponse = new FutureResponse(Address.create("future_response"));
+            actor.send(Envelope.createRequest(Str.of("block"), blockResponse, "block"));
+            assertTrue(actor.blocked.await(1, TimeUnit.SECONDS));
+            // The request is queued behind the blocked request and expires while it waits
+            FutureResponse lateResponse = new FutureResponse(Address.create("future_response"));
+            actor.send(Envelope.createRequest(Str.of("late"), lateResponse, "late",
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)));
+            FutureResponse onTimeResponse = new FutureResponse(Address.create("future_response"));
+            actor.send(Envelope.createRequest(Str.of("on_time"), onTimeResponse, "on_time"));
+            Thread.sleep(100);
+            actor.release.countDown();
+            assertEquals(Str.of("block"), blockResponse.future().get(1, TimeUnit.SECONDS).message());
+            assertTimeout(lateResponse.future().get(1, TimeUnit.SECONDS));
+            assertEquals(Str.of("on_time"), onTimeResponse.future().get(1, TimeUnit.SECONDS).message());
+            assertEquals(List.of("block", "on_time"), actor.processed);
+            ActorMetrics actorMetrics = metrics.actorMetrics(actor.address());
+            assertEquals(1, actorMetrics.requestsExpiredOnDispatch());
+            assertEquals(0, actorMetrics.requestsExpiredOnSend());
+        } finally {
+            MetricsSetting.set(null);
+        }
+    }
+
+    @Test
+    public void testExpiredOnSend() throws Exception {
+        Metrics metrics = new Metrics();
+        MetricsSetting.set(metrics);
+        try {
+            EchoActor actor = new EchoActor(Address.create("deadline_test_send"));
+            actor.release.countDown();
+            assertTimeout(request(actor, "expired", System.nanoTime() - 1));
+            assertEquals(Str.of("no_deadline"), request(actor, "no_deadline", Envelope.NO_DEADLINE).message());
+            long future = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            assertEquals(Str.of("future"), request(actor, "future", future).message());
+            assertEquals(List.of("no_deadline", "future"), actor.processed);
+            ActorMetrics actorMetrics = metrics.actorMetrics(actor.address());
+            assertEquals(1, actorMetrics.requestsExpiredOnSend());
+            assertEquals(0, actorMetrics.requestsExpiredOnDispatch());
+            assertEquals(1, metrics.values().get("actor.deadline_test_send.requests_expired_on_send"));
+        } finally {
+            MetricsSetting.set(null);
+        }
+    }
+
+    @Test
+    public void testInheritedByAsk() throws Exception {
+        DeadlineRecorder target = new DeadlineRecorder();
+        ActorSystem system = ActorSystem.builder()
+            .addDefaultModules()
+            .build();
+        ActorRef actorRef = Actor.builder()
+            .setSystem(system)
+            .setAddress(Address.create("Forward"))
+            .spawn(SOURCE, List.of(new ActorRefObj(target)))
+            .actorRef();
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        assertEquals(Str.of("pong"), request(actorRef, "go", deadlineNanos).message());
+        assertEquals(deadlineNanos, target.deadlineNanos);
+        assertEquals(Str.of("pong"), request(actorRef, "go", Envelope.NO_DEADLINE).message());
+        assertEquals(Envelope.NO_DEADLINE, target.deadlineNanos);
+    }
+
+    @Test
+    public void testNoDeadline() {
+        Envelope request = Envelope.createRequest("q1", new FutureResponse(Address.create("future_response")), "id1");
+        assertEquals(Envelope.NO_DEADLINE, request.deadlineNanos());
+        assertFalse(request.isExpired());
+        // Only requests expire
+        Envelope notify = new LocalEnvelope(false, "n1", null, null, System.nanoTime() - 1);
+        assertFalse(notify.isExpired());
+    }
+
+    /*
+     * A native actor that records the deadline of each request it receives and answers 'pong'.
+     */
+    private static final class DeadlineRecorder implements ActorRef {
+
+        private final Address address = Address.create("deadline_recorder");
+        private volatile long deadlineNanos;
+
+        @Override
+        public Address address() {
+            return address;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            deadlineNanos = envelope.deadlineNanos();
+            envelope.requester().send(Envelope.createResponse(Str.of("pong"), envelope.requestId()));
+        }
+    }
+
+    /*
+     * A native actor that answers each request with its message. It blocks while processing 'block' until released.
+     */
+    private static final class EchoActor extends AbstractActor {
+
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<String> processed = new CopyOnWriteArrayList<>();
+
+        private EchoActor(Address address) {
+            super(address, Mailbox.createDefault(), ActorSystem.defaultExecutor(), Logger.createDefault());
+        }
+
+        @Override
+        protected OnMessageResult onMessage(Envelope[] next) {
+            Envelope request = next[0];
+            Str message = (Str) request.message();
+            if (message.value.equals("block")) {
+                blocked.countDown();
+                try {
+                    assertTrue(release.await(1, TimeUnit.SECONDS));
+                } catch (InterruptedException exc) {
+                    throw new IllegalStateException(exc);
+                }
+            }
+            processed.add(message.value);
+            request.requester().send(Envelope.createResponse(message, request.requestId()));
+            return OnMessageResult.NOT_FINISHED;
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.Int32;
+import org.torqlang.klvm.Str;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJfrEvents {
+
+    private static final String SOURCE = """
+        actor SumSquares(squarer) in
+            handle ask 'sum' in
+                squarer.ask(3) + squarer.ask(4)
+            end
+        end""";
+
+    private static final String SQUARER_SOURCE = """
+        actor Squarer() in
+            handle ask n in
+                n * n
+            end
+        end""";
+
+    private static List<RecordedEvent> eventsFor(List<RecordedEvent> events, String name, String address) {
+        return events.stream()
+            .filter(e -> e.getEventType().getName().equals(name) && address.equals(e.getString("address")))
+            .toList();
+    }
+
+    @Test
+    public void test() throws Exception {
+        Path path = Files.createTempFile("torq-jfr-", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("org.torqlang.ActorDispatch");
+                recording.enable("org.torqlang.TimeSlice");
+                recording.enable("org.torqlang.DataflowWait");
+                recording.start();
+                ActorSystem system = ActorSystem.builder()
+                    .addDefaultModules()
+                    .build();
+                ActorRef squarer = Actor.builder()
+                    .setSystem(system)
+                    .setAddress(Address.create("jfr_test/squarer"))
+                    .spawn(SQUARER_SOURCE)
+                    .actorRef();
+                ActorRef sumSquares = Actor.builder()
+                    .setSystem(system)
+                    .setAddress(Address.create("jfr_test/sum_squares"))
+                    .spawn(SOURCE, List.of(new ActorRefObj(squarer)))
+                    .actorRef();
+                Object response = RequestClient.builder()
+                    .sendAndAwaitResponse(sumSquares, Str.of("sum"), 1, TimeUnit.SECONDS);
+                assertEquals(Int32.of(25), response);
+                CommonTools.awaitWaiting(sumSquares, 1, TimeUnit.SECONDS);
+                recording.stop();
+                recording.dump(path);
+            }
+            List<RecordedEvent> events = RecordingFile.readAllEvents(path);
+            List<RecordedEvent> dispatches = eventsFor(events, "org.torqlang.ActorDispatch",
+                "jfr_test/sum_squares");
+            // The configure message, the request, and at least one response
+            assertTrue(dispatches.size() >= 3);
+            assertEquals("control", dispatches.get(0).getString("messageKind"));
+            assertEquals("request", dispatches.get(1).getString("messageKind"));
+            assertEquals("response", dispatches.get(dispatches.size() - 1).getString("messageKind"));
+            List<RecordedEvent> slices = eventsFor(events, "org.torqlang.TimeSlice", "jfr_test/sum_squares");
+            assertEquals("wait", slices.get(1).getString("outcome"));
+            assertEquals("end", slices.get(slices.size() - 1).getString("outcome"));
+            assertTrue(slices.get(1).getLong("computeCount") > 0);
+            List<RecordedEvent> waits = eventsFor(events, "org.torqlang.DataflowWait", "jfr_test/sum_squares");
+            assertFalse(waits.isEmpty());
+            assertTrue(waits.get(0).getInt("pendingResponseCount") > 0);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+}
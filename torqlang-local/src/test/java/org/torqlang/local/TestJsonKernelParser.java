@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.*;
+import org.torqlang.lang.JsonParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJsonKernelParser {
+
+    private static final RecDesc LINE_DESC = RecDesc.of(
+        Str.of("product_id"), Int64Desc.BASIC,
+        Str.of("quantity"), Int32Desc.BASIC,
+        Str.of("unit_price"), Dec128Desc.BASIC
+    );
+
+    private static final RecDesc ORDER_DESC = RecDesc.of(
+        Str.of("order_id"), Int64Desc.BASIC,
+        Str.of("order_date"), DateDesc.BASIC,
+        Str.of("lines"), ArrayDesc.of(LINE_DESC)
+    );
+
+    /*
+     * Parse the source whole, split at every position, and one byte at a time, and compare each result with the
+     * expected value.
+     */
+    private static void assertParses(Complete expected, String source, ValueDesc valueDesc) {
+        assertEquals(expected, JsonKernelParser.parse(source, valueDesc));
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        for (int split = 0; split <= bytes.length; split++) {
+            JsonKernelParser parser = new JsonKernelParser(valueDesc);
+            parser.feed(ByteBuffer.wrap(bytes, 0, split));
+            parser.feed(ByteBuffer.wrap(bytes, split, bytes.length - split));
+            assertEquals(expected, parser.finish(), "split at " + split);
+        }
+        assertEquals(expected, parseBytewise(bytes, valueDesc));
+    }
+
+    private static void assertSameAsValueTools(String source, ValueDesc valueDesc) {
+        assertParses(ValueTools.toKernelValue(new JsonParser(source).parse(), valueDesc), source, valueDesc);
+    }
+
+    private static void assertThrowsParsing(String source) {
+        assertThrows(IllegalArgumentException.class,
+            () -> parseBytewise(source.getBytes(StandardCharsets.UTF_8), null));
+    }
+
+    private static Feature featureNamed(CompleteRec rec, String name) {
+        for (int i = 0; i < rec.fieldCount(); i++) {
+            if (rec.featureAt(i).equals(Str.of(name))) {
+                return rec.featureAt(i);
+            }
+        }
+        throw new AssertionError("Feature not found: " + name);
+    }
+
+    private static Complete parseBytewise(byte[] bytes, ValueDesc valueDesc) {
+        JsonKernelParser parser = new JsonKernelParser(valueDesc);
+        for (byte b : bytes) {
+            parser.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+        return parser.finish();
+    }
+
+    @Test
+    public void testBlank() {
+        JsonKernelParser parser = new JsonKernelParser(null);
+        assertTrue(parser.isBlank());
+        parser.feed(ByteBuffer.wrap(" \r\n\t".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(parser.isBlank());
+        assertThrows(IllegalArgumentException.class, parser::finish);
+        parser.feed(ByteBuffer.wrap("1".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(parser.isBlank());
+        assertEquals(Int64.of(1), parser.finish());
+    }
+
+    @Test
+    public void testDec128Number() {
+        // ValueTools reads a JSON number as a Flt64 before it knows the description, but the parser is exact
+        assertParses(Dec128.of("0.1"), "0.1", Dec128Desc.BASIC);
+        assertParses(Rec.completeTupleBuilder().addValue(Dec128.of("1.10")).addValue(Dec128.of("2.20")).build(),
+            "[1.10, \"2.20\"]", ArrayDesc.of(Dec128Desc.BASIC));
+    }
+
+    @Test
+    public void testErrors() {
+        assertThrows(IllegalArgumentException.class, () -> JsonKernelParser.parse("", null));
+        assertThrowsParsing("{");
+        assertThrowsParsing("[1,]");
+        assertThrowsParsing("[1 2]");
+        assertThrowsParsing("{\"a\" 1}");
+        assertThrowsParsing("{a: 1}");
+        assertThrowsParsing("{\"a\": 1]");
+        assertThrowsParsing("\"abc");
+        assertThrowsParsing("tru");
+        assertThrowsParsing("truex");
+        assertThrowsParsing("1 2");
+        assertThrowsParsing("-");
+        assertThrowsParsing("1e");
+        assertThrowsParsing("1.2.3");
+        assertThrowsParsing("\"\\x\"");
+        assertThrowsParsing("\"\\u00g0\"");
+        assertThrowsParsing("{\"$label\": \"a\", \"$rec\": {\"$label\": \"b\", \"$rec\": {}}}");
+        assertThrowsParsing("{\"$label\": \"a\", \"$rec\": 1}");
+        assertThrows(DuplicateFeatureError.class,
+            () -> parseBytewise("{\"a\": 1, \"a\": 2}".getBytes(StandardCharsets.UTF_8), null));
+    }
+
+    @Test
+    public void testInterning() {
+        String source = """
+            [{"order_id": 1, "note": "a"}, {"order_id": 2, "note": "b"}]""";
+        CompleteTuple tuple = (CompleteTuple) JsonKernelParser.parse(source, ArrayDesc.of(ORDER_DESC));
+        CompleteRec first = (CompleteRec) tuple.valueAt(0);
+        CompleteRec second = (CompleteRec) tuple.valueAt(1);
+        Feature orderIdKey = ORDER_DESC.map.keySet().stream()
+            .filter(f -> f.equals(Str.of("order_id")))
+            .findFirst()
+            .orElseThrow();
+        // Described features are shared with the description, and other features are shared across records
+        assertSame(orderIdKey, featureNamed(first, "order_id"));
+        assertSame(orderIdKey, featureNamed(second, "order_id"));
+        assertSame(featureNamed(first, "note"), featureNamed(second, "note"));
+    }
+
+    @Test
+    public void testLabeled() {
+        assertSameAsValueTools("{\"$label\": \"point\", \"$rec\": {\"x\": 1, \"y\": 2}}", null);
+        assertSameAsValueTools("{\"$label\": \"pair\", \"$rec\": [\"a\", \"b\"]}", null);
+        assertSameAsValueTools("[{\"$rec\": {\"x\": [1, 2]}, \"$label\": true}]", null);
+        // An object with a "$label" and other keys is an ordinary record
+        assertSameAsValueTools("{\"$label\": \"a\", \"b\": 1}", null);
+        RecDesc labeledDesc = RecDesc.of(Str.of(Rec.$REC), RecDesc.of(Str.of("id"), Int64Desc.BASIC));
+        assertParses(Rec.completeRecBuilder()
+            .setLabel(Str.of("order"))
+            .addField(Str.of("id"), Int64.of(42))
+            .build(), "{\"$label\": \"order\", \"$rec\": {\"id\": \"42\"}}", labeledDesc);
+    }
+
+    @Test
+    public void testLabeledNesting() {
+        // Each level is parsed once, so deep nesting takes linear time
+        int levelCount = 64;
+        String source = "{\"$label\": \"a\", \"$rec\": {\"x\": ".repeat(levelCount) + "1" + "}}".repeat(levelCount);
+        Complete value = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> JsonKernelParser.parse(source, null));
+        for (int i = 0; i < levelCount; i++) {
+            CompleteRec rec = (CompleteRec) value;
+            assertEquals(Str.of("a"), rec.label());
+            value = rec.findValue(Str.of("x"));
+        }
+        assertEquals(Int64.of(1), value);
+    }
+
+    @Test
+    public void testMaxDepth() {
+        int maxDepth = JsonKernelParser.DEFAULT_MAX_DEPTH;
+        Complete value = JsonKernelParser.parse("[".repeat(maxDepth) + "]".repeat(maxDepth), null);
+        assertEquals(1, ((CompleteTuple) value).fieldCount());
+        // The parser fails at the first bracket too deep, before the rest of the body arrives
+        JsonKernelParser parser = new JsonKernelParser(null);
+        ByteBuffer tooDeep = ByteBuffer.wrap("[".repeat(maxDepth + 1).getBytes(StandardCharsets.UTF_8));
+        IllegalArgumentException exc = assertThrows(IllegalArgumentException.class, () -> parser.feed(tooDeep));
+        assertEquals("Nesting deeper than " + maxDepth + " at position " + maxDepth, exc.getMessage());
+        JsonKernelParser shallow = new JsonKernelParser(null, 2);
+        assertThrows(IllegalArgumentException.class,
+            () -> shallow.feed(ByteBuffer.wrap("{\"a\": [{}]}".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void testOrders() {
+        String source = """
+            {
+                "order_id": "10248",
+                "order_date": "1996-07-04T00:00:00",
+                "lines": [
+                    {"product_id": 11, "quantity": 12, "unit_price": "14.00"},
+                    {"product_id": 42, "quantity": 10, "unit_price": "9.80"}
+                ]
+            }""";
+        assertSameAsValueTools(source, ORDER_DESC);
+        CompleteRec order = (CompleteRec) JsonKernelParser.parse(source, ORDER_DESC);
+        assertEquals(Int64.of(10248), order.findValue(Str.of("order_id")));
+        assertEquals(LocalDate.of(1996, 7, 4), ((LocalDatePack.LocalDateObj) order.findValue(Str.of("order_date"))).state());
+        CompleteTuple lines = (CompleteTuple) order.findValue(Str.of("lines"));
+        CompleteRec line = (CompleteRec) lines.valueAt(1);
+        assertEquals(Int32.of(10), line.findValue(Str.of("quantity")));
+        assertEquals(Dec128.of("9.80"), line.findValue(Str.of("unit_price")));
+    }
+
+    @Test
+    public void testScalars() {
+        assertSameAsValueTools("null", null);
+        assertSameAsValueTools("true", null);
+        assertSameAsValueTools("false", null);
+        assertSameAsValueTools("\"eof\"", null);
+        assertSameAsValueTools("0", null);
+        assertSameAsValueTools("-123", null);
+        assertSameAsValueTools("9223372036854775807", null);
+        assertSameAsValueTools("1.5", null);
+        // JsonLexer does not accept exponents
+        assertParses(Flt64.of(-1500.0), "-1.5e3", null);
+        assertParses(Flt64.of(0.02), "2E-2", null);
+        assertSameAsValueTools("123", Int32Desc.BASIC);
+        assertSameAsValueTools("\"123\"", Int32Desc.BASIC);
+        assertSameAsValueTools("\"123\"", Int64Desc.BASIC);
+        assertSameAsValueTools("\"1.23\"", Dec128Desc.BASIC);
+        assertSameAsValueTools("\"2024-01-31\"", DateDesc.BASIC);
+        assertSameAsValueTools(" \t\r\n\"abc\" \n", null);
+    }
+
+    @Test
+    public void testStrings() {
+        assertSameAsValueTools("\"\"", null);
+        assertSameAsValueTools("\"a\\\"b\\\\c\\/d\"", null);
+        assertSameAsValueTools("\"\\t\\b\\n\\r\\f\"", null);
+        assertSameAsValueTools("\"\\u0041\\u00e9\"", null);
+        assertSameAsValueTools("{\"a\\nb\": \"c\", \"eof\": 1}", null);
+        assertParses(Str.of("A\u00e9\ud83d\ude00"), "\"\\u0041\\u00e9\\ud83d\\ude00\"", null);
+        // Multibyte characters are split across buffers at every position
+        assertParses(Str.of("aé€😀z"), "\"aé€😀z\"", null);
+        assertParses(Rec.completeRecBuilder()
+            .addField(Str.of("clé"), Str.of("valeur"))
+            .addField(Str.of("a\nb"), Int64.of(1))
+            .build(), "{\"clé\": \"valeur\", \"a\\nb\": 1}", null);
+    }
+
+    @Test
+    public void testStructures() {
+        assertSameAsValueTools("{}", null);
+        assertSameAsValueTools("[]", null);
+        assertSameAsValueTools("[[], {}, [[1]], {\"a\": {\"b\": [true, null, 12]}}]", null);
+        assertSameAsValueTools("[\"zero\", 1, true]", TupleDesc.of(NullDesc.BASIC, Int32Desc.BASIC, NullDesc.BASIC));
+        assertSameAsValueTools("[0, 1, 2]", ArrayDesc.of(Int32Desc.BASIC));
+        // More elements than the tuple description are parsed without a description
+        assertParses(Rec.completeTupleBuilder().addValue(Int64.of(1)).addValue(Str.of("2")).build(),
+            "[\"1\", \"2\"]", TupleDesc.of(Int64Desc.BASIC));
+        // Deep nesting grows the frames and the scratch stacks
+        StringBuilder sb = new StringBuilder();
+        sb.append("[".repeat(40));
+        for (int i = 0; i < 40; i++) {
+            sb.append(i).append(',');
+        }
+        sb.append("{");
+        for (int i = 0; i < 40; i++) {
+            sb.append(i == 0 ? "" : ",").append("\"k").append(i).append("\": ").append(i);
+        }
+        sb.append("}");
+        sb.append("]".repeat(40));
+        assertSameAsValueTools(sb.toString(), null);
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.FailedValue;
+import org.torqlang.klvm.Str;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMailboxCfg {
+
+    @Test
+    public void testBackpressure() {
+        StalledActor actor = new StalledActor(MailboxCfg.create(2, MailboxCfg.OverflowPolicy.BACKPRESSURE));
+        actor.send(Envelope.createNotify("n1"));
+        actor.send(Envelope.createNotify("n2"));
+        MailboxFullError error = assertThrows(MailboxFullError.class,
+            () -> actor.send(Envelope.createNotify("n3")));
+        assertEquals(2, error.capacity);
+        assertEquals(2, actor.queued());
+    }
+
+    @Test
+    public void testBackpressureToTorqActor() throws Exception {
+        StalledActor stalled = new StalledActor(MailboxCfg.create(1, MailboxCfg.OverflowPolicy.BACKPRESSURE));
+        stalled.send(Envelope.createNotify("n1"));
+        String source = """
+            actor Sender(target) in
+                handle ask 'tell' in
+                    target.tell('n2')
+                    'told'
+                end
+                handle ask 'ask' in
+                    target.ask('q1')
+                end
+            end""";
+        ActorRef actorRef = Actor.builder()
+            .setAddress(Address.create("Sender"))
+            .spawn(source, List.of(new ActorRefObj(stalled)))
+            .actorRef();
+        // The rejected notification is logged, and the sender does not fail
+        assertEquals(Str.of("told"), RequestClient.builder()
+            .sendAndAwaitResponse(actorRef, Str.of("tell"), 1, TimeUnit.SECONDS));
+        // The rejected request is answered with a FailedValue instead of failing the sender during its compute
+        Object response = RequestClient.builder()
+            .sendAndAwaitResponse(actorRef, Str.of("ask"), 1, TimeUnit.SECONDS);
+        FailedValue failedValue = assertInstanceOf(FailedValue.class, response);
+        assertTrue(failedValue.toDetailsString().contains(MailboxFullError.MAILBOX_FULL));
+        assertEquals(1, stalled.queued());
+    }
+
+    @Test
+    public void testControlAndResponseNeverRejected() {
+        StalledActor actor = new StalledActor(MailboxCfg.create(1, MailboxCfg.OverflowPolicy.BACKPRESSURE));
+        actor.send(Envelope.createNotify("n1"));
+        actor.send(Envelope.createControlNotify("c1"));
+        actor.send(Envelope.createResponse("r1", "id1"));
+        assertEquals(3, actor.queued());
+    }
+
+    @Test
+    public void testDropOldest() {
+        Metrics metrics = new Metrics();
+        MetricsSetting.set(metrics);
+        try {
+            StalledActor actor = new StalledActor(MailboxCfg.create(2, MailboxCfg.OverflowPolicy.DROP_OLDEST));
+            actor.send(Envelope.createNotify("n1"));
+            actor.send(Envelope.createNotify("n2"));
+            actor.send(Envelope.createNotify("n3"));
+            assertEquals(List.of("n2", "n3"), actor.messages());
+            assertEquals(1, metrics.values().get("actor.stalled_actor.notifications_dropped"));
+        } finally {
+            MetricsSetting.set(null);
+        }
+    }
+
+    @Test
+    public void testHighWaterMark() {
+        List<Integer> sizes = new ArrayList<>();
+        MailboxCfg cfg = MailboxCfg.create(4, MailboxCfg.OverflowPolicy.REJECT)
+            .withHighWaterMark(3, (address, size) -> sizes.add(size));
+        StalledActor actor = new StalledActor(cfg);
+        actor.send(Envelope.createNotify("n1"));
+        actor.send(Envelope.createNotify("n2"));
+        assertTrue(sizes.isEmpty());
+        actor.send(Envelope.createNotify("n3"));
+        actor.send(Envelope.createNotify("n4"));
+        assertEquals(List.of(3), sizes);
+    }
+
+    @Test
+    public void testHighWaterMarkUnbounded() {
+        List<Integer> sizes = new ArrayList<>();
+        ActorSystem system = ActorSystem.builder()
+            .setMailboxCfg(MailboxCfg.UNBOUNDED.withHighWaterMark(2, (address, size) -> sizes.add(size)))
+            .build();
+        StalledActor actor = new StalledActor(system.createMailbox());
+        actor.send(Envelope.createNotify("n1"));
+        actor.send(Envelope.createNotify("n2"));
+        actor.send(Envelope.createNotify("n3"));
+        assertEquals(List.of(2), sizes);
+        assertEquals(3, actor.queued());
+    }
+
+    @Test
+    public void testReject() throws Exception {
+        StalledActor actor = new StalledActor(MailboxCfg.create(1, MailboxCfg.OverflowPolicy.REJECT));
+        actor.send(Envelope.createNotify("n1"));
+        FutureResponse futureResponse = new FutureResponse(Address.create("future_response"));
+        actor.send(Envelope.createRequest("q1", futureResponse, "id1"));
+        Envelope response = futureResponse.future().get(1, TimeUnit.SECONDS);
+        assertEquals("id1", response.requestId());
+        FailedValue failedValue = assertInstanceOf(FailedValue.class, response.message());
+        assertTrue(failedValue.toDetailsString().contains(MailboxFullError.MAILBOX_FULL));
+        assertEquals(1, actor.queued());
+    }
+
+    /*
+     * An actor that never selects a message, so every message sent remains queued in its mailbox.
+     */
+    private static final class StalledActor extends AbstractActor {
+
+        private final Mailbox mailbox;
+
+        StalledActor(MailboxCfg cfg) {
+            this(Mailbox.create(cfg));
+        }
+
+        private StalledActor(Mailbox mailbox) {
+            super(Address.create("stalled_actor"), mailbox, ActorSystem.defaultExecutor(), Logger.createDefault());
+            this.mailbox = mailbox;
+        }
+
+        @Override
+        protected boolean isExecutable(Mailbox mailbox) {
+            return false;
+        }
+
+        final List<Object> messages() {
+            List<Object> answer = new ArrayList<>();
+            LinkedListMailbox.Entry entry = ((LinkedListMailbox) mailbox).firstEntry();
+            while (entry != null) {
+                answer.add(entry.message().message());
+                entry = entry.next();
+            }
+            return answer;
+        }
+
+        @Override
+        protected OnMessageResult onMessage(Envelope[] next) {
+            throw new IllegalStateException("Not executable");
+        }
+
+        final int queued() {
+            return mailboxSize();
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.Int32;
+import org.torqlang.klvm.Str;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMetrics {
+
+    private static final String SOURCE = """
+        actor Counter() in
+            import system[Cell]
+            var count = Cell.new(0)
+            handle ask 'inc' in
+                count := @count + 1
+                @count
+            end
+        end""";
+
+    @Test
+    public void testActorMetrics() throws Exception {
+        Metrics metrics = new Metrics();
+        MetricsSetting.set(metrics);
+        try {
+            ActorSystem system = ActorSystem.builder()
+                .addDefaultModules()
+                .build();
+            ActorRef actorRef = Actor.builder()
+                .setSystem(system)
+                .setAddress(Address.create("metrics_test/counter"))
+                .spawn(SOURCE, List.of())
+                .actorRef();
+            // Let the actor process its configure message, so that the first request never queues behind it
+            CommonTools.awaitWaiting(actorRef, 1, TimeUnit.SECONDS);
+            for (int i = 1; i <= 5; i++) {
+                Object response = RequestClient.builder()
+                    .sendAndAwaitResponse(actorRef, Str.of("inc"), 1, TimeUnit.SECONDS);
+                assertEquals(Int32.of(i), response);
+            }
+            CommonTools.awaitWaiting(actorRef, 1, TimeUnit.SECONDS);
+            assertEquals(1, ((AbstractActor) actorRef).mailboxHighWater());
+            SortedMap<String, Long> values = metrics.values();
+            // The configure message and the five requests
+            assertEquals(6, values.get("actor.metrics_test.messages_processed"));
+            assertEquals(6, values.get("actor.metrics_test.service_time_nanos.count"));
+            assertEquals(6, values.get("actor.metrics_test.dispatch_latency_nanos.count"));
+            assertEquals(0, values.get("actor.metrics_test.mailbox_depth"));
+            assertEquals(1, values.get("actor.metrics_test.mailbox_high_water"));
+            assertTrue(values.get("actor.metrics_test.compute_count_per_slice.count") >= 6);
+            assertTrue(values.get("actor.metrics_test.compute_count_per_slice.max") > 0);
+            assertEquals(0, values.get("actor.metrics_test.preemptions"));
+        } finally {
+            MetricsSetting.set(null);
+        }
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_500.0, histogram.mean());
+        // Buckets report a value with a relative error of at most 12.5%
+        long p50 = histogram.percentile(0.50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50: " + p50);
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99: " + p99);
+        for (long v = 0; v < 100_000; v = v * 3 + 1) {
+            int i = Histogram.bucketIndex(v);
+            assertTrue(v <= Histogram.bucketUpperBound(i));
+            assertTrue(i == 0 || v > Histogram.bucketUpperBound(i - 1));
+        }
+    }
+
+    @Test
+    public void testMBeanAndReporter() throws Exception {
+        Metrics metrics = new Metrics();
+        AffinityExecutor executor = new AffinityExecutor("metrics_test", 2);
+        metrics.addExecutor(executor);
+        ObjectName objectName = metrics.registerMBean("test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertTrue(server.isRegistered(objectName));
+            assertNotNull(server.getAttribute(objectName, "Values"));
+        } finally {
+            server.unregisterMBean(objectName);
+        }
+        CountDownLatch reported = new CountDownLatch(2);
+        Metrics.Reporting reporting = metrics.startReporting(values -> {
+            assertEquals(0, values.get("executor.metrics_test.1.queue_depth"));
+            reported.countDown();
+        }, 10, TimeUnit.MILLISECONDS);
+        assertTrue(reported.await(1, TimeUnit.SECONDS));
+        reporting.stop();
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.Int32;
+import org.torqlang.klvm.Machine;
+import org.torqlang.klvm.Str;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSamplingProfiler {
+
+    private static final String SOURCE = """
+        actor Fibonacci() in
+            func fib(n) in
+                if n < 2 then n
+                else fib(n - 1) + fib(n - 2) end
+            end
+            handle ask 'fib' in
+                fib(20)
+            end
+        end""";
+
+    @Test
+    public void test() throws Exception {
+        ActorRef actorRef = Actor.builder()
+            .setAddress(Address.create("profiler_test/fibonacci"))
+            .spawn(SOURCE)
+            .actorRef();
+        SamplingProfiler profiler = SamplingProfiler.start(1, TimeUnit.MILLISECONDS);
+        assertSame(profiler, SamplingProfiler.active());
+        assertThrows(IllegalStateException.class, () -> SamplingProfiler.start(1, TimeUnit.MILLISECONDS));
+        long stopAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (System.nanoTime() < stopAt) {
+            Object response = RequestClient.builder()
+                .sendAndAwaitResponse(actorRef, Str.of("fib"), 5, TimeUnit.SECONDS);
+            assertEquals(Int32.of(6765), response);
+        }
+        profiler.stop();
+        assertNull(SamplingProfiler.active());
+        assertTrue(profiler.sampleCount() > 0);
+        SortedMap<String, Long> stacks = profiler.collapsedStacks();
+        long total = 0;
+        long inFib = 0;
+        for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+            assertTrue(entry.getKey().startsWith("profiler_test;Fibonacci:"), entry.getKey());
+            total += entry.getValue();
+            if (entry.getKey().endsWith("Fibonacci:3") || entry.getKey().endsWith("Fibonacci:4")) {
+                inFib += entry.getValue();
+            }
+        }
+        assertEquals(profiler.sampleCount(), total);
+        // Nearly all the time is spent in the body of `fib`
+        assertTrue(inFib * 2 > total, stacks.toString());
+        StringWriter writer = new StringWriter();
+        profiler.writeCollapsed(writer);
+        String firstLine = writer.toString().lines().findFirst().orElseThrow();
+        assertTrue(firstLine.matches("profiler_test(;Fibonacci:\\d+)+ \\d+"), firstLine);
+    }
+
+    @Test
+    public void testSlotsOfEndedThreadsPruned() throws Exception {
+        int slotCountBefore = SamplingProfiler.slotCount();
+        SamplingProfiler profiler = SamplingProfiler.start(1, TimeUnit.MILLISECONDS);
+        try {
+            // Each thread registers a slot, as each task of a thread-per-task executor would
+            for (int i = 0; i < 100; i++) {
+                Thread thread = new Thread(() -> {
+                    SamplingProfiler.enter(Address.create("profiler_test/thread"), new Machine(null, null));
+                    SamplingProfiler.exit();
+                });
+                thread.start();
+                thread.join();
+            }
+        } finally {
+            profiler.stop();
+        }
+        assertTrue(SamplingProfiler.slotCount() <= slotCountBefore,
+            "slots before: " + slotCountBefore + ", after: " + SamplingProfiler.slotCount());
+    }
+
+}
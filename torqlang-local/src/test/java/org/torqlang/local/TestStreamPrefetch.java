@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStreamPrefetch {
+
+    private static final String SOURCE = """
+        actor SumStream(publisher, prefetch) in
+            import system[Cell, Stream, ValueIter]
+            handle ask 'sum' in
+                var sum = Cell.new(0)
+                var int_stream = if prefetch > 1 then
+                    Stream.new(publisher, 'request', prefetch)
+                else
+                    Stream.new(publisher, 'request')
+                end
+                for i in ValueIter.new(int_stream) do
+                    sum := @sum + i
+                end
+                @sum
+            end
+        end""";
+
+    private static final String POOLED_SOURCE = """
+        actor PooledSumStream() in
+            import system[Cell, Stream, ValueIter]
+            handle ask 'sum'#{'publisher': publisher} in
+                var sum = Cell.new(0)
+                for i in ValueIter.new(Stream.new(publisher, 'request', 3)) do
+                    sum := @sum + i
+                end
+                @sum
+            end
+        end""";
+
+    private static final int BATCH_COUNT = 6;
+
+    private static CompleteRec eof(boolean more) {
+        return Rec.completeRecBuilder()
+            .setLabel(Eof.SINGLETON)
+            .addField(Str.of("more"), Bool.of(more))
+            .build();
+    }
+
+    /*
+     * Answer requests with batches [1, 2], [3, 4], ..., [11, 12] and return the maximum number of requests that were
+     * outstanding at once.
+     */
+    private static int publish(LinkedBlockingQueue<Envelope> requests) throws Exception {
+        int maxOutstanding = 0;
+        int next = 1;
+        int batchesSent = 0;
+        int eofFalseSent = 0;
+        while (eofFalseSent == 0 || !requests.isEmpty()) {
+            Envelope request = requests.poll(1, TimeUnit.SECONDS);
+            assertNotNull(request, "Timed out waiting for a stream request");
+            // Let the consumer issue every request its credits allow before we look
+            Thread.sleep(5);
+            maxOutstanding = Math.max(maxOutstanding, requests.size() + 1);
+            if (batchesSent < BATCH_COUNT) {
+                CompleteTuple batch = CompleteTuple.create(List.of(Int32.of(next), Int32.of(next + 1)));
+                next += 2;
+                batchesSent++;
+                request.requester().send(Envelope.createResponse(batch, request.requestId()));
+            }
+            boolean more = batchesSent < BATCH_COUNT;
+            if (!more) {
+                eofFalseSent++;
+            }
+            request.requester().send(Envelope.createResponse(eof(more), request.requestId()));
+        }
+        return maxOutstanding;
+    }
+
+    private static int sumWithPrefetch(int prefetch) throws Exception {
+        LinkedBlockingQueue<Envelope> requests = new LinkedBlockingQueue<>();
+        ActorRef publisher = new ActorRef() {
+            private final Address address = Address.create("test_publisher");
+
+            @Override
+            public Address address() {
+                return address;
+            }
+
+            @Override
+            public void send(Envelope envelope) {
+                requests.add(envelope);
+            }
+        };
+        ActorRef actorRef = Actor.builder()
+            .setAddress(Address.create("SumStream"))
+            .spawn(SOURCE, List.of(new ActorRefObj(publisher), Int32.of(prefetch)))
+            .actorRef();
+        FutureResponse futureResponse = new FutureResponse(Address.create("future_response"));
+        actorRef.send(Envelope.createRequest(Str.of("sum"), futureResponse, "sum_request"));
+        int maxOutstanding = publish(requests);
+        // 1 + 2 + ... + 12 = 78
+        assertEquals(Int32.of(78), futureResponse.future().get(1, TimeUnit.SECONDS).message());
+        return maxOutstanding;
+    }
+
+    @Test
+    public void testDefault() throws Exception {
+        assertEquals(1, sumWithPrefetch(1));
+    }
+
+    @Test
+    public void testPooledAfterEof() throws Exception {
+        LinkedBlockingQueue<Envelope> requests = new LinkedBlockingQueue<>();
+        ActorRef publisher = new ActorRef() {
+            private final Address address = Address.create("test_publisher");
+
+            @Override
+            public Address address() {
+                return address;
+            }
+
+            @Override
+            public void send(Envelope envelope) {
+                requests.add(envelope);
+            }
+        };
+        ActorImage actorImage = Actor.builder().actorImage(POOLED_SOURCE);
+        ActorPool pool = new ActorPool(Address.create("PooledSumStream"), actorImage, 1);
+        CompleteRec message = Rec.completeRecBuilder()
+            .setLabel(Str.of("sum"))
+            .addField(Str.of("publisher"), new ActorRefObj(publisher))
+            .build();
+        FutureResponse futureResponse = new FutureResponse(Address.create("future_response"));
+        pool.send(Envelope.createRequest(message, futureResponse, "sum_request"));
+        // Answer the first request with the only batch and end the stream. The publisher never answers the other
+        // outstanding requests, as when it has stopped.
+        Envelope request = requests.poll(1, TimeUnit.SECONDS);
+        assertNotNull(request, "Timed out waiting for a stream request");
+        CompleteTuple batch = CompleteTuple.create(List.of(Int32.of(1), Int32.of(2)));
+        request.requester().send(Envelope.createResponse(batch, request.requestId()));
+        request.requester().send(Envelope.createResponse(eof(false), request.requestId()));
+        assertEquals(Int32.of(3), futureResponse.future().get(1, TimeUnit.SECONDS).message());
+        assertFalse(requests.isEmpty(), "Expected unanswered prefetch requests");
+        // A closed stream no longer holds the actor, so the pool gets it back
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (pool.idleCount() != 1) {
+            if (System.nanoTime() > deadline) {
+                fail("The actor was not returned to the pool");
+            }
+            Thread.sleep(1);
+        }
+        assertEquals(0, pool.discardCount());
+        // Late responses to the closed stream are discarded by the recycled actor, which serves the next request
+        List<Envelope> unanswered = new ArrayList<>();
+        requests.drainTo(unanswered);
+        for (Envelope late : unanswered) {
+            late.requester().send(Envelope.createResponse(eof(false), late.requestId()));
+        }
+        futureResponse = new FutureResponse(Address.create("future_response"));
+        pool.send(Envelope.createRequest(message, futureResponse, "sum_request"));
+        request = requests.poll(1, TimeUnit.SECONDS);
+        assertNotNull(request, "Timed out waiting for a stream request");
+        batch = CompleteTuple.create(List.of(Int32.of(3), Int32.of(4)));
+        request.requester().send(Envelope.createResponse(batch, request.requestId()));
+        request.requester().send(Envelope.createResponse(eof(false), request.requestId()));
+        assertEquals(Int32.of(7), futureResponse.future().get(1, TimeUnit.SECONDS).message());
+        assertEquals(1, pool.spawnCount());
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        int maxOutstanding = sumWithPrefetch(3);
+        assertTrue(maxOutstanding > 1, "Expected more than one request outstanding");
+        assertTrue(maxOutstanding <= 3, "Expected at most 3 requests outstanding but found " + maxOutstanding);
+    }
+
+}
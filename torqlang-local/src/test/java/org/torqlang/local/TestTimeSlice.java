@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.Int32;
+import org.torqlang.klvm.Str;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTimeSlice {
+
+    private static final String SOURCE = """
+        actor Fibonacci() in
+            func fib(n) in
+                if n < 2 then n
+                else fib(n - 1) + fib(n - 2) end
+            end
+            handle ask 'fib' in
+                fib(20)
+            end
+        end""";
+
+    private static ActorMetrics computeFib(ActorSystem system, String path, TimeSliceCfg timeSliceCfg)
+        throws Exception
+    {
+        Metrics metrics = new Metrics();
+        MetricsSetting.set(metrics);
+        try {
+            ActorBuilderInit builder = Actor.builder()
+                .setSystem(system)
+                .setAddress(Address.create(path));
+            if (timeSliceCfg != null) {
+                builder.setTimeSliceCfg(timeSliceCfg);
+            }
+            ActorRef actorRef = builder.spawn(SOURCE).actorRef();
+            Object response = RequestClient.builder()
+                .sendAndAwaitResponse(actorRef, Str.of("fib"), 10, TimeUnit.SECONDS);
+            assertEquals(Int32.of(6765), response);
+            CommonTools.awaitWaiting(actorRef, 1, TimeUnit.SECONDS);
+            return metrics.actorMetricsByPrefix().get(path);
+        } finally {
+            MetricsSetting.set(null);
+        }
+    }
+
+    @Test
+    public void testAdaptive() throws Exception {
+        ActorSystem system = ActorSystem.builder()
+            .addDefaultModules()
+            .setTimeSliceCfg(TimeSliceCfg.adaptive(1, TimeUnit.HOURS))
+            .build();
+        // The quantum is never reached, so the computation is never preempted
+        ActorMetrics metrics = computeFib(system, "adaptive_hour", null);
+        assertEquals(0, metrics.preemptions());
+        assertTrue(metrics.computeCountPerSlice().max() > TimeSliceCfg.DEFAULT_INSTRUCTION_COUNT);
+        // The same computation is preempted when the quantum is short
+        metrics = computeFib(system, "adaptive_micros", TimeSliceCfg.adaptive(50, TimeUnit.MICROSECONDS));
+        assertTrue(metrics.preemptions() > 0);
+    }
+
+    @Test
+    public void testCfg() {
+        assertFalse(TimeSliceCfg.DEFAULT.isAdaptive());
+        assertEquals(TimeSliceCfg.DEFAULT_INSTRUCTION_COUNT, TimeSliceCfg.DEFAULT.instructionCount());
+        TimeSliceCfg adaptive = TimeSliceCfg.adaptive(200, TimeUnit.MICROSECONDS);
+        assertTrue(adaptive.isAdaptive());
+        assertEquals(200_000, adaptive.quantumNanos());
+        assertThrows(IllegalArgumentException.class, () -> TimeSliceCfg.fixed(0));
+        assertThrows(IllegalArgumentException.class, () -> TimeSliceCfg.adaptive(0, TimeUnit.MICROSECONDS));
+        assertThrows(NullPointerException.class, () -> ActorSystem.builder().setTimeSliceCfg(null));
+    }
+
+    @Test
+    public void testContinuationAfterControl() throws Exception {
+        ContinuingActor actor = new ContinuingActor();
+        actor.send(Envelope.createNotify(Str.of("start")));
+        assertTrue(actor.done.await(1, TimeUnit.SECONDS));
+        // The control message sent while the first computation was active is processed before its continuation
+        assertEquals(List.of("start", "control", "continue 2", "continue 1", "continue 0"), actor.log);
+        assertEquals(1, actor.mailboxHighWater());
+    }
+
+    @Test
+    public void testFixed() throws Exception {
+        ActorSystem system = ActorSystem.builder()
+            .addDefaultModules()
+            .setTimeSliceCfg(TimeSliceCfg.fixed(1_000))
+            .build();
+        ActorMetrics metrics = computeFib(system, "fixed_system", null);
+        assertTrue(metrics.preemptions() > 0);
+        assertEquals(1_000, metrics.computeCountPerSlice().max());
+        // Preempted computations continue without queuing messages, so only the configure and fib messages count
+        assertEquals(2, metrics.messagesProcessed());
+        assertEquals(metrics.preemptions() + 2, metrics.dispatchLatencyNanos().count());
+        // An actor can override the time slice of its system
+        metrics = computeFib(system, "fixed_actor", TimeSliceCfg.fixed(1_000_000));
+        assertEquals(0, metrics.preemptions());
+    }
+
+    /*
+     * A native actor that continues its computation three times after it starts. While it is computing the start
+     * message, it sends itself a control message.
+     */
+    private static final class ContinuingActor extends AbstractActor {
+
+        private final List<String> log = new ArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private int remaining = 3;
+
+        private ContinuingActor() {
+            super(Address.create("continuing_actor"), Mailbox.createDefault(), ActorSystem.defaultExecutor(),
+                Logger.createDefault());
+        }
+
+        @Override
+        protected OnMessageResult onContinue() {
+            remaining--;
+            log.add("continue " + remaining);
+            if (remaining > 0) {
+                scheduleContinuation();
+            } else {
+                done.countDown();
+            }
+            return OnMessageResult.NOT_FINISHED;
+        }
+
+        @Override
+        protected OnMessageResult onMessage(Envelope[] next) {
+            if (next[0].isControl()) {
+                log.add("control");
+                return OnMessageResult.NOT_FINISHED;
+            }
+            log.add("start");
+            send(Envelope.createControlNotify(Str.of("control")));
+            scheduleContinuation();
+            return OnMessageResult.NOT_FINISHED;
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTimerWheel {
+
+    @Test
+    public void testCancel() throws Exception {
+        TimerWheel timerWheel = new TimerWheel("test", 1, TimeUnit.MILLISECONDS);
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            TimerWheel.Timeout cancelled = timerWheel.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+            assertEquals(1, timerWheel.pendingCount());
+            assertTrue(cancelled.cancel());
+            assertFalse(cancelled.cancel());
+            assertTrue(cancelled.isCancelled());
+            assertEquals(0, timerWheel.pendingCount());
+            assertFalse(latch.await(60, TimeUnit.MILLISECONDS));
+            assertFalse(cancelled.isExpired());
+        } finally {
+            timerWheel.stop();
+        }
+    }
+
+    private static void awaitIdle(TimerWheel timerWheel) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!timerWheel.isIdle()) {
+            assertTrue(System.nanoTime() < deadline, "Timer wheel did not become idle");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testIdle() throws Exception {
+        TimerWheel timerWheel = new TimerWheel("test", 1, TimeUnit.MILLISECONDS);
+        try {
+            // An empty wheel parks its ticker instead of waking every tick
+            awaitIdle(timerWheel);
+            Thread.sleep(50);
+            // A timeout scheduled after idling wakes the ticker, which skips the missed ticks and is not early
+            CountDownLatch latch = new CountDownLatch(1);
+            long start = System.nanoTime();
+            long[] elapsedNanos = new long[1];
+            timerWheel.schedule(() -> {
+                elapsedNanos[0] = System.nanoTime() - start;
+                latch.countDown();
+            }, 20, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertTrue(elapsedNanos[0] >= TimeUnit.MILLISECONDS.toNanos(20));
+            // Once the wheel is empty again, the ticker parks again
+            awaitIdle(timerWheel);
+            // A cancelled timeout also leaves the wheel empty
+            TimerWheel.Timeout cancelled = timerWheel.schedule(() -> {}, 1, TimeUnit.HOURS);
+            Thread.sleep(10);
+            assertFalse(timerWheel.isIdle());
+            cancelled.cancel();
+            awaitIdle(timerWheel);
+        } finally {
+            timerWheel.stop();
+        }
+    }
+
+    @Test
+    public void testExpireInOrderAcrossLevels() throws Exception {
+        // With 10 microsecond ticks, level 0 spans 2.56 millis and level 1 spans 655 millis, so these delays are
+        // placed in levels 0, 1, and 2 and must cascade down before they expire.
+        TimerWheel timerWheel = new TimerWheel("test", 10, TimeUnit.MICROSECONDS);
+        try {
+            long[] delayMillis = {700, 1, 20};
+            List<Long> expired = new ArrayList<>();
+            long[] elapsedNanos = new long[delayMillis.length];
+            CountDownLatch latch = new CountDownLatch(delayMillis.length);
+            long start = System.nanoTime();
+            for (int i = 0; i < delayMillis.length; i++) {
+                int index = i;
+                timerWheel.schedule(() -> {
+                    elapsedNanos[index] = System.nanoTime() - start;
+                    expired.add(delayMillis[index]);
+                    latch.countDown();
+                }, delayMillis[i], TimeUnit.MILLISECONDS);
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            // Tasks run on the single ticker thread, so the list is safely published by the latch
+            assertEquals(List.of(1L, 20L, 700L), expired);
+            for (int i = 0; i < delayMillis.length; i++) {
+                assertTrue(elapsedNanos[i] >= TimeUnit.MILLISECONDS.toNanos(delayMillis[i]),
+                    "Timeout expired early: " + delayMillis[i]);
+            }
+            assertEquals(0, timerWheel.pendingCount());
+        } finally {
+            timerWheel.stop();
+        }
+    }
+
+}
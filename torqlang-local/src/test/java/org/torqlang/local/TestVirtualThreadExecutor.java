@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.local;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.Str;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestVirtualThreadExecutor {
+
+    private static final String SOURCE = """
+        actor Echo() in
+            handle ask x in
+                x
+            end
+        end""";
+
+    private static Thread runOnExecutor(VirtualThreadExecutor executor) throws Exception {
+        CompletableFuture<Thread> thread = new CompletableFuture<>();
+        executor.execute(() -> thread.complete(Thread.currentThread()));
+        return thread.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testBothExecutorAndVirtualThreads() {
+        ActorSystemBuilder builder = ActorSystem.builder()
+            .setExecutor(ActorSystem.defaultExecutor())
+            .setVirtualThreads(true);
+        IllegalStateException exc = assertThrows(IllegalStateException.class, builder::build);
+        assertEquals("Cannot set both an executor and virtual threads", exc.getMessage());
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("fallback", "noSuchFactoryMethod");
+        assertFalse(executor.isVirtual());
+        Thread thread = runOnExecutor(executor);
+        assertTrue(thread.getName().startsWith(VirtualThreadExecutor.THREAD_NAME_PREFIX));
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("lookup");
+        // Virtual threads are final in Java 21
+        assertEquals(Runtime.version().feature() >= 21, executor.isVirtual());
+        Thread thread = runOnExecutor(executor);
+        assertEquals(!executor.isVirtual(), thread.getName().startsWith(VirtualThreadExecutor.THREAD_NAME_PREFIX));
+    }
+
+    @Test
+    public void testSystem() throws Exception {
+        ActorSystem system = ActorSystem.builder()
+            .setVirtualThreads(true)
+            .build();
+        VirtualThreadExecutor executor = assertInstanceOf(VirtualThreadExecutor.class, system.executor());
+        assertEquals(system.name(), executor.name());
+        ActorRef actorRef = Actor.builder()
+            .setSystem(system)
+            .setAddress(Address.create("Echo"))
+            .spawn(SOURCE)
+            .actorRef();
+        Object response = RequestClient.builder()
+            .setAddress(Address.create("EchoClient"))
+            .send(actorRef, Str.of("hello"))
+            .awaitResponse(1, TimeUnit.SECONDS);
+        assertEquals(Str.of("hello"), response);
+    }
+
+}
@@ -5,6 +5,7 @@ module org.torqlang.server {
     requires org.torqlang.klvm;
     requires org.torqlang.util;
 
+    requires jdk.jfr;
     requires org.eclipse.jetty.server;
 
     exports org.torqlang.server;
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+ * An ApiCompressor compresses response bodies with the JDK Deflater as `gzip` or `deflate`, whichever the request
+ * prefers in its `Accept-Encoding` header. ApiHandler uses a compressor when one is set with
+ * `ApiHandlerBuilder.setCompressor`.
+ *
+ * Bodies smaller than the minimum size are sent as they are, because the framing overhead outweighs the savings.
+ * Deflaters hold native memory that is costly to allocate, so they are kept in bounded pools, one for each encoding,
+ * and reset before reuse.
+ *
+ * The `deflate` encoding is the zlib format (RFC 1950), as HTTP requires, while `gzip` adds a gzip header and trailer
+ * (RFC 1952) to raw deflate data.
+ */
+public final class ApiCompressor {
+
+    public static final String DEFLATE = "deflate";
+    public static final String GZIP = "gzip";
+
+    public static final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    public static final int DEFAULT_POOL_CAPACITY = 64;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final int level;
+    private final int minSize;
+    private final ArrayBlockingQueue<Deflater> deflatePool;
+    private final ArrayBlockingQueue<Deflater> gzipPool;
+
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    public ApiCompressor() {
+        this(DEFAULT_LEVEL, DEFAULT_MIN_SIZE, DEFAULT_POOL_CAPACITY);
+    }
+
+    public ApiCompressor(int level, int minSize, int poolCapacity) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION ||
+            level > Deflater.BEST_COMPRESSION))
+        {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        if (minSize < 0) {
+            throw new IllegalArgumentException("Min size is negative");
+        }
+        if (poolCapacity < 1) {
+            throw new IllegalArgumentException("Pool capacity is less than 1");
+        }
+        this.level = level;
+        this.minSize = minSize;
+        this.deflatePool = new ArrayBlockingQueue<>(poolCapacity);
+        this.gzipPool = new ArrayBlockingQueue<>(poolCapacity);
+    }
+
+    /*
+     * The number of uncompressed bytes compressed so far.
+     */
+    public final long bytesIn() {
+        return bytesIn.sum();
+    }
+
+    /*
+     * The number of compressed bytes produced so far.
+     */
+    public final long bytesOut() {
+        return bytesOut.sum();
+    }
+
+    /*
+     * Compress the bytes remaining in the buffers, without changing their positions, with the encoding.
+     */
+    public final byte[] compress(List<ByteBuffer> buffers, String encoding) {
+        boolean gzip = encoding.equals(GZIP);
+        ArrayBlockingQueue<Deflater> pool = gzip ? gzipPool : deflatePool;
+        Deflater deflater = pool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, gzip);
+        }
+        try {
+            long inputSize = 0;
+            for (ByteBuffer buffer : buffers) {
+                inputSize += buffer.remaining();
+            }
+            // JSON typically compresses by a factor of 10
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8,
+                64 + inputSize / 8));
+            CRC32 crc = null;
+            if (gzip) {
+                out.writeBytes(GZIP_HEADER);
+                crc = new CRC32();
+            }
+            byte[] output = new byte[BUFFER_SIZE];
+            for (ByteBuffer buffer : buffers) {
+                if (crc != null) {
+                    crc.update(buffer.duplicate());
+                }
+                deflater.setInput(buffer.duplicate());
+                while (!deflater.needsInput()) {
+                    out.write(output, 0, deflater.deflate(output));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(output, 0, deflater.deflate(output));
+            }
+            if (crc != null) {
+                writeIntLE(out, crc.getValue());
+                writeIntLE(out, inputSize);
+            }
+            byte[] compressed = out.toByteArray();
+            compressedCount.increment();
+            bytesIn.add(inputSize);
+            bytesOut.add(compressed.length);
+            return compressed;
+        } finally {
+            deflater.reset();
+            if (!pool.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    public final byte[] compress(byte[] body, String encoding) {
+        return compress(List.of(ByteBuffer.wrap(body)), encoding);
+    }
+
+    /*
+     * The number of bodies compressed so far.
+     */
+    public final long compressedCount() {
+        return compressedCount.sum();
+    }
+
+    public final int level() {
+        return level;
+    }
+
+    public final int minSize() {
+        return minSize;
+    }
+
+    /*
+     * Return the encoding to use for a body of the given size, or null to send the body as it is. Of the encodings
+     * the request accepts, `gzip` is preferred unless `deflate` has a higher quality value. An encoding with a quality
+     * of zero is refused, and `*` stands for any encoding not listed.
+     */
+    public final String selectEncoding(HttpFields requestHeaders, long bodySize) {
+        if (bodySize < minSize) {
+            return null;
+        }
+        double gzipQuality = -1;
+        double deflateQuality = -1;
+        double anyQuality = -1;
+        for (HttpField field : requestHeaders) {
+            if (field.getHeader() != HttpHeader.ACCEPT_ENCODING) {
+                continue;
+            }
+            for (String element : field.getValues()) {
+                int semicolon = element.indexOf(';');
+                String coding = (semicolon == -1 ? element : element.substring(0, semicolon)).trim();
+                double quality = semicolon == -1 ? 1.0 : toQuality(element.substring(semicolon + 1));
+                if (coding.equalsIgnoreCase(GZIP) || coding.equalsIgnoreCase("x-gzip")) {
+                    gzipQuality = Math.max(gzipQuality, quality);
+                } else if (coding.equalsIgnoreCase(DEFLATE)) {
+                    deflateQuality = Math.max(deflateQuality, quality);
+                } else if (coding.equals("*")) {
+                    anyQuality = Math.max(anyQuality, quality);
+                }
+            }
+        }
+        if (gzipQuality < 0) {
+            gzipQuality = anyQuality;
+        }
+        if (deflateQuality < 0) {
+            deflateQuality = anyQuality;
+        }
+        if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+            return GZIP;
+        }
+        if (deflateQuality > 0) {
+            return DEFLATE;
+        }
+        return null;
+    }
+
+    /*
+     * Parse the parameters that follow a content coding, such as " q=0.5", and return the quality value.
+     */
+    private static double toQuality(String params) {
+        for (String param : params.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.length() > 2 && (trimmed.charAt(0) == 'q' || trimmed.charAt(0) == 'Q') &&
+                trimmed.charAt(1) == '=')
+            {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException exc) {
+                    return 0;
+                }
+            }
+        }
+        return 1.0;
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, long value) {
+        out.write((int) value);
+        out.write((int) (value >> 8));
+        out.write((int) (value >> 16));
+        out.write((int) (value >> 24));
+    }
+
+}
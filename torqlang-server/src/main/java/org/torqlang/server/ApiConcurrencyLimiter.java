@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.torqlang.local.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * An ApiConcurrencyLimiter bounds the number of requests a route has in flight, so that overload is answered with a
+ * fast 503 Service Unavailable instead of unbounded mailbox growth. A route opts in with `ApiRoute.withLimiter`, and
+ * several routes may share one limiter to bound them together.
+ *
+ * A request is admitted when fewer than `limit()` requests are in flight. Otherwise, it waits in a bounded FIFO queue
+ * and is admitted when a request completes. When the queue is full, the request is rejected, and ApiHandler answers
+ * with a 503 and a `Retry-After` header.
+ *
+ * The limit is either static or adaptive. An adaptive limit follows AIMD (additive increase, multiplicative decrease)
+ * on observed latency: a request that completes within the latency threshold raises the limit by `1 / limit`, roughly
+ * one per limit's worth of requests, and a request that exceeds the threshold or times out lowers the limit by the
+ * backoff ratio. The limit is raised only while at least half of it is in use, so an idle route does not accumulate
+ * headroom it has never exercised. The limit stays between the minimum and maximum limits.
+ *
+ * Latency is measured from admission to response, so time spent in the queue is not part of the latency signal.
+ */
+public final class ApiConcurrencyLimiter {
+
+    public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+    public static final int DEFAULT_LIMIT = 64;
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 0;
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final int maxQueueSize;
+    private final int retryAfterSeconds;
+
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private final LongAdder admittedCount = new LongAdder();
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private double limit;
+    private int inFlightCount;
+
+    ApiConcurrencyLimiter(int limit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio,
+                          int maxQueueSize, int retryAfterSeconds)
+    {
+        if (minLimit < 1 || limit < minLimit || maxLimit < limit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= limit <= maxLimit");
+        }
+        if (backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("Max queue size is negative");
+        }
+        this.limit = limit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.maxQueueSize = maxQueueSize;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public static ApiConcurrencyLimiterBuilder builder() {
+        return new ApiConcurrencyLimiterBuilder();
+    }
+
+    /*
+     * Run the task now if a request can be admitted, or later if the task can be queued, and return true. Return false
+     * if the task is rejected. An admitted task must eventually call `release` or `cancel`.
+     */
+    final boolean acquire(Runnable task) {
+        synchronized (this) {
+            if (inFlightCount >= (int) limit) {
+                if (queue.size() >= maxQueueSize) {
+                    rejectedCount.increment();
+                    return false;
+                }
+                queue.add(task);
+                queuedCount.increment();
+                return true;
+            }
+            inFlightCount++;
+        }
+        admittedCount.increment();
+        task.run();
+        return true;
+    }
+
+    /*
+     * Publish this limiter in the registry as `api.limiter.<name>.*`. The name is usually the path of the route that
+     * uses the limiter. The limit, in-flight count, and queue size are gauges, and the rest are counters.
+     */
+    public final void addMetrics(Metrics metrics, String name) {
+        String prefix = "api.limiter." + name;
+        metrics.addGauge(prefix + ".limit", this::limit);
+        metrics.addGauge(prefix + ".in_flight", this::inFlightCount);
+        metrics.addGauge(prefix + ".queue_size", this::queueSize);
+        metrics.addGauge(prefix + ".admitted", this::admittedCount);
+        metrics.addGauge(prefix + ".queued", this::queuedCount);
+        metrics.addGauge(prefix + ".rejected", this::rejectedCount);
+    }
+
+    public final long admittedCount() {
+        return admittedCount.sum();
+    }
+
+    /*
+     * Release a permit whose request never reached the route target, such as a request with an invalid body. The
+     * limit is not adjusted.
+     */
+    final void cancel() {
+        synchronized (this) {
+            inFlightCount--;
+        }
+        runQueued();
+    }
+
+    public final synchronized int inFlightCount() {
+        return inFlightCount;
+    }
+
+    public final boolean isAdaptive() {
+        return minLimit != maxLimit;
+    }
+
+    public final long latencyThresholdNanos() {
+        return latencyThresholdNanos;
+    }
+
+    public final synchronized int limit() {
+        return (int) limit;
+    }
+
+    public final long queuedCount() {
+        return queuedCount.sum();
+    }
+
+    public final synchronized int queueSize() {
+        return queue.size();
+    }
+
+    public final long rejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /*
+     * Release a permit and adjust an adaptive limit with the request's latency. A dropped request, such as one that
+     * timed out, always lowers the limit.
+     */
+    final void release(long latencyNanos, boolean dropped) {
+        synchronized (this) {
+            if (isAdaptive()) {
+                if (dropped || latencyNanos > latencyThresholdNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                } else if (inFlightCount * 2 >= (int) limit) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            inFlightCount--;
+        }
+        runQueued();
+    }
+
+    public final int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /*
+     * Admit queued tasks while there is room. Tasks run on the releasing thread, outside the lock.
+     */
+    private void runQueued() {
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                if (queue.isEmpty() || inFlightCount >= (int) limit) {
+                    return;
+                }
+                next = queue.poll();
+                inFlightCount++;
+            }
+            admittedCount.increment();
+            next.run();
+        }
+    }
+
+    @Override
+    public final String toString() {
+        synchronized (this) {
+            return "ApiConcurrencyLimiter{limit=" + (int) limit + ", inFlight=" + inFlightCount +
+                ", queued=" + queue.size() + ", rejected=" + rejectedCount.sum() + "}";
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import java.util.concurrent.TimeUnit;
+
+public final class ApiConcurrencyLimiterBuilder {
+
+    private int limit = ApiConcurrencyLimiter.DEFAULT_LIMIT;
+    private int minLimit;
+    private int maxLimit;
+    private long latencyThresholdNanos;
+    private double backoffRatio = ApiConcurrencyLimiter.DEFAULT_BACKOFF_RATIO;
+    private int maxQueueSize = ApiConcurrencyLimiter.DEFAULT_MAX_QUEUE_SIZE;
+    private int retryAfterSeconds = ApiConcurrencyLimiter.DEFAULT_RETRY_AFTER_SECONDS;
+
+    ApiConcurrencyLimiterBuilder() {
+    }
+
+    public ApiConcurrencyLimiter build() {
+        if (latencyThresholdNanos == 0) {
+            return new ApiConcurrencyLimiter(limit, limit, limit, 0, backoffRatio, maxQueueSize, retryAfterSeconds);
+        }
+        return new ApiConcurrencyLimiter(limit, minLimit, maxLimit, latencyThresholdNanos, backoffRatio, maxQueueSize,
+            retryAfterSeconds);
+    }
+
+    /*
+     * Adapt the limit between `minLimit` and `maxLimit`, starting from the limit, by comparing the latency of each
+     * request with the threshold.
+     */
+    public final ApiConcurrencyLimiterBuilder setAdaptiveLimit(int minLimit, int maxLimit, long latencyThreshold,
+                                                               TimeUnit unit)
+    {
+        if (latencyThreshold <= 0) {
+            throw new IllegalArgumentException("Latency threshold is not positive");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+        return this;
+    }
+
+    public final ApiConcurrencyLimiterBuilder setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+        return this;
+    }
+
+    /*
+     * Set the static limit, or the initial limit if the limit is adaptive.
+     */
+    public final ApiConcurrencyLimiterBuilder setLimit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public final ApiConcurrencyLimiterBuilder setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
+    public final ApiConcurrencyLimiterBuilder setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+}
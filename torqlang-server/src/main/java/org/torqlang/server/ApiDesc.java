@@ -9,6 +9,8 @@ package org.torqlang.server;
 
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.Fields;
 import org.torqlang.klvm.Complete;
 import org.torqlang.klvm.CompleteRec;
@@ -17,9 +19,23 @@ import org.torqlang.local.RecDesc;
 import org.torqlang.local.TupleDesc;
 import org.torqlang.local.ValueDesc;
 
+import java.util.List;
+
 /*
  * An API description bundles several value descriptions with behavior for transforming HTTP text to and from kernel
  * values.
+ *
+ * A route may declare the header names and query names it consumes. Only declared fields are converted to kernel
+ * values, and an empty declaration skips the conversion altogether. A null declaration, the default, converts every
+ * field the request carries.
+ *
+ * A route may also set an ApiResponseCache, in which case ApiHandler answers repeated GET requests from the cache, and
+ * an ApiRequestCoalescer, in which case identical concurrent GET requests share one request to the route target.
+ *
+ * A route that sets an ApiStreamFormat streams its response. Its target answers a request with batches of elements,
+ * each a tuple sent with `respond`, followed by `eof#{'more': Bool}`, and ApiHandler writes each batch as it arrives.
+ * The output description describes the elements as an ArrayDesc, the same as it would for an unstreamed tuple of them.
+ * Streamed responses are neither cached nor coalesced.
  */
 public interface ApiDesc {
 
@@ -27,6 +43,8 @@ public interface ApiDesc {
         return new ApiDescBuilder();
     }
 
+    List<String> headerNames();
+
     ValueDesc inputDesc();
 
     ValueDesc outputDesc();
@@ -35,17 +53,34 @@ public interface ApiDesc {
 
     RecDesc queryDesc();
 
+    List<String> queryNames();
+
+    ApiRequestCoalescer requestCoalescer();
+
+    ApiResponseCache responseCache();
+
+    ApiStreamFormat streamFormat();
+
     CompleteRec toContextRec(Request request);
 
     CompleteRec toHeadersRec(HttpFields headerFields);
 
     CompleteTuple toPathTuple(ApiPath path);
 
+    CompleteTuple toPathTuple(ApiRouteMatch match);
+
     CompleteRec toQueryRec(Fields queryFields);
 
     CompleteRec toRequestRec(String method, CompleteTuple pathTuple, CompleteRec headersRec, CompleteRec queryRec,
                              CompleteRec contextRec, String requestText);
 
+    CompleteRec toRequestRec(String method, CompleteTuple pathTuple, CompleteRec headersRec, CompleteRec queryRec,
+                             CompleteRec contextRec, Complete bodyValue);
+
+    byte[] toResponseBodyBytes(Complete responseRec);
+
     String toResponseBodyText(Complete responseRec);
 
+    void writeResponseBody(Response response, Complete responseRec, Callback callback);
+
 }
@@ -11,6 +11,8 @@ import org.torqlang.local.RecDesc;
 import org.torqlang.local.TupleDesc;
 import org.torqlang.local.ValueDesc;
 
+import java.util.List;
+
 public final class ApiDescBuilder {
 
     private TupleDesc pathDesc;
@@ -18,12 +20,22 @@ public final class ApiDescBuilder {
     private ValueDesc inputDesc;
     private ValueDesc outputDesc;
     private ContextProvider contextProvider;
+    private List<String> headerNames;
+    private List<String> queryNames;
+    private ApiRequestCoalescer requestCoalescer;
+    private ApiResponseCache responseCache;
+    private ApiStreamFormat streamFormat;
 
     public final ApiDescBuilder setContextProvider(ContextProvider contextProvider) {
         this.contextProvider = contextProvider;
         return this;
     }
 
+    public final ApiDescBuilder setHeaderNames(List<String> headerNames) {
+        this.headerNames = headerNames;
+        return this;
+    }
+
     public final ApiDescBuilder setInputDesc(ValueDesc inputDesc) {
         this.inputDesc = inputDesc;
         return this;
@@ -44,8 +56,29 @@ public final class ApiDescBuilder {
         return this;
     }
 
+    public final ApiDescBuilder setQueryNames(List<String> queryNames) {
+        this.queryNames = queryNames;
+        return this;
+    }
+
+    public final ApiDescBuilder setRequestCoalescer(ApiRequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+        return this;
+    }
+
+    public final ApiDescBuilder setResponseCache(ApiResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public final ApiDescBuilder setStreamFormat(ApiStreamFormat streamFormat) {
+        this.streamFormat = streamFormat;
+        return this;
+    }
+
     public ApiDesc build() {
-        return new DefaultApiDesc(pathDesc, queryDesc, inputDesc, outputDesc, contextProvider);
+        return new DefaultApiDesc(pathDesc, queryDesc, inputDesc, outputDesc, contextProvider, headerNames,
+            queryNames, requestCoalescer, responseCache, streamFormat);
     }
 
 }
@@ -7,21 +7,29 @@
 
 package org.torqlang.server;
 
+import jdk.jfr.EventType;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.io.RetainableByteBuffer;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.Fields;
 import org.torqlang.klvm.*;
 import org.torqlang.local.*;
 import org.torqlang.server.ApiTarget.ApiTargetImage;
 import org.torqlang.server.ApiTarget.ApiTargetRef;
 
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class ApiHandler extends Handler.Abstract.NonBlocking {
 
@@ -30,66 +38,251 @@ public final class ApiHandler extends Handler.Abstract.NonBlocking {
 
     private static final String RESPONSE_ADDRESS_PREFIX = "ApiHandler.ResponseAddress";
 
+    public static final long DEFAULT_MAX_BODY_SIZE = 16 * 1024 * 1024;
+    static final int MAX_PENDING_BATCHES = 256;
+
     private final ActorSystem system;
     private final ApiRouter router;
+    private final long maxBodySize;
+    private final ApiCompressor compressor;
 
     public ApiHandler(ActorSystem system, ApiRouter router) {
+        this(system, router, DEFAULT_MAX_BODY_SIZE);
+    }
+
+    public ApiHandler(ActorSystem system, ApiRouter router, long maxBodySize) {
+        this(system, router, maxBodySize, null);
+    }
+
+    public ApiHandler(ActorSystem system, ApiRouter router, long maxBodySize, ApiCompressor compressor) {
+        if (maxBodySize < 0) {
+            throw new IllegalArgumentException("Max body size is negative");
+        }
         this.system = system;
         this.router = router;
+        this.maxBodySize = maxBodySize;
+        this.compressor = compressor;
+    }
+
+    /*
+     * Return a started event, or null if the event is disabled so that callers pay only a null check. The event class
+     * is not touched until a recording has initialized Flight Recorder (see FlightEvents).
+     */
+    private static ApiRequestEvent beginEvent(String method, String path) {
+        if (!FlightEvents.isRecorderInitialized() || !RequestEventType.TYPE.isEnabled()) {
+            return null;
+        }
+        ApiRequestEvent event = new ApiRequestEvent();
+        event.method = method;
+        event.path = path;
+        event.begin();
+        return event;
     }
 
     public static ApiHandlerBuilder builder() {
         return new ApiHandlerBuilder();
     }
 
+    private static void commitEvent(ApiRequestEvent event, int status) {
+        if (event != null) {
+            event.status = status;
+            event.commit();
+        }
+    }
+
     @Override
     public final boolean handle(final Request request, final Response response, final Callback callback) {
-        // This method simply sends a request message. However, if a text body can be present, we must first
-        // retrieve the text asynchronously.
+        // This method simply sends a request message. However, if a body can be present, we must first read and
+        // parse it asynchronously.
         final String method = request.getMethod();
         final String pathInContext = URLDecoder.decode(Request.getPathInContext(request), StandardCharsets.UTF_8);
-        final ApiPath path = new ApiPath(pathInContext);
-        final ApiRoute route = router.findRoute(path);
-        if (route == null) {
+        final ApiRequestEvent event = beginEvent(method, pathInContext);
+        final ApiRouteMatch match = router.findMatch(pathInContext);
+        if (match == null) {
             Response.writeError(request, response, callback, HttpStatus.NOT_FOUND_404);
+            commitEvent(event, HttpStatus.NOT_FOUND_404);
             return true;
         }
-        final CompleteTuple pathTuple = route.desc.toPathTuple(path);
+        final ApiRoute route = match.route();
+        // The deadline is fixed on arrival so that reading the request body counts against the route timeout
+        final long deadlineNanos = route.hasTimeout() ? System.nanoTime() + route.timeoutNanos : Envelope.NO_DEADLINE;
+        final CompleteTuple pathTuple = route.desc.toPathTuple(match);
         final CompleteRec headersRec = route.desc.toHeadersRec(request.getHeaders());
-        final CompleteRec queryRec = route.desc.toQueryRec(Request.extractQueryParameters(request));
+        // Skip parsing the query string when the route declares that it consumes no query fields
+        final List<String> queryNames = route.desc.queryNames();
+        final CompleteRec queryRec = route.desc.toQueryRec(queryNames != null && queryNames.isEmpty()
+            ? Fields.EMPTY : Request.extractQueryParameters(request));
         final CompleteRec contextRec = route.desc.toContextRec(request);
-        if (method.equals(HttpMethod.GET.name())) {
-            sendRequestMessage(request, response, callback, route, headersRec, method, pathTuple, queryRec,
-                contextRec, null);
-        } else {
-            Content.Source.asStringAsync(request, StandardCharsets.UTF_8)
-                .thenAccept((requestText -> sendRequestMessage(request, response, callback, route, headersRec, method, pathTuple,
-                    queryRec, contextRec, requestText)));
+        if (method.equals(HttpMethod.GET.name()) && route.desc.streamFormat() != null) {
+            // Streamed responses are neither cached nor coalesced
+            if (route.limiter == null) {
+                startStream(request, response, callback, route, headersRec, method, pathTuple, queryRec, contextRec,
+                    null, deadlineNanos, event, System.nanoTime());
+            } else if (!route.limiter.acquire(() -> startStream(request, response, callback, route, headersRec,
+                method, pathTuple, queryRec, contextRec, null, deadlineNanos, event, System.nanoTime())))
+            {
+                writeOverloaded(response, callback, route);
+                commitEvent(event, HttpStatus.SERVICE_UNAVAILABLE_503);
+            }
+        } else if (method.equals(HttpMethod.GET.name())) {
+            ApiResponseCache cache = route.desc.responseCache();
+            ApiRequestCoalescer coalescer = route.desc.requestCoalescer();
+            ApiRequestKey key = null;
+            long cacheGeneration = 0;
+            if (cache != null || coalescer != null) {
+                key = new ApiRequestKey(route, pathTuple, queryRec, headersRec, contextRec);
+            }
+            if (cache != null) {
+                cacheGeneration = cache.generation();
+                ApiResponseCache.Entry entry = cache.get(key);
+                if (entry != null) {
+                    if (event != null) {
+                        event.cacheHit = true;
+                    }
+                    writeCacheEntry(request, response, callback, cache, entry, compressor);
+                    commitEvent(event, response.getStatus());
+                    return true;
+                }
+            }
+            final ResponseAdapter responseAdapter = new ResponseAdapter(request, response, callback, route, event,
+                cache != null ? key : null, cacheGeneration, compressor);
+            ActorRef requester = responseAdapter;
+            if (coalescer != null) {
+                requester = coalescer.join(key, responseAdapter);
+                if (requester == null) {
+                    // An identical request is in flight and its response will be written to this request too
+                    if (event != null) {
+                        event.coalesced = true;
+                    }
+                    return true;
+                }
+            }
+            final ActorRef leader = requester;
+            if (route.limiter == null) {
+                sendRequestMessage(request, response, callback, route, headersRec, method, pathTuple, queryRec,
+                    contextRec, null, deadlineNanos, event, leader);
+            } else if (!route.limiter.acquire(() -> {
+                responseAdapter.admit(System.nanoTime());
+                sendRequestMessage(request, response, callback, route, headersRec, method, pathTuple, queryRec,
+                    contextRec, null, deadlineNanos, event, leader);
+            })) {
+                if (leader == responseAdapter) {
+                    writeOverloaded(response, callback, route);
+                    commitEvent(event, HttpStatus.SERVICE_UNAVAILABLE_503);
+                } else {
+                    // Fail every request coalesced onto the rejected request, not just this one
+                    FailedValue failedValue = FailedValue.create(leader.address().toString(),
+                        new ApiOverloadError(route.path));
+                    leader.send(Envelope.createResponse(failedValue, Null.SINGLETON));
+                }
+            }
+        } else if (request.getLength() > maxBodySize) {
+            writeError(request, response, callback, HttpStatus.PAYLOAD_TOO_LARGE_413, null, event);
+        } else if (route.limiter == null) {
+            new BodyReader(request, response, callback, route, headersRec, method, pathTuple, queryRec, contextRec,
+                deadlineNanos, event).run();
+        } else if (!route.limiter.acquire(() -> new BodyReader(request, response, callback, route, headersRec, method,
+            pathTuple, queryRec, contextRec, deadlineNanos, event).run()))
+        {
+            writeOverloaded(response, callback, route);
+            commitEvent(event, HttpStatus.SERVICE_UNAVAILABLE_503);
         }
         return true;
     }
 
+    /*
+     * The compressor for JSON response bodies, or null if responses are not compressed.
+     */
+    public final ApiCompressor compressor() {
+        return compressor;
+    }
+
+    /*
+     * Return true if the failed value, or a failed value that caused it, has a native cause of the given class.
+     */
+    private static boolean hasNativeCause(FailedValue failedValue, Class<? extends Throwable> causeClass) {
+        while (failedValue != null) {
+            if (causeClass.isInstance(failedValue.nativeCause())) {
+                return true;
+            }
+            failedValue = failedValue.torqCause();
+        }
+        return false;
+    }
+
+    public final long maxBodySize() {
+        return maxBodySize;
+    }
+
     public final ApiRouter router() {
         return router;
     }
 
     private void sendRequestMessage(Request request, Response response, Callback callback, ApiRoute route,
                                     CompleteRec headersRec, String method, CompleteTuple pathTuple,
-                                    CompleteRec queryRec, CompleteRec contextRec, String requestText)
+                                    CompleteRec queryRec, CompleteRec contextRec, Complete bodyValue,
+                                    long deadlineNanos, ApiRequestEvent event, ActorRef requester)
     {
         try {
-            ActorRef actorRef;
+            CompleteRec requestRec = route.desc.toRequestRec(method, pathTuple, headersRec, queryRec,
+                contextRec, bodyValue);
+            Envelope requestEnvelope = Envelope.createRequest(requestRec, requester, Null.SINGLETON,
+                deadlineNanos);
             if (route.target instanceof ApiTargetImage targetImage) {
-                actorRef = Actor.spawn(targetImage.address, targetImage.value());
+                if (event != null) {
+                    event.target = targetImage.address.toString();
+                }
+                // Spawn a ready actor with the request as its first message
+                Actor.spawn(targetImage.address, targetImage.value(), requestEnvelope);
             } else {
-                actorRef = ((ApiTargetRef) route.target).actorRef;
+                ActorRef actorRef = ((ApiTargetRef) route.target).actorRef;
+                if (event != null) {
+                    event.target = actorRef.address().toString();
+                }
+                actorRef.send(requestEnvelope);
+            }
+        } catch (Exception exc) {
+            if (requester instanceof ResponseAdapter responseAdapter) {
+                responseAdapter.cancelPermit();
+                Response.writeError(request, response, callback, exc);
+                commitEvent(event, HttpStatus.INTERNAL_SERVER_ERROR_500);
+            } else {
+                // Fail every request waiting on the flight, not just this one
+                FailedValue failedValue = FailedValue.create(requester.address().toString(), exc);
+                requester.send(Envelope.createResponse(failedValue, Null.SINGLETON));
             }
+        }
+    }
+
+    /*
+     * Send the first request of a streamed response. An image target is spawned for this stream alone, and the
+     * requests for further batches are sent to the spawned actor.
+     */
+    private static void startStream(Request request, Response response, Callback callback, ApiRoute route,
+                                    CompleteRec headersRec, String method, CompleteTuple pathTuple,
+                                    CompleteRec queryRec, CompleteRec contextRec, Complete bodyValue,
+                                    long deadlineNanos, ApiRequestEvent event, long admittedNanos)
+    {
+        try {
             CompleteRec requestRec = route.desc.toRequestRec(method, pathTuple, headersRec, queryRec,
-                contextRec, requestText);
-            ActorRef responseAdapter = new ResponseAdapter(request, response, callback, route);
-            actorRef.send(Envelope.createRequest(requestRec, responseAdapter, Null.SINGLETON));
+                contextRec, bodyValue);
+            ActorRef publisher;
+            if (route.target instanceof ApiTargetImage targetImage) {
+                publisher = Actor.spawn(targetImage.address, targetImage.value());
+            } else {
+                publisher = ((ApiTargetRef) route.target).actorRef;
+            }
+            if (event != null) {
+                event.target = publisher.address().toString();
+            }
+            new StreamAdapter(request, response, callback, route, event, admittedNanos)
+                .start(publisher, requestRec, deadlineNanos);
         } catch (Exception exc) {
+            if (route.limiter != null) {
+                route.limiter.cancel();
+            }
             Response.writeError(request, response, callback, exc);
+            commitEvent(event, HttpStatus.INTERNAL_SERVER_ERROR_500);
         }
     }
 
@@ -97,19 +290,245 @@ public final class ApiHandler extends Handler.Abstract.NonBlocking {
         return system;
     }
 
+    /*
+     * Answer with a 304 Not Modified if the request already holds the entity, otherwise with the cached body. A
+     * compressed representation has its own entity tag, and its bytes are compressed once and kept with the entry.
+     */
+    private static void writeCacheEntry(Request request, Response response, Callback callback,
+                                        ApiResponseCache cache, ApiResponseCache.Entry entry,
+                                        ApiCompressor compressor)
+    {
+        String encoding = null;
+        String etag = entry.etag;
+        if (compressor != null) {
+            response.getHeaders().put(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+            encoding = compressor.selectEncoding(request.getHeaders(), entry.body.length);
+            if (encoding != null) {
+                etag = ApiResponseCache.encodedEtag(entry.etag, encoding);
+            }
+        }
+        response.getHeaders().put(HttpHeader.ETAG, etag);
+        if (ApiResponseCache.matchesIfNoneMatch(request.getHeaders(), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED_304);
+            response.write(true, BufferUtil.EMPTY_BUFFER, callback);
+        } else {
+            byte[] body = entry.body;
+            if (encoding != null) {
+                body = cache.compressedBody(entry, encoding, compressor);
+                response.getHeaders().put(HttpHeader.CONTENT_ENCODING, encoding);
+            }
+            response.setStatus(HttpStatus.OK_200);
+            response.getHeaders().put(HttpHeader.CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8);
+            response.getHeaders().put(HttpHeader.CONTENT_LENGTH, body.length);
+            response.write(true, ByteBuffer.wrap(body), callback);
+        }
+    }
+
+    /*
+     * Encode the value, and write it compressed if the request accepts a compressed body and the body is at least the
+     * compressor's minimum size. Otherwise, write the encoded chunks as they are.
+     */
+    private static void writeCompressibleBody(Request request, Response response, Callback callback, ApiRoute route,
+                                              Complete value, ApiCompressor compressor)
+    {
+        response.getHeaders().put(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+        List<RetainableByteBuffer> chunks = new JsonResponseWriter(request.getComponents().getByteBufferPool())
+            .encode(value, route.desc.outputDesc());
+        List<ByteBuffer> buffers = new ArrayList<>(chunks.size());
+        long bodySize = 0;
+        for (RetainableByteBuffer chunk : chunks) {
+            buffers.add(chunk.getByteBuffer());
+            bodySize += chunk.remaining();
+        }
+        String encoding = compressor.selectEncoding(request.getHeaders(), bodySize);
+        if (encoding == null) {
+            JsonResponseWriter.writeChunks(response, chunks, true, callback);
+            return;
+        }
+        byte[] compressed;
+        try {
+            compressed = compressor.compress(buffers, encoding);
+        } finally {
+            for (RetainableByteBuffer chunk : chunks) {
+                chunk.release();
+            }
+        }
+        response.getHeaders().put(HttpHeader.CONTENT_ENCODING, encoding);
+        response.getHeaders().put(HttpHeader.CONTENT_LENGTH, compressed.length);
+        response.write(true, ByteBuffer.wrap(compressed), callback);
+    }
+
+    /*
+     * Answer with the status for a failed value. Return true if the request was dropped because its deadline passed.
+     */
+    private static boolean writeFailedValue(Response response, Callback callback, ApiRoute route,
+                                            FailedValue failedValue)
+    {
+        if (hasNativeCause(failedValue, ApiOverloadError.class)) {
+            writeOverloaded(response, callback, route);
+            return false;
+        }
+        boolean dropped = hasNativeCause(failedValue, RequestTimeoutError.class);
+        response.setStatus(dropped ? HttpStatus.GATEWAY_TIMEOUT_504 : 500);
+        response.getHeaders().put(HttpHeader.CONTENT_TYPE, TEXT_PLAIN_CHARSET_UTF_8);
+        Content.Sink.write(response, true, failedValue.toDetailsString(), callback);
+        return dropped;
+    }
+
+    private static void writeOverloaded(Response response, Callback callback, ApiRoute route) {
+        int retryAfterSeconds = route.limiter != null ? route.limiter.retryAfterSeconds()
+            : ApiConcurrencyLimiter.DEFAULT_RETRY_AFTER_SECONDS;
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE_503);
+        response.getHeaders().put(HttpHeader.RETRY_AFTER, retryAfterSeconds);
+        response.getHeaders().put(HttpHeader.CONTENT_TYPE, TEXT_PLAIN_CHARSET_UTF_8);
+        Content.Sink.write(response, true, ApiOverloadError.API_OVERLOAD, callback);
+    }
+
+    private static void writeError(Request request, Response response, Callback callback, int status, String message,
+                                   ApiRequestEvent event)
+    {
+        Response.writeError(request, response, callback, status, message);
+        commitEvent(event, status);
+    }
+
+    /*
+     * A BodyReader reads the request content chunk by chunk and feeds each chunk to a JsonKernelParser before
+     * releasing it, so that the body is never held as text. When the last chunk is parsed, it sends the request
+     * message. A body larger than `maxBodySize` is rejected as soon as it is known to be too large, and a body that is
+     * not valid JSON, or that nests deeper than JsonKernelParser.DEFAULT_MAX_DEPTH, is rejected as a bad request.
+     *
+     * When the route has a limiter, the reader is created once the request is admitted, and a rejected body releases
+     * its permit without affecting the limit.
+     */
+    private final class BodyReader implements Runnable {
+        private final Request request;
+        private final Response response;
+        private final Callback callback;
+        private final ApiRoute route;
+        private final CompleteRec headersRec;
+        private final String method;
+        private final CompleteTuple pathTuple;
+        private final CompleteRec queryRec;
+        private final CompleteRec contextRec;
+        private final long deadlineNanos;
+        private final ApiRequestEvent event;
+        private final JsonKernelParser parser;
+        private final long admittedNanos = System.nanoTime();
+        private long bodySize;
+
+        private BodyReader(Request request, Response response, Callback callback, ApiRoute route,
+                           CompleteRec headersRec, String method, CompleteTuple pathTuple, CompleteRec queryRec,
+                           CompleteRec contextRec, long deadlineNanos, ApiRequestEvent event)
+        {
+            this.request = request;
+            this.response = response;
+            this.callback = callback;
+            this.route = route;
+            this.headersRec = headersRec;
+            this.method = method;
+            this.pathTuple = pathTuple;
+            this.queryRec = queryRec;
+            this.contextRec = contextRec;
+            this.deadlineNanos = deadlineNanos;
+            this.event = event;
+            this.parser = new JsonKernelParser(route.desc.inputDesc());
+        }
+
+        private void cancelPermit() {
+            if (route.limiter != null) {
+                route.limiter.cancel();
+            }
+        }
+
+        @Override
+        public final void run() {
+            while (true) {
+                Content.Chunk chunk = request.read();
+                if (chunk == null) {
+                    request.demand(this);
+                    return;
+                }
+                if (Content.Chunk.isFailure(chunk)) {
+                    cancelPermit();
+                    Response.writeError(request, response, callback, chunk.getFailure());
+                    commitEvent(event, HttpStatus.INTERNAL_SERVER_ERROR_500);
+                    return;
+                }
+                boolean last = chunk.isLast();
+                try {
+                    bodySize += chunk.remaining();
+                    if (bodySize > maxBodySize) {
+                        cancelPermit();
+                        writeError(request, response, callback, HttpStatus.PAYLOAD_TOO_LARGE_413, null, event);
+                        return;
+                    }
+                    parser.feed(chunk.getByteBuffer());
+                } catch (RuntimeException exc) {
+                    // The body is not valid JSON or does not match the input description
+                    cancelPermit();
+                    writeError(request, response, callback, HttpStatus.BAD_REQUEST_400, exc.getMessage(), event);
+                    return;
+                } finally {
+                    chunk.release();
+                }
+                if (last) {
+                    Complete bodyValue;
+                    try {
+                        bodyValue = parser.isBlank() ? Null.SINGLETON : parser.finish();
+                    } catch (RuntimeException exc) {
+                        cancelPermit();
+                        writeError(request, response, callback, HttpStatus.BAD_REQUEST_400, exc.getMessage(), event);
+                        return;
+                    }
+                    if (route.desc.streamFormat() != null) {
+                        startStream(request, response, callback, route, headersRec, method, pathTuple, queryRec,
+                            contextRec, bodyValue, deadlineNanos, event, admittedNanos);
+                        return;
+                    }
+                    ResponseAdapter responseAdapter = new ResponseAdapter(request, response, callback, route, event,
+                        null, 0, compressor);
+                    if (route.limiter != null) {
+                        responseAdapter.admit(admittedNanos);
+                    }
+                    sendRequestMessage(request, response, callback, route, headersRec, method, pathTuple, queryRec,
+                        contextRec, bodyValue, deadlineNanos, event, responseAdapter);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class RequestEventType {
+        private static final EventType TYPE = EventType.getEventType(ApiRequestEvent.class);
+    }
+
     private static class ResponseAdapter implements ActorRef {
         private final Address address;
         private final Request request;
         private final Response response;
         private final Callback callback;
         private final ApiRoute route;
+        private final ApiRequestEvent event;
+        private final ApiRequestKey cacheKey;
+        private final long cacheGeneration;
+        private final ApiCompressor compressor;
+        // Only the adapter of the request admitted by the route's limiter holds a permit
+        private volatile boolean holdsPermit;
+        private long admittedNanos;
 
-        private ResponseAdapter(Request request, Response response, Callback callback, ApiRoute route) {
+        private ResponseAdapter(Request request, Response response, Callback callback, ApiRoute route,
+                                ApiRequestEvent event, ApiRequestKey cacheKey, long cacheGeneration,
+                                ApiCompressor compressor)
+        {
             address = Address.create(RESPONSE_ADDRESS_PREFIX + "." + request.getId());
             this.request = request;
             this.response = response;
             this.callback = callback;
             this.route = route;
+            this.event = event;
+            this.cacheKey = cacheKey;
+            this.cacheGeneration = cacheGeneration;
+            this.compressor = compressor;
         }
 
         @Override
@@ -117,8 +536,21 @@ public final class ApiHandler extends Handler.Abstract.NonBlocking {
             return address;
         }
 
+        private void admit(long admittedNanos) {
+            this.admittedNanos = admittedNanos;
+            holdsPermit = true;
+        }
+
+        private void cancelPermit() {
+            if (holdsPermit) {
+                holdsPermit = false;
+                route.limiter.cancel();
+            }
+        }
+
         @Override
         public void send(Envelope envelope) {
+            boolean dropped = false;
             try {
                 Complete message = (Complete) envelope.message();
                 if (!envelope.isResponse()) {
@@ -126,18 +558,242 @@ public final class ApiHandler extends Handler.Abstract.NonBlocking {
                     response.getHeaders().put(HttpHeader.CONTENT_TYPE, TEXT_PLAIN_CHARSET_UTF_8);
                     Content.Sink.write(response, true, "Not a response: " + envelope, callback);
                 } else if (message instanceof FailedValue failedValue) {
-                    response.setStatus(500);
-                    response.getHeaders().put(HttpHeader.CONTENT_TYPE, TEXT_PLAIN_CHARSET_UTF_8);
-                    Content.Sink.write(response, true, failedValue.toDetailsString(), callback);
+                    dropped = writeFailedValue(response, callback, route, failedValue);
+                } else if (cacheKey != null) {
+                    // Requests coalesced into one flight reuse the entry stored by the first of them
+                    ApiResponseCache cache = route.desc.responseCache();
+                    ApiResponseCache.Entry entry = cache.get(cacheKey);
+                    if (entry == null) {
+                        byte[] body = route.desc.toResponseBodyBytes(message);
+                        entry = cache.put(cacheKey, body, cacheGeneration);
+                    }
+                    writeCacheEntry(request, response, callback, cache, entry, compressor);
                 } else {
-                    String bodyText = route.desc.toResponseBodyText(message);
                     response.setStatus(200);
                     response.getHeaders().put(HttpHeader.CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8);
-                    Content.Sink.write(response, true, bodyText, callback);
+                    if (compressor != null) {
+                        writeCompressibleBody(request, response, callback, route, message, compressor);
+                    } else {
+                        route.desc.writeResponseBody(response, message, callback);
+                    }
                 }
             } catch (Exception exc) {
                 Response.writeError(request, response, callback, exc);
             }
+            commitEvent(event, response.getStatus());
+            if (holdsPermit) {
+                holdsPermit = false;
+                route.limiter.release(System.nanoTime() - admittedNanos, dropped);
+            }
+        }
+    }
+
+    /*
+     * A StreamAdapter writes a streamed response one batch at a time, and each batch is written as soon as the
+     * previous write completes. Encoded chunks are released as they are written, so at most one encoded batch is held
+     * in memory. A response that is not a tuple is written as a single element.
+     *
+     * A target may send every batch in answer to one request and end with `eof#{'more': false}`. This suits stateless
+     * handlers, such as images and pooled actors. Alternatively, a publisher may answer each request with one batch
+     * and `eof#{'more': true}`, in which case the next request is sent only after the previous batch is written. A
+     * client that reads slowly then holds back the publisher through HTTP flow control. A publisher keeps the position
+     * of its stream in its own state, so it must be a route target reference that serves one stream at a time. The
+     * route timeout bounds each request, not the whole stream, so every further request gets a fresh deadline.
+     *
+     * A target that sends every batch at once cannot be held back. Its batches are queued while a write is pending, and
+     * a stream that queues more than MAX_PENDING_BATCHES is failed, because its client is reading too slowly. A
+     * publisher that streams more data than fits in memory should answer one batch per request instead.
+     *
+     * A failure before the first batch is answered like an unstreamed failure. A failure after the first batch can no
+     * longer change the status, so the response is aborted, and the client sees an incomplete body. When the client
+     * goes away, no further batch is requested.
+     *
+     * A stream holds its limiter permit until it ends, but the latency reported to the limiter is the time to the
+     * first batch, because the length of a stream depends on its size and on how fast the client reads it.
+     */
+    private static final class StreamAdapter implements ActorRef {
+        private static final ByteBuffer EMPTY_ARRAY_END = ByteBuffer.wrap("[]".getBytes(StandardCharsets.US_ASCII));
+        private static final ByteBuffer ARRAY_END = ByteBuffer.wrap("]".getBytes(StandardCharsets.US_ASCII));
+
+        private final Address address;
+        private final Request request;
+        private final Response response;
+        private final Callback callback;
+        private final ApiRoute route;
+        private final ApiRequestEvent event;
+        private final ApiStreamFormat format;
+        private final ValueDesc elementDesc;
+        private final long admittedNanos;
+        private final ArrayDeque<Envelope> pending = new ArrayDeque<>();
+        private final Callback batchCallback = Callback.from(this::processPending, this::onWriteFailure);
+        private ActorRef publisher;
+        private CompleteRec requestRec;
+        private boolean processing;
+        private boolean overflowed;
+        // The following fields are accessed by one envelope at a time
+        private long firstBatchNanos;
+        private boolean committed;
+        private boolean elementWritten;
+        private volatile boolean done;
+
+        private StreamAdapter(Request request, Response response, Callback callback, ApiRoute route,
+                              ApiRequestEvent event, long admittedNanos)
+        {
+            address = Address.create(RESPONSE_ADDRESS_PREFIX + "." + request.getId());
+            this.request = request;
+            this.response = response;
+            this.callback = callback;
+            this.route = route;
+            this.event = event;
+            this.format = route.desc.streamFormat();
+            this.elementDesc = route.desc.outputDesc() instanceof ArrayDesc arrayDesc ? arrayDesc.componentSpec() : null;
+            this.admittedNanos = admittedNanos;
+        }
+
+        @Override
+        public final Address address() {
+            return address;
+        }
+
+        private void commitHeaders() {
+            if (!committed) {
+                committed = true;
+                response.setStatus(HttpStatus.OK_200);
+                response.getHeaders().put(HttpHeader.CONTENT_TYPE, format.contentType);
+            }
+        }
+
+        private void complete(int status, boolean dropped) {
+            done = true;
+            commitEvent(event, status);
+            if (route.limiter != null) {
+                long latencyNanos = (firstBatchNanos != 0 ? firstBatchNanos : System.nanoTime()) - admittedNanos;
+                route.limiter.release(latencyNanos, dropped);
+            }
+        }
+
+        private void fail(Throwable cause, boolean dropped) {
+            if (committed) {
+                callback.failed(cause);
+            } else {
+                Response.writeError(request, response, callback, cause);
+            }
+            complete(HttpStatus.INTERNAL_SERVER_ERROR_500, dropped);
+        }
+
+        private void onWriteFailure(Throwable cause) {
+            callback.failed(cause);
+            complete(response.getStatus(), false);
+        }
+
+        /*
+         * Process one envelope. Return true if a batch write is pending, in which case the write callback resumes
+         * processing.
+         */
+        private boolean process(Envelope envelope) {
+            if (!envelope.isResponse()) {
+                fail(new IllegalStateException("Not a response: " + envelope), false);
+                return false;
+            }
+            Complete message = (Complete) envelope.message();
+            if (message instanceof FailedValue failedValue) {
+                if (committed) {
+                    boolean dropped = hasNativeCause(failedValue, RequestTimeoutError.class);
+                    fail(new IllegalStateException(failedValue.toDetailsString()), dropped);
+                } else {
+                    boolean dropped = writeFailedValue(response, callback, route, failedValue);
+                    complete(response.getStatus(), dropped);
+                }
+                return false;
+            }
+            if (message instanceof CompleteRec rec && rec.label().equals(Eof.SINGLETON)) {
+                if (((Bool) rec.valueAt(0)).value) {
+                    long deadlineNanos = route.hasTimeout() ? System.nanoTime() + route.timeoutNanos
+                        : Envelope.NO_DEADLINE;
+                    publisher.send(Envelope.createRequest(requestRec, this, Null.SINGLETON, deadlineNanos));
+                } else {
+                    commitHeaders();
+                    if (format == ApiStreamFormat.JSON_ARRAY) {
+                        response.write(true, (elementWritten ? ARRAY_END : EMPTY_ARRAY_END).slice(), callback);
+                    } else {
+                        response.write(true, BufferUtil.EMPTY_BUFFER, callback);
+                    }
+                    complete(HttpStatus.OK_200, false);
+                }
+                return false;
+            }
+            CompleteTuple batch = message instanceof CompleteTuple tuple ? tuple
+                : Rec.completeTupleBuilder().addValue(message).build();
+            if (batch.fieldCount() == 0) {
+                return false;
+            }
+            if (firstBatchNanos == 0) {
+                firstBatchNanos = System.nanoTime();
+            }
+            List<RetainableByteBuffer> chunks;
+            try {
+                chunks = new JsonResponseWriter(request.getComponents().getByteBufferPool())
+                    .encodeElements(batch, elementDesc, format, !elementWritten);
+            } catch (Exception exc) {
+                fail(exc, false);
+                return false;
+            }
+            elementWritten = true;
+            commitHeaders();
+            JsonResponseWriter.writeChunks(response, chunks, false, batchCallback);
+            return true;
+        }
+
+        private void processPending() {
+            while (true) {
+                Envelope next;
+                synchronized (this) {
+                    if (overflowed && !done) {
+                        next = null;
+                    } else {
+                        next = done ? null : pending.poll();
+                        if (next == null) {
+                            processing = false;
+                            return;
+                        }
+                    }
+                }
+                if (next == null) {
+                    fail(new IllegalStateException("Client is too slow, more than " + MAX_PENDING_BATCHES +
+                        " batches are pending"), false);
+                    return;
+                }
+                if (process(next)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public final void send(Envelope envelope) {
+            synchronized (this) {
+                if (done || overflowed) {
+                    return;
+                }
+                if (pending.size() == MAX_PENDING_BATCHES) {
+                    // Release the queued batches now, and fail the stream once the pending write completes
+                    overflowed = true;
+                    pending.clear();
+                } else {
+                    pending.add(envelope);
+                }
+                if (processing) {
+                    return;
+                }
+                processing = true;
+            }
+            processPending();
+        }
+
+        private void start(ActorRef publisher, CompleteRec requestRec, long deadlineNanos) {
+            this.publisher = publisher;
+            this.requestRec = requestRec;
+            publisher.send(Envelope.createRequest(requestRec, this, Null.SINGLETON, deadlineNanos));
         }
     }
 
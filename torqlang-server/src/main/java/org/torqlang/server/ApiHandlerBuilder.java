@@ -13,12 +13,24 @@ public final class ApiHandlerBuilder {
 
     private ActorSystem system;
     private ApiRouter router;
+    private long maxBodySize = ApiHandler.DEFAULT_MAX_BODY_SIZE;
+    private ApiCompressor compressor;
 
     ApiHandlerBuilder() {
     }
 
     public ApiHandler build() {
-        return new ApiHandler(system, router);
+        return new ApiHandler(system, router, maxBodySize, compressor);
+    }
+
+    public final ApiHandlerBuilder setCompressor(ApiCompressor compressor) {
+        this.compressor = compressor;
+        return this;
+    }
+
+    public final ApiHandlerBuilder setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+        return this;
     }
 
     public final ApiHandlerBuilder setRouter(ApiRouter router) {
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.torqlang.klvm.MachineError;
+
+/*
+ * An ApiOverloadError is the failure given to requests coalesced onto a request that its route's
+ * ApiConcurrencyLimiter rejected. ApiHandler answers it with a 503 Service Unavailable.
+ */
+public class ApiOverloadError extends MachineError {
+    public static final String API_OVERLOAD = "API overload";
+    public final ApiPath path;
+
+    public ApiOverloadError(ApiPath path) {
+        super(API_OVERLOAD + ": /" + String.join("/", path.segs));
+        this.path = path;
+    }
+}
@@ -29,6 +29,13 @@ public final class ApiPath implements Comparable<ApiPath> {
         }
     }
 
+    /*
+     * Create a path from segments that are already split and validated, such as those matched by TrieApiRouter.
+     */
+    ApiPath(List<String> segs) {
+        this.segs = segs;
+    }
+
     private static int compareSeg(String seg, String targetSeg) {
         if (isWildcard(seg)) {
             return 0;
@@ -39,7 +46,7 @@ public final class ApiPath implements Comparable<ApiPath> {
         return seg.compareTo(targetSeg);
     }
 
-    private static boolean isWildcard(String seg) {
+    static boolean isWildcard(String seg) {
         char firstChar = seg.charAt(0);
         if (firstChar == '{') {
             char lastChar = seg.charAt(seg.length() - 1);
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.torqlang.local.ActorRef;
+import org.torqlang.local.Address;
+import org.torqlang.local.Envelope;
+import org.torqlang.local.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * An ApiRequestCoalescer attaches identical concurrent GET requests to one in-flight request (single-flight). A route
+ * opts in by setting a coalescer on its ApiDesc, and several routes may share one coalescer.
+ *
+ * The first request for an ApiRequestKey becomes the leader of a flight and is sent to the route target with the
+ * flight as its requester. Identical requests that arrive before the response join the flight instead of being sent.
+ * When the response arrives, the flight is removed and the response is fanned out to every waiting requester in
+ * arrival order. A request that arrives after the response starts a new flight, so a coalesced response is never
+ * older than the request it answers.
+ *
+ * The shared request carries the leader's deadline. Joined requests therefore share the leader's outcome, including
+ * a 504 when the leader's deadline passes.
+ *
+ * `coalescingRatio()` is the fraction of requests that joined a flight instead of sending a message.
+ */
+public final class ApiRequestCoalescer {
+
+    private static final Address FLIGHT_ADDRESS = Address.create("ApiRequestCoalescer.Flight");
+
+    private final ConcurrentHashMap<ApiRequestKey, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder flightCount = new LongAdder();
+    private final LongAdder joinCount = new LongAdder();
+
+    /*
+     * Publish this coalescer in the registry as `api.coalescer.<name>.*`, next to the limiters of its routes. Metrics
+     * values are integers, so the coalescing ratio is published as a whole percentage.
+     */
+    public final void addMetrics(Metrics metrics, String name) {
+        String prefix = "api.coalescer." + name;
+        metrics.addGauge(prefix + ".in_flight", this::inFlightCount);
+        metrics.addGauge(prefix + ".flights", this::flightCount);
+        metrics.addGauge(prefix + ".joins", this::joinCount);
+        metrics.addGauge(prefix + ".coalescing_ratio_percent", () -> Math.round(coalescingRatio() * 100));
+    }
+
+    public final double coalescingRatio() {
+        long joins = joinCount.sum();
+        long total = joins + flightCount.sum();
+        return total == 0 ? 0.0 : (double) joins / total;
+    }
+
+    /*
+     * The number of requests that started a flight and were sent to a route target.
+     */
+    public final long flightCount() {
+        return flightCount.sum();
+    }
+
+    public final int inFlightCount() {
+        return flights.size();
+    }
+
+    /*
+     * The number of requests that joined a flight and were not sent.
+     */
+    public final long joinCount() {
+        return joinCount.sum();
+    }
+
+    /*
+     * Attach the requester to the flight for the key. Return the flight if the requester leads it, in which case the
+     * caller must send the request with the flight as its requester. Otherwise, return null because the requester will
+     * receive the response of a request already sent.
+     */
+    final ActorRef join(ApiRequestKey key, ActorRef requester) {
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight == null) {
+                Flight created = new Flight(key, requester);
+                flight = flights.putIfAbsent(key, created);
+                if (flight == null) {
+                    flightCount.increment();
+                    return created;
+                }
+            }
+            if (flight.add(requester)) {
+                joinCount.increment();
+                return null;
+            }
+            // The flight completed between get and add, so start or join the next one
+        }
+    }
+
+    private final class Flight implements ActorRef {
+        private final ApiRequestKey key;
+        private List<ActorRef> requesters = new ArrayList<>(4);
+
+        private Flight(ApiRequestKey key, ActorRef leader) {
+            this.key = key;
+            requesters.add(leader);
+        }
+
+        private synchronized boolean add(ActorRef requester) {
+            if (requesters == null) {
+                return false;
+            }
+            requesters.add(requester);
+            return true;
+        }
+
+        @Override
+        public final Address address() {
+            return FLIGHT_ADDRESS;
+        }
+
+        @Override
+        public final void send(Envelope envelope) {
+            flights.remove(key, this);
+            List<ActorRef> waiting;
+            synchronized (this) {
+                waiting = requesters;
+                requesters = null;
+            }
+            if (waiting == null) {
+                return;
+            }
+            for (ActorRef requester : waiting) {
+                requester.send(envelope);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import jdk.jfr.*;
+
+/*
+ * A Flight Recorder event emitted when ApiHandler completes an HTTP request. The event duration is the time from
+ * routing the request to writing the response. Disabled by default, and ApiHandler does not touch this class until a
+ * recording has initialized Flight Recorder (see org.torqlang.local.FlightEvents).
+ */
+@Name("org.torqlang.ApiRequest")
+@Label("API Request")
+@Category({"Torq", "Server"})
+@Description("ApiHandler handled an HTTP request")
+@Enabled(false)
+@StackTrace(false)
+public final class ApiRequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Target")
+    @Description("The address of the actor that handled the request")
+    String target;
+
+    @Label("Status")
+    int status;
+
+    @Label("Cache Hit")
+    @Description("The response was answered from the route's ApiResponseCache without sending a message")
+    boolean cacheHit;
+
+    @Label("Coalesced")
+    @Description("The request joined an identical in-flight request instead of sending a message")
+    boolean coalesced;
+
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.torqlang.klvm.CompleteRec;
+import org.torqlang.klvm.CompleteTuple;
+
+/*
+ * An ApiRequestKey identifies a GET request by its route and the kernel values ApiHandler passes to the route target.
+ * Kernel records compare by value, so two requests that convert to the same values have equal keys regardless of the
+ * order of their query parameters. Routes are compared by identity.
+ */
+record ApiRequestKey(ApiRoute route, CompleteTuple pathTuple, CompleteRec queryRec, CompleteRec headersRec,
+                     CompleteRec contextRec)
+{
+}
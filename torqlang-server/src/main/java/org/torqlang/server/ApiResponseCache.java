@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * An ApiResponseCache holds encoded GET responses so that ApiHandler can answer repeated requests without sending a
+ * message to the route target. A route opts in by setting a cache on its ApiDesc, and several routes may share one
+ * cache.
+ *
+ * Entries are keyed by ApiRequestKey. Routes should declare the headers they consume (see ApiDesc), otherwise every
+ * distinct header, such as a user agent, creates another entry.
+ *
+ * Each entry holds a strong ETag derived from the response bytes, which ApiHandler uses to answer `If-None-Match`
+ * with 304 Not Modified. Entries expire after a time-to-live, and the least recently used entries are evicted when
+ * the total body size exceeds the maximum size.
+ *
+ * When ApiHandler compresses a cached body, the compressed bytes are kept with the entry, so that a hot response is
+ * compressed once for each encoding. Compressed bytes count toward the maximum size.
+ *
+ * Writers call `invalidate(ApiRoute)` or `invalidateAll()` after changing the data behind a response. A response
+ * computed before an invalidation but completed after it is never stored, because `put` compares the generation
+ * observed when the request arrived with the current generation.
+ */
+public final class ApiResponseCache {
+
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    private static final HexFormat HEX_FORMAT = HexFormat.of();
+    private static final int ETAG_BYTE_COUNT = 16;
+
+    private final long maxSize;
+    private final long timeToLiveNanos;
+    private final LinkedHashMap<ApiRequestKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long generation;
+    private long size;
+
+    public ApiResponseCache(long timeToLive, TimeUnit unit) {
+        this(DEFAULT_MAX_SIZE, timeToLive, unit);
+    }
+
+    public ApiResponseCache(long maxSize, long timeToLive, TimeUnit unit) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Max size is negative");
+        }
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("Time-to-live is not positive");
+        }
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    /*
+     * Return a strong entity tag for the body, the first 128 bits of its SHA-256 digest as a quoted hex string.
+     */
+    static String computeEtag(byte[] body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exc) {
+            throw new IllegalStateException(exc);
+        }
+        byte[] hash = digest.digest(body);
+        return '"' + HEX_FORMAT.formatHex(hash, 0, ETAG_BYTE_COUNT) + '"';
+    }
+
+    /*
+     * Return true if an `If-None-Match` header lists the entity tag or is `*`. As required for `If-None-Match`, tags
+     * are compared weakly, so a `W/` prefix is ignored.
+     */
+    static boolean matchesIfNoneMatch(HttpFields headerFields, String etag) {
+        for (HttpField field : headerFields) {
+            if (field.getHeader() != HttpHeader.IF_NONE_MATCH) {
+                continue;
+            }
+            String value = field.getValue();
+            int start = 0;
+            while (start < value.length()) {
+                int end = value.indexOf(',', start);
+                if (end == -1) {
+                    end = value.length();
+                }
+                String tag = value.substring(start, end).trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+                start = end + 1;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Return the entry's body compressed with the encoding. The body is compressed outside the lock the first time it
+     * is requested with an encoding, and the compressed bytes are kept if the entry is still stored.
+     */
+    final byte[] compressedBody(Entry entry, String encoding, ApiCompressor compressor) {
+        synchronized (this) {
+            byte[] found = entry.compressedBody(encoding);
+            if (found != null) {
+                return found;
+            }
+        }
+        byte[] compressed = compressor.compress(entry.body, encoding);
+        synchronized (this) {
+            byte[] found = entry.compressedBody(encoding);
+            if (found != null) {
+                return found;
+            }
+            if (entry.stored) {
+                entry.setCompressedBody(encoding, compressed);
+                size += compressed.length;
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (size > maxSize) {
+                    evict(iterator.next());
+                    iterator.remove();
+                }
+            }
+        }
+        return compressed;
+    }
+
+    /*
+     * Return the entity tag of a compressed representation, which differs from the tag of the uncompressed body.
+     */
+    static String encodedEtag(String etag, String encoding) {
+        return etag.substring(0, etag.length() - 1) + '-' + encoding + '"';
+    }
+
+    public final synchronized int entryCount() {
+        return entries.size();
+    }
+
+    private void evict(Entry entry) {
+        size -= entry.size();
+        entry.stored = false;
+    }
+
+    /*
+     * Return the entry for the key, or null if there is none or it has expired.
+     */
+    final synchronized Entry get(ApiRequestKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.storedAtNanos >= timeToLiveNanos) {
+            entries.remove(key);
+            evict(entry);
+            return null;
+        }
+        return entry;
+    }
+
+    final synchronized long generation() {
+        return generation;
+    }
+
+    public final synchronized void invalidate(ApiRoute route) {
+        generation++;
+        Iterator<Map.Entry<ApiRequestKey, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ApiRequestKey, Entry> next = iterator.next();
+            if (next.getKey().route() == route) {
+                evict(next.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    public final synchronized void invalidateAll() {
+        generation++;
+        for (Entry entry : entries.values()) {
+            entry.stored = false;
+        }
+        entries.clear();
+        size = 0;
+    }
+
+    public final long maxSize() {
+        return maxSize;
+    }
+
+    /*
+     * Create an entry for the body and store it unless the cache was invalidated after `observedGeneration` or the body
+     * alone exceeds the maximum size. The entry is returned either way so that the caller can respond with it.
+     */
+    final Entry put(ApiRequestKey key, byte[] body, long observedGeneration) {
+        // Hash outside the lock
+        Entry entry = new Entry(body, computeEtag(body), System.nanoTime());
+        synchronized (this) {
+            if (observedGeneration != generation || body.length > maxSize) {
+                return entry;
+            }
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                evict(previous);
+            }
+            entry.stored = true;
+            size += body.length;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (size > maxSize) {
+                evict(iterator.next());
+                iterator.remove();
+            }
+        }
+        return entry;
+    }
+
+    public final synchronized long size() {
+        return size;
+    }
+
+    public final long timeToLiveNanos() {
+        return timeToLiveNanos;
+    }
+
+    /*
+     * The mutable fields of an entry are guarded by the cache.
+     */
+    static final class Entry {
+        final byte[] body;
+        final String etag;
+        final long storedAtNanos;
+        private byte[] deflateBody;
+        private byte[] gzipBody;
+        private boolean stored;
+
+        Entry(byte[] body, String etag, long storedAtNanos) {
+            this.body = body;
+            this.etag = etag;
+            this.storedAtNanos = storedAtNanos;
+        }
+
+        private byte[] compressedBody(String encoding) {
+            return encoding.equals(ApiCompressor.GZIP) ? gzipBody : deflateBody;
+        }
+
+        private void setCompressedBody(String encoding, byte[] compressed) {
+            if (encoding.equals(ApiCompressor.GZIP)) {
+                gzipBody = compressed;
+            } else {
+                deflateBody = compressed;
+            }
+        }
+
+        private long size() {
+            long size = body.length;
+            if (deflateBody != null) {
+                size += deflateBody.length;
+            }
+            if (gzipBody != null) {
+                size += gzipBody.length;
+            }
+            return size;
+        }
+    }
+
+}
@@ -11,16 +11,46 @@ import org.torqlang.local.ActorImage;
 import org.torqlang.local.ActorRef;
 import org.torqlang.local.Address;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A route may specify a timeout. ApiHandler converts the timeout into an absolute deadline when a request arrives, and
+ * the deadline travels with the request message and the requests sent on its behalf. Actors shed requests whose
+ * deadline has passed by answering them with a RequestTimeoutError, which ApiHandler returns as a 504.
+ *
+ * A route may also specify an ApiConcurrencyLimiter, which bounds the requests the route has in flight. ApiHandler
+ * returns a 503 with `Retry-After` for requests the limiter rejects.
+ */
 public final class ApiRoute {
 
+    public static final long NO_TIMEOUT = 0;
+
     public final ApiPath path;
     public final ApiTarget target;
     public final ApiDesc desc;
+    public final long timeoutNanos;
+    public final List<ApiPathParam> params;
+    public final ApiConcurrencyLimiter limiter;
 
     public ApiRoute(ApiPath path, ApiTarget target, ApiDesc desc) {
+        this(path, target, desc, NO_TIMEOUT);
+    }
+
+    public ApiRoute(ApiPath path, ApiTarget target, ApiDesc desc, long timeoutNanos) {
+        this(path, target, desc, timeoutNanos, null);
+    }
+
+    public ApiRoute(ApiPath path, ApiTarget target, ApiDesc desc, long timeoutNanos, ApiConcurrencyLimiter limiter) {
+        if (timeoutNanos < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
         this.path = path;
         this.target = target;
         this.desc = desc;
+        this.timeoutNanos = timeoutNanos;
+        this.params = List.copyOf(path.extractParams());
+        this.limiter = limiter;
     }
 
     public ApiRoute(ApiPath path, ActorImage actorImage, ApiDesc desc) {
@@ -39,4 +69,16 @@ public final class ApiRoute {
         return Address.create(String.join("/", path.segs));
     }
 
+    public final boolean hasTimeout() {
+        return timeoutNanos != NO_TIMEOUT;
+    }
+
+    public final ApiRoute withLimiter(ApiConcurrencyLimiter limiter) {
+        return new ApiRoute(path, target, desc, timeoutNanos, limiter);
+    }
+
+    public final ApiRoute withTimeout(long timeout, TimeUnit unit) {
+        return new ApiRoute(path, target, desc, unit.toNanos(timeout), limiter);
+    }
+
 }
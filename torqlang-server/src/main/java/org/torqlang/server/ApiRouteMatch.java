@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * An ApiRouteMatch is the route found for a request path along with the segments of that path. A router that matches
+ * the raw path directly records the segment bounds as it matches, and the segments are only extracted when they are
+ * requested. Path parameters are the segments at the positions of the route's `{param}` wildcards.
+ */
+public final class ApiRouteMatch {
+
+    private final ApiRoute route;
+    private final String rawPath;
+    private final int[] bounds;
+    private final int segCount;
+    private ApiPath path;
+
+    ApiRouteMatch(ApiRoute route, ApiPath path) {
+        this.route = route;
+        this.rawPath = null;
+        this.bounds = null;
+        this.segCount = path.segs.size();
+        this.path = path;
+    }
+
+    /*
+     * The segment `i` of the raw path begins at `bounds[i * 2]` and ends at `bounds[i * 2 + 1]`.
+     */
+    ApiRouteMatch(ApiRoute route, String rawPath, int[] bounds, int segCount) {
+        this.route = route;
+        this.rawPath = rawPath;
+        this.bounds = bounds;
+        this.segCount = segCount;
+    }
+
+    /*
+     * Return the value of the named path parameter, or null if the route does not declare the parameter.
+     */
+    public final String param(String name) {
+        for (ApiPathParam param : route.params) {
+            if (param.name().equals(name)) {
+                return seg(param.pos());
+            }
+        }
+        return null;
+    }
+
+    public final ApiPath path() {
+        if (path == null) {
+            List<String> segs = new ArrayList<>(segCount);
+            for (int i = 0; i < segCount; i++) {
+                segs.add(seg(i));
+            }
+            path = new ApiPath(segs);
+        }
+        return path;
+    }
+
+    public final ApiRoute route() {
+        return route;
+    }
+
+    public final String seg(int i) {
+        if (i < 0 || i >= segCount) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        if (path != null) {
+            return path.segs.get(i);
+        }
+        return rawPath.substring(bounds[i * 2], bounds[i * 2 + 1]);
+    }
+
+    public final int segCount() {
+        return segCount;
+    }
+
+}
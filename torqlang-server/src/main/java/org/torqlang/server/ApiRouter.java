@@ -13,5 +13,19 @@ public interface ApiRouter {
         return new StaticApiRouterBuilder();
     }
 
+    static TrieApiRouterBuilder trieBuilder() {
+        return new TrieApiRouterBuilder();
+    }
+
+    /**
+     * Find the route for a decoded request path, such as "/orders/10248", or return null if no route matches. A
+     * router may match the raw path directly. By default, the path is parsed and passed to `findRoute(ApiPath)`.
+     */
+    default ApiRouteMatch findMatch(String path) {
+        ApiPath apiPath = new ApiPath(path);
+        ApiRoute route = findRoute(apiPath);
+        return route == null ? null : new ApiRouteMatch(route, apiPath);
+    }
+
     ApiRoute findRoute(ApiPath path);
 }
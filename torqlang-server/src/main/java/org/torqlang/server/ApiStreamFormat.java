@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+/*
+ * The body format of a streamed response. NDJSON writes each element as one line of JSON. JSON_ARRAY writes the
+ * elements as one JSON array, which is the same body an unstreamed route answers with a tuple of the elements.
+ */
+public enum ApiStreamFormat {
+
+    JSON_ARRAY("application/json; charset=utf-8"),
+    NDJSON("application/x-ndjson");
+
+    public final String contentType;
+
+    ApiStreamFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+}
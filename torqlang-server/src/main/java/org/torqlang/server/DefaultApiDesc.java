@@ -10,34 +10,79 @@ package org.torqlang.server;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.Fields;
 import org.torqlang.klvm.*;
-import org.torqlang.lang.JsonFormatter;
-import org.torqlang.lang.JsonParser;
+import org.torqlang.local.JsonKernelParser;
 import org.torqlang.local.RecDesc;
 import org.torqlang.local.TupleDesc;
 import org.torqlang.local.ValueDesc;
 import org.torqlang.local.ValueTools;
 
+import java.util.List;
+
 final class DefaultApiDesc implements ApiDesc {
 
+    private static final CompleteRec EMPTY_REC = Rec.completeRecBuilder().build();
+
     private final ValueDesc inputDesc;
     private final ValueDesc outputDesc;
     private final TupleDesc pathDesc;
     private final RecDesc queryDesc;
     private final ContextProvider contextProvider;
+    private final List<String> headerNames;
+    private final List<String> queryNames;
+    private final ApiRequestCoalescer requestCoalescer;
+    private final ApiResponseCache responseCache;
+    private final ApiStreamFormat streamFormat;
+
+    /*
+     * Header and query features are created once per route instead of once per request. A null array means the
+     * route consumes every field the request carries.
+     */
+    private final Str[] headerFeatures;
+    private final Str[] queryFeatures;
 
     DefaultApiDesc(TupleDesc pathDesc,
                    RecDesc queryDesc,
                    ValueDesc inputDesc,
                    ValueDesc outputDesc,
-                   ContextProvider contextProvider)
+                   ContextProvider contextProvider,
+                   List<String> headerNames,
+                   List<String> queryNames,
+                   ApiRequestCoalescer requestCoalescer,
+                   ApiResponseCache responseCache,
+                   ApiStreamFormat streamFormat)
     {
         this.pathDesc = pathDesc;
         this.queryDesc = queryDesc;
         this.inputDesc = inputDesc;
         this.outputDesc = outputDesc;
         this.contextProvider = contextProvider;
+        this.headerNames = headerNames != null ? List.copyOf(headerNames) : null;
+        this.queryNames = queryNames != null ? List.copyOf(queryNames) : null;
+        this.requestCoalescer = requestCoalescer;
+        this.responseCache = responseCache;
+        this.streamFormat = streamFormat;
+        this.headerFeatures = toFeatures(this.headerNames);
+        this.queryFeatures = toFeatures(this.queryNames);
+    }
+
+    private static Str[] toFeatures(List<String> names) {
+        if (names == null) {
+            return null;
+        }
+        Str[] features = new Str[names.size()];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = Str.of(names.get(i));
+        }
+        return features;
+    }
+
+    @Override
+    public final List<String> headerNames() {
+        return headerNames;
     }
 
     @Override
@@ -60,6 +105,26 @@ final class DefaultApiDesc implements ApiDesc {
         return queryDesc;
     }
 
+    @Override
+    public final List<String> queryNames() {
+        return queryNames;
+    }
+
+    @Override
+    public final ApiRequestCoalescer requestCoalescer() {
+        return requestCoalescer;
+    }
+
+    @Override
+    public final ApiResponseCache responseCache() {
+        return responseCache;
+    }
+
+    @Override
+    public final ApiStreamFormat streamFormat() {
+        return streamFormat;
+    }
+
     @Override
     public final CompleteRec toContextRec(Request request) {
         return contextProvider.apply(request);
@@ -67,9 +132,26 @@ final class DefaultApiDesc implements ApiDesc {
 
     @Override
     public final CompleteRec toHeadersRec(HttpFields headerFields) {
+        if (headerFeatures == null) {
+            CompleteRecBuilder headersRecBuilder = Rec.completeRecBuilder();
+            for (HttpField f : headerFields) {
+                headersRecBuilder.addField(Str.of(f.getName()), Str.of(f.getValue()));
+            }
+            return headersRecBuilder.build();
+        }
+        if (headerFeatures.length == 0) {
+            return EMPTY_REC;
+        }
+        // Header names are case-insensitive, but declared headers always appear under their declared names. Repeated
+        // headers are combined into one comma-separated value.
         CompleteRecBuilder headersRecBuilder = Rec.completeRecBuilder();
-        for (HttpField f : headerFields) {
-            headersRecBuilder.addField(Str.of(f.getName()), Str.of(f.getValue()));
+        for (Str feature : headerFeatures) {
+            List<String> values = headerFields.getValuesList(feature.value);
+            if (values.size() == 1) {
+                headersRecBuilder.addField(feature, Str.of(values.get(0)));
+            } else if (values.size() > 1) {
+                headersRecBuilder.addField(feature, Str.of(String.join(", ", values)));
+            }
         }
         return headersRecBuilder.build();
     }
@@ -92,63 +174,115 @@ final class DefaultApiDesc implements ApiDesc {
         return tupleBuilder.build();
     }
 
+    /*
+     * Build the path tuple without splitting the path. A literal segment of the route matched the request exactly, so
+     * it is read from the route template, and only the segments at the parameter positions are read from the match.
+     */
+    @Override
+    public final CompleteTuple toPathTuple(ApiRouteMatch match) {
+        if (pathDesc == null) {
+            throw new IllegalArgumentException("Path description is null");
+        }
+        List<String> templateSegs = match.route().path.segs;
+        if (templateSegs.size() != pathDesc.descs().size()) {
+            throw new IllegalArgumentException("Path size does not equal path description size");
+        }
+        CompleteTupleBuilder tupleBuilder = Rec.completeTupleBuilder();
+        for (int i = 0; i < templateSegs.size(); i++) {
+            String templateSeg = templateSegs.get(i);
+            String seg = ApiPath.isWildcard(templateSeg) ? match.seg(i) : templateSeg;
+            tupleBuilder.addValue(
+                ValueTools.toKernelValue(seg, pathDesc.descs().get(i))
+            );
+        }
+        return tupleBuilder.build();
+    }
+
     @Override
     public final CompleteRec toQueryRec(Fields queryFields) {
         // Jetty will decode query parameters to UTF-8
-        CompleteRecBuilder queryRecBuilder = Rec.completeRecBuilder();
-        for (Fields.Field f : queryFields) {
-            Feature feature = Str.of(f.getName());
-            String unquotedValue = f.getValue();
-            if (unquotedValue.charAt(0) == '"') {
-                unquotedValue = unquotedValue.substring(1, unquotedValue.length() - 1);
-                unquotedValue = unquotedValue.replace("\\\"", "\"");
+        if (queryFeatures == null) {
+            CompleteRecBuilder queryRecBuilder = Rec.completeRecBuilder();
+            for (Fields.Field f : queryFields) {
+                Str feature = Str.of(f.getName());
+                queryRecBuilder.addField(feature, toQueryValue(feature, f.getValue()));
             }
-            Complete value;
-            if (queryDesc != null) {
-                // TODO: Support multiple values per query field.
-                //       The queryDesc would map to an ArrayDesc if multiple values are supported.
-                ValueDesc inputValueDesc = queryDesc.map.get(feature);
-                if (inputValueDesc != null) {
-                    value = ValueTools.toKernelValue(unquotedValue, inputValueDesc);
-                } else {
-                    value = Str.of(unquotedValue);
-                }
-            } else {
-                value = Str.of(unquotedValue);
+            return queryRecBuilder.build();
+        }
+        if (queryFeatures.length == 0) {
+            return EMPTY_REC;
+        }
+        CompleteRecBuilder queryRecBuilder = Rec.completeRecBuilder();
+        for (Str feature : queryFeatures) {
+            Fields.Field f = queryFields.get(feature.value);
+            if (f != null) {
+                queryRecBuilder.addField(feature, toQueryValue(feature, f.getValue()));
             }
-            queryRecBuilder.addField(feature, value);
         }
         return queryRecBuilder.build();
     }
 
+    private Complete toQueryValue(Str feature, String value) {
+        String unquotedValue = value;
+        if (unquotedValue.charAt(0) == '"') {
+            unquotedValue = unquotedValue.substring(1, unquotedValue.length() - 1);
+            unquotedValue = unquotedValue.replace("\\\"", "\"");
+        }
+        if (queryDesc != null) {
+            // TODO: Support multiple values per query field.
+            //       The queryDesc would map to an ArrayDesc if multiple values are supported.
+            ValueDesc inputValueDesc = queryDesc.map.get(feature);
+            if (inputValueDesc != null) {
+                return ValueTools.toKernelValue(unquotedValue, inputValueDesc);
+            }
+        }
+        return Str.of(unquotedValue);
+    }
+
     @Override
     public final CompleteRec toRequestRec(String method, CompleteTuple pathTuple, CompleteRec headersRec,
                                           CompleteRec queryRec, CompleteRec contextRec, String requestText)
     {
-        CompleteRecBuilder requestRecBuilder = Rec.completeRecBuilder()
-            .setLabel(Str.of(method))
-            .addField(Str.of("headers"), headersRec)
-            .addField(Str.of("path"), pathTuple)
-            .addField(Str.of("query"), queryRec);
+        Complete bodyValue = null;
         if (requestText != null) {
-            Complete bodyValue;
             if (requestText.isBlank()) {
                 bodyValue = Null.SINGLETON;
             } else {
-                // TODO: Optimize with a text-to-kernel instead of text-to-native-to-kernel
-                bodyValue = ValueTools.toKernelValue(new JsonParser(requestText).parse(), inputDesc);
+                bodyValue = JsonKernelParser.parse(requestText, inputDesc);
             }
+        }
+        return toRequestRec(method, pathTuple, headersRec, queryRec, contextRec, bodyValue);
+    }
+
+    @Override
+    public final CompleteRec toRequestRec(String method, CompleteTuple pathTuple, CompleteRec headersRec,
+                                          CompleteRec queryRec, CompleteRec contextRec, Complete bodyValue)
+    {
+        CompleteRecBuilder requestRecBuilder = Rec.completeRecBuilder()
+            .setLabel(Str.of(method))
+            .addField(Str.of("headers"), headersRec)
+            .addField(Str.of("path"), pathTuple)
+            .addField(Str.of("query"), queryRec);
+        if (bodyValue != null) {
             requestRecBuilder.addField(Str.of("body"), bodyValue);
         }
         requestRecBuilder.addField(Str.of("context"), contextRec);
         return requestRecBuilder.build();
     }
 
+    @Override
+    public final byte[] toResponseBodyBytes(Complete response) {
+        return JsonResponseWriter.toBytes(response, outputDesc);
+    }
+
     @Override
     public String toResponseBodyText(Complete response) {
-        // TODO: Optimize with a kernel-to-text instead of kernel-to-native-to-text
-        Object nativeResponseValue = ValueTools.toNativeValue(response);
-        return JsonFormatter.DEFAULT.format(nativeResponseValue);
+        return JsonResponseWriter.toText(response, outputDesc);
+    }
+
+    @Override
+    public final void writeResponseBody(Response response, Complete responseRec, Callback callback) {
+        JsonResponseWriter.write(response, responseRec, outputDesc, callback);
     }
 
 }
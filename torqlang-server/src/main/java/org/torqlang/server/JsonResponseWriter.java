@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.IteratingCallback;
+import org.torqlang.klvm.*;
+import org.torqlang.local.ArrayDesc;
+import org.torqlang.local.Dec128Desc;
+import org.torqlang.local.RecDesc;
+import org.torqlang.local.TupleDesc;
+import org.torqlang.local.ValueDesc;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A JsonResponseWriter encodes a complete kernel value as UTF-8 JSON directly into byte buffers acquired from a
+ * Jetty ByteBufferPool. It replaces the three copies made by converting a response to native Java objects, formatting
+ * the objects as a String, and encoding the String as UTF-8.
+ *
+ * The JSON produced is the JSON produced by JsonFormatter for `ValueTools.toNativeValue(value)`, except that fields
+ * are written in record order, a labeled record writes "$label" before "$rec", and a Char is written as a string.
+ *
+ * The value description can refine the formatting. A Dec128 described by a Dec128Desc is written in plain notation
+ * instead of scientific notation, and a Flt32 or Flt64 described by a Dec128Desc is written as an exact decimal
+ * string instead of a float with sixteen fractional digits.
+ *
+ * A response body is encoded into chunks of `chunkSize` bytes. A body that fits in one chunk is written with a single
+ * last write, which lets Jetty set the content length. A larger body is written one chunk at a time, which Jetty sends
+ * with chunked transfer encoding, and each chunk is released to the pool as soon as it is written. Encoding runs to
+ * completion before the first write so that an actor never blocks on the network. A streamed body is encoded and
+ * written one batch of elements at a time with `encodeElements` and `writeChunks`.
+ */
+public final class JsonResponseWriter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 32 * 1024;
+
+    private static final Str $REC_STR = Str.of(Rec.$REC);
+
+    private static final byte[] FALSE_BYTES = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL_BYTES = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE_BYTES = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final ByteBufferPool pool;
+    private final int chunkSize;
+    private final byte[] digits = new byte[20];
+
+    private final List<RetainableByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer buffer;
+
+    public JsonResponseWriter(ByteBufferPool pool) {
+        this(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    public JsonResponseWriter(ByteBufferPool pool, int chunkSize) {
+        if (chunkSize < 8) {
+            throw new IllegalArgumentException("Chunk size is less than 8");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    private static void release(List<RetainableByteBuffer> chunks, int from) {
+        for (int i = from; i < chunks.size(); i++) {
+            chunks.get(i).release();
+        }
+    }
+
+    /*
+     * Encode the value and write it as the complete response body. The callback completes after the last chunk is
+     * written.
+     */
+    public static void write(Response response, Complete value, ValueDesc valueDesc, Callback callback) {
+        ByteBufferPool pool = response.getRequest().getComponents().getByteBufferPool();
+        List<RetainableByteBuffer> chunks = new JsonResponseWriter(pool).encode(value, valueDesc);
+        new ChunkWriter(response, chunks, true, callback).iterate();
+    }
+
+    /*
+     * Write encoded chunks in order and release each one once it is written. The last chunk completes the response
+     * body only if `last` is true, which lets a streamed body be written one batch at a time. The callback completes
+     * after the last chunk is written.
+     */
+    public static void writeChunks(Response response, List<RetainableByteBuffer> chunks, boolean last,
+                                   Callback callback)
+    {
+        new ChunkWriter(response, chunks, last, callback).iterate();
+    }
+
+    /*
+     * Encode the value as a byte array, for callers that keep the encoded body, such as ApiResponseCache.
+     */
+    public static byte[] toBytes(Complete value, ValueDesc valueDesc) {
+        List<RetainableByteBuffer> chunks = new JsonResponseWriter(ByteBufferPool.NON_POOLING).encode(value, valueDesc);
+        int length = 0;
+        for (RetainableByteBuffer chunk : chunks) {
+            length += chunk.remaining();
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (RetainableByteBuffer chunk : chunks) {
+            int remaining = chunk.remaining();
+            chunk.getByteBuffer().get(bytes, offset, remaining);
+            offset += remaining;
+        }
+        release(chunks, 0);
+        return bytes;
+    }
+
+    /*
+     * Encode the value as a String. This is a convenience for callers that need text, such as tests and logs.
+     */
+    public static String toText(Complete value, ValueDesc valueDesc) {
+        return new String(toBytes(value, valueDesc), StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Encode the value into chunks ready to be written. The caller owns the chunks and must release them.
+     */
+    public final List<RetainableByteBuffer> encode(Complete value, ValueDesc valueDesc) {
+        try {
+            writeValue(value, valueDesc);
+        } catch (RuntimeException exc) {
+            discardChunks();
+            throw exc;
+        }
+        return takeChunks();
+    }
+
+    /*
+     * Encode the values as elements of a streamed response body. In NDJSON, each element is followed by a newline. In
+     * a JSON array, each element is preceded by '[' if it is the first element of the body, or by ',' otherwise, and
+     * the caller ends the body with ']', or with "[]" if no element was written. The caller owns the chunks and must
+     * release them.
+     */
+    public final List<RetainableByteBuffer> encodeElements(CompleteTuple values, ValueDesc elementDesc,
+                                                          ApiStreamFormat format, boolean first)
+    {
+        try {
+            for (int i = 0; i < values.fieldCount(); i++) {
+                if (format == ApiStreamFormat.NDJSON) {
+                    writeValue(values.valueAt(i), elementDesc);
+                    put((byte) '\n');
+                } else {
+                    put(first && i == 0 ? (byte) '[' : (byte) ',');
+                    writeValue(values.valueAt(i), elementDesc);
+                }
+            }
+        } catch (RuntimeException exc) {
+            discardChunks();
+            throw exc;
+        }
+        return takeChunks();
+    }
+
+    private void discardChunks() {
+        release(chunks, 0);
+        chunks.clear();
+        buffer = null;
+    }
+
+    private void ensure(int count) {
+        if (buffer == null || buffer.remaining() < count) {
+            flushChunk();
+            RetainableByteBuffer chunk = pool.acquire(chunkSize, false);
+            chunks.add(chunk);
+            buffer = chunk.getByteBuffer();
+            // Pooled buffers are handed out in flush mode, so switch to fill mode
+            buffer.clear();
+        }
+    }
+
+    private void flushChunk() {
+        if (buffer != null) {
+            buffer.flip();
+            buffer = null;
+        }
+    }
+
+    private List<RetainableByteBuffer> takeChunks() {
+        flushChunk();
+        List<RetainableByteBuffer> answer = new ArrayList<>(chunks);
+        chunks.clear();
+        return answer;
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    private void put(byte[] bytes) {
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void writeChars(String source) {
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c < 0x80) {
+                put((byte) c);
+            } else {
+                i = writeNonAscii(source, i);
+            }
+        }
+    }
+
+    private void writeDouble(double n) {
+        // The same format as JsonFormatter
+        String s = String.format("%.16f", n);
+        int stop = s.length();
+        while (stop > 3) {
+            int next = stop - 1;
+            if (s.charAt(next) != '0' || s.charAt(next - 1) == '.') {
+                break;
+            }
+            stop = next;
+        }
+        writeChars(s.substring(0, stop));
+    }
+
+    private void writeFeature(Feature feature) {
+        if (feature instanceof Str str) {
+            writeQuoted(str.value);
+        } else if (feature instanceof Eof) {
+            writeQuoted(Eof.NATIVE_VALUE);
+        } else if (feature instanceof Int32 int32) {
+            // JSON keys are strings
+            put((byte) '"');
+            writeLong(int32.longValue());
+            put((byte) '"');
+        } else {
+            throw new IllegalArgumentException("Cannot write feature as a JSON key: " + feature);
+        }
+    }
+
+    private void writeLabel(Literal label) {
+        put((byte) '{');
+        writeQuoted(Rec.$LABEL);
+        put((byte) ':');
+        writeValue(label, null);
+        put((byte) ',');
+        writeQuoted(Rec.$REC);
+        put((byte) ':');
+    }
+
+    private void writeLong(long n) {
+        if (n == Long.MIN_VALUE) {
+            writeChars(Long.toString(n));
+            return;
+        }
+        if (n < 0) {
+            put((byte) '-');
+            n = -n;
+        }
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + (n % 10));
+            n /= 10;
+        } while (n != 0);
+        int count = digits.length - i;
+        if (count <= chunkSize) {
+            ensure(count);
+            buffer.put(digits, i, count);
+        } else {
+            for (; i < digits.length; i++) {
+                put(digits[i]);
+            }
+        }
+    }
+
+    /*
+     * Write the character at `index`, and its low surrogate if it begins a pair. Return the index of the last
+     * character consumed.
+     */
+    private int writeNonAscii(String source, int index) {
+        char c = source.charAt(index);
+        ensure(4);
+        if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && index + 1 < source.length() &&
+            Character.isLowSurrogate(source.charAt(index + 1)))
+        {
+            int cp = Character.toCodePoint(c, source.charAt(index + 1));
+            buffer.put((byte) (0xF0 | (cp >> 18)));
+            buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (cp & 0x3F)));
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            // A lone surrogate is replaced as String.getBytes(UTF_8) replaces it
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return index;
+    }
+
+    private void writeQuoted(String source) {
+        put((byte) '"');
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c >= 0x80) {
+                i = writeNonAscii(source, i);
+            } else if (c < 0x20) {
+                // The same escapes as EscapeChar
+                ensure(6);
+                buffer.put((byte) '\\');
+                switch (c) {
+                    case '\r' -> buffer.put((byte) 'r');
+                    case '\n' -> buffer.put((byte) 'n');
+                    case '\t' -> buffer.put((byte) 't');
+                    case '\f' -> buffer.put((byte) 'f');
+                    case '\b' -> buffer.put((byte) 'b');
+                    default -> {
+                        buffer.put((byte) 'u');
+                        buffer.put((byte) '0');
+                        buffer.put((byte) '0');
+                        buffer.put(HEX_DIGITS[c >> 4]);
+                        buffer.put(HEX_DIGITS[c & 0xF]);
+                    }
+                }
+            } else if (c == '"' || c == '\\') {
+                ensure(2);
+                buffer.put((byte) '\\');
+                buffer.put((byte) c);
+            } else {
+                put((byte) c);
+            }
+        }
+        put((byte) '"');
+    }
+
+    private void writeRec(CompleteRec rec, ValueDesc valueDesc) {
+        RecDesc recDesc = valueDesc instanceof RecDesc r ? r : null;
+        boolean labeled = !rec.label().equals(Rec.DEFAULT_LABEL);
+        if (labeled) {
+            writeLabel(rec.label());
+            if (recDesc != null) {
+                ValueDesc found = recDesc.map.get($REC_STR);
+                if (found instanceof RecDesc r) {
+                    recDesc = r;
+                }
+            }
+        }
+        put((byte) '{');
+        int fieldCount = rec.fieldCount();
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+                put((byte) ',');
+            }
+            Feature feature = rec.featureAt(i);
+            writeFeature(feature);
+            put((byte) ':');
+            writeValue(rec.valueAt(i), recDesc != null ? recDesc.map.get(feature) : null);
+        }
+        put((byte) '}');
+        if (labeled) {
+            put((byte) '}');
+        }
+    }
+
+    private void writeTuple(CompleteTuple tuple, ValueDesc valueDesc) {
+        boolean labeled = !tuple.label().equals(Rec.DEFAULT_LABEL);
+        if (labeled) {
+            writeLabel(tuple.label());
+            if (valueDesc instanceof RecDesc recDesc) {
+                ValueDesc found = recDesc.map.get($REC_STR);
+                if (found != null) {
+                    valueDesc = found;
+                }
+            }
+        }
+        List<ValueDesc> tupleDescs = null;
+        ValueDesc componentDesc = null;
+        if (valueDesc instanceof TupleDesc tupleDesc) {
+            tupleDescs = tupleDesc.descs();
+        } else if (valueDesc instanceof ArrayDesc arrayDesc) {
+            componentDesc = arrayDesc.componentSpec();
+        }
+        put((byte) '[');
+        int fieldCount = tuple.fieldCount();
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+                put((byte) ',');
+            }
+            ValueDesc elementDesc = componentDesc;
+            if (tupleDescs != null) {
+                elementDesc = i < tupleDescs.size() ? tupleDescs.get(i) : null;
+            }
+            writeValue(tuple.valueAt(i), elementDesc);
+        }
+        put((byte) ']');
+        if (labeled) {
+            put((byte) '}');
+        }
+    }
+
+    private void writeValue(Complete value, ValueDesc valueDesc) {
+        if (value instanceof Str str) {
+            writeQuoted(str.value);
+        } else if (value instanceof Char c) {
+            // A Char is also an Int64, but it is written as a string
+            writeQuoted(String.valueOf(c.charValue()));
+        } else if (value instanceof Int64 int64) {
+            // Int32 is also an Int64
+            writeLong(int64.longValue());
+        } else if (value instanceof CompleteTuple tuple) {
+            writeTuple(tuple, valueDesc);
+        } else if (value instanceof CompleteRec rec) {
+            writeRec(rec, valueDesc);
+        } else if (value instanceof Dec128 dec128) {
+            BigDecimal bigDecimal = dec128.toNativeValue();
+            writeQuoted(valueDesc instanceof Dec128Desc ? bigDecimal.toPlainString() : bigDecimal.toString());
+        } else if (value instanceof Bool bool) {
+            put(bool.value ? TRUE_BYTES : FALSE_BYTES);
+        } else if (value instanceof Null) {
+            put(NULL_BYTES);
+        } else if (value instanceof Flt64 || value instanceof Flt32) {
+            double n = ((Num) value).doubleValue();
+            if (valueDesc instanceof Dec128Desc) {
+                writeQuoted(Dec128.bigDecimal128(n).toPlainString());
+            } else {
+                writeDouble(n);
+            }
+        } else if (value instanceof Eof) {
+            writeQuoted(Eof.NATIVE_VALUE);
+        } else if (value instanceof Token token) {
+            writeQuoted(token.toNativeValue());
+        } else if (value instanceof CompleteObj obj && obj.toNativeValue() instanceof LocalDate localDate) {
+            writeQuoted(localDate.toString());
+        } else {
+            throw new IllegalArgumentException("Cannot write as JSON: " + value);
+        }
+    }
+
+    /*
+     * Write the chunks in order. Each write is started after the previous write completes, and each chunk is released
+     * once it is written.
+     */
+    private static final class ChunkWriter extends IteratingCallback {
+        private final Response response;
+        private final List<RetainableByteBuffer> chunks;
+        private final boolean last;
+        private final Callback callback;
+        private int index;
+
+        private ChunkWriter(Response response, List<RetainableByteBuffer> chunks, boolean last, Callback callback) {
+            this.response = response;
+            this.chunks = chunks;
+            this.last = last;
+            this.callback = callback;
+        }
+
+        @Override
+        protected final void onCompleteFailure(Throwable cause) {
+            // The chunk whose write failed has not been released
+            release(chunks, Math.max(0, index - 1));
+            callback.failed(cause);
+        }
+
+        @Override
+        protected final void onCompleteSuccess() {
+            callback.succeeded();
+        }
+
+        @Override
+        protected final Action process() {
+            if (index > 0) {
+                chunks.get(index - 1).release();
+            }
+            if (index == chunks.size()) {
+                return Action.SUCCEEDED;
+            }
+            RetainableByteBuffer chunk = chunks.get(index);
+            index++;
+            response.write(last && index == chunks.size(), chunk.getByteBuffer(), this);
+            return Action.SCHEDULED;
+        }
+    }
+
+}
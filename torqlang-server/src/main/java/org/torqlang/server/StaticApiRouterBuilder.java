@@ -13,23 +13,48 @@ import org.torqlang.local.ActorRef;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public final class StaticApiRouterBuilder {
 
     private final List<ApiRoute> routes = new ArrayList<>();
 
+    /*
+     * Add a route that is already configured, for example with `ApiRoute.withLimiter`.
+     */
+    public final StaticApiRouterBuilder addRoute(ApiRoute route) {
+        routes.add(route);
+        return this;
+    }
+
     public final StaticApiRouterBuilder addRoute(String pathExpr, ActorImage actorImage, ApiDesc desc) {
         ApiPath path = new ApiPath(pathExpr);
         routes.add(new ApiRoute(path, actorImage, desc));
         return this;
     }
 
+    public final StaticApiRouterBuilder addRoute(String pathExpr, ActorImage actorImage, ApiDesc desc,
+                                                 long timeout, TimeUnit unit)
+    {
+        ApiPath path = new ApiPath(pathExpr);
+        routes.add(new ApiRoute(path, actorImage, desc).withTimeout(timeout, unit));
+        return this;
+    }
+
     public final StaticApiRouterBuilder addRoute(String pathExpr, ActorRef actorRef, ApiDesc desc) {
         ApiPath path = new ApiPath(pathExpr);
         routes.add(new ApiRoute(path, actorRef, desc));
         return this;
     }
 
+    public final StaticApiRouterBuilder addRoute(String pathExpr, ActorRef actorRef, ApiDesc desc,
+                                                 long timeout, TimeUnit unit)
+    {
+        ApiPath path = new ApiPath(pathExpr);
+        routes.add(new ApiRoute(path, actorRef, desc).withTimeout(timeout, unit));
+        return this;
+    }
+
     public final ApiRouter build() {
         routes.sort(Comparator.comparing(a -> a.path));
         return new StaticApiRouter(routes.toArray(new ApiRoute[0]));
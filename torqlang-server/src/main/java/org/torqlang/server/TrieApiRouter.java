@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * A TrieApiRouter organizes its routes as a trie of path segments. Each node has sorted literal children and at most
+ * one wildcard child, and a node that ends a path template holds its route. Routes are found with one pass over the
+ * request path, and the segments are never split into strings while matching.
+ *
+ * Literal segments take precedence over wildcards. Given the routes "/orders/{id}" and "/orders/summary", the path
+ * "/orders/summary" finds the second route. If a literal segment leads to a dead end, matching backtracks and tries
+ * the wildcard at the same position, so "/orders/summary/lines" can still match "/orders/{id}/lines".
+ *
+ * The segment bounds are recorded while matching so that ApiRouteMatch can extract the path parameters without
+ * parsing the path again.
+ */
+final class TrieApiRouter implements ApiRouter {
+
+    private final Node root;
+    private final int maxDepth;
+
+    private TrieApiRouter(Node root, int maxDepth) {
+        this.root = root;
+        this.maxDepth = maxDepth;
+    }
+
+    static TrieApiRouter create(List<ApiRoute> routes) {
+        BuildNode buildRoot = new BuildNode();
+        int maxDepth = 0;
+        for (ApiRoute route : routes) {
+            BuildNode node = buildRoot;
+            for (String seg : route.path.segs) {
+                if (ApiPath.isWildcard(seg)) {
+                    if (node.wildcard == null) {
+                        node.wildcard = new BuildNode();
+                    }
+                    node = node.wildcard;
+                } else {
+                    node = node.literals.computeIfAbsent(seg, k -> new BuildNode());
+                }
+            }
+            if (node.route != null) {
+                throw new IllegalArgumentException("Duplicate route: " + String.join("/", route.path.segs));
+            }
+            node.route = route;
+            maxDepth = Math.max(maxDepth, route.path.segs.size());
+        }
+        return new TrieApiRouter(buildRoot.freeze(), maxDepth);
+    }
+
+    /*
+     * Compare the region of `path` from `begin` to `end` with `key` in the manner of `String.compareTo`.
+     */
+    private static int compareRegion(String path, int begin, int end, String key) {
+        int length = end - begin;
+        int limit = Math.min(length, key.length());
+        for (int i = 0; i < limit; i++) {
+            char c1 = path.charAt(begin + i);
+            char c2 = key.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length - key.length();
+    }
+
+    @Override
+    public final ApiRouteMatch findMatch(String path) {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        if (path.length() == 1) {
+            return root.route == null ? null : new ApiRouteMatch(root.route, path, null, 0);
+        }
+        int[] bounds = new int[maxDepth * 2];
+        ApiRoute route = match(root, path, 0, bounds, 0);
+        return route == null ? null : new ApiRouteMatch(route, path, bounds, route.path.segs.size());
+    }
+
+    @Override
+    public final ApiRoute findRoute(ApiPath path) {
+        return matchSegs(root, path.segs, 0);
+    }
+
+    private ApiRoute match(Node node, String path, int start, int[] bounds, int depth) {
+        if (start == path.length()) {
+            return node.route;
+        }
+        if (depth == maxDepth) {
+            return null;
+        }
+        int begin = start + 1;
+        int end = path.indexOf('/', begin);
+        if (end < 0) {
+            end = path.length();
+        }
+        if (end == begin) {
+            // Empty segments, as in "/orders//1" or "/orders/", never match
+            return null;
+        }
+        bounds[depth * 2] = begin;
+        bounds[depth * 2 + 1] = end;
+        Node literal = node.findLiteral(path, begin, end);
+        if (literal != null) {
+            ApiRoute answer = match(literal, path, end, bounds, depth + 1);
+            if (answer != null) {
+                return answer;
+            }
+        }
+        if (node.wildcard != null) {
+            // Matching the wildcard overwrites any bounds recorded below a failed literal
+            return match(node.wildcard, path, end, bounds, depth + 1);
+        }
+        return null;
+    }
+
+    private ApiRoute matchSegs(Node node, List<String> segs, int depth) {
+        if (depth == segs.size()) {
+            return node.route;
+        }
+        String seg = segs.get(depth);
+        Node literal = node.findLiteral(seg, 0, seg.length());
+        if (literal != null) {
+            ApiRoute answer = matchSegs(literal, segs, depth + 1);
+            if (answer != null) {
+                return answer;
+            }
+        }
+        return node.wildcard != null ? matchSegs(node.wildcard, segs, depth + 1) : null;
+    }
+
+    /*
+     * A mutable node used only while the trie is built.
+     */
+    private static final class BuildNode {
+        private final TreeMap<String, BuildNode> literals = new TreeMap<>();
+        private BuildNode wildcard;
+        private ApiRoute route;
+
+        private Node freeze() {
+            String[] keys = new String[literals.size()];
+            Node[] children = new Node[literals.size()];
+            int i = 0;
+            for (Map.Entry<String, BuildNode> entry : literals.entrySet()) {
+                keys[i] = entry.getKey();
+                children[i] = entry.getValue().freeze();
+                i++;
+            }
+            return new Node(keys, children, wildcard != null ? wildcard.freeze() : null, route);
+        }
+    }
+
+    /*
+     * An immutable node. Literal keys are sorted so that a segment is found with a binary search over the raw path.
+     */
+    private static final class Node {
+        private final String[] keys;
+        private final Node[] children;
+        private final Node wildcard;
+        private final ApiRoute route;
+
+        private Node(String[] keys, Node[] children, Node wildcard, ApiRoute route) {
+            this.keys = keys;
+            this.children = children;
+            this.wildcard = wildcard;
+            this.route = route;
+        }
+
+        private Node findLiteral(String path, int begin, int end) {
+            int low = 0;
+            int high = keys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int compare = compareRegion(path, begin, end, keys[mid]);
+                if (compare > 0) {
+                    low = mid + 1;
+                } else if (compare < 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+    }
+
+}
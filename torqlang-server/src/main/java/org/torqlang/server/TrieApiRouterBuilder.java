@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.torqlang.local.ActorImage;
+import org.torqlang.local.ActorRef;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public final class TrieApiRouterBuilder {
+
+    private final List<ApiRoute> routes = new ArrayList<>();
+
+    /*
+     * Add a route that is already configured, for example with `ApiRoute.withLimiter`.
+     */
+    public final TrieApiRouterBuilder addRoute(ApiRoute route) {
+        routes.add(route);
+        return this;
+    }
+
+    public final TrieApiRouterBuilder addRoute(String pathExpr, ActorImage actorImage, ApiDesc desc) {
+        ApiPath path = new ApiPath(pathExpr);
+        routes.add(new ApiRoute(path, actorImage, desc));
+        return this;
+    }
+
+    public final TrieApiRouterBuilder addRoute(String pathExpr, ActorImage actorImage, ApiDesc desc,
+                                               long timeout, TimeUnit unit)
+    {
+        ApiPath path = new ApiPath(pathExpr);
+        routes.add(new ApiRoute(path, actorImage, desc).withTimeout(timeout, unit));
+        return this;
+    }
+
+    public final TrieApiRouterBuilder addRoute(String pathExpr, ActorRef actorRef, ApiDesc desc) {
+        ApiPath path = new ApiPath(pathExpr);
+        routes.add(new ApiRoute(path, actorRef, desc));
+        return this;
+    }
+
+    public final TrieApiRouterBuilder addRoute(String pathExpr, ActorRef actorRef, ApiDesc desc,
+                                               long timeout, TimeUnit unit)
+    {
+        ApiPath path = new ApiPath(pathExpr);
+        routes.add(new ApiRoute(path, actorRef, desc).withTimeout(timeout, unit));
+        return this;
+    }
+
+    public final ApiRouter build() {
+        return TrieApiRouter.create(routes);
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestApiCompressor {
+
+    private static HttpFields acceptEncoding(String... values) {
+        HttpFields.Mutable fields = HttpFields.build();
+        for (String value : values) {
+            fields.add(HttpHeader.ACCEPT_ENCODING, value);
+        }
+        return fields;
+    }
+
+    private static byte[] createBody() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 2_000; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(i).append(",\"ship_city\":\"Seattle\",\"ship_country_region\":\"USA\"}");
+        }
+        return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testCompress() throws Exception {
+        ApiCompressor compressor = new ApiCompressor();
+        byte[] body = createBody();
+        byte[] gzipBody = compressor.compress(body, ApiCompressor.GZIP);
+        assertArrayEquals(body, readAll(new GZIPInputStream(new ByteArrayInputStream(gzipBody))));
+        assertTrue(gzipBody.length * 10 < body.length);
+        byte[] deflateBody = compressor.compress(body, ApiCompressor.DEFLATE);
+        assertArrayEquals(body, readAll(new InflaterInputStream(new ByteArrayInputStream(deflateBody))));
+        // Compressing the chunks of a body produces the same bytes as compressing the whole body, and pooled
+        // deflaters are reset between uses
+        ByteBuffer first = ByteBuffer.wrap(body, 0, 1000);
+        ByteBuffer second = ByteBuffer.wrap(body, 1000, body.length - 1000);
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(gzipBody, compressor.compress(List.of(first, second), ApiCompressor.GZIP));
+        }
+        assertEquals(0, first.position());
+        assertEquals(1000, second.position());
+        assertEquals(5, compressor.compressedCount());
+        assertEquals(5L * body.length, compressor.bytesIn());
+        assertEquals(4L * gzipBody.length + deflateBody.length, compressor.bytesOut());
+        assertThrows(IllegalArgumentException.class, () -> new ApiCompressor(10, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ApiCompressor(6, -1, 1));
+    }
+
+    @Test
+    public void testSelectEncoding() {
+        ApiCompressor compressor = new ApiCompressor(ApiCompressor.DEFAULT_LEVEL, 100, 1);
+        assertNull(compressor.selectEncoding(HttpFields.EMPTY, 1000));
+        assertNull(compressor.selectEncoding(acceptEncoding("gzip"), 99));
+        assertEquals(ApiCompressor.GZIP, compressor.selectEncoding(acceptEncoding("gzip, deflate, br"), 100));
+        assertEquals(ApiCompressor.GZIP, compressor.selectEncoding(acceptEncoding("deflate", "gzip"), 100));
+        assertEquals(ApiCompressor.DEFLATE, compressor.selectEncoding(acceptEncoding("deflate"), 100));
+        assertEquals(ApiCompressor.DEFLATE, compressor.selectEncoding(acceptEncoding("gzip;q=0.5, deflate"), 100));
+        assertEquals(ApiCompressor.GZIP, compressor.selectEncoding(acceptEncoding("*"), 100));
+        assertEquals(ApiCompressor.DEFLATE, compressor.selectEncoding(acceptEncoding("gzip;q=0, *"), 100));
+        assertNull(compressor.selectEncoding(acceptEncoding("gzip;q=0, deflate;q=0"), 100));
+        assertNull(compressor.selectEncoding(acceptEncoding("identity"), 100));
+        assertNull(compressor.selectEncoding(acceptEncoding("*;q=0"), 100));
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.local.ActorImage;
+import org.torqlang.local.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestApiConcurrencyLimiter {
+
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    public void testAdaptive() {
+        ApiConcurrencyLimiter limiter = ApiConcurrencyLimiter.builder()
+            .setLimit(10)
+            .setAdaptiveLimit(2, 12, 100, TimeUnit.MILLISECONDS)
+            .build();
+        assertTrue(limiter.isAdaptive());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.latencyThresholdNanos());
+        // A route using less than half its limit does not raise it
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.acquire(() -> {}));
+            limiter.release(FAST_NANOS, false);
+        }
+        assertEquals(10, limiter.limit());
+        // Fast responses raise the limit by about one per limit's worth of requests while the limit is in use
+        for (int i = 0; i < 9; i++) {
+            assertTrue(limiter.acquire(() -> {}));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.acquire(() -> {}));
+            limiter.release(FAST_NANOS, false);
+        }
+        assertEquals(11, limiter.limit());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.acquire(() -> {}));
+            limiter.release(FAST_NANOS, false);
+        }
+        assertEquals(12, limiter.limit());
+        // Slow and dropped responses lower the limit multiplicatively, but not below the minimum
+        limiter.release(SLOW_NANOS, false);
+        assertEquals(10, limiter.limit());
+        limiter.release(FAST_NANOS, true);
+        assertEquals(9, limiter.limit());
+        for (int i = 0; i < 7; i++) {
+            limiter.release(SLOW_NANOS, false);
+        }
+        assertEquals(0, limiter.inFlightCount());
+        assertEquals(4, limiter.limit());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.acquire(() -> {}));
+            limiter.release(SLOW_NANOS, false);
+        }
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    public void testBuilder() {
+        assertThrows(IllegalArgumentException.class, () -> ApiConcurrencyLimiter.builder().setLimit(0).build());
+        assertThrows(IllegalArgumentException.class, () -> ApiConcurrencyLimiter.builder()
+            .setLimit(20)
+            .setAdaptiveLimit(1, 10, 1, TimeUnit.SECONDS)
+            .build());
+        assertThrows(IllegalArgumentException.class, () -> ApiConcurrencyLimiter.builder()
+            .setBackoffRatio(1.0)
+            .build());
+        assertThrows(IllegalArgumentException.class, () -> ApiConcurrencyLimiter.builder()
+            .setAdaptiveLimit(1, 10, 0, TimeUnit.SECONDS));
+        ApiConcurrencyLimiter limiter = ApiConcurrencyLimiter.builder().build();
+        assertFalse(limiter.isAdaptive());
+        assertEquals(ApiConcurrencyLimiter.DEFAULT_LIMIT, limiter.limit());
+        assertEquals(ApiConcurrencyLimiter.DEFAULT_RETRY_AFTER_SECONDS, limiter.retryAfterSeconds());
+    }
+
+    @Test
+    public void testMetrics() {
+        ApiConcurrencyLimiter limiter = ApiConcurrencyLimiter.builder()
+            .setLimit(1)
+            .setMaxQueueSize(1)
+            .build();
+        Metrics metrics = new Metrics();
+        limiter.addMetrics(metrics, "/orders");
+        assertTrue(limiter.acquire(() -> {}));
+        assertTrue(limiter.acquire(() -> {}));
+        assertFalse(limiter.acquire(() -> {}));
+        // Values are read when collected, so they follow the limiter
+        SortedMap<String, Long> values = metrics.values();
+        assertEquals(1, values.get("api.limiter./orders.limit"));
+        assertEquals(1, values.get("api.limiter./orders.in_flight"));
+        assertEquals(1, values.get("api.limiter./orders.queue_size"));
+        assertEquals(1, values.get("api.limiter./orders.admitted"));
+        assertEquals(1, values.get("api.limiter./orders.queued"));
+        assertEquals(1, values.get("api.limiter./orders.rejected"));
+        limiter.release(FAST_NANOS, false);
+        limiter.release(FAST_NANOS, false);
+        values = metrics.values();
+        assertEquals(0, values.get("api.limiter./orders.in_flight"));
+        assertEquals(0, values.get("api.limiter./orders.queue_size"));
+    }
+
+    @Test
+    public void testRoute() {
+        ApiConcurrencyLimiter limiter = ApiConcurrencyLimiter.builder().setLimit(4).build();
+        ApiRoute route = new ApiRoute(new ApiPath("/orders"), (ActorImage) null, ApiDesc.builder().build());
+        assertNull(route.limiter);
+        ApiRoute limited = route.withTimeout(5, TimeUnit.SECONDS).withLimiter(limiter);
+        assertSame(limiter, limited.limiter);
+        assertEquals(TimeUnit.SECONDS.toNanos(5), limited.timeoutNanos);
+        assertSame(limiter, limited.withTimeout(1, TimeUnit.SECONDS).limiter);
+        ApiRouteMatch match = ApiRouter.trieBuilder().addRoute(limited).build().findMatch("/orders");
+        assertSame(limiter, match.route().limiter);
+    }
+
+    @Test
+    public void testStatic() {
+        ApiConcurrencyLimiter limiter = ApiConcurrencyLimiter.builder()
+            .setLimit(2)
+            .setMaxQueueSize(2)
+            .setRetryAfterSeconds(3)
+            .build();
+        assertEquals(3, limiter.retryAfterSeconds());
+        List<String> admitted = new ArrayList<>();
+        assertTrue(limiter.acquire(() -> admitted.add("a")));
+        assertTrue(limiter.acquire(() -> admitted.add("b")));
+        // Requests over the limit wait in the queue until it is full, and are rejected after that
+        assertTrue(limiter.acquire(() -> admitted.add("c")));
+        assertTrue(limiter.acquire(() -> admitted.add("d")));
+        assertFalse(limiter.acquire(() -> admitted.add("e")));
+        assertEquals(List.of("a", "b"), admitted);
+        assertEquals(2, limiter.inFlightCount());
+        assertEquals(2, limiter.queueSize());
+        assertEquals(1, limiter.rejectedCount());
+        // Releasing a permit admits the next queued request, and a static limit never changes
+        limiter.release(SLOW_NANOS, true);
+        assertEquals(List.of("a", "b", "c"), admitted);
+        limiter.cancel();
+        assertEquals(List.of("a", "b", "c", "d"), admitted);
+        assertEquals(2, limiter.inFlightCount());
+        assertEquals(0, limiter.queueSize());
+        limiter.release(FAST_NANOS, false);
+        limiter.release(FAST_NANOS, false);
+        assertEquals(0, limiter.inFlightCount());
+        assertEquals(2, limiter.limit());
+        assertEquals(4, limiter.admittedCount());
+        assertEquals(2, limiter.queuedCount());
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.util.Fields;
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.*;
+import org.torqlang.local.Address;
+import org.torqlang.local.FutureResponse;
+import org.torqlang.local.Int64Desc;
+import org.torqlang.local.RecDesc;
+import org.torqlang.local.StrDesc;
+import org.torqlang.local.TupleDesc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestApiDesc {
+
+    private static final RecDesc QUERY_DESC = RecDesc.of(Str.of("order_id"), Int64Desc.BASIC);
+
+    private static HttpFields createHeaderFields() {
+        return HttpFields.build()
+            .add("Accept", "application/json")
+            .add("accept", "text/plain")
+            .add("User-Agent", "test")
+            .add("X-Request-Id", "42");
+    }
+
+    private static Fields createQueryFields() {
+        Fields queryFields = new Fields();
+        queryFields.add("order_id", "10248");
+        queryFields.add("ship_city", "\"Reims\"");
+        return queryFields;
+    }
+
+    @Test
+    public void testAllHeaders() {
+        ApiDesc apiDesc = ApiDesc.builder().build();
+        assertNull(apiDesc.headerNames());
+        HttpFields headerFields = HttpFields.build()
+            .add("User-Agent", "test")
+            .add("X-Request-Id", "42");
+        CompleteRec headersRec = apiDesc.toHeadersRec(headerFields);
+        assertEquals(2, headersRec.fieldCount());
+        assertEquals(Str.of("test"), headersRec.findValue(Str.of("User-Agent")));
+        assertEquals(Str.of("42"), headersRec.findValue(Str.of("X-Request-Id")));
+    }
+
+    @Test
+    public void testAllQueryFields() {
+        ApiDesc apiDesc = ApiDesc.builder()
+            .setQueryDesc(QUERY_DESC)
+            .build();
+        assertNull(apiDesc.queryNames());
+        CompleteRec queryRec = apiDesc.toQueryRec(createQueryFields());
+        assertEquals(2, queryRec.fieldCount());
+        assertEquals(Int64.of(10248), queryRec.findValue(Str.of("order_id")));
+        assertEquals(Str.of("Reims"), queryRec.findValue(Str.of("ship_city")));
+    }
+
+    @Test
+    public void testDeclaredHeaders() {
+        ApiDesc apiDesc = ApiDesc.builder()
+            .setHeaderNames(List.of("x-request-id", "Accept", "Authorization"))
+            .build();
+        CompleteRec headersRec = apiDesc.toHeadersRec(createHeaderFields());
+        // Names match without regard to case, missing headers are omitted, and repeated headers are combined
+        assertEquals(2, headersRec.fieldCount());
+        assertEquals(Str.of("42"), headersRec.findValue(Str.of("x-request-id")));
+        assertEquals(Str.of("application/json, text/plain"), headersRec.findValue(Str.of("Accept")));
+        assertNull(headersRec.findValue(Str.of("Authorization")));
+        assertNull(headersRec.findValue(Str.of("User-Agent")));
+    }
+
+    @Test
+    public void testDeclaredQueryFields() {
+        ApiDesc apiDesc = ApiDesc.builder()
+            .setQueryDesc(QUERY_DESC)
+            .setQueryNames(List.of("order_id", "customer_id"))
+            .build();
+        CompleteRec queryRec = apiDesc.toQueryRec(createQueryFields());
+        assertEquals(1, queryRec.fieldCount());
+        assertEquals(Int64.of(10248), queryRec.findValue(Str.of("order_id")));
+    }
+
+    @Test
+    public void testPathTupleFromMatch() {
+        ApiDesc apiDesc = ApiDesc.builder()
+            .setPathDesc(TupleDesc.of(StrDesc.BASIC, Int64Desc.BASIC, StrDesc.BASIC, Int64Desc.BASIC))
+            .build();
+        FutureResponse target = new FutureResponse(Address.create("target"));
+        String pathExpr = "/orders/{id}/lines/{line}";
+        List<ApiRouter> routers = List.of(
+            ApiRouter.trieBuilder().addRoute(pathExpr, target, apiDesc).build(),
+            ApiRouter.staticBuilder().addRoute(pathExpr, target, apiDesc).build()
+        );
+        for (ApiRouter router : routers) {
+            ApiRouteMatch match = router.findMatch("/orders/10248/lines/3");
+            CompleteTuple pathTuple = apiDesc.toPathTuple(match);
+            assertEquals(4, pathTuple.fieldCount());
+            assertEquals(Str.of("orders"), pathTuple.valueAt(0));
+            assertEquals(Int64.of(10248), pathTuple.valueAt(1));
+            assertEquals(Str.of("lines"), pathTuple.valueAt(2));
+            assertEquals(Int64.of(3), pathTuple.valueAt(3));
+            // Building the tuple from the match agrees with building it from the split path
+            assertEquals(apiDesc.toPathTuple(match.path()), pathTuple);
+        }
+    }
+
+    @Test
+    public void testNoHeadersOrQueryFields() {
+        ApiDesc apiDesc = ApiDesc.builder()
+            .setHeaderNames(List.of())
+            .setQueryNames(List.of())
+            .build();
+        CompleteRec headersRec = apiDesc.toHeadersRec(createHeaderFields());
+        assertEquals(0, headersRec.fieldCount());
+        CompleteRec queryRec = apiDesc.toQueryRec(createQueryFields());
+        assertEquals(0, queryRec.fieldCount());
+        // Routes that consume nothing share one empty record
+        assertSame(headersRec, apiDesc.toHeadersRec(HttpFields.EMPTY));
+        assertSame(queryRec, apiDesc.toQueryRec(Fields.EMPTY));
+    }
+
+}
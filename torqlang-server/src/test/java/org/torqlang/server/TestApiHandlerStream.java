@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.server.Request;
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.*;
+import org.torqlang.local.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestApiHandlerStream {
+
+    private static final String CHUNKED_END = "\r\n0\r\n\r\n";
+    private static final Pattern CONTENT_LENGTH_PATTERN = Pattern.compile("(?i)content-length: (\\d+)");
+    private static final Str LARGE_ELEMENT = Str.of("x".repeat(64 * 1024));
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Condition not met within 5 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /*
+     * Wait until the publisher stops receiving requests for a while, and return its request count.
+     */
+    private static int awaitRequestsStopped(Publisher publisher) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int count = publisher.requestCount();
+        while (true) {
+            Thread.sleep(250);
+            int next = publisher.requestCount();
+            if (next == count) {
+                return count;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                fail("Publisher is still receiving requests");
+            }
+            count = next;
+        }
+    }
+
+    private static CompleteTuple batch(Complete... elements) {
+        CompleteTupleBuilder builder = Rec.completeTupleBuilder();
+        for (Complete element : elements) {
+            builder.addValue(element);
+        }
+        return builder.build();
+    }
+
+    /*
+     * Decode a chunked body, ignoring a final chunk that is incomplete.
+     */
+    private static String decodeChunks(String response) {
+        int i = response.indexOf("\r\n\r\n") + 4;
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int sizeEnd = response.indexOf("\r\n", i);
+            if (sizeEnd < 0) {
+                return sb.toString();
+            }
+            int size = Integer.parseInt(response.substring(i, sizeEnd), 16);
+            if (size == 0 || sizeEnd + 2 + size > response.length()) {
+                return sb.toString();
+            }
+            sb.append(response, sizeEnd + 2, sizeEnd + 2 + size);
+            i = sizeEnd + 2 + size + 2;
+        }
+    }
+
+    private static CompleteRec emptyContextProvider(Request request) {
+        return Rec.completeRecBuilder().build();
+    }
+
+    private static CompleteRec eof(boolean more) {
+        return Rec.completeRecBuilder()
+            .setLabel(Eof.SINGLETON)
+            .addField(Str.of("more"), Bool.of(more))
+            .build();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Socket openStream(int port, String path, boolean smallReceiveBuffer) throws IOException {
+        Socket socket = new Socket();
+        if (smallReceiveBuffer) {
+            // Set before connecting so that the receive window stays small
+            socket.setReceiveBufferSize(4096);
+        }
+        socket.connect(new InetSocketAddress("localhost", port));
+        socket.setSoTimeout(5000);
+        socket.getOutputStream().write(("GET /api" + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+        return socket;
+    }
+
+    /*
+     * Read until the response is complete or the server closes the connection, which is how an aborted response ends.
+     */
+    private static String readResponse(Socket socket) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream in = socket.getInputStream();
+        byte[] buffer = new byte[8192];
+        try {
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, count);
+                String response = bytes.toString(StandardCharsets.UTF_8);
+                int headersEnd = response.indexOf("\r\n\r\n");
+                if (headersEnd < 0) {
+                    continue;
+                }
+                Matcher matcher = CONTENT_LENGTH_PATTERN.matcher(response.substring(0, headersEnd));
+                if (matcher.find() ? response.length() - headersEnd - 4 >= Integer.parseInt(matcher.group(1))
+                    : response.endsWith(CHUNKED_END))
+                {
+                    return response;
+                }
+            }
+        } catch (SocketException exc) {
+            // Connection reset by the server
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void respond(Envelope request, Complete message) {
+        request.requester().send(Envelope.createResponse(message, request.requestId()));
+    }
+
+    private static LocalServer startServer(int port, ApiRoute... routes) throws Exception {
+        TrieApiRouterBuilder routerBuilder = ApiRouter.trieBuilder();
+        for (ApiRoute route : routes) {
+            routerBuilder.addRoute(route);
+        }
+        ApiHandler handler = ApiHandler.builder()
+            .setSystem(ActorSystem.defaultSystem())
+            .setRouter(routerBuilder.build())
+            .build();
+        LocalServer server = LocalServer.builder()
+            .setPort(port)
+            .addContextHandler(handler, "/api")
+            .build();
+        server.start();
+        return server;
+    }
+
+    private static ApiDesc streamDesc(ApiStreamFormat format) {
+        return ApiDesc.builder()
+            .setPathDesc(TupleDesc.of(StrDesc.BASIC))
+            .setContextProvider(TestApiHandlerStream::emptyContextProvider)
+            .setStreamFormat(format)
+            .build();
+    }
+
+    @Test
+    public void testAllBatchesForOneRequest() throws Exception {
+        Publisher publisher = new Publisher("all", (self, request) -> {
+            respond(request, batch(Int64.of(1), Int64.of(2)));
+            respond(request, batch(Int64.of(3)));
+            respond(request, eof(false));
+        });
+        int port = freePort();
+        LocalServer server = startServer(port,
+            new ApiRoute(new ApiPath("/all"), publisher, streamDesc(ApiStreamFormat.JSON_ARRAY)));
+        try (Socket socket = openStream(port, "/all", false)) {
+            String response = readResponse(socket);
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.endsWith(CHUNKED_END));
+            assertEquals("[1,2,3]", decodeChunks(response));
+            assertEquals(1, publisher.requestCount());
+        } finally {
+            server.stop();
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    public void testClientGoesAway() throws Exception {
+        // Answer every request with a large batch and ask for more, so only the client limits the stream
+        Publisher publisher = new Publisher("endless", (self, request) -> {
+            respond(request, batch(LARGE_ELEMENT));
+            respond(request, eof(true));
+        });
+        ApiConcurrencyLimiter limiter = ApiConcurrencyLimiter.builder().build();
+        int port = freePort();
+        LocalServer server = startServer(port,
+            new ApiRoute(new ApiPath("/endless"), publisher, streamDesc(ApiStreamFormat.NDJSON)).withLimiter(limiter));
+        try {
+            Socket socket = openStream(port, "/endless", true);
+            // The client does not read, so each next request waits for its previous batch to be written, and the
+            // stream stalls once the socket buffers are full
+            int stalledCount = awaitRequestsStopped(publisher);
+            assertTrue(stalledCount > 1);
+            assertTrue(stalledCount < 1000, "Requests: " + stalledCount);
+            assertEquals(1, limiter.inFlightCount());
+            socket.close();
+            // The pending write fails, the stream completes, and no further batch is requested
+            awaitTrue(() -> limiter.inFlightCount() == 0);
+            int finalCount = publisher.requestCount();
+            Thread.sleep(100);
+            assertEquals(finalCount, publisher.requestCount());
+        } finally {
+            server.stop();
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailureAfterCommit() throws Exception {
+        Publisher publisher = new Publisher("failAfter", (self, request) -> {
+            if (self.requestCount() == 1) {
+                respond(request, batch(Int64.of(1)));
+                respond(request, eof(true));
+            } else {
+                respond(request, FailedValue.create(self.address().toString(), new IllegalStateException("Broken")));
+            }
+        });
+        int port = freePort();
+        LocalServer server = startServer(port,
+            new ApiRoute(new ApiPath("/failAfter"), publisher, streamDesc(ApiStreamFormat.NDJSON)));
+        try (Socket socket = openStream(port, "/failAfter", false)) {
+            String response = readResponse(socket);
+            // The status was already sent, so the response is aborted without its final chunk
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertFalse(response.endsWith(CHUNKED_END));
+            assertEquals("1\n", decodeChunks(response));
+            assertEquals(2, publisher.requestCount());
+        } finally {
+            server.stop();
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailureBeforeCommit() throws Exception {
+        Publisher publisher = new Publisher("failBefore", (self, request) ->
+            respond(request, FailedValue.create(self.address().toString(), new IllegalStateException("Broken"))));
+        int port = freePort();
+        LocalServer server = startServer(port,
+            new ApiRoute(new ApiPath("/failBefore"), publisher, streamDesc(ApiStreamFormat.NDJSON)));
+        try (Socket socket = openStream(port, "/failBefore", false)) {
+            String response = readResponse(socket);
+            // Nothing was written yet, so the failure is answered like an unstreamed failure
+            assertTrue(response.startsWith("HTTP/1.1 500"));
+            assertTrue(response.contains("text/plain"));
+            assertTrue(response.contains("Broken"));
+        } finally {
+            server.stop();
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    public void testOneBatchPerRequest() throws Exception {
+        Publisher publisher = new Publisher("each", (self, request) -> {
+            int n = self.requestCount();
+            if (n <= 3) {
+                // Let time pass between requests, so each deadline can be told apart
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException exc) {
+                    throw new RuntimeException(exc);
+                }
+                respond(request, batch(Int64.of(n)));
+                respond(request, eof(true));
+            } else {
+                respond(request, eof(false));
+            }
+        });
+        int port = freePort();
+        LocalServer server = startServer(port,
+            new ApiRoute(new ApiPath("/each"), publisher, streamDesc(ApiStreamFormat.JSON_ARRAY))
+                .withTimeout(10, TimeUnit.SECONDS));
+        try (Socket socket = openStream(port, "/each", false)) {
+            String response = readResponse(socket);
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.endsWith(CHUNKED_END));
+            assertEquals("[1,2,3]", decodeChunks(response));
+            assertEquals(4, publisher.requestCount());
+            // The route timeout bounds each request, so every request has a later deadline than the one before
+            List<Long> deadlines = publisher.deadlines();
+            for (int i = 1; i < deadlines.size(); i++) {
+                assertNotEquals(Envelope.NO_DEADLINE, deadlines.get(i));
+                assertTrue(deadlines.get(i) - deadlines.get(i - 1) > 0);
+            }
+        } finally {
+            server.stop();
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    public void testTooManyPendingBatches() throws Exception {
+        int batchCount = ApiHandler.MAX_PENDING_BATCHES * 4;
+        Publisher publisher = new Publisher("flood", (self, request) -> {
+            for (int i = 0; i < batchCount; i++) {
+                respond(request, batch(LARGE_ELEMENT));
+            }
+            respond(request, eof(false));
+        });
+        ApiConcurrencyLimiter limiter = ApiConcurrencyLimiter.builder().build();
+        int port = freePort();
+        LocalServer server = startServer(port,
+            new ApiRoute(new ApiPath("/flood"), publisher, streamDesc(ApiStreamFormat.NDJSON)).withLimiter(limiter));
+        try (Socket socket = openStream(port, "/flood", true)) {
+            // Hold back the client until every batch is sent, so the batches queue behind a stalled write
+            publisher.awaitIdle();
+            String response = readResponse(socket);
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertFalse(response.endsWith(CHUNKED_END));
+            assertTrue(decodeChunks(response).length() < batchCount * LARGE_ELEMENT.value.length());
+            awaitTrue(() -> limiter.inFlightCount() == 0);
+        } finally {
+            server.stop();
+            publisher.shutdown();
+        }
+    }
+
+    /*
+     * A publisher answers its requests on its own thread, in the order received, as an actor would.
+     */
+    private static final class Publisher implements ActorRef {
+        private final Address address;
+        private final BiConsumer<Publisher, Envelope> behavior;
+        private final ExecutorService executor = Executors.newSingleThreadExecutor();
+        private final List<Long> deadlines = new ArrayList<>();
+
+        private Publisher(String name, BiConsumer<Publisher, Envelope> behavior) {
+            this.address = Address.create(name);
+            this.behavior = behavior;
+        }
+
+        @Override
+        public final Address address() {
+            return address;
+        }
+
+        private void awaitIdle() throws Exception {
+            executor.submit(() -> null).get(5, TimeUnit.SECONDS);
+        }
+
+        private synchronized List<Long> deadlines() {
+            return List.copyOf(deadlines);
+        }
+
+        private synchronized int requestCount() {
+            return deadlines.size();
+        }
+
+        @Override
+        public final void send(Envelope envelope) {
+            synchronized (this) {
+                deadlines.add(envelope.deadlineNanos());
+            }
+            executor.execute(() -> behavior.accept(this, envelope));
+        }
+
+        private void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+
+}
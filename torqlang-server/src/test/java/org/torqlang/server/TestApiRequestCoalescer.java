@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.*;
+import org.torqlang.local.ActorImage;
+import org.torqlang.local.ActorRef;
+import org.torqlang.local.Address;
+import org.torqlang.local.Envelope;
+import org.torqlang.local.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestApiRequestCoalescer {
+
+    private static final CompleteRec EMPTY_REC = Rec.completeRecBuilder().build();
+
+    private static ApiRequestKey createKey(ApiRoute route, long id) {
+        CompleteTuple pathTuple = Rec.completeTupleBuilder()
+            .addValue(Str.of("orders"))
+            .addValue(Int64.of(id))
+            .build();
+        return new ApiRequestKey(route, pathTuple, EMPTY_REC, EMPTY_REC, EMPTY_REC);
+    }
+
+    private static ApiRoute createRoute() {
+        return new ApiRoute(new ApiPath("/orders/{id}"), (ActorImage) null, ApiDesc.builder().build());
+    }
+
+    @Test
+    public void testConcurrentJoins() throws Exception {
+        ApiRequestCoalescer coalescer = new ApiRequestCoalescer();
+        ApiRoute route = createRoute();
+        int threadCount = 8;
+        int requestCount = 2_000;
+        ConcurrentLinkedQueue<ActorRef> flights = new ConcurrentLinkedQueue<>();
+        AtomicInteger responseCount = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exc) {
+                    throw new IllegalStateException(exc);
+                }
+                for (int i = 0; i < requestCount; i++) {
+                    ActorRef flight = coalescer.join(createKey(route, i % 4),
+                        new TestRequester(envelope -> responseCount.incrementAndGet()));
+                    if (flight != null) {
+                        flights.add(flight);
+                        if (i % 3 == 0) {
+                            flight.send(Envelope.createResponse(Null.SINGLETON, Null.SINGLETON));
+                            flights.remove(flight);
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (ActorRef flight : flights) {
+            flight.send(Envelope.createResponse(Null.SINGLETON, Null.SINGLETON));
+        }
+        // Every request receives exactly one response, whether it led a flight or joined one
+        assertEquals(threadCount * requestCount, responseCount.get());
+        assertEquals(threadCount * requestCount, coalescer.flightCount() + coalescer.joinCount());
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    @Test
+    public void testJoin() {
+        ApiRequestCoalescer coalescer = new ApiRequestCoalescer();
+        assertEquals(0.0, coalescer.coalescingRatio());
+        ApiRoute route = createRoute();
+        List<String> received = new ArrayList<>();
+        TestRequester leader = new TestRequester(envelope -> received.add("leader:" + envelope.message()));
+        TestRequester follower1 = new TestRequester(envelope -> received.add("follower1:" + envelope.message()));
+        TestRequester follower2 = new TestRequester(envelope -> received.add("follower2:" + envelope.message()));
+        TestRequester other = new TestRequester(envelope -> received.add("other:" + envelope.message()));
+        ActorRef flight = coalescer.join(createKey(route, 10248), leader);
+        assertNotNull(flight);
+        assertNull(coalescer.join(createKey(route, 10248), follower1));
+        assertNull(coalescer.join(createKey(route, 10248), follower2));
+        ActorRef otherFlight = coalescer.join(createKey(route, 10249), other);
+        assertNotNull(otherFlight);
+        assertNotSame(flight, otherFlight);
+        assertEquals(2, coalescer.inFlightCount());
+        assertEquals(2, coalescer.flightCount());
+        assertEquals(2, coalescer.joinCount());
+        assertEquals(0.5, coalescer.coalescingRatio());
+        Metrics metrics = new Metrics();
+        coalescer.addMetrics(metrics, "orders");
+        assertEquals(2, metrics.values().get("api.coalescer.orders.in_flight"));
+        assertEquals(2, metrics.values().get("api.coalescer.orders.flights"));
+        assertEquals(2, metrics.values().get("api.coalescer.orders.joins"));
+        assertEquals(50, metrics.values().get("api.coalescer.orders.coalescing_ratio_percent"));
+        // The response fans out to every requester in arrival order
+        flight.send(Envelope.createResponse(Str.of("a"), Null.SINGLETON));
+        assertEquals(List.of("leader:a", "follower1:a", "follower2:a"), received);
+        assertEquals(1, coalescer.inFlightCount());
+        // A request that arrives after the response starts a new flight
+        received.clear();
+        ActorRef nextFlight = coalescer.join(createKey(route, 10248), follower1);
+        assertNotNull(nextFlight);
+        assertNotSame(flight, nextFlight);
+        nextFlight.send(Envelope.createResponse(Str.of("b"), Null.SINGLETON));
+        otherFlight.send(Envelope.createResponse(Str.of("c"), Null.SINGLETON));
+        assertEquals(List.of("follower1:b", "other:c"), received);
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    private static final class TestRequester implements ActorRef {
+        private static final Address ADDRESS = Address.create("TestRequester");
+        private final Consumer<Envelope> consumer;
+
+        private TestRequester(Consumer<Envelope> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public final Address address() {
+            return ADDRESS;
+        }
+
+        @Override
+        public final void send(Envelope envelope) {
+            consumer.accept(envelope);
+        }
+    }
+
+}
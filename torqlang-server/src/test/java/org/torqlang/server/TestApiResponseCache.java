@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.*;
+import org.torqlang.local.ActorImage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestApiResponseCache {
+
+    private static final CompleteRec EMPTY_REC = Rec.completeRecBuilder().build();
+
+    private static ApiRoute createRoute(String path) {
+        return new ApiRoute(new ApiPath(path), (ActorImage) null, ApiDesc.builder().build());
+    }
+
+    private static ApiRequestKey createKey(ApiRoute route, CompleteRec queryRec) {
+        CompleteTuple pathTuple = Rec.completeTupleBuilder()
+            .addValue(Str.of(route.path.segs.get(0)))
+            .build();
+        return new ApiRequestKey(route, pathTuple, queryRec, EMPTY_REC, EMPTY_REC);
+    }
+
+    private static byte[] toBytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCompressedBody() {
+        ApiResponseCache cache = new ApiResponseCache(1024 * 1024, 1, TimeUnit.MINUTES);
+        ApiCompressor compressor = new ApiCompressor();
+        ApiRoute route = createRoute("/customers");
+        ApiRequestKey key = createKey(route, EMPTY_REC);
+        byte[] body = toBytes("[" + "{\"name\":\"customer\"},".repeat(200) + "{}]");
+        ApiResponseCache.Entry entry = cache.put(key, body, cache.generation());
+        // A hot response is compressed once for each encoding, and its compressed bytes count toward the size
+        byte[] gzipBody = cache.compressedBody(entry, ApiCompressor.GZIP, compressor);
+        assertSame(gzipBody, cache.compressedBody(cache.get(key), ApiCompressor.GZIP, compressor));
+        assertEquals(1, compressor.compressedCount());
+        assertEquals(body.length + gzipBody.length, cache.size());
+        byte[] deflateBody = cache.compressedBody(entry, ApiCompressor.DEFLATE, compressor);
+        assertEquals(2, compressor.compressedCount());
+        assertEquals(body.length + gzipBody.length + deflateBody.length, cache.size());
+        // The compressed representations have their own entity tags
+        String gzipEtag = ApiResponseCache.encodedEtag(entry.etag, ApiCompressor.GZIP);
+        assertEquals(entry.etag.substring(0, entry.etag.length() - 1) + "-gzip\"", gzipEtag);
+        assertNotEquals(gzipEtag, ApiResponseCache.encodedEtag(entry.etag, ApiCompressor.DEFLATE));
+        // Bytes compressed for an entry that is no longer stored are returned but not kept
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        ApiResponseCache.Entry evicted = cache.put(key, body, cache.generation() - 1);
+        cache.compressedBody(evicted, ApiCompressor.GZIP, compressor);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEtag() {
+        String etag = ApiResponseCache.computeEtag(toBytes("[1,2,3]"));
+        assertEquals(34, etag.length());
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, ApiResponseCache.computeEtag(toBytes("[1,2,3]")));
+        assertNotEquals(etag, ApiResponseCache.computeEtag(toBytes("[1,2,4]")));
+    }
+
+    @Test
+    public void testEviction() {
+        ApiResponseCache cache = new ApiResponseCache(10, 1, TimeUnit.MINUTES);
+        ApiRoute route = createRoute("/customers");
+        ApiRequestKey a = createKey(route, Rec.completeRecBuilder().addField(Str.of("k"), Str.of("a")).build());
+        ApiRequestKey b = createKey(route, Rec.completeRecBuilder().addField(Str.of("k"), Str.of("b")).build());
+        ApiRequestKey c = createKey(route, Rec.completeRecBuilder().addField(Str.of("k"), Str.of("c")).build());
+        cache.put(a, toBytes("aaaa"), cache.generation());
+        cache.put(b, toBytes("bbbb"), cache.generation());
+        // Touch `a` so that `b` is the least recently used entry
+        assertNotNull(cache.get(a));
+        cache.put(c, toBytes("cccc"), cache.generation());
+        assertEquals(8, cache.size());
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+        // A body larger than the cache is returned but not stored
+        ApiResponseCache.Entry entry = cache.put(b, toBytes("bbbbbbbbbbbb"), cache.generation());
+        assertEquals(ApiResponseCache.computeEtag(toBytes("bbbbbbbbbbbb")), entry.etag);
+        assertNull(cache.get(b));
+        assertEquals(2, cache.entryCount());
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        ApiResponseCache cache = new ApiResponseCache(1, TimeUnit.MILLISECONDS);
+        ApiRequestKey key = createKey(createRoute("/customers"), EMPTY_REC);
+        cache.put(key, toBytes("[]"), cache.generation());
+        Thread.sleep(5);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testIfNoneMatch() {
+        String etag = "\"0123\"";
+        assertFalse(ApiResponseCache.matchesIfNoneMatch(HttpFields.EMPTY, etag));
+        assertTrue(ApiResponseCache.matchesIfNoneMatch(HttpFields.build()
+            .add(HttpHeader.IF_NONE_MATCH, "\"0123\""), etag));
+        assertTrue(ApiResponseCache.matchesIfNoneMatch(HttpFields.build()
+            .add(HttpHeader.IF_NONE_MATCH, "\"abcd\", W/\"0123\""), etag));
+        assertTrue(ApiResponseCache.matchesIfNoneMatch(HttpFields.build()
+            .add(HttpHeader.IF_NONE_MATCH, "\"abcd\"")
+            .add(HttpHeader.IF_NONE_MATCH, "\"0123\""), etag));
+        assertTrue(ApiResponseCache.matchesIfNoneMatch(HttpFields.build()
+            .add(HttpHeader.IF_NONE_MATCH, "*"), etag));
+        assertFalse(ApiResponseCache.matchesIfNoneMatch(HttpFields.build()
+            .add(HttpHeader.IF_NONE_MATCH, "\"abcd\""), etag));
+        assertFalse(ApiResponseCache.matchesIfNoneMatch(HttpFields.build()
+            .add(HttpHeader.ETAG, "\"0123\""), etag));
+    }
+
+    @Test
+    public void testInvalidate() {
+        ApiResponseCache cache = new ApiResponseCache(1, TimeUnit.MINUTES);
+        ApiRoute customers = createRoute("/customers");
+        ApiRoute products = createRoute("/products");
+        ApiRequestKey customersKey = createKey(customers, EMPTY_REC);
+        ApiRequestKey productsKey = createKey(products, EMPTY_REC);
+        cache.put(customersKey, toBytes("[1]"), cache.generation());
+        cache.put(productsKey, toBytes("[2]"), cache.generation());
+        cache.invalidate(customers);
+        assertNull(cache.get(customersKey));
+        assertNotNull(cache.get(productsKey));
+        assertEquals(3, cache.size());
+        // A response computed before an invalidation is not stored after it
+        long generation = cache.generation();
+        cache.invalidateAll();
+        cache.put(customersKey, toBytes("[1]"), generation);
+        assertNull(cache.get(customersKey));
+        assertNull(cache.get(productsKey));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testKeys() {
+        ApiResponseCache cache = new ApiResponseCache(1, TimeUnit.MINUTES);
+        ApiRoute route = createRoute("/orders");
+        CompleteRec query = Rec.completeRecBuilder()
+            .addField(Str.of("ship_city"), Str.of("Reims"))
+            .addField(Str.of("employee_id"), Int64.of(5))
+            .build();
+        cache.put(createKey(route, query), toBytes("[]"), cache.generation());
+        // Kernel records compare by value, whatever order the query parameters arrived in
+        CompleteRec sameQuery = Rec.completeRecBuilder()
+            .addField(Str.of("employee_id"), Int64.of(5))
+            .addField(Str.of("ship_city"), Str.of("Reims"))
+            .build();
+        ApiResponseCache.Entry entry = cache.get(createKey(route, sameQuery));
+        assertNotNull(entry);
+        assertArrayEquals(toBytes("[]"), entry.body);
+        CompleteRec otherQuery = Rec.completeRecBuilder()
+            .addField(Str.of("employee_id"), Int64.of(6))
+            .addField(Str.of("ship_city"), Str.of("Reims"))
+            .build();
+        assertNull(cache.get(createKey(route, otherQuery)));
+        assertNull(cache.get(createKey(createRoute("/orders"), query)));
+    }
+
+}
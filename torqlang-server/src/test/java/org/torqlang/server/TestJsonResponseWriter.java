@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.*;
+import org.torqlang.lang.JsonFormatter;
+import org.torqlang.lang.JsonParser;
+import org.torqlang.local.ArrayDesc;
+import org.torqlang.local.Dec128Desc;
+import org.torqlang.local.JsonKernelParser;
+import org.torqlang.local.RecDesc;
+import org.torqlang.local.ValueTools;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJsonResponseWriter {
+
+    /*
+     * The writer must produce the same JSON as formatting the native value, although fields may be in another order.
+     */
+    private static void assertSameAsFormatter(Complete value) {
+        String expected = JsonFormatter.DEFAULT.format(ValueTools.toNativeValue(value));
+        String actual = JsonResponseWriter.toText(value, null);
+        assertEquals(new JsonParser(expected).parse(), new JsonParser(actual).parse());
+    }
+
+    private static byte[] encode(Complete value, int chunkSize) {
+        List<RetainableByteBuffer> chunks = new JsonResponseWriter(ByteBufferPool.NON_POOLING, chunkSize)
+            .encode(value, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (RetainableByteBuffer chunk : chunks) {
+            ByteBuffer byteBuffer = chunk.getByteBuffer();
+            assertTrue(byteBuffer.remaining() <= chunkSize);
+            byte[] bytes = new byte[byteBuffer.remaining()];
+            byteBuffer.get(bytes);
+            out.writeBytes(bytes);
+            chunk.release();
+        }
+        return out.toByteArray();
+    }
+
+    private static String encodeElements(CompleteTuple values, ApiStreamFormat format, boolean first) {
+        List<RetainableByteBuffer> chunks = new JsonResponseWriter(ByteBufferPool.NON_POOLING, 8)
+            .encodeElements(values, Dec128Desc.BASIC, format, first);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (RetainableByteBuffer chunk : chunks) {
+            ByteBuffer byteBuffer = chunk.getByteBuffer();
+            byte[] bytes = new byte[byteBuffer.remaining()];
+            byteBuffer.get(bytes);
+            out.writeBytes(bytes);
+            chunk.release();
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testChunks() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("aé€😀\n\"");
+        }
+        CompleteTuple tuple = Rec.completeTupleBuilder()
+            .addValue(Str.of(sb.toString()))
+            .addValue(Int64.of(Long.MIN_VALUE))
+            .addValue(Int64.of(1234567890123L))
+            .build();
+        byte[] expected = JsonResponseWriter.toText(tuple, null).getBytes(StandardCharsets.UTF_8);
+        // Multibyte characters and escapes never straddle chunks, whatever the chunk size
+        for (int chunkSize : new int[]{8, 9, 10, 11, 64, 1000, 1 << 20}) {
+            assertArrayEquals(expected, encode(tuple, chunkSize));
+        }
+        assertEquals(Str.of(sb.toString()), ((CompleteTuple) JsonKernelParser.parse(new String(expected,
+            StandardCharsets.UTF_8), null)).valueAt(0));
+    }
+
+    @Test
+    public void testDec128Desc() {
+        Complete value = Rec.completeTupleBuilder()
+            .addValue(Dec128.of("1E+3"))
+            .addValue(Flt64.of(0.1))
+            .build();
+        assertEquals("[\"1E+3\",0.1]", JsonResponseWriter.toText(value, null));
+        assertEquals("[\"1000\",\"0.1\"]", JsonResponseWriter.toText(value, ArrayDesc.of(Dec128Desc.BASIC)));
+        RecDesc recDesc = RecDesc.of(Str.of("price"), Dec128Desc.BASIC);
+        value = Rec.completeRecBuilder()
+            .addField(Str.of("price"), Flt64.of(9.8))
+            .addField(Str.of("weight"), Flt64.of(9.8))
+            .build();
+        assertEquals("{\"price\":\"9.8\",\"weight\":9.8}", JsonResponseWriter.toText(value, recDesc));
+    }
+
+    @Test
+    public void testElements() {
+        CompleteTuple batch1 = Rec.completeTupleBuilder()
+            .addValue(Rec.completeRecBuilder().addField(Str.of("id"), Int32.of(1)).build())
+            .addValue(Dec128.of("1E+3"))
+            .build();
+        CompleteTuple batch2 = Rec.completeTupleBuilder()
+            .addValue(Str.of("a\nb"))
+            .build();
+        ArrayDesc arrayDesc = ArrayDesc.of(Dec128Desc.BASIC);
+        // The elements of a JSON array stream form the same body as an unstreamed tuple of them
+        String arrayText = encodeElements(batch1, ApiStreamFormat.JSON_ARRAY, true) +
+            encodeElements(batch2, ApiStreamFormat.JSON_ARRAY, false) + "]";
+        CompleteTuple all = Rec.completeTupleBuilder()
+            .addValue(batch1.valueAt(0))
+            .addValue(batch1.valueAt(1))
+            .addValue(batch2.valueAt(0))
+            .build();
+        assertEquals(JsonResponseWriter.toText(all, arrayDesc), arrayText);
+        assertEquals("[{\"id\":1},\"1000\",\"a\\nb\"]", arrayText);
+        // Each NDJSON element is one line, because newlines within strings are escaped
+        String ndjsonText = encodeElements(batch1, ApiStreamFormat.NDJSON, true) +
+            encodeElements(batch2, ApiStreamFormat.NDJSON, false);
+        assertEquals("{\"id\":1}\n\"1000\"\n\"a\\nb\"\n", ndjsonText);
+        CompleteTuple invalid = Rec.completeTupleBuilder()
+            .addValue(Rec.completeRecBuilder().addField(Bool.TRUE, Int32.of(0)).build())
+            .build();
+        assertThrows(IllegalArgumentException.class, () -> encodeElements(invalid, ApiStreamFormat.NDJSON, true));
+    }
+
+    @Test
+    public void testErrors() {
+        CompleteRec rec = Rec.completeRecBuilder()
+            .addField(Bool.TRUE, Int32.of(0))
+            .build();
+        assertThrows(IllegalArgumentException.class, () -> JsonResponseWriter.toText(rec, null));
+    }
+
+    @Test
+    public void testLabeled() {
+        CompleteRec rec = Rec.completeRecBuilder()
+            .setLabel(Str.of("point"))
+            .addField(Str.of("x"), Int32.of(1))
+            .build();
+        assertEquals("{\"$label\":\"point\",\"$rec\":{\"x\":1}}", JsonResponseWriter.toText(rec, null));
+        assertSameAsFormatter(rec);
+        CompleteTuple tuple = Rec.completeTupleBuilder()
+            .setLabel(Bool.TRUE)
+            .addValue(Str.of("a"))
+            .build();
+        assertEquals("{\"$label\":true,\"$rec\":[\"a\"]}", JsonResponseWriter.toText(tuple, null));
+        assertSameAsFormatter(tuple);
+    }
+
+    @Test
+    public void testValues() {
+        assertEquals("null", JsonResponseWriter.toText(Null.SINGLETON, null));
+        assertEquals("true", JsonResponseWriter.toText(Bool.TRUE, null));
+        assertEquals("\"" + Eof.NATIVE_VALUE + "\"", JsonResponseWriter.toText(Eof.SINGLETON, null));
+        assertEquals("\"c\"", JsonResponseWriter.toText(Char.of('c'), null));
+        assertEquals("-42", JsonResponseWriter.toText(Int32.of(-42), null));
+        assertEquals("\"a\\tb\\u0001\\\\\"", JsonResponseWriter.toText(Str.of("a\tb\u0001\\"), null));
+        CompleteRec rec = Rec.completeRecBuilder()
+            .addField(Str.of("str"), Str.of("café \"quoted\"\r\n"))
+            .addField(Str.of("int32"), Int32.of(Integer.MIN_VALUE))
+            .addField(Str.of("int64"), Int64.of(Long.MAX_VALUE))
+            .addField(Str.of("flt64"), Flt64.of(-2.5))
+            .addField(Str.of("flt32"), Flt32.of(0.25f))
+            .addField(Str.of("dec128"), Dec128.of("12345.6789"))
+            .addField(Str.of("bool"), Bool.FALSE)
+            .addField(Str.of("null"), Null.SINGLETON)
+            .addField(Str.of("empty_rec"), Rec.completeRecBuilder().build())
+            .addField(Str.of("empty_tuple"), Rec.completeTupleBuilder().build())
+            .addField(Str.of("nested"), Rec.completeTupleBuilder()
+                .addValue(Rec.completeRecBuilder().addField(Str.of("a"), Int32.of(0)).build())
+                .addValue(Rec.completeTupleBuilder().addValue(Str.of("b")).build())
+                .build())
+            .build();
+        assertSameAsFormatter(rec);
+    }
+
+}
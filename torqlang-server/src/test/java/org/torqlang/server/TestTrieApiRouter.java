@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2024 Torqware LLC. All rights reserved.
+ *
+ * You should have received a copy of the Torq Lang License v1.0 along with this program.
+ * If not, see <http://torq-lang.github.io/licensing/torq-lang-license-v1_0>.
+ */
+
+package org.torqlang.server;
+
+import org.eclipse.jetty.server.Request;
+import org.junit.jupiter.api.Test;
+import org.torqlang.klvm.CompleteRec;
+import org.torqlang.klvm.Rec;
+import org.torqlang.local.Actor;
+import org.torqlang.local.ActorImage;
+import org.torqlang.local.ActorSystem;
+import org.torqlang.local.Address;
+import org.torqlang.local.FutureResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTrieApiRouter {
+
+    private static final String SOURCE = """
+        actor TestApi() in
+            handle ask 'GET'#{'query': query} in
+                null
+            end
+        end""";
+
+    private static CompleteRec emptyContextProvider(Request request) {
+        return Rec.completeRecBuilder().build();
+    }
+
+    private static ApiDesc emptyApiDesc() {
+        return ApiDesc.builder()
+            .setContextProvider(TestTrieApiRouter::emptyContextProvider)
+            .build();
+    }
+
+    private static ActorImage testActorImage() throws Exception {
+        return Actor.builder()
+            .setSystem(ActorSystem.defaultSystem())
+            .actorImage(SOURCE);
+    }
+
+    private static ApiRouter router(String... pathExprs) throws Exception {
+        ActorImage actorImage = testActorImage();
+        ApiDesc desc = emptyApiDesc();
+        TrieApiRouterBuilder builder = ApiRouter.trieBuilder();
+        for (String pathExpr : pathExprs) {
+            builder.addRoute(pathExpr, actorImage, desc);
+        }
+        return builder.build();
+    }
+
+    private static String template(ApiRouter router, String path) {
+        ApiRouteMatch match = router.findMatch(path);
+        if (match == null) {
+            assertNull(router.findRoute(new ApiPath(path)));
+            return null;
+        }
+        // Matching the raw path and matching the parsed path must agree
+        assertSame(match.route(), router.findRoute(new ApiPath(path)));
+        return "/" + String.join("/", match.route().path.segs);
+    }
+
+    @Test
+    public void testDuplicate() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> router("/orders/{id}", "/orders/{orderId}"));
+    }
+
+    @Test
+    public void testEmptySegments() throws Exception {
+        ApiRouter router = router("/orders", "/orders/{id}");
+        assertNull(router.findMatch("/orders/"));
+        assertNull(router.findMatch("/orders//lines"));
+        assertNull(router.findMatch("//orders"));
+        assertNull(router.findMatch("orders"));
+        assertNull(router.findMatch(""));
+        assertNull(router.findMatch("/"));
+    }
+
+    @Test
+    public void testLiteralPrecedence() throws Exception {
+        ApiRouter router = router(
+            "/orders/{id}",
+            "/orders/summary",
+            "/orders/{id}/lines",
+            "/orders/{id}/lines/{line}",
+            "/orders/summary/totals"
+        );
+        assertEquals("/orders/summary", template(router, "/orders/summary"));
+        assertEquals("/orders/{id}", template(router, "/orders/10248"));
+        assertEquals("/orders/summary/totals", template(router, "/orders/summary/totals"));
+        // The literal 'summary' leads to a dead end, so matching backtracks to the wildcard
+        assertEquals("/orders/{id}/lines", template(router, "/orders/summary/lines"));
+        assertEquals("/orders/{id}/lines/{line}", template(router, "/orders/summary/lines/2"));
+        assertNull(template(router, "/orders/10248/customer"));
+    }
+
+    @Test
+    public void testParams() throws Exception {
+        ApiRouter router = router("/customers/{customerId}/orders/{orderId}", "/customers/{customerId}");
+        ApiRouteMatch match = router.findMatch("/customers/ALFKI/orders/10643");
+        assertNotNull(match);
+        assertEquals("ALFKI", match.param("customerId"));
+        assertEquals("10643", match.param("orderId"));
+        assertNull(match.param("productId"));
+        assertEquals(4, match.segCount());
+        assertEquals("orders", match.seg(2));
+        assertEquals(List.of("customers", "ALFKI", "orders", "10643"), match.path().segs);
+        match = router.findMatch("/customers/ALFKI");
+        assertNotNull(match);
+        assertEquals("ALFKI", match.param("customerId"));
+        assertNull(match.param("orderId"));
+    }
+
+    @Test
+    public void testRoot() throws Exception {
+        // An actor image route takes its address from its path, so the root route targets an actor reference
+        ApiRouter router = ApiRouter.trieBuilder()
+            .addRoute("/", new FutureResponse(Address.create("root")), emptyApiDesc())
+            .addRoute("/orders", testActorImage(), emptyApiDesc())
+            .build();
+        ApiRouteMatch match = router.findMatch("/");
+        assertNotNull(match);
+        assertEquals(0, match.segCount());
+        assertEquals(List.of(), match.path().segs);
+        assertEquals("/orders", template(router, "/orders"));
+    }
+
+    @Test
+    public void testStaticRoutes() throws Exception {
+        // The same routes and paths as TestStaticApiRouter
+        ApiRouter router = router();
+        assertNull(template(router, "/orders"));
+
+        router = router("/orders");
+        assertNotNull(template(router, "/orders"));
+        assertNull(template(router, "/orders/1"));
+        assertNull(template(router, "/shippers"));
+
+        router = router("/inventory", "/inventory/{id}", "/orders", "/orders/{id}");
+        assertEquals("/orders", template(router, "/orders"));
+        assertEquals("/inventory", template(router, "/inventory"));
+        assertNull(template(router, "/shippers"));
+        assertEquals("/inventory/{id}", template(router, "/inventory/1"));
+        assertNull(template(router, "/inventory/1/locations"));
+        assertEquals("/orders/{id}", template(router, "/orders/1"));
+        assertNull(template(router, "/orders/1/releases"));
+
+        router = router("/orders", "/orders/{id}", "/orders/{id}/releases", "/orders/{id}/releases/{id}");
+        assertEquals("/orders", template(router, "/orders"));
+        assertEquals("/orders/{id}", template(router, "/orders/1"));
+        assertEquals("/orders/{id}/releases", template(router, "/orders/1/releases"));
+        assertEquals("/orders/{id}/releases/{id}", template(router, "/orders/1/releases/1"));
+        assertNull(template(router, "/shippers"));
+        assertNull(template(router, "/orders/1/customer"));
+        assertNull(template(router, "/orders/1/customer/address"));
+    }
+
+}